@@ -13,6 +13,9 @@ public class AndroidLauncher extends AndroidApplication {
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        // Start the startup clock before backend initialization
+        ModelEditorApplication.markLaunchTime();
+
         super.onCreate(savedInstanceState);
 
         // Create Android application configuration
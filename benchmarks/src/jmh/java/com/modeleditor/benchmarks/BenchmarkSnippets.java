@@ -0,0 +1,138 @@
+package com.modeleditor.benchmarks;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.modeleditor.util.ExecutionBudget;
+import com.modeleditor.util.ModelCompiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared inputs for the benchmarks: the snippets from EXAMPLES.md, a
+ * generated huge snippet, and a headless gdx backend so ModelBuilder can
+ * create meshes without a GPU.
+ */
+final class BenchmarkSnippets {
+
+    private static List<String> examples;
+
+    private BenchmarkSnippets() {
+    }
+
+    /**
+     * Start the headless backend once per JVM. Gdx.gl becomes a mock, so
+     * mesh creation runs its CPU side only.
+     */
+    static synchronized void initHeadless() {
+        if (Gdx.app == null) {
+            HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+            config.updatesPerSecond = -1;
+            new HeadlessApplication(new ApplicationAdapter() {
+            }, config);
+        }
+    }
+
+    /**
+     * Create a compiler without an execution budget. The editor's default
+     * limits are sized for chat output and would fail larger snippets
+     * partway through a measurement.
+     */
+    static ModelCompiler newCompiler() {
+        ModelCompiler compiler = new ModelCompiler();
+        compiler.setExecutionBudget(ExecutionBudget.unlimited());
+        return compiler;
+    }
+
+    /**
+     * Get an example by its 1-based index, as passed in the example
+     * benchmark parameter.
+     * @throws IOException if EXAMPLES.md cannot be read
+     */
+    static String example(int index) throws IOException {
+        List<String> all = examples();
+        if (index < 1 || index > all.size()) {
+            throw new IllegalArgumentException("EXAMPLES.md has " + all.size() + " examples, no example " + index);
+        }
+        return all.get(index - 1);
+    }
+
+    /**
+     * Get the java code blocks of EXAMPLES.md, in document order. The file is
+     * located via the modeleditor.examples system property set by the build.
+     */
+    static synchronized List<String> examples() throws IOException {
+        if (examples == null) {
+            File file = new File(System.getProperty("modeleditor.examples", "../EXAMPLES.md"));
+            String markdown = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+
+            List<String> blocks = new ArrayList<>();
+            int start = markdown.indexOf("```java");
+            while (start >= 0) {
+                int bodyStart = markdown.indexOf('\n', start) + 1;
+                int end = markdown.indexOf("```", bodyStart);
+                if (end < 0) break;
+                blocks.add(markdown.substring(bodyStart, end));
+                start = markdown.indexOf("```java", end + 3);
+            }
+            if (blocks.isEmpty()) {
+                throw new IOException("No java examples found in " + file);
+            }
+            examples = blocks;
+        }
+        return examples;
+    }
+
+    /**
+     * Get a snippet by size class: "small" is the first example, "medium"
+     * the largest example, and "huge" a generated prop with many parts,
+     * like the long outputs AI chatbots produce.
+     */
+    static String bySize(String size) throws IOException {
+        List<String> all = examples();
+        if (size.equals("small")) {
+            return all.get(0);
+        }
+        if (size.equals("medium")) {
+            String largest = all.get(0);
+            for (String example : all) {
+                if (example.length() > largest.length()) largest = example;
+            }
+            return largest;
+        }
+        if (size.equals("huge")) {
+            return generated(150);
+        }
+        throw new IllegalArgumentException("Unknown snippet size: " + size);
+    }
+
+    /**
+     * Generate a snippet with the given number of separately written parts.
+     * Each part is unrolled rather than looped, so the source size grows too.
+     */
+    static String generated(int parts) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < parts; i++) {
+            String shape = i % 3 == 0 ? "box(0.5f, 0.5f, 0.5f)"
+                : i % 3 == 1 ? "cylinder(0.2f, 1f, 12, false)"
+                : "cone(0.4f, 0.8f, 0.4f, 10)";
+            sb.append("int part").append(i).append("Id = modelBuilder.").append(shape).append(";\n");
+            sb.append("Node part").append(i).append(" = modelBuilder.node();\n");
+            sb.append("part").append(i).append(".id = \"part").append(i).append("\";\n");
+            sb.append("part").append(i).append(".translation.set(").append(i % 10).append("f, ")
+                .append(i / 10).append("f, 0f);\n");
+            sb.append("Material part").append(i).append("Mat = new Material(ColorAttribute.createDiffuse(new Color(")
+                .append((i % 7) / 7f).append("f, 0.5f, 0.5f, 1f)));\n");
+            sb.append("part").append(i).append(".parts.add(new Renderable(part").append(i).append("Id, part")
+                .append(i).append("Mat, null, null));\n");
+            sb.append("modelBuilder.addNode(part").append(i).append(", modelBuilder.end());\n\n");
+        }
+        return sb.toString();
+    }
+}
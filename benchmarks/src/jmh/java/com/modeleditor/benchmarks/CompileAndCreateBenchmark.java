@@ -0,0 +1,70 @@
+package com.modeleditor.benchmarks;
+
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.modeleditor.util.ModelCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold versus warm compileAndCreateModel for a medium snippet. Cold uses a
+ * new ModelCompiler per call, so nothing is cached; warm reuses one whose
+ * cache already holds the compiled class.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CompileAndCreateBenchmark {
+
+    private ModelCompiler warmCompiler;
+    private String snippet;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkSnippets.initHeadless();
+        snippet = BenchmarkSnippets.bySize("medium");
+        warmCompiler = BenchmarkSnippets.newCompiler();
+        warmCompiler.compileSnippet(snippet);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        warmCompiler.dispose();
+    }
+
+    @Benchmark
+    public int cold() throws Exception {
+        ModelCompiler compiler = BenchmarkSnippets.newCompiler();
+        try {
+            return build(compiler);
+        } finally {
+            compiler.dispose();
+        }
+    }
+
+    @Benchmark
+    public int warm() throws Exception {
+        return build(warmCompiler);
+    }
+
+    private int build(ModelCompiler compiler) throws Exception {
+        Model model = compiler.compileAndCreateModel(snippet);
+        int nodes = model.nodes.size;
+        model.dispose();
+        return nodes;
+    }
+}
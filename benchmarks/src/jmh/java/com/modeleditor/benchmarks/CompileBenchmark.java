@@ -0,0 +1,65 @@
+package com.modeleditor.benchmarks;
+
+import com.modeleditor.util.ModelCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Source generation and Janino compilation of small, medium and huge
+ * snippets. The class cache is cleared before every invocation, so each
+ * call pays for a full compile and class definition.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CompileBenchmark {
+
+    @Param({"small", "medium", "huge"})
+    public String size;
+
+    private ModelCompiler compiler;
+    private String snippet;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkSnippets.initHeadless();
+        compiler = BenchmarkSnippets.newCompiler();
+        snippet = BenchmarkSnippets.bySize(size);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearCache() {
+        compiler.getClassCache().clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        compiler.dispose();
+    }
+
+    @Benchmark
+    public String buildCompleteClass() throws Exception {
+        return compiler.buildCompleteClass(snippet);
+    }
+
+    @Benchmark
+    public Object compileSnippet() throws Exception {
+        return compiler.compileSnippet(snippet);
+    }
+}
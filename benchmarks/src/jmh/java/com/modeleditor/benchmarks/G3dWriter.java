@@ -0,0 +1,193 @@
+package com.modeleditor.benchmarks;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.utils.BaseJsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a built model as G3D data, so the load benchmark can compare gdx's
+ * own loaders against the binary format. With a JsonWriter this is G3DJ,
+ * with a UBJsonWriter G3DB. Only what compiled snippets produce is written:
+ * float vertex attributes, indexed parts and diffuse colors.
+ */
+final class G3dWriter {
+
+    private final Map<Mesh, List<MeshPart>> meshes = new IdentityHashMap<>();
+    private final List<Mesh> meshOrder = new ArrayList<>();
+    private final Map<MeshPart, String> meshPartIds = new IdentityHashMap<>();
+    private final Map<Material, String> materialIds = new IdentityHashMap<>();
+    private final List<Material> materialOrder = new ArrayList<>();
+    private int nextNodeId;
+
+    void write(Model model, BaseJsonWriter json) throws IOException {
+        for (Node node : model.nodes) {
+            collect(node);
+        }
+
+        json.object();
+        json.array("version").value((short) 0).value((short) 1).pop();
+        json.set("id", "");
+
+        json.array("meshes");
+        for (Mesh mesh : meshOrder) {
+            writeMesh(mesh, json);
+        }
+        json.pop();
+
+        json.array("materials");
+        for (Material material : materialOrder) {
+            json.object();
+            json.set("id", materialIds.get(material));
+            ColorAttribute diffuse = (ColorAttribute) material.get(ColorAttribute.Diffuse);
+            if (diffuse != null) {
+                json.array("diffuse").value(diffuse.color.r).value(diffuse.color.g).value(diffuse.color.b).pop();
+            }
+            json.pop();
+        }
+        json.pop();
+
+        json.array("nodes");
+        for (Node node : model.nodes) {
+            writeNode(node, json);
+        }
+        json.pop();
+
+        json.array("animations").pop();
+        json.pop();
+    }
+
+    private void collect(Node node) {
+        for (NodePart part : node.parts) {
+            if (!meshPartIds.containsKey(part.meshPart)) {
+                meshPartIds.put(part.meshPart, "part" + meshPartIds.size());
+                List<MeshPart> parts = meshes.get(part.meshPart.mesh);
+                if (parts == null) {
+                    parts = new ArrayList<>();
+                    meshes.put(part.meshPart.mesh, parts);
+                    meshOrder.add(part.meshPart.mesh);
+                }
+                parts.add(part.meshPart);
+            }
+            if (!materialIds.containsKey(part.material)) {
+                materialIds.put(part.material, "material" + materialIds.size());
+                materialOrder.add(part.material);
+            }
+        }
+        for (Node child : node.getChildren()) {
+            collect(child);
+        }
+    }
+
+    private void writeMesh(Mesh mesh, BaseJsonWriter json) throws IOException {
+        json.object();
+        json.array("attributes");
+        for (VertexAttribute attribute : mesh.getVertexAttributes()) {
+            json.value(attributeName(attribute));
+        }
+        json.pop();
+
+        float[] vertices = new float[mesh.getNumVertices() * mesh.getVertexSize() / 4];
+        mesh.getVertices(vertices);
+        json.array("vertices");
+        for (float value : vertices) {
+            json.value(value);
+        }
+        json.pop();
+
+        short[] meshIndices = new short[mesh.getNumIndices()];
+        mesh.getIndices(meshIndices);
+        json.array("parts");
+        for (MeshPart part : meshes.get(mesh)) {
+            json.object();
+            json.set("id", meshPartIds.get(part));
+            json.set("type", primitiveName(part.primitiveType));
+            json.array("indices");
+            for (int i = 0; i < part.size; i++) {
+                json.value(meshIndices.length > 0 ? meshIndices[part.offset + i] : (short) (part.offset + i));
+            }
+            json.pop();
+            json.pop();
+        }
+        json.pop();
+        json.pop();
+    }
+
+    private void writeNode(Node node, BaseJsonWriter json) throws IOException {
+        json.object();
+        json.set("id", node.id != null ? node.id : "node" + nextNodeId++);
+        json.array("translation").value(node.translation.x).value(node.translation.y).value(node.translation.z).pop();
+        json.array("rotation").value(node.rotation.x).value(node.rotation.y).value(node.rotation.z)
+            .value(node.rotation.w).pop();
+        json.array("scale").value(node.scale.x).value(node.scale.y).value(node.scale.z).pop();
+        if (node.parts.size > 0) {
+            json.array("parts");
+            for (NodePart part : node.parts) {
+                json.object();
+                json.set("meshpartid", meshPartIds.get(part.meshPart));
+                json.set("materialid", materialIds.get(part.material));
+                json.pop();
+            }
+            json.pop();
+        }
+        if (node.hasChildren()) {
+            json.array("children");
+            for (Node child : node.getChildren()) {
+                writeNode(child, json);
+            }
+            json.pop();
+        }
+        json.pop();
+    }
+
+    private static String attributeName(VertexAttribute attribute) {
+        switch (attribute.usage) {
+            case VertexAttributes.Usage.Position:
+                return "POSITION";
+            case VertexAttributes.Usage.Normal:
+                return "NORMAL";
+            case VertexAttributes.Usage.ColorUnpacked:
+                return "COLOR";
+            case VertexAttributes.Usage.ColorPacked:
+                return "COLORPACKED";
+            case VertexAttributes.Usage.Tangent:
+                return "TANGENT";
+            case VertexAttributes.Usage.BiNormal:
+                return "BINORMAL";
+            case VertexAttributes.Usage.TextureCoordinates:
+                return "TEXCOORD" + attribute.unit;
+            default:
+                throw new IllegalArgumentException("No G3D name for vertex attribute " + attribute.alias);
+        }
+    }
+
+    private static String primitiveName(int primitiveType) {
+        switch (primitiveType) {
+            case GL20.GL_TRIANGLES:
+                return "TRIANGLES";
+            case GL20.GL_LINES:
+                return "LINES";
+            case GL20.GL_POINTS:
+                return "POINTS";
+            case GL20.GL_TRIANGLE_STRIP:
+                return "TRIANGLE_STRIP";
+            case GL20.GL_LINE_STRIP:
+                return "LINE_STRIP";
+            default:
+                throw new IllegalArgumentException("No G3D name for primitive type " + primitiveType);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.modeleditor.benchmarks;
+
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.modeleditor.util.CompiledClass;
+import com.modeleditor.util.MeshOptimizer;
+import com.modeleditor.util.ModelCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ModelBuilder geometry generation for each EXAMPLES.md model. Snippets are
+ * compiled once in setup, so only createModel and mesh construction are
+ * measured, plus vertex optimization in createAndOptimizeModel. Under the
+ * headless backend uploads are no-ops. The build runs the gc profiler, whose
+ * gc.alloc.rate.norm gives the heap bytes each operation allocates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class GeometryBenchmark {
+
+    // 1-based index of the example in EXAMPLES.md; the build passes one
+    // value per example, this default only applies when run outside it
+    @Param({"1"})
+    public int example;
+
+    private ModelCompiler compiler;
+    private CompiledClass compiled;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkSnippets.initHeadless();
+        compiler = BenchmarkSnippets.newCompiler();
+        compiled = compiler.compileSnippet(BenchmarkSnippets.example(example));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        compiler.dispose();
+    }
+
+    @Benchmark
+    public int createModel() throws Exception {
+        Model model = compiler.createModel(compiled);
+        int nodes = model.nodes.size;
+        model.dispose();
+        return nodes;
+    }
+
+    @Benchmark
+    public int createAndOptimizeModel() throws Exception {
+        Model model = compiler.createModel(compiled);
+        MeshOptimizer.optimize(model);
+        int meshes = model.meshes.size;
+        model.dispose();
+        return meshes;
+    }
+}
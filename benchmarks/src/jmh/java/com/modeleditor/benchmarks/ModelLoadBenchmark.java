@@ -0,0 +1,104 @@
+package com.modeleditor.benchmarks;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.loader.G3dModelLoader;
+import com.badlogic.gdx.utils.BaseJsonWriter;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.badlogic.gdx.utils.UBJsonReader;
+import com.badlogic.gdx.utils.UBJsonWriter;
+import com.modeleditor.util.BinaryModelExporter;
+import com.modeleditor.util.BinaryModelLoader;
+import com.modeleditor.util.ModelCompiler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading each EXAMPLES.md model from the binary format against gdx's
+ * G3DJ and G3DB loaders. Files are written once in setup from the compiled
+ * model, so all three formats hold the same geometry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ModelLoadBenchmark {
+
+    // 1-based index of the example in EXAMPLES.md; the build passes one
+    // value per example, this default only applies when run outside it
+    @Param({"1"})
+    public int example;
+
+    @Param({"binary", "g3dj", "g3db"})
+    public String format;
+
+    private File file;
+    private FileHandle handle;
+    private G3dModelLoader g3dLoader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        BenchmarkSnippets.initHeadless();
+        ModelCompiler compiler = BenchmarkSnippets.newCompiler();
+        Model model = compiler.compileAndCreateModel(BenchmarkSnippets.example(example));
+        try {
+            file = File.createTempFile("model-load-", "." + format);
+            if (format.equals("binary")) {
+                new BinaryModelExporter().export(model, file);
+            } else {
+                BaseJsonWriter json;
+                if (format.equals("g3dj")) {
+                    JsonWriter writer = new JsonWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+                    writer.setOutputType(JsonWriter.OutputType.json);
+                    json = writer;
+                    g3dLoader = new G3dModelLoader(new JsonReader());
+                } else {
+                    json = new UBJsonWriter(new FileOutputStream(file));
+                    g3dLoader = new G3dModelLoader(new UBJsonReader());
+                }
+                try {
+                    new G3dWriter().write(model, json);
+                } finally {
+                    json.close();
+                }
+            }
+        } finally {
+            model.dispose();
+            compiler.dispose();
+        }
+        handle = new FileHandle(file);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public int load() {
+        Model model = g3dLoader != null ? g3dLoader.loadModel(handle) : BinaryModelLoader.load(handle);
+        int meshes = model.meshes.size;
+        model.dispose();
+        return meshes;
+    }
+}
@@ -3,6 +3,7 @@ package com.modeleditor.core;
 import com.badlogic.gdx.Application;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.g3d.Environment;
@@ -11,8 +12,42 @@ import com.badlogic.gdx.graphics.g3d.ModelBatch;
 import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
 import com.badlogic.gdx.graphics.g3d.environment.DirectionalLight;
 import com.badlogic.gdx.graphics.g3d.utils.CameraInputController;
+import com.badlogic.gdx.math.collision.Ray;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.modeleditor.ui.EditorScreen;
+import com.modeleditor.util.BytecodeDiskCache;
+import com.modeleditor.util.CapturedModel;
+import com.modeleditor.util.ClassUnloadTracker;
+import com.modeleditor.util.CompiledClass;
+import com.modeleditor.util.DirectBufferPool;
+import com.modeleditor.util.LodChain;
+import com.modeleditor.util.LodGenerator;
+import com.modeleditor.util.MergedModel;
+import com.modeleditor.util.MeshMerger;
+import com.modeleditor.util.MeshOptimizer;
+import com.modeleditor.util.MeshUploader;
+import com.modeleditor.util.ModelBudget;
 import com.modeleditor.util.ModelCompiler;
+import com.modeleditor.util.ModelParameter;
+import com.modeleditor.util.ModelParameters;
+import com.modeleditor.util.ModelStats;
+import com.modeleditor.util.NodeSignatures;
+import com.modeleditor.util.PipelineMetrics;
+import com.modeleditor.util.PrimitiveMeshCache;
+import com.modeleditor.util.QuantizedShaderProvider;
+import com.modeleditor.util.TrianglePicker;
+import com.modeleditor.util.VertexQuantizer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Main LibGDX application class for the 3D Model Editor.
@@ -21,30 +56,218 @@ import com.modeleditor.util.ModelCompiler;
  */
 public class ModelEditorApplication extends ApplicationAdapter {
 
+    // Directory for compiled snippet bytecode, relative to local storage
+    private static final String BYTECODE_CACHE_DIR = ".modeleditor/bytecode";
+
+    // How long collection may take to clear the loaders of evicted snippets
+    private static final long CLASS_UNLOAD_TIMEOUT_MS = 5000;
+
+    // Set by the platform launcher so startup metrics include backend init
+    private static volatile long launchTimeNanos;
+
     private EditorScreen editorScreen;
     private ModelCompiler modelCompiler;
     private Model currentModel;
+
+    // Compiled snippet behind currentModel, rebuilt when parameters change
+    private CompiledClass currentCompiled;
+    private final ModelParameters modelParameters = new ModelParameters();
+
+    // Merge parts by material after each build; maps back to node ids when set
+    private boolean mergeMeshes;
+    private MergedModel currentMerged;
+    private MergedModel lastMerged;
+
+    // Identical primitives share one mesh across nodes, rebuilds and recompiles when set
+    private final PrimitiveMeshCache primitiveCache = new PrimitiveMeshCache();
+    private boolean sharePrimitives;
+
+    // Weld and reorder meshes for the vertex cache after each build
+    private boolean optimizeMeshes;
+    private MeshOptimizer.Report lastOptimizeReport;
+
+    // Compact vertex format after all other stages, which need float vertices
+    private boolean quantizeVertices;
+    private VertexQuantizer.Result lastQuantizeResult;
+
+    // Statistics of currentModel, checked against the target platform's budget
+    private ModelBudget modelBudget;
+    private ModelStats modelStats;
+    private List<ModelBudget.Issue> budgetIssues = Collections.emptyList();
+
+    // LOD preview: reduced versions of the current model, simplified on workers
+    private boolean lodPreview;
+    private LodChain lodChain;
+    private ExecutorService lodExecutor;
+    private final AtomicLong lodGeneration = new AtomicLong();
+    private float[] lodRatios = LodGenerator.DEFAULT_RATIOS;
+    private float[] lodScreenThresholds = LodGenerator.DEFAULT_SCREEN_THRESHOLDS;
+    // Input hashes of the build behind currentModel, for in-place updates
+    private NodeSignatures currentSignatures;
+    private NodeSignatures.Diff lastNodeDiff;
+
+    // CPU-side post-build stages run one mesh per task here
+    private ExecutorService geometryExecutor;
+    // Builds in post-processing, between the snippet run and the uploader
+    private int postProcessesRunning;
+    // Bumped by every build, so a rebuild still in post-processing can tell it was superseded
+    private long buildGeneration;
+
+    // Triangle hierarchy of currentModel for ray picking, built on a worker
+    private TrianglePicker picker;
+    private ExecutorService pickingExecutor;
+    private final AtomicLong pickerGeneration = new AtomicLong();
+
+    // Built models are uploaded over several frames before they are swapped in
+    private MeshUploader meshUploader;
+    private Model pendingRebuild;
+
     private ModelBatch modelBatch;
     private Environment environment;
     private CameraInputController cameraController;
 
+    // Worker that runs Janino off the render thread
+    private ExecutorService compileExecutor;
+    // Parse-only syntax checks, kept apart so they never wait behind a compile
+    private ExecutorService parseExecutor;
+    private final AtomicLong compileGeneration = new AtomicLong();
+
+    // Startup metrics in milliseconds since launch, -1 until reached
+    private long timeToFirstInteractiveMs = -1;
+    private long timeToFirstPreviewMs = -1;
+
+    /**
+     * Record the process launch time. Call first thing in the platform
+     * launcher; otherwise startup metrics are measured from create().
+     */
+    public static void markLaunchTime() {
+        if (launchTimeNanos == 0) {
+            launchTimeNanos = System.nanoTime();
+        }
+    }
+
     @Override
     public void create() {
+        markLaunchTime();
+
         // Set application type for proper initialization
         Gdx.app.setLogLevel(Application.LOG_INFO);
 
+        // Gdx.app is only known here, so the platform preset is picked in create
+        if (modelBudget == null) {
+            modelBudget = ModelBudget.forCurrentPlatform();
+        }
+
         // Initialize the model compiler for runtime code compilation
         modelCompiler = new ModelCompiler();
+        initializeBytecodeCache();
+        compileExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "model-compiler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        parseExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "model-parser");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        startWarmUp();
+
+        // Simplification is independent per level, so use the spare cores
+        int lodThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        lodExecutor = Executors.newFixedThreadPool(lodThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "model-lod");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        // Post-build stages of async builds; only the blocking compile waits on them
+        int geometryThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        geometryExecutor = Executors.newFixedThreadPool(geometryThreads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "model-geometry");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        meshUploader = new MeshUploader();
+
+        // One hierarchy at a time; a newer model makes the one in progress stale
+        pickingExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "model-picking");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
 
         // Initialize the 3D rendering components
         initialize3DComponents();
 
         // Create and set the editor screen with split layout
         editorScreen = new EditorScreen(this);
-        Gdx.input.setInputProcessor(editorScreen.getStage());
+        Gdx.input.setInputProcessor(editorScreen.getInputProcessor());
 
         // Load default example model
         loadDefaultModel();
+
+        // Queued behind the default model so it does not delay the first preview
+        finishWarmUp();
+    }
+
+    /**
+     * Preload the classes Janino resolves on the worker while the UI is built.
+     */
+    private void startWarmUp() {
+        compileExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                long elapsed = modelCompiler.preloadAllowedClasses();
+                Gdx.app.log("ModelEditor", "Warm-up: preloaded allowed classes in "
+                    + elapsed / 1000000 + " ms");
+            }
+        });
+    }
+
+    /**
+     * Compile a representative snippet once the default model is queued,
+     * so the user's first compile runs on a warm Janino.
+     */
+    private void finishWarmUp() {
+        compileExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    long elapsed = modelCompiler.warmUpCompiler();
+                    Gdx.app.log("ModelEditor", "Warm-up: compiler ready in " + elapsed / 1000000 + " ms");
+                } catch (Exception e) {
+                    Gdx.app.error("ModelEditor", "Warm-up compile failed: " + e.getMessage());
+                }
+            }
+        });
+    }
+
+    /**
+     * Attach the persistent bytecode cache so snippets compiled in earlier
+     * sessions load without recompiling. Runs without it if storage fails.
+     */
+    private void initializeBytecodeCache() {
+        try {
+            modelCompiler.setDiskCache(new BytecodeDiskCache(Gdx.files.local(BYTECODE_CACHE_DIR).file()));
+        } catch (IOException e) {
+            Gdx.app.error("ModelEditor", "Bytecode cache unavailable: " + e.getMessage());
+        }
     }
 
     /**
@@ -52,7 +275,8 @@ public class ModelEditorApplication extends ApplicationAdapter {
      */
     private void initialize3DComponents() {
         // Create model batch for rendering
-        modelBatch = new ModelBatch();
+        // The provider also decodes quantized vertices
+        modelBatch = new ModelBatch(new QuantizedShaderProvider());
 
         // Create environment with lighting
         environment = new Environment();
@@ -72,7 +296,7 @@ public class ModelEditorApplication extends ApplicationAdapter {
      */
     private void loadDefaultModel() {
         String defaultCode = getDefaultExampleCode();
-        compileAndLoadModel(defaultCode);
+        compileAndLoadModelAsync(defaultCode);
     }
 
     /**
@@ -114,38 +338,1147 @@ public class ModelEditorApplication extends ApplicationAdapter {
 
     /**
      * Compile the given Java code and load the resulting 3D model.
+     * Blocks the calling thread; the UI uses {@link #compileAndLoadModelAsync(String)}.
      * @param codeBody The Java code to compile (content of createModel method body)
      * @return true if compilation and model loading was successful
      */
     public boolean compileAndLoadModel(String codeBody) {
+        PipelineMetrics.Timing timing = PipelineMetrics.start();
+        Model built = null;
         try {
-            // Dispose old model if exists
-            if (currentModel != null) {
-                currentModel.dispose();
-                currentModel = null;
+            // Compile the code and create model before touching the current one
+            List<ModelParameter> declarations = ModelCompiler.parseParameters(codeBody);
+            CompiledClass compiled = modelCompiler.compileSnippet(codeBody, declarations);
+            modelParameters.declare(declarations);
+            built = modelCompiler.createModel(compiled, modelParameters, geometryExecutor);
+            NodeSignatures signatures = NodeSignatures.of(built);
+            compileGeneration.incrementAndGet();
+            buildGeneration++;
+            // Shown right away; queued uploads would replace it with older models
+            meshUploader.cancelAll();
+            if (tryUpdateInPlace(built, signatures)) {
+                built = null;
+            } else {
+                // Post-processing takes the build over, merged or not
+                Model processed = postProcess(built);
+                built = null;
+                swapModel(processed, lastMerged, signatures);
+            }
+            onSnippetLoaded(compiled, declarations);
+            modelCompiler.getMetrics().stop(PipelineMetrics.Phase.TOTAL, timing);
+            return true;
+
+        } catch (Exception e) {
+            if (built != null) {
+                built.dispose();
+            }
+            reportCompileFailure(e);
+            return false;
+        }
+    }
+
+    /**
+     * Compile the given Java code on the worker thread and swap the resulting
+     * model in on the render thread. The current model stays visible until
+     * the new one is ready, and is kept if compilation fails.
+     * Starting a newer compile supersedes this one: if it finishes first or
+     * this one finishes later, the stale result is discarded.
+     * @param codeBody The Java code to compile (content of createModel method body)
+     * @return Future completed with the swapped-in model, or the failure
+     */
+    public ModelLoadFuture compileAndLoadModelAsync(String codeBody) {
+        return compileAndLoadModelAsync(codeBody, false);
+    }
+
+    /**
+     * Compile asynchronously as above, optionally running a parse-only pass
+     * as well so syntax errors are reported without waiting for a full
+     * compile. The parse runs on its own worker, beside any compile still in
+     * progress; a failed parse fails the future, and the compile is skipped
+     * if it has not started yet.
+     * @param codeBody The Java code to compile (content of createModel method body)
+     * @param parseFirst Whether to report syntax errors before compiling
+     * @return Future completed with the swapped-in model, or the failure
+     */
+    public ModelLoadFuture compileAndLoadModelAsync(final String codeBody, final boolean parseFirst) {
+        final ModelLoadFuture future = new ModelLoadFuture(compileGeneration.incrementAndGet());
+
+        if (parseFirst) {
+            // Cancelling the future drops the parse if it is still queued
+            future.setParseTask(parseExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (isStale(future)) return;
+                    try {
+                        modelCompiler.parseSnippet(codeBody, ModelCompiler.parseParameters(codeBody));
+                    } catch (Exception e) {
+                        failAsync(future, e);
+                    }
+                }
+            }));
+        }
+
+        future.setWorkerTask(compileExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                // Also skipped if the parse already failed
+                if (isStale(future)) return;
+
+                final CompiledClass compiled;
+                final List<ModelParameter> declarations;
+                try {
+                    declarations = ModelCompiler.parseParameters(codeBody);
+                    compiled = modelCompiler.compileSnippet(codeBody, declarations);
+                } catch (Exception e) {
+                    failAsync(future, e);
+                    return;
+                }
+
+                Gdx.app.postRunnable(new Runnable() {
+                    @Override
+                    public void run() {
+                        finishAsyncLoad(future, compiled, declarations);
+                    }
+                });
+            }
+        }));
+
+        return future;
+    }
+
+    /**
+     * Fail an async compile from a worker and report it, unless a newer
+     * compile superseded it or it already failed.
+     */
+    private void failAsync(final ModelLoadFuture future, final Exception e) {
+        Gdx.app.postRunnable(new Runnable() {
+            @Override
+            public void run() {
+                if (!isStale(future) && future.fail(e)) {
+                    reportCompileFailure(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Build the compiled model off the render thread, post-process it on
+     * the geometry workers, then upload and swap it in over the next
+     * frames. It supersedes every model still building or uploading.
+     */
+    private void finishAsyncLoad(final ModelLoadFuture future, final CompiledClass compiled,
+                                 final List<ModelParameter> declarations) {
+        if (isStale(future)) return;
+
+        modelParameters.declare(declarations);
+        buildGeneration++;
+        buildAsync(compiled, new BuildListener() {
+            @Override
+            public boolean isSuperseded() {
+                return isStale(future);
+            }
+
+            @Override
+            public void onBuilt(Model built, final NodeSignatures signatures) {
+                try {
+                    if (tryUpdateInPlace(built, signatures)) {
+                        future.complete(currentModel);
+                        onSnippetLoaded(compiled, declarations);
+                        modelCompiler.getMetrics().record(PipelineMetrics.Phase.TOTAL, future.getElapsedNanos(), -1);
+                        return;
+                    }
+                } catch (RuntimeException e) {
+                    built.dispose();
+                    onFailed(e);
+                    return;
+                }
+
+                postProcessAsync(built, new PostProcessListener() {
+                    @Override
+                    public boolean isSuperseded() {
+                        return isStale(future);
+                    }
+
+                    @Override
+                    public void onProcessed(Model model, MergedModel merged) {
+                        uploadLoadedModel(future, compiled, declarations, model, merged, signatures);
+                    }
+
+                    @Override
+                    public void onFailed(Exception e) {
+                        if (future.fail(e)) {
+                            reportCompileFailure(e);
+                        }
+                    }
+                });
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                if (future.fail(e)) {
+                    reportCompileFailure(e);
+                }
+            }
+        });
+    }
+
+    private void uploadLoadedModel(final ModelLoadFuture future, final CompiledClass compiled,
+                                   final List<ModelParameter> declarations, Model model,
+                                   final MergedModel merged, final NodeSignatures signatures) {
+        meshUploader.cancelAll();
+        meshUploader.submit(model, new MeshUploader.Listener() {
+            @Override
+            public void onUploaded(Model uploaded) {
+                if (!future.complete(uploaded)) {
+                    // Cancelled while uploading
+                    uploaded.dispose();
+                    return;
+                }
+                swapModel(uploaded, merged, signatures);
+                onSnippetLoaded(compiled, declarations);
+
+                // Spans the worker and render threads, so allocation is not attributable
+                modelCompiler.getMetrics().record(PipelineMetrics.Phase.TOTAL, future.getElapsedNanos(), -1);
+            }
+
+            @Override
+            public void onCancelled(Model uploaded) {
+                future.cancel(false);
+            }
+        });
+    }
+
+    /**
+     * Remember the compiled snippet for parameter rebuilds and let the
+     * editor show controls for its declared parameters.
+     */
+    private void onSnippetLoaded(CompiledClass compiled, List<ModelParameter> declarations) {
+        currentCompiled = compiled;
+        if (editorScreen != null) {
+            editorScreen.onParametersDeclared(declarations, modelParameters);
+        }
+    }
+
+    /**
+     * Re-run the current snippet with the current parameter values.
+     * Only the geometry code runs; nothing is recompiled. The snippet and
+     * its geometry run on the geometry workers. If only materials or
+     * transforms changed, the current model is then updated in place.
+     * Otherwise the new model is post-processed on the geometry workers,
+     * uploaded over the next frames and then swapped in, replacing any
+     * earlier rebuild still in flight. Must be called on the render thread.
+     * @return true if a build was started
+     */
+    public boolean rebuildModel() {
+        if (currentCompiled == null) return false;
+        final CompiledClass compiled = currentCompiled;
+        final long generation = ++buildGeneration;
+        buildAsync(compiled, new BuildListener() {
+            @Override
+            public boolean isSuperseded() {
+                return generation != buildGeneration || compiled != currentCompiled;
+            }
+
+            @Override
+            public void onBuilt(Model built, final NodeSignatures signatures) {
+                try {
+                    if (tryUpdateInPlace(built, signatures)) return;
+                } catch (RuntimeException e) {
+                    built.dispose();
+                    onFailed(e);
+                    return;
+                }
+
+                postProcessAsync(built, new PostProcessListener() {
+                    @Override
+                    public boolean isSuperseded() {
+                        return generation != buildGeneration || compiled != currentCompiled;
+                    }
+
+                    @Override
+                    public void onProcessed(Model model, MergedModel merged) {
+                        uploadRebuiltModel(compiled, model, merged, signatures);
+                    }
+
+                    @Override
+                    public void onFailed(Exception e) {
+                        reportCompileFailure(e);
+                    }
+                });
+            }
+
+            @Override
+            public void onFailed(Exception e) {
+                reportCompileFailure(e);
+            }
+        });
+        return true;
+    }
+
+    private void uploadRebuiltModel(final CompiledClass compiled, Model model, final MergedModel merged,
+                                    final NodeSignatures signatures) {
+        if (pendingRebuild != null) {
+            meshUploader.cancel(pendingRebuild);
+        }
+        pendingRebuild = model;
+        meshUploader.submit(model, new MeshUploader.Listener() {
+            @Override
+            public void onUploaded(Model uploaded) {
+                pendingRebuild = null;
+                // A snippet loaded while this uploaded replaces it
+                if (compiled != currentCompiled) {
+                    uploaded.dispose();
+                    return;
+                }
+                swapModel(uploaded, merged, signatures);
+            }
+
+            @Override
+            public void onCancelled(Model uploaded) {
+                if (pendingRebuild == uploaded) pendingRebuild = null;
+            }
+        });
+    }
+
+    /**
+     * Rebuild through the full pipeline, after a post-build setting changed.
+     */
+    private void rebuildAll() {
+        currentSignatures = null;
+        rebuildModel();
+    }
+
+    /**
+     * Apply a fresh build to the current model in place if every node kept
+     * its geometry, so only materials, part visibility and transforms are
+     * copied and the current meshes and post-build work are reused. The
+     * fresh build is disposed in that case, last, so a caller that catches
+     * an exception from this still owns it. Merged models, and models while
+     * another build is still post-processing or uploading, always take the
+     * full pipeline.
+     * @return true if the build was applied
+     */
+    private boolean tryUpdateInPlace(Model built, NodeSignatures signatures) {
+        lastNodeDiff = currentSignatures != null ? signatures.diff(currentSignatures) : null;
+        if (lastNodeDiff == null || !lastNodeDiff.isGeometryUnchanged() || currentModel == null
+            || mergeMeshes || currentMerged != null || meshUploader.isBusy() || postProcessesRunning > 0) {
+            return false;
+        }
+        // Paths matched, so this only fails if siblings were reordered; the full rebuild then replaces the model
+        if (!NodeSignatures.updateInPlace(built, currentModel)) return false;
+
+        currentSignatures = signatures;
+        Gdx.app.debug("ModelEditor", "Updated model in place: " + lastNodeDiff);
+        onCurrentModelUpdated(lastNodeDiff);
+        built.dispose();
+        return true;
+    }
+
+    /**
+     * Compare the nodes of the last build with the build before it.
+     * @return The node changes, or null if there was no earlier build to compare
+     */
+    public NodeSignatures.Diff getLastNodeDiff() {
+        return lastNodeDiff;
+    }
+
+    /**
+     * Get the parameter values applied to every build. Call
+     * {@link #rebuildModel()} after changing them.
+     */
+    public ModelParameters getModelParameters() {
+        return modelParameters;
+    }
+
+    /**
+     * Build a compiled snippet without blocking the render thread. The
+     * snippet runs on a geometry worker with a copy of the current
+     * parameter values, recording its primitives; each node's geometry is
+     * then generated on the geometry workers, and the meshes are created
+     * back on the render thread. The listener is called on the render
+     * thread. A build superseded along the way is dropped and the listener
+     * is not called.
+     */
+    private void buildAsync(final CompiledClass compiled, final BuildListener listener) {
+        final ModelParameters parameters = modelParameters.copy();
+        geometryExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                CapturedModel capture = null;
+                Exception failure = null;
+                try {
+                    capture = modelCompiler.captureModel(compiled, parameters);
+                } catch (Exception e) {
+                    failure = e;
+                }
+
+                final CapturedModel captured = capture;
+                final Exception captureFailure = failure;
+                Gdx.app.postRunnable(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (listener.isSuperseded()) return;
+                        if (captureFailure != null) {
+                            listener.onFailed(captureFailure);
+                            return;
+                        }
+                        generateAsync(captured, listener);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Generate a capture's geometry on the geometry workers, then create
+     * its meshes and hand the model to the listener.
+     */
+    private void generateAsync(final CapturedModel capture, final BuildListener listener) {
+        runGeometryTasks(capture.getTasks(), new GeometryTasksListener() {
+            @Override
+            public void onDone(Throwable failure) {
+                if (listener.isSuperseded() || failure != null) {
+                    capture.cancel();
+                    if (failure != null && !listener.isSuperseded()) {
+                        listener.onFailed(failure instanceof Exception ? (Exception) failure
+                            : new GdxRuntimeException("Geometry generation failed: " + failure, failure));
+                    }
+                    return;
+                }
+
+                Model built = null;
+                NodeSignatures signatures;
+                try {
+                    built = modelCompiler.createMeshes(capture);
+                    signatures = NodeSignatures.of(built);
+                } catch (RuntimeException e) {
+                    if (built != null) {
+                        built.dispose();
+                    }
+                    listener.onFailed(e);
+                    return;
+                }
+                listener.onBuilt(built, signatures);
+            }
+        });
+    }
+
+    /**
+     * Receives a model from {@link #buildAsync(CompiledClass, BuildListener)}
+     * on the render thread.
+     */
+    private interface BuildListener {
+        /**
+         * Check whether a newer build replaced this one; asked after each
+         * worker stage.
+         */
+        boolean isSuperseded();
+
+        /**
+         * @param built The new model, owned by the listener
+         */
+        void onBuilt(Model built, NodeSignatures signatures);
+
+        void onFailed(Exception e);
+    }
+
+    /**
+     * Run the enabled post-build stages on a freshly built model: mesh
+     * optimization in place, then either merging by material or sharing
+     * identical primitives, then vertex quantization. Optimizing first keeps
+     * each node's triangles contiguous for the merge mapping. Optimization
+     * and vertex packing run per mesh on the geometry workers, and this
+     * blocks until they are done; async builds use
+     * {@link #postProcessAsync(Model, PostProcessListener)}. The source model
+     * is disposed when it is replaced.
+     * @return The model to show
+     */
+    private Model postProcess(Model model) {
+        if (optimizeMeshes) {
+            lastOptimizeReport = MeshOptimizer.optimize(model, MeshOptimizer.DEFAULT_WELD_EPSILON, geometryExecutor);
+            Gdx.app.debug("ModelEditor", "Optimized meshes: " + lastOptimizeReport);
+        }
+        model = mergeOrShare(model);
+        if (quantizeVertices) {
+            model = applyQuantized(model, VertexQuantizer.quantize(model, geometryExecutor));
+        }
+        return model;
+    }
+
+    /**
+     * Run the post-build stages as above without blocking the render
+     * thread. Optimization and vertex packing run on the geometry workers;
+     * merging, sharing and creating the quantized meshes need GL, so they
+     * run back on the render thread between them. The listener is called
+     * on the render thread. A build superseded along the way is disposed
+     * and the listener is not called.
+     */
+    private void postProcessAsync(final Model model, final PostProcessListener listener) {
+        postProcessesRunning++;
+        if (!optimizeMeshes) {
+            finishPostProcess(model, listener);
+            return;
+        }
+
+        final MeshOptimizer.Job job = MeshOptimizer.prepare(model, MeshOptimizer.DEFAULT_WELD_EPSILON);
+        runGeometryTasks(job.getTasks(), new GeometryTasksListener() {
+            @Override
+            public void onDone(Throwable failure) {
+                if (listener.isSuperseded() || failure != null) {
+                    model.dispose();
+                    endPostProcess(listener, null, null, failure);
+                    return;
+                }
+                lastOptimizeReport = job.getReport();
+                Gdx.app.debug("ModelEditor", "Optimized meshes: " + lastOptimizeReport);
+                finishPostProcess(model, listener);
+            }
+        });
+    }
+
+    /**
+     * Merge or share the optimized model, quantize it if enabled, packing
+     * on the geometry workers, and hand the result to the listener.
+     */
+    private void finishPostProcess(Model optimized, final PostProcessListener listener) {
+        final Model model;
+        try {
+            model = mergeOrShare(optimized);
+        } catch (RuntimeException e) {
+            // Merging and sharing only dispose the source once they succeed
+            optimized.dispose();
+            endPostProcess(listener, null, null, e);
+            return;
+        }
+        final MergedModel merged = lastMerged;
+        final VertexQuantizer.Job job = quantizeVertices ? VertexQuantizer.prepare(model) : null;
+        if (job == null) {
+            endPostProcess(listener, model, merged, null);
+            return;
+        }
+
+        runGeometryTasks(job.getTasks(), new GeometryTasksListener() {
+            @Override
+            public void onDone(Throwable failure) {
+                if (listener.isSuperseded() || failure != null) {
+                    job.cancel();
+                    model.dispose();
+                    endPostProcess(listener, null, null, failure);
+                    return;
+                }
+                Model quantized;
+                try {
+                    quantized = applyQuantized(model, job.finish());
+                } catch (RuntimeException e) {
+                    model.dispose();
+                    endPostProcess(listener, null, null, e);
+                    return;
+                }
+                endPostProcess(listener, quantized, null, null);
+            }
+        });
+    }
+
+    /**
+     * @param model The processed model, or null if it was superseded or failed
+     * @param failure Why processing failed, or null
+     */
+    private void endPostProcess(PostProcessListener listener, Model model, MergedModel merged, Throwable failure) {
+        postProcessesRunning--;
+        if (model != null) {
+            listener.onProcessed(model, merged);
+        } else if (failure != null && !listener.isSuperseded()) {
+            listener.onFailed(failure instanceof Exception ? (Exception) failure
+                : new GdxRuntimeException("Post-processing failed: " + failure, failure));
+        }
+    }
+
+    /**
+     * Merge parts by material, or share identical primitives, if enabled.
+     * Sets {@link #lastMerged}.
+     */
+    private Model mergeOrShare(Model model) {
+        lastMerged = null;
+        if (mergeMeshes) {
+            MergedModel merged = MeshMerger.merge(model);
+            if (merged != null) {
+                model.dispose();
+                lastMerged = merged;
+                Gdx.app.debug("ModelEditor", "Merged " + merged.getSourceDrawCalls() + " parts into "
+                    + merged.getDrawCalls() + " draw calls");
+                model = merged.getModel();
+            }
+        } else if (sharePrimitives && !quantizeVertices) {
+            // Merged and quantized meshes are unique per model, so sharing only applies without them
+            Model shared = primitiveCache.share(model);
+            if (shared != null) {
+                model.dispose();
+                model = shared;
+            }
+        }
+        return model;
+    }
+
+    /**
+     * @param quantized The quantization of the model, or null if it was skipped
+     */
+    private Model applyQuantized(Model model, VertexQuantizer.Result quantized) {
+        if (quantized == null) return model;
+        model.dispose();
+        // Merge ranges refer to the float meshes, so node lookups are lost
+        lastMerged = null;
+        lastQuantizeResult = quantized;
+        Gdx.app.debug("ModelEditor", "Quantized vertices: " + quantized);
+        return quantized.getModel();
+    }
+
+    /**
+     * Run independent tasks on the geometry workers without waiting for
+     * them, and call the listener on the render thread once all are done.
+     */
+    private void runGeometryTasks(List<Runnable> tasks, final GeometryTasksListener listener) {
+        if (tasks.isEmpty()) {
+            listener.onDone(null);
+            return;
+        }
+        final AtomicInteger remaining = new AtomicInteger(tasks.size());
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (final Runnable task : tasks) {
+            geometryExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            Gdx.app.postRunnable(new Runnable() {
+                                @Override
+                                public void run() {
+                                    listener.onDone(failure.get());
+                                }
+                            });
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private interface GeometryTasksListener {
+        /**
+         * @param failure The first task failure, or null
+         */
+        void onDone(Throwable failure);
+    }
+
+    /**
+     * Receives a model from {@link #postProcessAsync(Model, PostProcessListener)}
+     * on the render thread.
+     */
+    private interface PostProcessListener {
+        /**
+         * Check whether a newer build replaced this one; asked after each
+         * worker stage.
+         */
+        boolean isSuperseded();
+
+        void onProcessed(Model model, MergedModel merged);
+
+        void onFailed(Exception e);
+    }
+
+    /**
+     * Turn post-build mesh merging on or off and rebuild the current model.
+     * Merged models draw once per material instead of once per part.
+     */
+    public void setMergeMeshes(boolean enabled) {
+        if (mergeMeshes == enabled) return;
+        mergeMeshes = enabled;
+        rebuildAll();
+    }
+
+    public boolean isMergeMeshes() {
+        return mergeMeshes;
+    }
+
+    /**
+     * Turn sharing of identical primitive meshes on or off and rebuild the
+     * current model. Off by default, since every part with unique geometry
+     * then gets a mesh of its own; ignored while merging is on.
+     * @see PrimitiveMeshCache
+     */
+    public void setSharePrimitives(boolean enabled) {
+        if (sharePrimitives == enabled) return;
+        sharePrimitives = enabled;
+        rebuildAll();
+    }
+
+    public boolean isSharePrimitives() {
+        return sharePrimitives;
+    }
+
+    /**
+     * Get the cache of shared primitive meshes, e.g. for its hit counts.
+     */
+    public PrimitiveMeshCache getPrimitiveMeshCache() {
+        return primitiveCache;
+    }
+
+    /**
+     * Get the off-heap staging buffers shared by the post-build stages,
+     * e.g. for its hit rate or to change its budget.
+     */
+    public DirectBufferPool getBufferPool() {
+        return DirectBufferPool.shared();
+    }
+
+    /**
+     * Get the uploader that spreads new models' meshes over frames, e.g. to
+     * change its per-frame budget.
+     */
+    public MeshUploader getMeshUploader() {
+        return meshUploader;
+    }
+
+    /**
+     * Turn vertex welding and vertex-cache reordering on or off and rebuild
+     * the current model.
+     * @see MeshOptimizer
+     */
+    public void setOptimizeMeshes(boolean enabled) {
+        if (optimizeMeshes == enabled) return;
+        optimizeMeshes = enabled;
+        if (!enabled) lastOptimizeReport = null;
+        rebuildAll();
+    }
+
+    public boolean isOptimizeMeshes() {
+        return optimizeMeshes;
+    }
+
+    /**
+     * Turn the compact vertex format on or off and rebuild the current
+     * model. LOD preview is unavailable while it is on.
+     * @see VertexQuantizer
+     */
+    public void setQuantizeVertices(boolean enabled) {
+        if (quantizeVertices == enabled) return;
+        quantizeVertices = enabled;
+        if (!enabled) lastQuantizeResult = null;
+        rebuildAll();
+    }
+
+    public boolean isQuantizeVertices() {
+        return quantizeVertices;
+    }
+
+    /**
+     * Get the vertex bytes before and after the last quantization.
+     * @return The result, or null if quantization is off or has not run
+     */
+    public VertexQuantizer.Result getVertexQuantizerResult() {
+        return lastQuantizeResult;
+    }
+
+    /**
+     * Get the per-node and total statistics of the current model.
+     * @return The statistics, or null if no model is shown
+     */
+    public ModelStats getModelStats() {
+        return modelStats;
+    }
+
+    /**
+     * Get the thresholds of the current model's budget it exceeds.
+     * @return The issues, errors first; empty if within budget
+     */
+    public List<ModelBudget.Issue> getBudgetIssues() {
+        return budgetIssues;
+    }
+
+    public ModelBudget getModelBudget() {
+        return modelBudget;
+    }
+
+    /**
+     * Replace the budget models are checked against, e.g. to target Android
+     * from the desktop editor, and re-check the current model.
+     * @see ModelBudget#android()
+     */
+    public void setModelBudget(ModelBudget budget) {
+        modelBudget = budget;
+        if (modelStats != null) {
+            checkBudget();
+            if (editorScreen != null) {
+                editorScreen.onModelStatsChanged(modelStats, budgetIssues);
+            }
+        }
+    }
+
+    private void checkBudget() {
+        budgetIssues = modelBudget.check(modelStats);
+        for (ModelBudget.Issue issue : budgetIssues) {
+            if (issue.isError()) {
+                Gdx.app.error("ModelEditor", "Model budget: " + issue.getMessage());
+            } else {
+                Gdx.app.log("ModelEditor", "Model budget: " + issue.getMessage());
             }
+        }
+    }
+
+    /**
+     * Get vertex counts and ACMR before and after the last optimization.
+     * @return The report, or null if optimization is off or has not run
+     */
+    public MeshOptimizer.Report getMeshOptimizerReport() {
+        return lastOptimizeReport;
+    }
+
+    /**
+     * Get the merge result behind the current model, to map merged parts
+     * back to the snippet's node ids.
+     * @return The merge result, or null if the current model is not merged
+     */
+    public MergedModel getMergedModel() {
+        return currentMerged;
+    }
 
-            // Compile the code and create model
-            currentModel = modelCompiler.compileAndCreateModel(codeBody);
+    /**
+     * Turn the LOD preview on or off. When on, reduced versions of every
+     * loaded model are generated in the background and the preview picks
+     * one by projected screen size.
+     */
+    public void setLodPreview(boolean enabled) {
+        if (lodPreview == enabled) return;
+        lodPreview = enabled;
+        if (enabled) {
+            generateLods();
+        } else {
+            clearLodChain();
+        }
+    }
 
-            // Update camera controller with new model
+    public boolean isLodPreview() {
+        return lodPreview;
+    }
+
+    /**
+     * Set the triangle ratios of the reduced levels and the screen sizes at
+     * which they are shown, then regenerate the chain if the preview is on.
+     * @param ratios Fraction of triangles to keep per level, finest first
+     * @param screenThresholds Viewport-height fraction below which each level is used
+     * @see LodChain
+     */
+    public void setLodSettings(float[] ratios, float[] screenThresholds) {
+        if (ratios.length != screenThresholds.length) {
+            throw new IllegalArgumentException("Need one screen threshold per LOD ratio");
+        }
+        lodRatios = ratios.clone();
+        lodScreenThresholds = screenThresholds.clone();
+        if (lodPreview) {
+            generateLods();
+        }
+    }
+
+    /**
+     * Get the LOD chain of the current model.
+     * @return The chain, or null if the preview is off or still generating
+     */
+    public LodChain getLodChain() {
+        return lodChain;
+    }
+
+    /**
+     * Simplify the current model into the configured levels, one worker task
+     * per level. The geometry is copied here on the render thread; meshes are
+     * created back on it once every level is done.
+     */
+    private void generateLods() {
+        clearLodChain();
+        if (!lodPreview || currentModel == null) return;
+        if (currentModel.meshes.size > 0 && VertexQuantizer.isQuantized(currentModel.meshes.first())) {
+            reportLodFailure("LOD preview needs float vertices; turn off quantization");
+            return;
+        }
+
+        final long generation = lodGeneration.get();
+        final Model source = currentModel;
+        final LodGenerator.Snapshot snapshot = LodGenerator.capture(source);
+        final float[] ratios = lodRatios;
+        final float[] thresholds = lodScreenThresholds;
+        final LodGenerator.Snapshot[] levels = new LodGenerator.Snapshot[ratios.length];
+        final AtomicInteger remaining = new AtomicInteger(ratios.length);
+        final AtomicReference<String> failure = new AtomicReference<>();
+
+        for (int i = 0; i < ratios.length; i++) {
+            final int level = i;
+            lodExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    if (generation != lodGeneration.get()) return;
+                    try {
+                        levels[level] = LodGenerator.simplify(snapshot, ratios[level]);
+                    } catch (Throwable e) {
+                        // Errors too: the chain is reported either way and the worker lives on
+                        failure.compareAndSet(null, e.getMessage() != null ? e.getMessage() : e.toString());
+                    } finally {
+                        if (remaining.decrementAndGet() == 0) {
+                            Gdx.app.postRunnable(new Runnable() {
+                                @Override
+                                public void run() {
+                                    finishLods(generation, source, snapshot.getTriangleCount(), levels,
+                                        thresholds, failure.get());
+                                }
+                            });
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * @param failure Message of the first level that failed, or null
+     */
+    private void finishLods(long generation, Model source, int sourceTriangles,
+                            LodGenerator.Snapshot[] levels, float[] thresholds, String failure) {
+        if (generation != lodGeneration.get() || source != currentModel) return;
+        if (failure != null) {
+            reportLodFailure("LOD generation failed: " + failure);
+            return;
+        }
+
+        Model[] reduced = new Model[levels.length];
+        int[] triangles = new int[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            reduced[i] = LodGenerator.toModel(levels[i]);
+            triangles[i] = levels[i].getTriangleCount();
+        }
+        lodChain = new LodChain(source, sourceTriangles, reduced, triangles, thresholds);
+        if (editorScreen != null) {
+            editorScreen.onLodChainChanged(lodChain, null);
+        }
+    }
+
+    private void reportLodFailure(String message) {
+        Gdx.app.error("ModelEditor", message);
+        if (editorScreen != null) {
+            editorScreen.onLodChainChanged(null, message);
+        }
+    }
+
+    /**
+     * Drop the current chain and invalidate any generation in flight.
+     */
+    private void clearLodChain() {
+        lodGeneration.incrementAndGet();
+        if (lodChain != null) {
+            lodChain.dispose();
+            lodChain = null;
             if (editorScreen != null) {
-                editorScreen.onModelChanged(currentModel);
+                editorScreen.onLodChainChanged(null, null);
             }
+        }
+    }
 
+    /**
+     * Check whether a newer compile was started or the future was cancelled.
+     */
+    private boolean isStale(ModelLoadFuture future) {
+        if (future.isDone()) return true;
+        if (future.getGeneration() != compileGeneration.get()) {
+            future.cancel(false);
             return true;
+        }
+        return false;
+    }
 
-        } catch (Exception e) {
-            Gdx.app.error("ModelEditor", "Failed to compile model: " + e.getMessage());
-            if (editorScreen != null) {
-                editorScreen.showError(e.getMessage());
+    /**
+     * Replace the current model, disposing the old one only after the swap,
+     * so meshes it shares with the new one stay cached.
+     * @param merged The merge result behind the model, or null
+     * @param signatures Input hashes of the build the model came from
+     */
+    private void swapModel(Model model, MergedModel merged, NodeSignatures signatures) {
+        Model oldModel = currentModel;
+        currentModel = model;
+        currentMerged = merged != null && merged.getModel() == model ? merged : null;
+        currentSignatures = signatures;
+
+        if (timeToFirstPreviewMs < 0) {
+            timeToFirstPreviewMs = millisSinceLaunch();
+            Gdx.app.log("ModelEditor", "Time to first preview: " + timeToFirstPreviewMs + " ms");
+        }
+
+        // The old chain refers to the old model, so it is replaced before disposal
+        onCurrentModelUpdated(null);
+
+        if (oldModel != null) {
+            oldModel.dispose();
+        }
+    }
+
+    /**
+     * Refresh everything derived from the current model after it was
+     * swapped or updated in place: statistics, budget, editor, LOD chain
+     * and picker. An in-place update that only recolored keeps the LOD
+     * levels' geometry and the picking hierarchy.
+     * @param inPlace The node changes of an in-place update, or null after a swap
+     */
+    private void onCurrentModelUpdated(NodeSignatures.Diff inPlace) {
+        modelStats = ModelStats.of(currentModel);
+        checkBudget();
+
+        // Update camera controller with new model
+        if (editorScreen != null) {
+            editorScreen.onModelChanged(currentModel);
+            editorScreen.onModelStatsChanged(modelStats, budgetIssues);
+        }
+
+        // Picking and LOD levels work in world space on enabled parts only
+        boolean moved = inPlace == null || !inPlace.isTransformUnchanged() || !inPlace.isVisibilityUnchanged();
+        if (lodChain != null && !moved) {
+            if (!lodChain.updateMaterials()) generateLods();
+        } else if (lodChain != null || lodPreview) {
+            generateLods();
+        }
+        if (moved) {
+            buildPicker();
+        }
+    }
+
+    /**
+     * Copy the current model's triangles here on the render thread and build
+     * their picking hierarchy on a worker. Until it is ready, picks miss.
+     */
+    private void buildPicker() {
+        final long generation = pickerGeneration.incrementAndGet();
+        picker = null;
+        if (currentModel == null) return;
+
+        final Model source = currentModel;
+        final TrianglePicker.Snapshot snapshot = TrianglePicker.capture(source, currentMerged);
+        pickingExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                if (generation != pickerGeneration.get()) return;
+                final TrianglePicker built;
+                try {
+                    built = TrianglePicker.build(snapshot);
+                } catch (RuntimeException e) {
+                    Gdx.app.error("ModelEditor", "Picking hierarchy failed: " + e.getMessage());
+                    return;
+                }
+                Gdx.app.postRunnable(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != pickerGeneration.get() || source != currentModel) return;
+                        picker = built;
+                        Gdx.app.debug("ModelEditor", "Picking hierarchy: " + built.getTriangleCount()
+                            + " triangles, " + built.getTreeNodeCount() + " boxes in "
+                            + built.getBuildNanos() / 1000000 + " ms");
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Find the node of the current model a ray hits first. Call on the
+     * render thread.
+     * @return The hit, or null on a miss or while the hierarchy is building
+     */
+    public TrianglePicker.Hit pickNode(Ray ray) {
+        return picker != null ? picker.pick(ray) : null;
+    }
+
+    /**
+     * Get the picking hierarchy of the current model.
+     * @return The picker, or null while it is building
+     */
+    public TrianglePicker getPicker() {
+        return picker;
+    }
+
+    /**
+     * Get the per-phase timings of the compile pipeline.
+     */
+    public PipelineMetrics getPipelineMetrics() {
+        return modelCompiler.getMetrics();
+    }
+
+    /**
+     * Get the tracker of compiled snippet class loaders, e.g. for its summary.
+     */
+    public ClassUnloadTracker getClassUnloadTracker() {
+        return modelCompiler.getClassUnloadTracker();
+    }
+
+    /**
+     * Check that the classes of snippets evicted from the compile cache were
+     * unloaded, and log the outcome. Runs on the compile worker after any
+     * queued compiles, so no compile in flight holds a loader. It forces
+     * garbage collection, so it is meant for diagnostics such as opening
+     * the metrics overlay, not for every frame.
+     */
+    public void verifyClassUnloading() {
+        compileExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                ClassUnloadTracker tracker = modelCompiler.getClassUnloadTracker();
+                try {
+                    if (tracker.verifyReleasedUnloaded(CLASS_UNLOAD_TIMEOUT_MS)) {
+                        Gdx.app.log("ModelEditor", "Evicted snippet classes unloaded: " + tracker.formatSummary());
+                    } else {
+                        Gdx.app.error("ModelEditor", "Evicted snippet classes still loaded: " + tracker.getLeakedKeys());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
             }
+        });
+    }
+
+    /**
+     * Write the pipeline metrics to a CSV file.
+     * @return true if the file was written
+     */
+    public boolean dumpMetricsCsv(FileHandle file) {
+        Writer writer = null;
+        try {
+            writer = file.writer(false, "UTF-8");
+            modelCompiler.getMetrics().writeCsv(writer);
+            return true;
+        } catch (Exception e) {
+            Gdx.app.error("ModelEditor", "Failed to write metrics: " + e.getMessage());
             return false;
+        } finally {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    // Already reported or written
+                }
+            }
+        }
+    }
+
+    private void reportCompileFailure(Exception e) {
+        // Snippet exceptions are passed through unchanged and may have no message
+        String message = e.getMessage() != null ? e.getMessage() : e.toString();
+        Gdx.app.error("ModelEditor", "Failed to compile model: " + message);
+        if (editorScreen != null) {
+            editorScreen.showError(message);
         }
     }
 
     @Override
     public void render() {
+        // Upload queued meshes within the frame budget; may swap in a new model
+        meshUploader.update();
+
         // Clear screen with dark background
         Gdx.gl.glClearColor(0.15f, 0.15f, 0.2f, 1f);
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT | GL20.GL_DEPTH_BUFFER_BIT);
@@ -158,9 +1491,34 @@ public class ModelEditorApplication extends ApplicationAdapter {
         // Render UI
         if (editorScreen != null) {
             editorScreen.render(Gdx.graphics.getDeltaTime());
+
+            if (timeToFirstInteractiveMs < 0) {
+                timeToFirstInteractiveMs = millisSinceLaunch();
+                Gdx.app.log("ModelEditor", "Time to first interactive: " + timeToFirstInteractiveMs + " ms");
+            }
         }
     }
 
+    /**
+     * Get the time from launch until the editor UI was first drawn.
+     * @return Milliseconds, or -1 if no frame has been rendered yet
+     */
+    public long getTimeToFirstInteractiveMs() {
+        return timeToFirstInteractiveMs;
+    }
+
+    /**
+     * Get the time from launch until the first model was shown.
+     * @return Milliseconds, or -1 if no model has been loaded yet
+     */
+    public long getTimeToFirstPreviewMs() {
+        return timeToFirstPreviewMs;
+    }
+
+    private static long millisSinceLaunch() {
+        return (System.nanoTime() - launchTimeNanos) / 1000000;
+    }
+
     @Override
     public void resize(int width, int height) {
         super.resize(width, height);
@@ -172,6 +1530,34 @@ public class ModelEditorApplication extends ApplicationAdapter {
     @Override
     public void dispose() {
         // Clean up resources
+        if (compileExecutor != null) {
+            compileExecutor.shutdownNow();
+            compileExecutor = null;
+        }
+        if (parseExecutor != null) {
+            parseExecutor.shutdownNow();
+            parseExecutor = null;
+        }
+        if (lodExecutor != null) {
+            lodExecutor.shutdownNow();
+            lodExecutor = null;
+        }
+        if (geometryExecutor != null) {
+            geometryExecutor.shutdownNow();
+            geometryExecutor = null;
+        }
+        if (pickingExecutor != null) {
+            pickingExecutor.shutdownNow();
+            pickingExecutor = null;
+        }
+        if (meshUploader != null) {
+            meshUploader.dispose();
+            meshUploader = null;
+        }
+        if (lodChain != null) {
+            lodChain.dispose();
+            lodChain = null;
+        }
         if (modelBatch != null) {
             modelBatch.dispose();
             modelBatch = null;
@@ -180,6 +1566,8 @@ public class ModelEditorApplication extends ApplicationAdapter {
             currentModel.dispose();
             currentModel = null;
         }
+        primitiveCache.dispose();
+        DirectBufferPool.shared().trim();
         if (editorScreen != null) {
             editorScreen.dispose();
             editorScreen = null;
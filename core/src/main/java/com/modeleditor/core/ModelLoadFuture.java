@@ -0,0 +1,115 @@
+package com.modeleditor.core;
+
+import com.badlogic.gdx.graphics.g3d.Model;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of an asynchronous compile. Completes on the render thread once
+ * the new model has been swapped in, or with the compile/build failure.
+ */
+public class ModelLoadFuture implements Future<Model> {
+
+    private final long generation;
+    private final long startNanos = System.nanoTime();
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private Model model;
+    private Throwable failure;
+    private boolean cancelled;
+    private Future<?> workerTask;
+    private Future<?> parseTask;
+
+    ModelLoadFuture(long generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * Get the compile generation this future belongs to; later requests have higher values.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Get the time since the compile was requested.
+     */
+    public long getElapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    synchronized void setWorkerTask(Future<?> workerTask) {
+        this.workerTask = workerTask;
+    }
+
+    synchronized void setParseTask(Future<?> parseTask) {
+        this.parseTask = parseTask;
+    }
+
+    synchronized boolean complete(Model model) {
+        if (isDone()) return false;
+        this.model = model;
+        done.countDown();
+        return true;
+    }
+
+    synchronized boolean fail(Throwable failure) {
+        if (isDone()) return false;
+        this.failure = failure;
+        done.countDown();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+        if (isDone()) return false;
+        cancelled = true;
+        if (workerTask != null) {
+            workerTask.cancel(mayInterruptIfRunning);
+        }
+        if (parseTask != null) {
+            parseTask.cancel(mayInterruptIfRunning);
+        }
+        done.countDown();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public Model get() throws InterruptedException, ExecutionException {
+        done.await();
+        return result();
+    }
+
+    @Override
+    public Model get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException("Model compile still running");
+        }
+        return result();
+    }
+
+    private synchronized Model result() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException("Model compile was cancelled");
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return model;
+    }
+}
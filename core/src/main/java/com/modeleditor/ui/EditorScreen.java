@@ -1,6 +1,10 @@
 package com.modeleditor.ui;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.InputMultiplexer;
+import com.badlogic.gdx.InputProcessor;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.PerspectiveCamera;
 import com.badlogic.gdx.graphics.Texture;
@@ -9,18 +13,42 @@ import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.g3d.Environment;
 import com.badlogic.gdx.graphics.g3d.Model;
 import com.badlogic.gdx.graphics.g3d.ModelBatch;
+import com.badlogic.gdx.graphics.g3d.model.Node;
 import com.badlogic.gdx.graphics.g3d.utils.CameraInputController;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.collision.Ray;
+import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.*;
+import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
 import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
 import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.Clipboard;
+import com.badlogic.gdx.utils.TimeUtils;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 import com.modeleditor.core.ModelEditorApplication;
+import com.modeleditor.core.ModelLoadFuture;
+import com.modeleditor.util.FrustumCuller;
+import com.modeleditor.util.LodChain;
+import com.modeleditor.util.MergedModel;
+import com.modeleditor.util.ModelBudget;
+import com.modeleditor.util.ModelParameter;
+import com.modeleditor.util.ModelParameters;
+import com.modeleditor.util.ModelStats;
+import com.modeleditor.util.PrimitiveMeshCache;
+import com.modeleditor.util.SelectionHighlight;
+import com.modeleditor.util.TrianglePicker;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Main editor screen with split layout:
@@ -29,22 +57,81 @@ import com.modeleditor.core.ModelEditorApplication;
  */
 public class EditorScreen {
 
+    // Quiet period after the last keystroke before a live compile starts
+    private static final long LIVE_DEBOUNCE_MS = 250;
+
+    // How often the metrics overlay is refreshed while visible
+    private static final float METRICS_REFRESH_SECONDS = 0.5f;
+
+    // Pointer travel in pixels up to which a press in the preview counts as a click
+    private static final int CLICK_SLOP = 5;
+
     private final ModelEditorApplication application;
     private final Stage stage;
     private final Viewport viewport;
 
     // UI Components
+    private Skin skin;
     private TextField codeTextField;
     private Label errorLabel;
     private Label statusLabel;
     private Button compileButton;
     private Button copyPromptButton;
     private Button exampleButton;
+    private TextButton liveModeButton;
+    private TextButton mergeButton;
+    private TextButton shareButton;
+    private TextButton metricsButton;
+    private Label metricsLabel;
+    private float metricsRefreshTimer;
+
+    // Generated controls for the snippet's declared parameters
+    private Table parametersTable;
+    private boolean parametersDirty;
+
+    // Live compile-as-you-type state
+    private boolean liveMode;
+    private boolean liveCompilePending;
+    private long lastEditTime;
+    private ModelLoadFuture pendingLoad;
 
     // 3D Preview Components
     private PerspectiveCamera camera;
     private CameraInputController cameraController;
     private Model currentModel;
+
+    // LOD preview: level shown is picked from the model's projected size
+    private TextButton lodButton;
+    private Label lodLabel;
+    private LodChain lodChain;
+    private int shownLodLevel = -1;
+
+    // Frustum culling: one culler per shown model, LOD levels included
+    private TextButton cullButton;
+    private Label cullLabel;
+    private boolean frustumCulling = true;
+    private final Map<Model, FrustumCuller> cullers = new IdentityHashMap<>();
+    private int shownDrawnNodes = -1;
+    private int shownCulledNodes = -1;
+
+    // Click-to-select in the preview; kept by node id across rebuilds
+    private final InputMultiplexer inputMultiplexer;
+    private String selectedNodeId;
+    private Node selectedNode;
+    private SelectionHighlight highlight;
+    private final Rectangle previewBounds = new Rectangle();
+    private boolean previewPressed;
+    private int pressX;
+    private int pressY;
+
+    // Model statistics and budget check, with an optional per-node table
+    private TextButton statsButton;
+    private Label statsLabel;
+    private Label nodeStatsLabel;
+    private ModelStats modelStats;
+    private boolean compileInProgress;
+    // Merge or share was toggled; its result is shown once the rebuild swaps in
+    private boolean pipelineStatusPending;
     private final float viewportWidth;
     private final float viewportHeight;
 
@@ -63,8 +150,29 @@ public class EditorScreen {
         // Build the UI
         buildUI();
 
-        // Add the stage to the input processor
-        Gdx.input.setInputProcessor(stage);
+        // The stage gets input first; clicks it does not handle may pick nodes
+        inputMultiplexer = new InputMultiplexer(stage, new InputAdapter() {
+            @Override
+            public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+                // Screen y grows downwards, the bounds' upwards
+                previewPressed = button == Input.Buttons.LEFT
+                    && getPreviewScreenBounds().contains(screenX, Gdx.graphics.getHeight() - 1 - screenY);
+                pressX = screenX;
+                pressY = screenY;
+                return false;
+            }
+
+            @Override
+            public boolean touchUp(int screenX, int screenY, int pointer, int button) {
+                if (previewPressed && Math.abs(screenX - pressX) <= CLICK_SLOP
+                    && Math.abs(screenY - pressY) <= CLICK_SLOP) {
+                    pickAt(screenX, screenY);
+                }
+                previewPressed = false;
+                return false;
+            }
+        });
+        Gdx.input.setInputProcessor(inputMultiplexer);
     }
 
     /**
@@ -141,6 +249,15 @@ public class EditorScreen {
         scrollPaneStyle.background = textFieldDrawable;
         skin.add("default", scrollPaneStyle, ScrollPane.ScrollPaneStyle.class);
 
+        // Slider style for parameter controls
+        TextureRegionDrawable sliderBackground = new TextureRegionDrawable(new TextureRegion(createSolidTexture(textFieldBg, 4, 4)));
+        sliderBackground.setMinHeight(6);
+        TextureRegionDrawable sliderKnob = new TextureRegionDrawable(new TextureRegion(buttonTexture));
+        sliderKnob.setMinWidth(10);
+        sliderKnob.setMinHeight(18);
+        Slider.SliderStyle sliderStyle = new Slider.SliderStyle(sliderBackground, sliderKnob);
+        skin.add("default-horizontal", sliderStyle, Slider.SliderStyle.class);
+
         return skin;
     }
 
@@ -166,7 +283,7 @@ public class EditorScreen {
         stage.addActor(mainTable);
 
         // Create skin for UI
-        Skin skin = createSkin();
+        skin = createSkin();
 
         // Calculate split positions
         float leftWidth = viewportWidth * 0.6f;
@@ -194,14 +311,47 @@ public class EditorScreen {
             }
         });
 
+        liveModeButton = new TextButton("Live: Off", skin);
+        liveModeButton.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                setLiveMode(!liveMode);
+            }
+        });
+
+        mergeButton = new TextButton("Merge: Off", skin);
+        mergeButton.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                setMergeMeshes(!application.isMergeMeshes());
+            }
+        });
+
+        shareButton = new TextButton("Share: Off", skin);
+        shareButton.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                setSharePrimitives(!application.isSharePrimitives());
+            }
+        });
+
         buttonRow.add(copyPromptButton).padRight(10).height(45);
-        buttonRow.add(exampleButton).height(45);
+        buttonRow.add(exampleButton).padRight(10).height(45);
+        buttonRow.add(liveModeButton).padRight(10).height(45);
+        buttonRow.add(mergeButton).padRight(10).height(45);
+        buttonRow.add(shareButton).height(45);
 
         // Code text input
         Label codeLabel = new Label("Paste Java Code Below:", skin);
 
         codeTextField = new TextField(getDefaultCode(), skin);
         codeTextField.setAlignment(Align.top | Align.left);
+        codeTextField.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                onCodeEdited();
+            }
+        });
 
         // Create a scrollable text area using ScrollPane
         ScrollPane codeScrollPane = new ScrollPane(codeTextField, skin);
@@ -218,6 +368,24 @@ public class EditorScreen {
         statusLabel = new Label("Ready. Click 'Compile & Preview' to render your model.", skin);
         statusLabel.setColor(Color.GREEN);
 
+        // Pipeline metrics overlay (initially hidden)
+        metricsLabel = new Label("", skin);
+        metricsLabel.setColor(Color.LIGHT_GRAY);
+        metricsLabel.setAlignment(Align.topLeft);
+        metricsLabel.setVisible(false);
+
+        metricsButton = new TextButton("Metrics", skin);
+        metricsButton.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                setMetricsVisible(!metricsLabel.isVisible());
+            }
+        });
+
+        Table statusRow = new Table();
+        statusRow.add(statusLabel).expandX().fillX().align(Align.center);
+        statusRow.add(metricsButton).padLeft(10).height(30);
+
         // Compile button
         compileButton = new TextButton("Compile & Preview", skin);
         compileButton.addListener(new ClickListener() {
@@ -238,7 +406,9 @@ public class EditorScreen {
         leftPanel.row();
         leftPanel.add(errorLabel).fillX().height(80).visible(false).align(Align.topLeft);
         leftPanel.row();
-        leftPanel.add(statusLabel).fillX().align(Align.center);
+        leftPanel.add(statusRow).fillX();
+        leftPanel.row();
+        leftPanel.add(metricsLabel).fillX().padTop(5).align(Align.topLeft);
 
         // RIGHT PANEL - 3D Preview
         Table rightPanel = new Table();
@@ -247,6 +417,68 @@ public class EditorScreen {
         previewLabel.setAlignment(Align.center);
 
         rightPanel.add(previewLabel).align(Align.top).padBottom(10);
+        rightPanel.row();
+
+        lodButton = new TextButton("LOD: Off", skin);
+        lodButton.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                setLodPreview(!application.isLodPreview());
+            }
+        });
+        lodLabel = new Label("", skin);
+        lodLabel.setColor(Color.LIGHT_GRAY);
+
+        Table lodRow = new Table();
+        lodRow.add(lodButton).height(30).padRight(10);
+        lodRow.add(lodLabel).expandX().align(Align.left);
+        rightPanel.add(lodRow).fillX().pad(0, 10, 10, 10);
+        rightPanel.row();
+
+        cullButton = new TextButton("Culling: On", skin);
+        cullButton.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                setFrustumCulling(!frustumCulling);
+            }
+        });
+        cullLabel = new Label("", skin);
+        cullLabel.setColor(Color.LIGHT_GRAY);
+
+        Table cullRow = new Table();
+        cullRow.add(cullButton).height(30).padRight(10);
+        cullRow.add(cullLabel).expandX().align(Align.left);
+        rightPanel.add(cullRow).fillX().pad(0, 10, 10, 10);
+        rightPanel.row();
+
+        statsButton = new TextButton("Nodes", skin);
+        statsButton.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                setNodeStatsVisible(!nodeStatsLabel.isVisible());
+            }
+        });
+        statsLabel = new Label("", skin);
+        statsLabel.setColor(Color.LIGHT_GRAY);
+        statsLabel.setWrap(true);
+        statsLabel.setAlignment(Align.topLeft);
+
+        nodeStatsLabel = new Label("", skin);
+        nodeStatsLabel.setColor(Color.LIGHT_GRAY);
+        nodeStatsLabel.setAlignment(Align.topLeft);
+        nodeStatsLabel.setVisible(false);
+
+        Table statsRow = new Table();
+        statsRow.add(statsButton).height(30).padRight(10).top();
+        statsRow.add(statsLabel).expandX().fillX().align(Align.topLeft);
+        rightPanel.add(statsRow).fillX().pad(0, 10, 10, 10);
+        rightPanel.row();
+        rightPanel.add(nodeStatsLabel).fillX().align(Align.topLeft).pad(0, 10, 10, 10);
+        rightPanel.row();
+
+        // Sliders for snippet parameters, filled in after each compile
+        parametersTable = new Table();
+        rightPanel.add(parametersTable).align(Align.topLeft).fillX().pad(0, 10, 0, 10);
 
         // Add panels to main table
         mainTable.add(leftPanel).width(leftWidth).top().pad(5);
@@ -332,21 +564,339 @@ public class EditorScreen {
             return;
         }
 
-        statusLabel.setText("Compiling...");
+        startCompile(code, false);
+    }
+
+    /**
+     * Start an asynchronous compile, cancelling any compile it supersedes.
+     * @param parseFirst Whether to report syntax errors before compiling
+     */
+    private void startCompile(String code, boolean parseFirst) {
+        if (pendingLoad != null) {
+            pendingLoad.cancel(false);
+        }
+
+        statusLabel.setText(parseFirst ? "Checking..." : "Compiling...");
         statusLabel.setColor(Color.YELLOW);
 
-        boolean success = application.compileAndLoadModel(code);
+        // Compiles on a worker; the result arrives via onModelChanged or showError
+        compileInProgress = true;
+        pendingLoad = application.compileAndLoadModelAsync(code, parseFirst);
+    }
 
-        if (success) {
-            statusLabel.setText("Model compiled successfully!");
+    /**
+     * Turn compile-as-you-type on or off.
+     */
+    public void setLiveMode(boolean enabled) {
+        liveMode = enabled;
+        liveCompilePending = false;
+        liveModeButton.setText(enabled ? "Live: On" : "Live: Off");
+
+        if (enabled) {
+            statusLabel.setText("Live mode: the preview updates as you type.");
             statusLabel.setColor(Color.GREEN);
-            errorLabel.setVisible(false);
+        }
+    }
+
+    /**
+     * Turn merging of parts by material on or off for the preview.
+     */
+    public void setMergeMeshes(boolean enabled) {
+        pipelineStatusPending = true;
+        application.setMergeMeshes(enabled);
+        mergeButton.setText(enabled ? "Merge: On" : "Merge: Off");
+    }
+
+    /**
+     * Turn sharing of identical primitive meshes on or off for the preview.
+     */
+    public void setSharePrimitives(boolean enabled) {
+        pipelineStatusPending = true;
+        application.setSharePrimitives(enabled);
+        shareButton.setText(enabled ? "Share: On" : "Share: Off");
+    }
+
+    /**
+     * Show what merging or sharing did for the model the toggle rebuilt.
+     */
+    private void showPipelineStatus() {
+        pipelineStatusPending = false;
+        MergedModel merged = application.getMergedModel();
+        ModelStats stats = application.getModelStats();
+        if (merged != null) {
+            statusLabel.setText("Merged " + merged.getSourceDrawCalls() + " parts into "
+                + merged.getDrawCalls() + " draw calls.");
+        } else if (application.isSharePrimitives() && !application.isMergeMeshes()) {
+            PrimitiveMeshCache cache = application.getPrimitiveMeshCache();
+            statusLabel.setText("Sharing primitives: " + cache.getHitCount() + " reused, "
+                + cache.getMissCount() + " uploaded.");
+        } else if (stats != null) {
+            statusLabel.setText("Drawing " + stats.getDrawCalls() + " parts separately.");
         } else {
-            statusLabel.setText("Compilation failed.");
-            statusLabel.setColor(Color.RED);
+            return;
+        }
+        statusLabel.setColor(Color.GREEN);
+    }
+
+    /**
+     * Turn frustum culling of the preview on or off. With it off every node
+     * is drawn, for comparing frame times.
+     */
+    public void setFrustumCulling(boolean enabled) {
+        frustumCulling = enabled;
+        cullButton.setText(enabled ? "Culling: On" : "Culling: Off");
+        shownDrawnNodes = -1;
+        shownCulledNodes = -1;
+        if (!enabled) {
+            cullLabel.setText("");
+        }
+    }
+
+    public boolean isFrustumCulling() {
+        return frustumCulling;
+    }
+
+    /**
+     * Get the culler of a shown model, building its node bounds on first use.
+     */
+    private FrustumCuller getCuller(Model model) {
+        FrustumCuller culler = cullers.get(model);
+        if (culler == null) {
+            culler = new FrustumCuller(model);
+            cullers.put(model, culler);
+        }
+        return culler;
+    }
+
+    /**
+     * Show the drawn and culled node counts, only when they change.
+     */
+    private void updateCullLabel(FrustumCuller culler) {
+        int drawn = culler.getDrawnNodeCount();
+        int culled = culler.getCulledNodeCount();
+        if (drawn == shownDrawnNodes && culled == shownCulledNodes) return;
+        shownDrawnNodes = drawn;
+        shownCulledNodes = culled;
+        cullLabel.setText("Drawn " + drawn + " nodes (" + culler.getDrawnPartCount() + " parts), culled " + culled);
+    }
+
+    /**
+     * Turn the LOD preview on or off. Levels are generated in the background
+     * and appear via {@link #onLodChainChanged(LodChain, String)}.
+     */
+    public void setLodPreview(boolean enabled) {
+        lodButton.setText(enabled ? "LOD: On" : "LOD: Off");
+        lodLabel.setText(enabled && lodChain == null ? "Generating..." : "");
+        // May report a failure right away, replacing the label
+        application.setLodPreview(enabled);
+    }
+
+    /**
+     * Called when the LOD chain of the current model is ready, dropped, or
+     * could not be generated.
+     * @param failure Why generation failed, or null
+     */
+    public void onLodChainChanged(LodChain chain, String failure) {
+        lodChain = chain;
+        shownLodLevel = -1;
+        cullers.clear();
+        highlight = null;
+        if (failure != null) {
+            lodLabel.setText(failure);
+        } else if (chain == null) {
+            lodLabel.setText(application.isLodPreview() ? "Generating..." : "");
+        }
+    }
+
+    /**
+     * Called with the statistics of each new model and the thresholds of
+     * the target platform's budget it exceeds.
+     */
+    public void onModelStatsChanged(ModelStats stats, List<ModelBudget.Issue> issues) {
+        modelStats = stats;
+        StringBuilder text = new StringBuilder(stats.formatSummary());
+        boolean error = false;
+        for (ModelBudget.Issue issue : issues) {
+            text.append('\n').append(issue);
+            error |= issue.isError();
+        }
+        statsLabel.setText(text);
+        statsLabel.setColor(error ? Color.RED : issues.isEmpty() ? Color.LIGHT_GRAY : Color.YELLOW);
+        if (nodeStatsLabel.isVisible()) {
+            nodeStatsLabel.setText(stats.formatNodes());
+        }
+    }
+
+    /**
+     * Show or hide the per-node statistics table.
+     */
+    public void setNodeStatsVisible(boolean visible) {
+        nodeStatsLabel.setVisible(visible);
+        if (visible && modelStats != null) {
+            nodeStatsLabel.setText(modelStats.formatNodes());
+        }
+    }
+
+    public boolean isLiveMode() {
+        return liveMode;
+    }
+
+    /**
+     * Restart the debounce timer on every edit. The compile for the previous
+     * text is already stale, so it is cancelled right away rather than left
+     * to occupy the worker.
+     */
+    private void onCodeEdited() {
+        if (!liveMode) return;
+
+        lastEditTime = TimeUtils.millis();
+        liveCompilePending = true;
+        if (pendingLoad != null) {
+            pendingLoad.cancel(false);
+            pendingLoad = null;
         }
     }
 
+    /**
+     * Rebuild the parameter sliders for a freshly compiled snippet.
+     * Values already set for a parameter of the same name are kept.
+     */
+    public void onParametersDeclared(List<ModelParameter> declarations, ModelParameters values) {
+        parametersTable.clearChildren();
+        if (declarations.isEmpty()) return;
+
+        parametersTable.add(new Label("Parameters", skin)).colspan(3).align(Align.left).padBottom(5);
+        parametersTable.row();
+
+        for (ModelParameter parameter : declarations) {
+            if (parameter.getType() == ModelParameter.Type.COLOR) {
+                addColorControls(parameter, values);
+            } else {
+                addNumberControl(parameter, values);
+            }
+        }
+    }
+
+    private void addNumberControl(final ModelParameter parameter, final ModelParameters values) {
+        final String name = parameter.getName();
+        final boolean isInt = parameter.getType() == ModelParameter.Type.INT;
+        float step = isInt ? 1f : (parameter.getMax() - parameter.getMin()) / 100f;
+        float value = isInt
+            ? values.getInt(name, (int) parameter.getDefaultValue())
+            : values.getFloat(name, parameter.getDefaultValue());
+
+        final Slider slider = new Slider(parameter.getMin(), parameter.getMax(), step, false, skin);
+        slider.setValue(value);
+        final Label valueLabel = new Label(formatParameterValue(slider.getValue(), isInt), skin);
+
+        slider.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                if (isInt) {
+                    values.setInt(name, Math.round(slider.getValue()));
+                } else {
+                    values.setFloat(name, slider.getValue());
+                }
+                valueLabel.setText(formatParameterValue(slider.getValue(), isInt));
+                parametersDirty = true;
+            }
+        });
+
+        parametersTable.add(new Label(name, skin)).align(Align.left).padRight(10);
+        parametersTable.add(slider).expandX().fillX();
+        parametersTable.add(valueLabel).width(50).padLeft(10);
+        parametersTable.row();
+    }
+
+    private void addColorControls(final ModelParameter parameter, final ModelParameters values) {
+        final String name = parameter.getName();
+        Color defaultColor = parameter.getDefaultColor();
+        final Color color = values.getColor(name, defaultColor.r, defaultColor.g, defaultColor.b, defaultColor.a);
+        String[] channels = {"r", "g", "b"};
+
+        for (int i = 0; i < channels.length; i++) {
+            final int channel = i;
+            final Slider slider = new Slider(0f, 1f, 0.01f, false, skin);
+            slider.setValue(channel == 0 ? color.r : channel == 1 ? color.g : color.b);
+            final Label valueLabel = new Label(formatParameterValue(slider.getValue(), false), skin);
+
+            slider.addListener(new ChangeListener() {
+                @Override
+                public void changed(ChangeEvent event, Actor actor) {
+                    if (channel == 0) color.r = slider.getValue();
+                    else if (channel == 1) color.g = slider.getValue();
+                    else color.b = slider.getValue();
+                    values.setColor(name, color);
+                    valueLabel.setText(formatParameterValue(slider.getValue(), false));
+                    parametersDirty = true;
+                }
+            });
+
+            parametersTable.add(new Label(name + "." + channels[i], skin)).align(Align.left).padRight(10);
+            parametersTable.add(slider).expandX().fillX();
+            parametersTable.add(valueLabel).width(50).padLeft(10);
+            parametersTable.row();
+        }
+    }
+
+    private static String formatParameterValue(float value, boolean isInt) {
+        return isInt ? String.valueOf(Math.round(value)) : String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    /**
+     * Rebuild the model at most once per frame while sliders are dragged.
+     */
+    private void updateParameterRebuild() {
+        if (!parametersDirty) return;
+        parametersDirty = false;
+        application.rebuildModel();
+    }
+
+    /**
+     * Show or hide the per-phase compile metrics overlay.
+     */
+    public void setMetricsVisible(boolean visible) {
+        metricsLabel.setVisible(visible);
+        metricsRefreshTimer = 0f;
+        if (visible) {
+            metricsLabel.setText(formatMetrics());
+            // The overlay's class loader line shows the result on a later refresh
+            application.verifyClassUnloading();
+        }
+    }
+
+    private String formatMetrics() {
+        return application.getPipelineMetrics().formatSummary()
+            + application.getBufferPool().formatSummary() + "\n"
+            + application.getClassUnloadTracker().formatSummary();
+    }
+
+    private void updateMetricsOverlay(float delta) {
+        if (!metricsLabel.isVisible()) return;
+
+        metricsRefreshTimer += delta;
+        if (metricsRefreshTimer >= METRICS_REFRESH_SECONDS) {
+            metricsRefreshTimer = 0f;
+            metricsLabel.setText(formatMetrics());
+        }
+    }
+
+    /**
+     * Start the live compile once typing has paused for the debounce period.
+     */
+    private void updateLiveCompile() {
+        if (!liveCompilePending || TimeUtils.timeSinceMillis(lastEditTime) < LIVE_DEBOUNCE_MS) {
+            return;
+        }
+        liveCompilePending = false;
+
+        String code = codeTextField.getText();
+        if (code.trim().isEmpty()) return;
+
+        // Parse first so syntax errors show up without waiting for Janino
+        startCompile(code, true);
+    }
+
     /**
      * Show an error message in the UI.
      */
@@ -354,13 +904,123 @@ public class EditorScreen {
         errorLabel.setText("Error:\n" + errorMessage);
         errorLabel.setVisible(true);
         errorLabel.setColor(Color.RED);
+        pipelineStatusPending = false;
+
+        if (compileInProgress) {
+            compileInProgress = false;
+            statusLabel.setText("Compilation failed.");
+            statusLabel.setColor(Color.RED);
+        }
     }
 
     /**
      * Called when the model is successfully changed.
      */
     public void onModelChanged(Model model) {
+        // The selection carries over by id; the node itself only for in-place updates
+        if (model != currentModel) {
+            selectedNode = null;
+        }
         this.currentModel = model;
+        // Node bounds follow transforms, which change even on in-place updates
+        cullers.clear();
+        shownDrawnNodes = -1;
+        highlight = null;
+
+        if (compileInProgress) {
+            compileInProgress = false;
+            statusLabel.setText("Model compiled successfully!");
+            statusLabel.setColor(Color.GREEN);
+            errorLabel.setVisible(false);
+        }
+        if (pipelineStatusPending) {
+            showPipelineStatus();
+        }
+    }
+
+    /**
+     * Pick the node under a click in the preview and select it, or clear the
+     * selection on a miss.
+     */
+    private void pickAt(int screenX, int screenY) {
+        if (currentModel == null) return;
+
+        TrianglePicker picker = application.getPicker();
+        if (picker == null) {
+            statusLabel.setText("Still indexing the model for picking...");
+            statusLabel.setColor(Color.LIGHT_GRAY);
+            return;
+        }
+
+        Rectangle bounds = getPreviewScreenBounds();
+        Ray ray = camera.getPickRay(screenX, screenY, bounds.x, bounds.y, bounds.width, bounds.height);
+        TrianglePicker.Hit hit = picker.pick(ray);
+        String pickTime = String.format(Locale.ROOT, " (%.3f ms)", picker.getLastPickNanos() / 1000000f);
+        if (hit == null) {
+            select(null, null);
+            statusLabel.setText("Nothing selected." + pickTime);
+        } else {
+            select(hit.getNodeId(), hit.getNode());
+            statusLabel.setText((hit.getNodeId() != null ? "Selected " + hit.getNodeId() : "Selected a node without id")
+                + pickTime);
+        }
+        statusLabel.setColor(Color.LIGHT_GRAY);
+    }
+
+    /**
+     * Select a node by id, highlighting it in the preview and its id
+     * assignment in the code.
+     * @param nodeId The node id, or null to clear the selection
+     */
+    public void selectNode(String nodeId) {
+        select(nodeId, null);
+    }
+
+    public String getSelectedNodeId() {
+        return selectedNodeId;
+    }
+
+    private void select(String nodeId, Node node) {
+        selectedNodeId = nodeId;
+        selectedNode = node;
+        highlight = null;
+        if (nodeId != null) {
+            selectInCode(nodeId);
+        }
+    }
+
+    /**
+     * Select the line that sets the node's id, such as {@code trunk.id = "trunk";},
+     * or else the first use of the id as a string.
+     */
+    private void selectInCode(String nodeId) {
+        String code = codeTextField.getText();
+        String literal = "\"" + nodeId + "\"";
+        Matcher matcher = Pattern.compile("\\.id\\s*=\\s*" + Pattern.quote(literal)).matcher(code);
+        int start;
+        int end;
+        if (matcher.find()) {
+            start = code.lastIndexOf('\n', matcher.start()) + 1;
+            end = code.indexOf('\n', matcher.end());
+            if (end < 0) end = code.length();
+        } else {
+            start = code.indexOf(literal);
+            if (start < 0) return;
+            end = start + literal.length();
+        }
+        // The field only draws its selection while focused
+        stage.setKeyboardFocus(codeTextField);
+        codeTextField.setSelection(start, end);
+    }
+
+    /**
+     * Get the highlight of the selection in a shown model, LOD levels included.
+     */
+    private SelectionHighlight getHighlight(Model model) {
+        if (highlight == null || highlight.getModel() != model) {
+            highlight = new SelectionHighlight(model, application.getMergedModel(), selectedNodeId, selectedNode);
+        }
+        return highlight;
     }
 
     /**
@@ -369,29 +1029,62 @@ public class EditorScreen {
     public void render3D(ModelBatch modelBatch, Environment environment) {
         if (currentModel == null) return;
 
-        // Calculate the 3D viewport bounds
-        float rightPanelStart = viewportWidth * 0.6f;
-        float rightPanelWidth = viewportWidth * 0.4f;
+        // Set viewport for 3D rendering, in the pixels picking uses
+        Rectangle bounds = getPreviewScreenBounds();
+        Gdx.gl.glViewport((int) bounds.x, (int) bounds.y, (int) bounds.width, (int) bounds.height);
 
-        // Set viewport for 3D rendering
-        Gdx.gl.glViewport((int) rightPanelStart, 0, (int) rightPanelWidth, (int) viewportHeight);
-
-        // Update camera
+        // Update camera; culling needs the current frustum
         cameraController.update();
+        camera.update();
+
+        // Pick the detail level for the model's current size on screen
+        Model model = currentModel;
+        if (lodChain != null && lodChain.getSource() == currentModel) {
+            int level = lodChain.selectLevel(camera);
+            model = lodChain.getLevel(level);
+            if (level != shownLodLevel) {
+                shownLodLevel = level;
+                lodLabel.setText("LOD " + level + ": " + lodChain.getTriangleCount(level) + " triangles");
+            }
+        }
 
-        // Render model
+        // Render model, submitting only the nodes in view
         modelBatch.begin(camera);
-        modelBatch.render(currentModel, environment);
+        if (frustumCulling) {
+            FrustumCuller culler = getCuller(model);
+            culler.cull(camera);
+            updateCullLabel(culler);
+            modelBatch.render(culler, environment);
+        } else {
+            modelBatch.render(model, environment);
+        }
+        if (selectedNodeId != null || selectedNode != null) {
+            modelBatch.render(getHighlight(model), environment);
+        }
         modelBatch.end();
 
         // Reset viewport for UI rendering
-        Gdx.gl.glViewport(0, 0, (int) viewportWidth, (int) viewportHeight);
+        viewport.apply();
+    }
+
+    /**
+     * Get the preview panel's area in screen pixels, origin bottom left.
+     * The layout is in virtual units, which the fit viewport scales and
+     * letterboxes into the window.
+     */
+    private Rectangle getPreviewScreenBounds() {
+        float scale = viewport.getScreenWidth() / viewportWidth;
+        return previewBounds.set(viewport.getScreenX() + viewportWidth * 0.6f * scale, viewport.getScreenY(),
+            viewportWidth * 0.4f * scale, viewport.getScreenHeight());
     }
 
     /**
      * Render the UI stage.
      */
     public void render(float delta) {
+        updateLiveCompile();
+        updateParameterRebuild();
+        updateMetricsOverlay(delta);
         stage.act(delta);
         stage.draw();
     }
@@ -410,6 +1103,13 @@ public class EditorScreen {
         return stage;
     }
 
+    /**
+     * Get the processor to install: the stage, then preview picking.
+     */
+    public InputProcessor getInputProcessor() {
+        return inputMultiplexer;
+    }
+
     /**
      * Dispose of resources.
      */
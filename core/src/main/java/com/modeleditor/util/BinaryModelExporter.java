@@ -0,0 +1,314 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.g3d.Attribute;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.attributes.BlendingAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.FloatAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.IntAttribute;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a Model in a compact binary format that {@link BinaryModelLoader}
+ * can memory-map and upload without parsing, so baked props load without
+ * Janino or ModelBuilder at runtime.
+ *
+ * The file is little-endian: a header, then the mesh, material, mesh part
+ * and node tables, then each mesh's interleaved vertices and indices
+ * exactly as they sit in GPU memory, each block aligned to 16 bytes.
+ * Color, float, int, blending and quantization material attributes are
+ * written; others, such as textures, are not. Animations are not written.
+ */
+public class BinaryModelExporter {
+
+    /** "GMB1" read as a little-endian int. */
+    public static final int MAGIC = 0x31424D47;
+    public static final int VERSION = 1;
+
+    // Blocks start at multiples of this, so mapped buffers can be viewed directly
+    static final int ALIGNMENT = 16;
+
+    static final int HEADER_SIZE = 32;
+
+    // Material attribute kinds
+    static final byte ATTRIBUTE_COLOR = 1;
+    static final byte ATTRIBUTE_FLOAT = 2;
+    static final byte ATTRIBUTE_INT = 3;
+    static final byte ATTRIBUTE_BLENDING = 4;
+    static final byte ATTRIBUTE_QUANTIZATION = 5;
+
+    private ByteBuffer tables;
+
+    private final List<Mesh> meshes = new ArrayList<>();
+    private final List<MeshPart> meshParts = new ArrayList<>();
+    private final List<Material> materials = new ArrayList<>();
+    private final Map<Mesh, Integer> meshIndices = new IdentityHashMap<>();
+    private final Map<MeshPart, Integer> meshPartIndices = new IdentityHashMap<>();
+    private final Map<Material, Integer> materialIndices = new IdentityHashMap<>();
+
+    /**
+     * Export every node of the model. Reads mesh data, so call it on the
+     * thread that owns the model.
+     * @throws IOException if writing fails
+     */
+    public void export(Model model, File file) throws IOException {
+        meshes.clear();
+        meshParts.clear();
+        materials.clear();
+        meshIndices.clear();
+        meshPartIndices.clear();
+        materialIndices.clear();
+        for (Node node : model.nodes) {
+            collect(node);
+        }
+
+        tables = ByteBuffer.allocate(4096).order(ByteOrder.LITTLE_ENDIAN);
+        tables.position(HEADER_SIZE);
+
+        // Data offsets are patched in once the table size is known
+        int[] vertexOffsetPositions = new int[meshes.size()];
+        int[] indexOffsetPositions = new int[meshes.size()];
+        for (int i = 0; i < meshes.size(); i++) {
+            Mesh mesh = meshes.get(i);
+            ensure(8);
+            tables.putInt(mesh.getVertexAttributes().size());
+            for (VertexAttribute attribute : mesh.getVertexAttributes()) {
+                ensure(20);
+                tables.putInt(attribute.usage);
+                tables.putInt(attribute.numComponents);
+                tables.putInt(attribute.type);
+                tables.putInt(attribute.normalized ? 1 : 0);
+                tables.putInt(attribute.unit);
+                putString(attribute.alias);
+            }
+            ensure(24);
+            tables.putInt(mesh.getNumVertices());
+            tables.putInt(mesh.getVertexSize());
+            vertexOffsetPositions[i] = tables.position();
+            tables.putInt(0);
+            tables.putInt(mesh.getNumIndices());
+            indexOffsetPositions[i] = tables.position();
+            tables.putInt(0);
+        }
+
+        for (Material material : materials) {
+            putString(material.id);
+            writeMaterialAttributes(material);
+        }
+
+        for (MeshPart part : meshParts) {
+            putString(part.id);
+            ensure(44);
+            tables.putInt(meshIndices.get(part.mesh));
+            tables.putInt(part.offset);
+            tables.putInt(part.size);
+            tables.putInt(part.primitiveType);
+            tables.putFloat(part.center.x).putFloat(part.center.y).putFloat(part.center.z);
+            tables.putFloat(part.halfExtents.x).putFloat(part.halfExtents.y).putFloat(part.halfExtents.z);
+            tables.putFloat(part.radius);
+        }
+
+        for (Node node : model.nodes) {
+            writeNode(node);
+        }
+
+        // Lay out the data blocks after the tables
+        int tablesEnd = tables.position();
+        long offset = align(tablesEnd);
+        long[] vertexOffsets = new long[meshes.size()];
+        long[] indexOffsets = new long[meshes.size()];
+        for (int i = 0; i < meshes.size(); i++) {
+            Mesh mesh = meshes.get(i);
+            vertexOffsets[i] = offset;
+            offset = align(offset + (long) mesh.getNumVertices() * mesh.getVertexSize());
+            indexOffsets[i] = offset;
+            offset = align(offset + mesh.getNumIndices() * 2L);
+            if (offset > Integer.MAX_VALUE) {
+                throw new IOException("Model too large for the binary format");
+            }
+            tables.putInt(vertexOffsetPositions[i], (int) vertexOffsets[i]);
+            tables.putInt(indexOffsetPositions[i], (int) indexOffsets[i]);
+        }
+
+        tables.putInt(0, MAGIC);
+        tables.putInt(4, VERSION);
+        tables.putInt(8, meshes.size());
+        tables.putInt(12, materials.size());
+        tables.putInt(16, meshParts.size());
+        tables.putInt(20, model.nodes.size);
+        tables.putInt(24, (int) offset);
+        tables.putInt(28, 0);
+
+        FileOutputStream stream = new FileOutputStream(file);
+        try {
+            FileChannel channel = stream.getChannel();
+            tables.position(0).limit(tablesEnd);
+            writeFully(channel, tables);
+            for (int i = 0; i < meshes.size(); i++) {
+                writeMesh(channel, meshes.get(i), vertexOffsets[i], indexOffsets[i]);
+            }
+            // Pad the last block so the file size is the recorded data end
+            writeFully(channel, ByteBuffer.allocate((int) (offset - channel.position())));
+        } finally {
+            stream.close();
+            tables = null;
+        }
+    }
+
+    private void collect(Node node) {
+        for (NodePart part : node.parts) {
+            if (!meshPartIndices.containsKey(part.meshPart)) {
+                if (!meshIndices.containsKey(part.meshPart.mesh)) {
+                    meshIndices.put(part.meshPart.mesh, meshes.size());
+                    meshes.add(part.meshPart.mesh);
+                }
+                meshPartIndices.put(part.meshPart, meshParts.size());
+                meshParts.add(part.meshPart);
+            }
+            if (!materialIndices.containsKey(part.material)) {
+                materialIndices.put(part.material, materials.size());
+                materials.add(part.material);
+            }
+        }
+        for (Node child : node.getChildren()) {
+            collect(child);
+        }
+    }
+
+    private void writeMaterialAttributes(Material material) {
+        List<Attribute> written = new ArrayList<>();
+        for (Attribute attribute : material) {
+            if (attribute instanceof ColorAttribute || attribute instanceof FloatAttribute
+                || attribute instanceof IntAttribute || attribute instanceof BlendingAttribute
+                || attribute instanceof QuantizationAttribute) {
+                written.add(attribute);
+            }
+        }
+
+        ensure(4);
+        tables.putInt(written.size());
+        for (Attribute attribute : written) {
+            ensure(1);
+            if (attribute instanceof ColorAttribute) {
+                tables.put(ATTRIBUTE_COLOR);
+                putString(Attribute.getAttributeAlias(attribute.type));
+                Color color = ((ColorAttribute) attribute).color;
+                ensure(16);
+                tables.putFloat(color.r).putFloat(color.g).putFloat(color.b).putFloat(color.a);
+            } else if (attribute instanceof FloatAttribute) {
+                tables.put(ATTRIBUTE_FLOAT);
+                putString(Attribute.getAttributeAlias(attribute.type));
+                ensure(4);
+                tables.putFloat(((FloatAttribute) attribute).value);
+            } else if (attribute instanceof IntAttribute) {
+                tables.put(ATTRIBUTE_INT);
+                putString(Attribute.getAttributeAlias(attribute.type));
+                ensure(4);
+                tables.putInt(((IntAttribute) attribute).value);
+            } else if (attribute instanceof BlendingAttribute) {
+                BlendingAttribute blending = (BlendingAttribute) attribute;
+                tables.put(ATTRIBUTE_BLENDING);
+                ensure(16);
+                tables.putInt(blending.blended ? 1 : 0);
+                tables.putInt(blending.sourceFunction);
+                tables.putInt(blending.destFunction);
+                tables.putFloat(blending.opacity);
+            } else {
+                QuantizationAttribute quantization = (QuantizationAttribute) attribute;
+                tables.put(ATTRIBUTE_QUANTIZATION);
+                ensure(24);
+                tables.putFloat(quantization.center.x).putFloat(quantization.center.y).putFloat(quantization.center.z);
+                tables.putFloat(quantization.extent.x).putFloat(quantization.extent.y).putFloat(quantization.extent.z);
+            }
+        }
+    }
+
+    private void writeNode(Node node) {
+        putString(node.id);
+        ensure(48);
+        tables.putInt(node.inheritTransform ? 1 : 0);
+        tables.putFloat(node.translation.x).putFloat(node.translation.y).putFloat(node.translation.z);
+        tables.putFloat(node.rotation.x).putFloat(node.rotation.y).putFloat(node.rotation.z).putFloat(node.rotation.w);
+        tables.putFloat(node.scale.x).putFloat(node.scale.y).putFloat(node.scale.z);
+        tables.putInt(node.parts.size);
+        for (NodePart part : node.parts) {
+            ensure(12);
+            tables.putInt(meshPartIndices.get(part.meshPart));
+            tables.putInt(materialIndices.get(part.material));
+            tables.putInt(part.enabled ? 1 : 0);
+        }
+        ensure(4);
+        tables.putInt(node.getChildCount());
+        for (Node child : node.getChildren()) {
+            writeNode(child);
+        }
+    }
+
+    private void writeMesh(FileChannel channel, Mesh mesh, long vertexOffset, long indexOffset) throws IOException {
+        writeFully(channel, ByteBuffer.allocate((int) (vertexOffset - channel.position())));
+        float[] vertices = new float[mesh.getNumVertices() * mesh.getVertexSize() / 4];
+        mesh.getVertices(vertices);
+        ByteBuffer vertexBytes = ByteBuffer.allocate(vertices.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+        vertexBytes.asFloatBuffer().put(vertices);
+        writeFully(channel, vertexBytes);
+
+        writeFully(channel, ByteBuffer.allocate((int) (indexOffset - channel.position())));
+        short[] indices = new short[mesh.getNumIndices()];
+        mesh.getIndices(indices);
+        ByteBuffer indexBytes = ByteBuffer.allocate(indices.length * 2).order(ByteOrder.LITTLE_ENDIAN);
+        indexBytes.asShortBuffer().put(indices);
+        writeFully(channel, indexBytes);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Write a string as a length and UTF-8 bytes; a length of -1 is null.
+     */
+    private void putString(String value) {
+        if (value == null) {
+            ensure(4);
+            tables.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length);
+        tables.putInt(bytes.length);
+        tables.put(bytes);
+    }
+
+    private void ensure(int bytes) {
+        if (tables.remaining() >= bytes) return;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(tables.capacity() * 2, tables.position() + bytes))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        tables.flip();
+        grown.put(tables);
+        tables = grown;
+    }
+
+    static long align(long offset) {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
@@ -0,0 +1,254 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Attribute;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.attributes.BlendingAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.FloatAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.IntAttribute;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.BufferUtils;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads models written by {@link BinaryModelExporter}. The file is
+ * memory-mapped, the tables are read in place, and vertex and index blocks
+ * are copied straight from the mapping into each mesh's native buffer,
+ * with no intermediate Java arrays or text parsing.
+ */
+public class BinaryModelLoader {
+
+    private BinaryModelLoader() {
+    }
+
+    /**
+     * Load a model file. Creates meshes, so call it on the render thread.
+     * Files that cannot be mapped, such as Android assets, are read into a
+     * direct buffer instead.
+     * @throws GdxRuntimeException if the file is not a valid model
+     */
+    public static Model load(FileHandle file) {
+        ByteBuffer buffer;
+        try {
+            buffer = file.map(FileChannel.MapMode.READ_ONLY);
+        } catch (GdxRuntimeException e) {
+            byte[] bytes = file.readBytes();
+            buffer = BufferUtils.newUnsafeByteBuffer(bytes.length);
+            buffer.put(bytes).flip();
+            try {
+                return load(buffer);
+            } finally {
+                BufferUtils.disposeUnsafeByteBuffer(buffer);
+            }
+        }
+        return load(buffer);
+    }
+
+    /**
+     * Load a model from a buffer holding a whole file. The buffer is only
+     * read during the call. Creates meshes, so call it on the render thread.
+     * @throws GdxRuntimeException if the buffer is not a valid model
+     */
+    public static Model load(ByteBuffer source) {
+        ByteBuffer buffer = source.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < BinaryModelExporter.HEADER_SIZE
+            || buffer.getInt(0) != BinaryModelExporter.MAGIC) {
+            throw new GdxRuntimeException("Not a binary model file");
+        }
+        if (buffer.getInt(4) != BinaryModelExporter.VERSION) {
+            throw new GdxRuntimeException("Unsupported binary model version " + buffer.getInt(4));
+        }
+        int meshCount = buffer.getInt(8);
+        int materialCount = buffer.getInt(12);
+        int meshPartCount = buffer.getInt(16);
+        int rootCount = buffer.getInt(20);
+        if (buffer.getInt(24) > buffer.limit()) {
+            throw new GdxRuntimeException("Truncated binary model file");
+        }
+        buffer.position(BinaryModelExporter.HEADER_SIZE);
+
+        Model model = new Model();
+        try {
+            Mesh[] meshes = new Mesh[meshCount];
+            for (int i = 0; i < meshCount; i++) {
+                meshes[i] = readMesh(buffer);
+                model.meshes.add(meshes[i]);
+                model.manageDisposable(meshes[i]);
+            }
+
+            Material[] materials = new Material[materialCount];
+            for (int i = 0; i < materialCount; i++) {
+                materials[i] = readMaterial(buffer);
+                model.materials.add(materials[i]);
+            }
+
+            MeshPart[] meshParts = new MeshPart[meshPartCount];
+            for (int i = 0; i < meshPartCount; i++) {
+                String id = getString(buffer);
+                Mesh mesh = meshes[buffer.getInt()];
+                int offset = buffer.getInt();
+                int size = buffer.getInt();
+                int primitiveType = buffer.getInt();
+                MeshPart part = new MeshPart(id, mesh, offset, size, primitiveType);
+                // Stored bounds, since quantized positions cannot be measured
+                part.center.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                part.halfExtents.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                part.radius = buffer.getFloat();
+                meshParts[i] = part;
+                model.meshParts.add(part);
+            }
+
+            for (int i = 0; i < rootCount; i++) {
+                model.nodes.add(readNode(buffer, meshParts, materials));
+            }
+        } catch (RuntimeException e) {
+            model.dispose();
+            if (e instanceof GdxRuntimeException) throw e;
+            throw new GdxRuntimeException("Corrupt binary model file", e);
+        }
+        model.calculateTransforms();
+        return model;
+    }
+
+    private static Mesh readMesh(ByteBuffer buffer) {
+        int attributeCount = buffer.getInt();
+        VertexAttribute[] attributes = new VertexAttribute[attributeCount];
+        for (int i = 0; i < attributeCount; i++) {
+            int usage = buffer.getInt();
+            int numComponents = buffer.getInt();
+            int type = buffer.getInt();
+            boolean normalized = buffer.getInt() != 0;
+            int unit = buffer.getInt();
+            attributes[i] = new VertexAttribute(usage, numComponents, type, normalized, getString(buffer), unit);
+        }
+        int vertexCount = buffer.getInt();
+        int vertexSize = buffer.getInt();
+        int vertexOffset = buffer.getInt();
+        int indexCount = buffer.getInt();
+        int indexOffset = buffer.getInt();
+
+        VertexAttributes vertexAttributes = new VertexAttributes(attributes);
+        if (vertexAttributes.vertexSize != vertexSize) {
+            throw new GdxRuntimeException("Vertex size mismatch in binary model file");
+        }
+        Mesh mesh = new Mesh(true, vertexCount, indexCount, vertexAttributes);
+
+        // Bulk copies from the mapping into the mesh's native buffers; uploaded on first bind
+        FloatBuffer vertices = mesh.getVerticesBuffer(true);
+        vertices.clear();
+        vertices.put(slice(buffer, vertexOffset, vertexCount * vertexSize).asFloatBuffer());
+        vertices.flip();
+
+        if (indexCount > 0) {
+            ShortBuffer indices = mesh.getIndicesBuffer(true);
+            indices.clear();
+            indices.put(slice(buffer, indexOffset, indexCount * 2).asShortBuffer());
+            indices.flip();
+        }
+        return mesh;
+    }
+
+    private static Material readMaterial(ByteBuffer buffer) {
+        Material material = new Material();
+        material.id = getString(buffer);
+        int attributeCount = buffer.getInt();
+        for (int i = 0; i < attributeCount; i++) {
+            byte kind = buffer.get();
+            switch (kind) {
+                case BinaryModelExporter.ATTRIBUTE_COLOR: {
+                    long type = Attribute.getAttributeType(getString(buffer));
+                    Color color = new Color(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                    material.set(new ColorAttribute(type, color));
+                    break;
+                }
+                case BinaryModelExporter.ATTRIBUTE_FLOAT: {
+                    long type = Attribute.getAttributeType(getString(buffer));
+                    material.set(new FloatAttribute(type, buffer.getFloat()));
+                    break;
+                }
+                case BinaryModelExporter.ATTRIBUTE_INT: {
+                    long type = Attribute.getAttributeType(getString(buffer));
+                    material.set(new IntAttribute(type, buffer.getInt()));
+                    break;
+                }
+                case BinaryModelExporter.ATTRIBUTE_BLENDING: {
+                    boolean blended = buffer.getInt() != 0;
+                    int sourceFunction = buffer.getInt();
+                    int destFunction = buffer.getInt();
+                    material.set(new BlendingAttribute(blended, sourceFunction, destFunction, buffer.getFloat()));
+                    break;
+                }
+                case BinaryModelExporter.ATTRIBUTE_QUANTIZATION: {
+                    Vector3 center = new Vector3(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                    Vector3 extent = new Vector3(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                    material.set(new QuantizationAttribute(center, extent));
+                    break;
+                }
+                default:
+                    throw new GdxRuntimeException("Unknown material attribute kind " + kind);
+            }
+        }
+        return material;
+    }
+
+    private static Node readNode(ByteBuffer buffer, MeshPart[] meshParts, Material[] materials) {
+        Node node = new Node();
+        node.id = getString(buffer);
+        node.inheritTransform = buffer.getInt() != 0;
+        node.translation.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        node.rotation.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+        node.scale.set(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+
+        int partCount = buffer.getInt();
+        for (int i = 0; i < partCount; i++) {
+            MeshPart meshPart = meshParts[buffer.getInt()];
+            Material material = materials[buffer.getInt()];
+            NodePart part = new NodePart(meshPart, material);
+            part.enabled = buffer.getInt() != 0;
+            node.parts.add(part);
+        }
+
+        int childCount = buffer.getInt();
+        for (int i = 0; i < childCount; i++) {
+            node.addChild(readNode(buffer, meshParts, materials));
+        }
+        return node;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(offset + length).position(offset);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) return null;
+        String value;
+        if (buffer.hasArray()) {
+            value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            ByteBuffer bytes = slice(buffer, buffer.position(), length);
+            value = StandardCharsets.UTF_8.decode(bytes).toString();
+            buffer.position(buffer.position() + length);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,26 @@
+package com.modeleditor.util;
+
+/**
+ * Thrown from inside a running snippet when it exceeds its {@link ExecutionBudget}.
+ */
+public class BudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String nodeId;
+
+    public BudgetExceededException(String message, String nodeId) {
+        super(nodeId != null ? message + " while building node '" + nodeId + "'" : message);
+        this.nodeId = nodeId;
+    }
+
+    /**
+     * Get the id of the node being built when the budget ran out, or, for
+     * the vertex and index budgets, of the node the oversized primitive was
+     * attached to. Unnamed nodes are numbered "#n" in creation order. Null
+     * if no node is known, e.g. for a primitive never attached to one.
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+}
@@ -0,0 +1,548 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.Version;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent bytecode store so compiled snippets survive restarts.
+ *
+ * Layout inside the cache directory:
+ * - bytecode.dat: append-only data file of records
+ *   [magic][digest(32)][payload length][crc32][payload]
+ * - index-N.idx: memory-mapped open-addressing hash table with N slots of
+ *   [digest(32)][data offset(8)][record length(4)][reserved(4)]
+ *
+ * Records are keyed by the source hash combined with the Janino and gdx
+ * versions and the snippet ABI (see {@link ModelCompiler#snippetAbi()}),
+ * so neither a toolchain upgrade nor a change to the app classes snippets
+ * link against ever loads stale bytecode. The Janino
+ * version is the one the build recorded, not the jar manifest's, which
+ * shaded and IDE classpaths lose. The index
+ * can always be rebuilt by scanning the data file.
+ */
+public class BytecodeDiskCache implements Disposable {
+
+    private static final String DATA_FILE = "bytecode.dat";
+    private static final String INDEX_PREFIX = "index-";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private static final int DATA_MAGIC = 0x4D454443;   // "MEDC"
+    private static final int RECORD_MAGIC = 0x4D455243; // "MERC"
+    private static final int INDEX_MAGIC = 0x4D454958;  // "MEIX"
+    private static final int FORMAT_VERSION = 1;
+
+    // Generated by the build with the Janino version it compiles against
+    private static final String TOOLCHAIN_RESOURCE = "toolchain.properties";
+
+    private static final int DIGEST_SIZE = 32;
+    private static final int RECORD_HEADER_SIZE = 4 + DIGEST_SIZE + 4 + 4;
+    private static final int INDEX_HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = DIGEST_SIZE + 8 + 4 + 4;
+    private static final int INITIAL_SLOTS = 1024;
+
+    private final File directory;
+    private final String toolchainVersion;
+
+    private RandomAccessFile dataFile;
+    private FileChannel dataChannel;
+    private RandomAccessFile indexFile;
+    private MappedByteBuffer index;
+    private int slotCount;
+    private int usedSlots;
+
+    private long hitCount;
+    private long missCount;
+
+    /**
+     * Open or create a bytecode cache in the given directory.
+     * @throws IOException if the directory or its files cannot be opened
+     */
+    public BytecodeDiskCache(File directory) throws IOException {
+        this.directory = directory;
+        this.toolchainVersion = "janino-" + janinoVersion() + "/gdx-" + Version.VERSION
+            + "/format-" + FORMAT_VERSION + "/" + ModelCompiler.snippetAbi();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create cache directory: " + directory);
+        }
+
+        openDataFile();
+        openIndex();
+    }
+
+    /**
+     * Load the class files stored for a source key.
+     * @return The class files keyed by binary class name, or null if not stored
+     */
+    public synchronized Map<String, byte[]> load(String sourceKey) {
+        if (dataChannel == null) return null;
+
+        byte[] digest = digestFor(sourceKey);
+        int slot = findSlot(digest);
+        if (slot < 0 || isEmpty(slot)) {
+            missCount++;
+            return null;
+        }
+
+        int base = slotOffset(slot);
+        long offset = index.getLong(base + DIGEST_SIZE);
+        int length = index.getInt(base + DIGEST_SIZE + 8);
+
+        try {
+            Map<String, byte[]> classFiles = readRecord(offset, length, digest);
+            if (classFiles != null) {
+                hitCount++;
+                return classFiles;
+            }
+        } catch (IOException e) {
+            // Treat unreadable records as a miss; the next store appends a fresh copy
+        }
+        missCount++;
+        return null;
+    }
+
+    /**
+     * Append the class files for a source key and index them.
+     * @throws IOException if the record cannot be written
+     */
+    public synchronized void store(String sourceKey, Map<String, byte[]> classFiles) throws IOException {
+        if (dataChannel == null) return;
+
+        byte[] digest = digestFor(sourceKey);
+        byte[] payload = encode(classFiles);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + payload.length);
+        record.putInt(RECORD_MAGIC);
+        record.put(digest);
+        record.putInt(payload.length);
+        record.putInt((int) crc.getValue());
+        record.put(payload);
+        record.flip();
+
+        long offset = dataChannel.size();
+        while (record.hasRemaining()) {
+            dataChannel.write(record, offset + record.position());
+        }
+
+        putIndex(digest, offset, RECORD_HEADER_SIZE + payload.length);
+    }
+
+    /**
+     * Get the toolchain and snippet ABI version string mixed into every key.
+     */
+    public String getToolchainVersion() {
+        return toolchainVersion;
+    }
+
+    public synchronized int size() {
+        return usedSlots;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public synchronized void dispose() {
+        try {
+            if (index != null) {
+                index.force();
+                index = null;
+            }
+            if (indexFile != null) {
+                indexFile.close();
+                indexFile = null;
+            }
+            if (dataFile != null) {
+                dataFile.close();
+                dataFile = null;
+                dataChannel = null;
+            }
+        } catch (IOException e) {
+            // Nothing useful to do while shutting down
+        }
+    }
+
+    private void openDataFile() throws IOException {
+        dataFile = new RandomAccessFile(new File(directory, DATA_FILE), "rw");
+        dataChannel = dataFile.getChannel();
+
+        if (dataChannel.size() < 8) {
+            // New or truncated file: write a fresh header
+            dataChannel.truncate(0);
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(DATA_MAGIC).putInt(FORMAT_VERSION).flip();
+            dataChannel.write(header, 0);
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(8);
+        dataChannel.read(header, 0);
+        header.flip();
+        if (header.getInt() != DATA_MAGIC || header.getInt() != FORMAT_VERSION) {
+            // Unknown format: start over rather than misread it
+            dataChannel.truncate(0);
+            header.clear();
+            header.putInt(DATA_MAGIC).putInt(FORMAT_VERSION).flip();
+            dataChannel.write(header, 0);
+        }
+    }
+
+    private void openIndex() throws IOException {
+        int existingSlots = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                int slots = parseIndexSlots(file.getName());
+                if (slots > existingSlots) {
+                    existingSlots = slots;
+                }
+            }
+        }
+
+        if (existingSlots > 0 && mapIndex(existingSlots, false)) {
+            deleteStaleIndexes(existingSlots);
+            return;
+        }
+
+        // Missing or unreadable index: rebuild it from the data file
+        rebuildIndex(Math.max(INITIAL_SLOTS, existingSlots));
+    }
+
+    /**
+     * Map an index file with the given slot count.
+     * @return false if an existing file has an invalid header
+     */
+    private boolean mapIndex(int slots, boolean create) throws IOException {
+        File file = new File(directory, INDEX_PREFIX + slots + INDEX_SUFFIX);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        long size = INDEX_HEADER_SIZE + (long) slots * SLOT_SIZE;
+        if (create) {
+            raf.setLength(size);
+        } else if (raf.length() != size) {
+            raf.close();
+            return false;
+        }
+
+        MappedByteBuffer mapped = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (create) {
+            // Reusing an existing file of the same size: clear every slot
+            for (int i = 0; i < size; i++) {
+                mapped.put(i, (byte) 0);
+            }
+            mapped.putInt(0, INDEX_MAGIC);
+            mapped.putInt(4, FORMAT_VERSION);
+            mapped.putInt(8, slots);
+            mapped.putInt(12, 0);
+        } else if (mapped.getInt(0) != INDEX_MAGIC || mapped.getInt(4) != FORMAT_VERSION
+            || mapped.getInt(8) != slots) {
+            raf.close();
+            return false;
+        }
+
+        if (indexFile != null) {
+            indexFile.close();
+        }
+        indexFile = raf;
+        index = mapped;
+        slotCount = slots;
+        usedSlots = mapped.getInt(12);
+        return true;
+    }
+
+    /**
+     * Create a fresh index and fill it by scanning every record in the data file.
+     */
+    private void rebuildIndex(int slots) throws IOException {
+        mapIndex(slots, true);
+        deleteStaleIndexes(slots);
+
+        long position = 8;
+        long end = dataChannel.size();
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (position + RECORD_HEADER_SIZE <= end) {
+            header.clear();
+            dataChannel.read(header, position);
+            header.flip();
+            if (header.getInt() != RECORD_MAGIC) {
+                break;
+            }
+            byte[] digest = new byte[DIGEST_SIZE];
+            header.get(digest);
+            int payloadLength = header.getInt();
+            long recordLength = RECORD_HEADER_SIZE + (long) payloadLength;
+            if (payloadLength < 0 || position + recordLength > end) {
+                break;
+            }
+            putIndex(digest, position, (int) recordLength);
+            position += recordLength;
+        }
+
+        if (position < end) {
+            // Drop a partially written tail left by a crash
+            dataChannel.truncate(position);
+        }
+    }
+
+    private void putIndex(byte[] digest, long offset, int length) throws IOException {
+        if ((usedSlots + 1) * 4 > slotCount * 3) {
+            growIndex();
+        }
+
+        int slot = findSlot(digest);
+        int base = slotOffset(slot);
+        if (isEmpty(slot)) {
+            usedSlots++;
+            index.putInt(12, usedSlots);
+        }
+        for (int i = 0; i < DIGEST_SIZE; i++) {
+            index.put(base + i, digest[i]);
+        }
+        index.putLong(base + DIGEST_SIZE, offset);
+        index.putInt(base + DIGEST_SIZE + 8, length);
+    }
+
+    /**
+     * Double the index size by rehashing every entry into a new index file.
+     */
+    private void growIndex() throws IOException {
+        int oldSlots = slotCount;
+        MappedByteBuffer oldIndex = index;
+
+        mapIndex(oldSlots * 2, true);
+        for (int slot = 0; slot < oldSlots; slot++) {
+            int base = INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+            int length = oldIndex.getInt(base + DIGEST_SIZE + 8);
+            if (length == 0) continue;
+
+            byte[] digest = new byte[DIGEST_SIZE];
+            for (int i = 0; i < DIGEST_SIZE; i++) {
+                digest[i] = oldIndex.get(base + i);
+            }
+            putIndex(digest, oldIndex.getLong(base + DIGEST_SIZE), length);
+        }
+        deleteStaleIndexes(slotCount);
+    }
+
+    /**
+     * Find the slot holding the digest, or the empty slot where it belongs.
+     */
+    private int findSlot(byte[] digest) {
+        int slot = ((digest[0] & 0xFF) | (digest[1] & 0xFF) << 8
+            | (digest[2] & 0xFF) << 16 | (digest[3] & 0x7F) << 24) % slotCount;
+        for (int probe = 0; probe < slotCount; probe++) {
+            if (isEmpty(slot) || digestMatches(slot, digest)) {
+                return slot;
+            }
+            slot = (slot + 1) % slotCount;
+        }
+        return -1;
+    }
+
+    private boolean isEmpty(int slot) {
+        return index.getInt(slotOffset(slot) + DIGEST_SIZE + 8) == 0;
+    }
+
+    private boolean digestMatches(int slot, byte[] digest) {
+        int base = slotOffset(slot);
+        for (int i = 0; i < DIGEST_SIZE; i++) {
+            if (index.get(base + i) != digest[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int slotOffset(int slot) {
+        return INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private Map<String, byte[]> readRecord(long offset, int length, byte[] digest) throws IOException {
+        if (length < RECORD_HEADER_SIZE || offset + length > dataChannel.size()) {
+            return null;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(length);
+        while (record.hasRemaining()) {
+            if (dataChannel.read(record, offset + record.position()) < 0) {
+                return null;
+            }
+        }
+        record.flip();
+
+        if (record.getInt() != RECORD_MAGIC) return null;
+        for (int i = 0; i < DIGEST_SIZE; i++) {
+            if (record.get() != digest[i]) return null;
+        }
+        int payloadLength = record.getInt();
+        int expectedCrc = record.getInt();
+        if (payloadLength != length - RECORD_HEADER_SIZE) return null;
+
+        byte[] payload = new byte[payloadLength];
+        record.get(payload);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        if ((int) crc.getValue() != expectedCrc) return null;
+
+        return decode(payload);
+    }
+
+    private static byte[] encode(Map<String, byte[]> classFiles) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(classFiles.size());
+        for (Map.Entry<String, byte[]> entry : classFiles.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue().length);
+            out.write(entry.getValue());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, byte[]> decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        int count = in.readInt();
+        Map<String, byte[]> classFiles = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            byte[] data = new byte[in.readInt()];
+            in.readFully(data);
+            classFiles.put(name, data);
+        }
+        return classFiles;
+    }
+
+    private byte[] digestFor(String sourceKey) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(toolchainVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            return digest.digest(sourceKey.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void deleteStaleIndexes(int currentSlots) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            int slots = parseIndexSlots(file.getName());
+            if (slots > 0 && slots != currentSlots) {
+                // Best effort; a still-mapped file may refuse deletion on some platforms
+                file.delete();
+            }
+        }
+    }
+
+    private static int parseIndexSlots(String fileName) {
+        if (!fileName.startsWith(INDEX_PREFIX) || !fileName.endsWith(INDEX_SUFFIX)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(fileName.substring(INDEX_PREFIX.length(),
+                fileName.length() - INDEX_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Get the Janino version keys are combined with: the one the build
+     * compiled against, else the jar manifest's, else a checksum of
+     * Janino's compiler class, so an upgrade changes every key even on
+     * shaded or IDE classpaths without either.
+     */
+    static String janinoVersion() {
+        String version = readToolchainProperty("janinoVersion");
+        if (version != null) return version;
+
+        Package janinoPackage = org.codehaus.janino.Compiler.class.getPackage();
+        version = janinoPackage != null ? janinoPackage.getImplementationVersion() : null;
+        if (version != null) return version;
+
+        long checksum = classChecksum(org.codehaus.janino.Compiler.class);
+        return checksum >= 0 ? "class-" + Long.toHexString(checksum) : "unknown";
+    }
+
+    /**
+     * Read a value from the properties the build generates next to this class.
+     * @return The value, or null if the resource or key is missing
+     */
+    private static String readToolchainProperty(String key) {
+        InputStream in = BytecodeDiskCache.class.getResourceAsStream(TOOLCHAIN_RESOURCE);
+        if (in == null) return null;
+        Properties properties = new Properties();
+        try {
+            properties.load(in);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Already read
+            }
+        }
+        String value = properties.getProperty(key);
+        return value != null && !value.trim().isEmpty() ? value.trim() : null;
+    }
+
+    /**
+     * @return CRC32 of the class file, or -1 where class files are not
+     *         readable as resources, e.g. on Android
+     */
+    private static long classChecksum(Class<?> type) {
+        InputStream in = type.getResourceAsStream(type.getSimpleName() + ".class");
+        if (in == null) return -1;
+        CRC32 crc = new CRC32();
+        byte[] buffer = new byte[8192];
+        try {
+            int read;
+            while ((read = in.read(buffer)) > 0) {
+                crc.update(buffer, 0, read);
+            }
+            return crc.getValue();
+        } catch (IOException e) {
+            return -1;
+        } finally {
+            try {
+                in.close();
+            } catch (IOException e) {
+                // Already read
+            }
+        }
+    }
+}
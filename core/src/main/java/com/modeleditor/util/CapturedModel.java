@@ -0,0 +1,598 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The nodes and primitive calls of one snippet run, recorded without
+ * creating any GL objects. Building a model from it is split so only the
+ * last step needs the render thread:
+ * <ol>
+ * <li>the snippet runs against a capturing ModelBuilder, on any thread;</li>
+ * <li>{@link #getTasks()} generate each node's vertices and indices into
+ * buffers from the shared {@link DirectBufferPool}, one independent task
+ * per node, on any threads;</li>
+ * <li>{@link #toModel()} creates the meshes from them and returns the
+ * buffers to the pool, on the render thread.</li>
+ * </ol>
+ * Each node with primitives gets one mesh, with one part per primitive.
+ * Parts take the material and visibility of the node part the snippet
+ * added for that primitive id.
+ *
+ * Shapes are generated here rather than with libGDX's shape builders,
+ * which share static scratch vectors and so cannot run on several threads
+ * at once. They have the same vertex and index counts, and like ModelBuilder's
+ * primitives carry positions, normals and texture coordinates.
+ */
+public class CapturedModel {
+
+    // Floats per vertex: position, normal and texture coordinates
+    static final int STRIDE = 8;
+
+    // Indices are shorts
+    private static final int MAX_NODE_VERTICES = 65536;
+
+    // Per box face: the normal, then the signs of its four corners,
+    // counter-clockwise seen from outside
+    private static final float[][] BOX_FACES = {
+        {0f, 0f, 1f, -1f, -1f, 1f, 1f, -1f, 1f, 1f, 1f, 1f, -1f, 1f, 1f},
+        {0f, 0f, -1f, 1f, -1f, -1f, -1f, -1f, -1f, -1f, 1f, -1f, 1f, 1f, -1f},
+        {1f, 0f, 0f, 1f, -1f, 1f, 1f, -1f, -1f, 1f, 1f, -1f, 1f, 1f, 1f},
+        {-1f, 0f, 0f, -1f, -1f, -1f, -1f, -1f, 1f, -1f, 1f, 1f, -1f, 1f, -1f},
+        {0f, 1f, 0f, -1f, 1f, 1f, 1f, 1f, 1f, 1f, 1f, -1f, -1f, 1f, -1f},
+        {0f, -1f, 0f, -1f, -1f, -1f, 1f, -1f, -1f, 1f, -1f, 1f, -1f, -1f, 1f},
+    };
+
+    // Texture coordinates of each face's corners, the whole texture per face
+    private static final float[] BOX_FACE_UVS = {0f, 1f, 1f, 1f, 1f, 0f, 0f, 0f};
+
+    private final List<Node> roots;
+    private final List<CapturedNode> nodes;
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final AtomicLong generateNanos = new AtomicLong();
+    private final AtomicLong generateAllocatedBytes = new AtomicLong();
+    private volatile boolean cancelled;
+
+    CapturedModel(List<Node> roots, List<CapturedNode> nodes) {
+        this.roots = roots;
+        this.nodes = nodes;
+        for (final CapturedNode node : nodes) {
+            tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    if (cancelled) return;
+                    long startNanos = System.nanoTime();
+                    long startAllocated = PipelineMetrics.allocatedBytes();
+                    node.generate();
+                    generateNanos.addAndGet(System.nanoTime() - startNanos);
+                    if (startAllocated >= 0) {
+                        generateAllocatedBytes.addAndGet(PipelineMetrics.allocatedBytes() - startAllocated);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Get the generation tasks, one per node with primitives. They touch no
+     * GL state and share nothing, so they may run concurrently on any
+     * threads. All must have run before {@link #toModel()}.
+     */
+    public List<Runnable> getTasks() {
+        return Collections.unmodifiableList(tasks);
+    }
+
+    /**
+     * Run every generation task on the calling thread. On failure the
+     * capture is cancelled.
+     */
+    public void generate() {
+        try {
+            for (Runnable task : tasks) {
+                task.run();
+            }
+        } catch (RuntimeException e) {
+            cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Run the generation tasks on the given executor and wait for them. On
+     * failure the capture is cancelled.
+     * @throws GdxRuntimeException if a task fails or the wait is interrupted
+     */
+    public void generate(ExecutorService executor) {
+        List<Callable<Object>> callables = new ArrayList<>();
+        for (Runnable task : tasks) {
+            callables.add(Executors.callable(task));
+        }
+        try {
+            for (Future<Object> result : executor.invokeAll(callables)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            cancel();
+            Thread.currentThread().interrupt();
+            throw new GdxRuntimeException("Interrupted while generating geometry", e);
+        } catch (ExecutionException e) {
+            cancel();
+            throw new GdxRuntimeException("Geometry generation failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Create the model from the generated geometry. Call on the render
+     * thread, after every task has run. The model owns its meshes; nothing
+     * is uploaded until they are first bound.
+     * @throws GdxRuntimeException if geometry was not generated
+     */
+    public Model toModel() {
+        Model model = new Model();
+        try {
+            for (CapturedNode node : nodes) {
+                node.createParts(model);
+            }
+            for (Node root : roots) {
+                model.nodes.add(root);
+            }
+            model.calculateTransforms();
+        } catch (RuntimeException e) {
+            model.dispose();
+            for (CapturedNode node : nodes) {
+                node.release();
+            }
+            throw e;
+        }
+        return model;
+    }
+
+    /**
+     * Skip generation tasks that have not started and return generated
+     * geometry to the pool, for a build that was superseded or failed.
+     * Tasks still running release theirs when they finish.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (CapturedNode node : nodes) {
+            node.release();
+        }
+    }
+
+    /**
+     * Get the time the generation tasks took, summed over all threads.
+     */
+    public long getGenerateNanos() {
+        return generateNanos.get();
+    }
+
+    /**
+     * Get the bytes the generation tasks allocated, summed over all
+     * threads, or -1 if allocation is not measurable.
+     */
+    public long getGenerateAllocatedBytes() {
+        return PipelineMetrics.allocatedBytes() >= 0 ? generateAllocatedBytes.get() : -1;
+    }
+
+    /**
+     * Get the number of nodes that have geometry, and so generation tasks.
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * One primitive call of the snippet.
+     */
+    static final class Primitive {
+        enum Kind { BOX, CYLINDER, SPHERE, CONE }
+
+        final Kind kind;
+        // Position of the call among all primitive calls of the run
+        final int index;
+        final float width;
+        final float height;
+        final float depth;
+        final int divisionsU;
+        final int divisionsV;
+        final boolean closed;
+
+        Primitive(Kind kind, int index, float width, float height, float depth,
+                  int divisionsU, int divisionsV, boolean closed) {
+            this.kind = kind;
+            this.index = index;
+            this.width = width;
+            this.height = height;
+            this.depth = depth;
+            this.divisionsU = divisionsU;
+            this.divisionsV = divisionsV;
+            this.closed = closed;
+        }
+
+        /**
+         * Get the number of vertices {@link #build(FloatBuffer, ShortBuffer)} adds.
+         */
+        long vertexCount() {
+            long u = Math.max(divisionsU, 0);
+            long v = Math.max(divisionsV, 0);
+            switch (kind) {
+                case BOX:
+                    return 24;
+                case CYLINDER:
+                    return 2 * (u + 1) + (closed ? 2 * (u + 2) : 0);
+                case SPHERE:
+                    return (u + 1) * (v + 1);
+                default:
+                    return 2 * (u + 1) + u + 2;
+            }
+        }
+
+        /**
+         * Get the number of indices {@link #build(FloatBuffer, ShortBuffer)} adds.
+         */
+        long indexCount() {
+            long u = Math.max(divisionsU, 0);
+            long v = Math.max(divisionsV, 0);
+            switch (kind) {
+                case BOX:
+                    return 36;
+                case CYLINDER:
+                    return 6 * u + (closed ? 2 * 3 * u : 0);
+                case SPHERE:
+                    return 6 * u * v;
+                default:
+                    return 6 * u;
+            }
+        }
+
+        /**
+         * Append this shape, centered on the origin, at the buffers'
+         * positions. Indices count from the first vertex of the vertex buffer.
+         */
+        void build(FloatBuffer vertices, ShortBuffer indices) {
+            float hw = width * 0.5f;
+            float hh = height * 0.5f;
+            float hd = depth * 0.5f;
+            int u = Math.max(divisionsU, 0);
+            switch (kind) {
+                case BOX:
+                    buildBox(vertices, indices, hw, hh, hd);
+                    break;
+                case CYLINDER:
+                    buildCylinder(vertices, indices, hw, hh, hd, u, closed);
+                    break;
+                case SPHERE:
+                    buildSphere(vertices, indices, hw, hh, hd, u, Math.max(divisionsV, 0));
+                    break;
+                default:
+                    buildCone(vertices, indices, hw, hh, hd, u);
+                    break;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return kind.name().toLowerCase(Locale.ROOT) + " #" + index;
+        }
+    }
+
+    private static void buildBox(FloatBuffer vertices, ShortBuffer indices, float hw, float hh, float hd) {
+        for (float[] face : BOX_FACES) {
+            int first = vertices.position() / STRIDE;
+            for (int c = 0; c < 4; c++) {
+                int corner = 3 + c * 3;
+                vertex(vertices, face[corner] * hw, face[corner + 1] * hh, face[corner + 2] * hd,
+                    face[0], face[1], face[2], BOX_FACE_UVS[c * 2], BOX_FACE_UVS[c * 2 + 1]);
+            }
+            quad(indices, first, first + 1, first + 2, first + 3);
+        }
+    }
+
+    private static void buildCylinder(FloatBuffer vertices, ShortBuffer indices, float hw, float hh, float hd,
+                                      int divisions, boolean closed) {
+        float ix = inverse(hw);
+        float iz = inverse(hd);
+        int first = vertices.position() / STRIDE;
+        // A bottom and a top vertex per step, the seam doubled
+        for (int i = 0; i <= divisions; i++) {
+            double angle = angle(i, divisions);
+            float cos = (float) Math.cos(angle);
+            float sin = (float) Math.sin(angle);
+            float u = fraction(i, divisions);
+            vertex(vertices, cos * hw, -hh, sin * hd, cos * ix, 0f, sin * iz, u, 1f);
+            vertex(vertices, cos * hw, hh, sin * hd, cos * ix, 0f, sin * iz, u, 0f);
+        }
+        for (int i = 0; i < divisions; i++) {
+            int bottom = first + i * 2;
+            quad(indices, bottom, bottom + 1, bottom + 3, bottom + 2);
+        }
+        if (closed) {
+            buildCap(vertices, indices, hw, hh, hd, divisions, true);
+            buildCap(vertices, indices, hw, -hh, hd, divisions, false);
+        }
+    }
+
+    private static void buildSphere(FloatBuffer vertices, ShortBuffer indices, float hw, float hh, float hd,
+                                    int divisionsU, int divisionsV) {
+        float ix = inverse(hw);
+        float iy = inverse(hh);
+        float iz = inverse(hd);
+        int first = vertices.position() / STRIDE;
+        // Rings from the bottom pole up, the seam doubled
+        for (int j = 0; j <= divisionsV; j++) {
+            double polar = divisionsV > 0 ? Math.PI * j / divisionsV : 0.0;
+            float y = (float) -Math.cos(polar);
+            float ring = (float) Math.sin(polar);
+            float v = 1f - fraction(j, divisionsV);
+            for (int i = 0; i <= divisionsU; i++) {
+                double angle = angle(i, divisionsU);
+                float x = (float) Math.cos(angle) * ring;
+                float z = (float) Math.sin(angle) * ring;
+                vertex(vertices, x * hw, y * hh, z * hd, x * ix, y * iy, z * iz, fraction(i, divisionsU), v);
+            }
+        }
+        for (int j = 0; j < divisionsV; j++) {
+            for (int i = 0; i < divisionsU; i++) {
+                int below = first + j * (divisionsU + 1) + i;
+                int above = below + divisionsU + 1;
+                triangle(indices, below, above, below + 1);
+                triangle(indices, below + 1, above, above + 1);
+            }
+        }
+    }
+
+    private static void buildCone(FloatBuffer vertices, ShortBuffer indices, float hw, float hh, float hd,
+                                  int divisions) {
+        float ix = inverse(hw);
+        float iz = inverse(hd);
+        // Slope of the side, from the gradient of the elliptic cone
+        float ny = 0.5f * inverse(hh);
+        int first = vertices.position() / STRIDE;
+        // A rim vertex and a tip vertex per step, both with the side normal there
+        for (int i = 0; i <= divisions; i++) {
+            double angle = angle(i, divisions);
+            float cos = (float) Math.cos(angle);
+            float sin = (float) Math.sin(angle);
+            float u = fraction(i, divisions);
+            vertex(vertices, cos * hw, -hh, sin * hd, cos * ix, ny, sin * iz, u, 1f);
+            vertex(vertices, 0f, hh, 0f, cos * ix, ny, sin * iz, u, 0f);
+        }
+        for (int i = 0; i < divisions; i++) {
+            int rim = first + i * 2;
+            triangle(indices, rim + 1, rim + 2, rim);
+        }
+        buildCap(vertices, indices, hw, -hh, hd, divisions, false);
+    }
+
+    /**
+     * Append a flat elliptic cap: a center vertex, then the rim with the
+     * seam doubled. The cap is mapped onto the disc inscribed in the texture.
+     */
+    private static void buildCap(FloatBuffer vertices, ShortBuffer indices, float hw, float y, float hd,
+                                 int divisions, boolean up) {
+        float ny = up ? 1f : -1f;
+        int center = vertices.position() / STRIDE;
+        vertex(vertices, 0f, y, 0f, 0f, ny, 0f, 0.5f, 0.5f);
+        for (int i = 0; i <= divisions; i++) {
+            double angle = angle(i, divisions);
+            float cos = (float) Math.cos(angle);
+            float sin = (float) Math.sin(angle);
+            vertex(vertices, cos * hw, y, sin * hd, 0f, ny, 0f, 0.5f + cos * 0.5f, 0.5f + sin * 0.5f);
+        }
+        for (int i = 0; i < divisions; i++) {
+            int rim = center + 1 + i;
+            if (up) {
+                triangle(indices, center, rim + 1, rim);
+            } else {
+                triangle(indices, center, rim, rim + 1);
+            }
+        }
+    }
+
+    private static double angle(int step, int divisions) {
+        return divisions > 0 ? 2.0 * Math.PI * step / divisions : 0.0;
+    }
+
+    private static float fraction(int step, int divisions) {
+        return divisions > 0 ? (float) step / divisions : 0f;
+    }
+
+    /**
+     * Scale for a normal component of an ellipsoid-like surface; a flat axis
+     * keeps the unit direction.
+     */
+    private static float inverse(float halfSize) {
+        return halfSize != 0f ? 1f / Math.abs(halfSize) : 1f;
+    }
+
+    private static void vertex(FloatBuffer vertices, float x, float y, float z, float nx, float ny, float nz,
+                               float u, float v) {
+        float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+        float scale = length > 0f ? 1f / length : 0f;
+        vertices.put(x).put(y).put(z).put(nx * scale).put(ny * scale).put(nz * scale).put(u).put(v);
+    }
+
+    private static void triangle(ShortBuffer indices, int a, int b, int c) {
+        indices.put((short) a).put((short) b).put((short) c);
+    }
+
+    /**
+     * Two triangles for a quad given counter-clockwise.
+     */
+    private static void quad(ShortBuffer indices, int a, int b, int c, int d) {
+        triangle(indices, a, b, c);
+        triangle(indices, c, d, a);
+    }
+
+    /**
+     * A node with the primitives attached to it, and their geometry once
+     * generated.
+     */
+    static final class CapturedNode {
+        final Node node;
+        final List<Primitive> primitives = new ArrayList<>();
+        // The snippet's part naming each primitive, or null if none did
+        private final List<NodePart> sources = new ArrayList<>();
+
+        // Pooled staging buffers and float/short views of them
+        private ByteBuffer vertexStaging;
+        private ByteBuffer indexStaging;
+        private FloatBuffer vertices;
+        private ShortBuffer indices;
+        private boolean released;
+        // Index range of each primitive
+        private int[] partOffsets;
+        private int[] partSizes;
+
+        CapturedNode(Node node) {
+            this.node = node;
+        }
+
+        /**
+         * Give this node a part drawing the primitive.
+         * @param source Part the snippet added for it, for its material and
+         *        visibility, or null for the defaults
+         */
+        void add(Primitive primitive, NodePart source) {
+            primitives.add(primitive);
+            sources.add(source);
+        }
+
+        void generate() {
+            long vertexCount = 0;
+            long indexCount = 0;
+            for (Primitive primitive : primitives) {
+                vertexCount += primitive.vertexCount();
+                indexCount += primitive.indexCount();
+            }
+            if (vertexCount > MAX_NODE_VERTICES) {
+                throw new GdxRuntimeException("Node " + (node.id != null ? node.id : "without id") + " has "
+                    + vertexCount + " vertices, a mesh holds at most " + MAX_NODE_VERTICES);
+            }
+
+            DirectBufferPool pool = DirectBufferPool.shared();
+            ByteBuffer vertexBuffer = pool.acquire((int) vertexCount * STRIDE * 4);
+            ByteBuffer indexBuffer = pool.acquire((int) indexCount * 2);
+            int[] offsets = new int[primitives.size()];
+            int[] sizes = new int[primitives.size()];
+            FloatBuffer generatedVertices;
+            ShortBuffer generatedIndices;
+            try {
+                generatedVertices = vertexBuffer.asFloatBuffer();
+                generatedIndices = indexBuffer.asShortBuffer();
+                for (int i = 0; i < primitives.size(); i++) {
+                    offsets[i] = generatedIndices.position();
+                    primitives.get(i).build(generatedVertices, generatedIndices);
+                    sizes[i] = generatedIndices.position() - offsets[i];
+                }
+                generatedVertices.flip();
+                generatedIndices.flip();
+            } catch (RuntimeException e) {
+                pool.release(vertexBuffer);
+                pool.release(indexBuffer);
+                throw e;
+            }
+
+            synchronized (this) {
+                // Cancelled while generating
+                if (released) {
+                    pool.release(vertexBuffer);
+                    pool.release(indexBuffer);
+                    return;
+                }
+                vertexStaging = vertexBuffer;
+                indexStaging = indexBuffer;
+                vertices = generatedVertices;
+                indices = generatedIndices;
+                partOffsets = offsets;
+                partSizes = sizes;
+            }
+        }
+
+        /**
+         * Create this node's mesh and replace its parts with ones drawing it.
+         */
+        void createParts(Model model) {
+            FloatBuffer vertices;
+            ShortBuffer indices;
+            synchronized (this) {
+                vertices = this.vertices;
+                indices = this.indices;
+            }
+            if (vertices == null) {
+                throw new GdxRuntimeException("Geometry of node " + node.id + " was not generated");
+            }
+            VertexAttributes attributes = new VertexAttributes(VertexAttribute.Position(), VertexAttribute.Normal(),
+                VertexAttribute.TexCoords(0));
+            Mesh mesh = new Mesh(true, vertices.limit() / STRIDE, indices.limit(), attributes);
+            model.meshes.add(mesh);
+            model.manageDisposable(mesh);
+            MeshBuffers.setVertices(mesh, vertices);
+            MeshBuffers.setIndices(mesh, indices);
+
+            // The snippet's parts only carry materials and visibility
+            node.parts.clear();
+            Material defaultMaterial = null;
+            for (int i = 0; i < primitives.size(); i++) {
+                String id = node.id != null ? node.id + "_" + i : "part" + model.meshParts.size;
+                MeshPart meshPart = new MeshPart(id, mesh, partOffsets[i], partSizes[i], GL20.GL_TRIANGLES);
+                meshPart.update();
+
+                NodePart source = sources.get(i);
+                Material material;
+                if (source != null && source.material != null) {
+                    material = source.material;
+                } else {
+                    if (defaultMaterial == null) defaultMaterial = new Material();
+                    material = defaultMaterial;
+                }
+                NodePart part = new NodePart(meshPart, material);
+                part.enabled = source == null || source.enabled;
+                node.parts.add(part);
+
+                model.meshParts.add(meshPart);
+                if (!model.materials.contains(material, true)) {
+                    model.materials.add(material);
+                }
+            }
+            release();
+        }
+
+        /**
+         * Return the staging buffers to the pool. Geometry generated after
+         * this is released straight away.
+         */
+        synchronized void release() {
+            released = true;
+            DirectBufferPool pool = DirectBufferPool.shared();
+            pool.release(vertexStaging);
+            pool.release(indexStaging);
+            vertexStaging = null;
+            indexStaging = null;
+            vertices = null;
+            indices = null;
+        }
+    }
+}
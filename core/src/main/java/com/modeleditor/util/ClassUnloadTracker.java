@@ -0,0 +1,202 @@
+package com.modeleditor.util;
+
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tracks the class loader of every compiled artifact with weak references,
+ * so long editing sessions can verify that evicted snippet classes really
+ * become unreachable and get unloaded instead of piling up in metaspace.
+ */
+public class ClassUnloadTracker {
+
+    private final ReferenceQueue<ClassLoader> queue = new ReferenceQueue<>();
+    private final Map<Reference<? extends ClassLoader>, TrackedLoader> tracked = new HashMap<>();
+
+    private long trackedCount;
+    private long collectedCount;
+    // Released loaders still reachable after the last verification, -1 before the first
+    private int lastLeakedCount = -1;
+
+    /**
+     * Start tracking the loader of a freshly defined artifact.
+     */
+    public synchronized void track(CompiledClass compiled) {
+        ClassLoader loader = compiled.getCreatorClass().getClassLoader();
+        TrackedLoader entry = new TrackedLoader(new WeakReference<>(loader, queue), compiled.getKey());
+        tracked.put(entry.reference, entry);
+        trackedCount++;
+    }
+
+    /**
+     * Note that the compiler no longer references an artifact, e.g. because
+     * it was evicted from the cache. Its loader should be collected soon.
+     */
+    public synchronized void markReleased(CompiledClass compiled) {
+        ClassLoader loader = compiled.getCreatorClass().getClassLoader();
+        for (TrackedLoader entry : tracked.values()) {
+            if (entry.reference.get() == loader) {
+                entry.released = true;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Process loaders the garbage collector has cleared.
+     * @return Number of loaders found collected by this call
+     */
+    public synchronized int poll() {
+        int collected = 0;
+        Reference<? extends ClassLoader> reference;
+        while ((reference = queue.poll()) != null) {
+            if (tracked.remove(reference) != null) {
+                collected++;
+            }
+        }
+        collectedCount += collected;
+        return collected;
+    }
+
+    /**
+     * Request garbage collection until every released loader has been
+     * collected or the timeout passes. Intended for diagnostics and leak
+     * checks, not for the render loop.
+     * @return true if no released loader is still reachable
+     */
+    public boolean verifyReleasedUnloaded(long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (true) {
+            System.gc();
+            poll();
+            int leaked = getLeakedKeys().size();
+            if (leaked == 0 || System.currentTimeMillis() >= deadline) {
+                synchronized (this) {
+                    lastLeakedCount = leaked;
+                }
+                return leaked == 0;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Get the number of released loaders the last
+     * {@link #verifyReleasedUnloaded(long)} found still reachable.
+     * @return Leaked loaders, or -1 if no verification has run
+     */
+    public synchronized int getLastLeakedCount() {
+        return lastLeakedCount;
+    }
+
+    /**
+     * Get the source keys of released artifacts whose loaders are still
+     * reachable. A non-empty result after a collection points at a leak.
+     */
+    public synchronized List<String> getLeakedKeys() {
+        List<String> keys = new ArrayList<>();
+        for (TrackedLoader entry : tracked.values()) {
+            if (entry.released) {
+                keys.add(entry.key);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Get the number of tracked loaders not yet collected.
+     */
+    public synchronized int getLiveCount() {
+        poll();
+        return tracked.size();
+    }
+
+    public synchronized long getTrackedCount() {
+        return trackedCount;
+    }
+
+    public synchronized long getCollectedCount() {
+        return collectedCount;
+    }
+
+    /**
+     * Format loader counts, metaspace use and the outcome of the last
+     * verification on one line.
+     */
+    public synchronized String formatSummary() {
+        poll();
+        int released = 0;
+        for (TrackedLoader entry : tracked.values()) {
+            if (entry.released) released++;
+        }
+        long metaspace = getMetaspaceUsedBytes();
+        String verified = lastLeakedCount < 0 ? "unload not verified"
+            : lastLeakedCount == 0 ? "evicted classes unloaded" : lastLeakedCount + " evicted loaders leaked";
+        return String.format(Locale.ROOT, "class loaders: %d live (%d released), %d collected, metaspace %s, %s",
+            tracked.size(), released, collectedCount,
+            metaspace >= 0 ? ModelStats.formatBytes(metaspace) : "n/a", verified);
+    }
+
+    /**
+     * Get the number of classes currently loaded in the JVM.
+     * @return Class count, or -1 where the platform cannot report it
+     */
+    public static long getLoadedClassCount() {
+        try {
+            return ManagementFactory.getClassLoadingMXBean().getLoadedClassCount();
+        } catch (Throwable t) {
+            // java.lang.management is missing on Android
+            return -1;
+        }
+    }
+
+    /**
+     * Get the number of classes unloaded since the JVM started.
+     * @return Class count, or -1 where the platform cannot report it
+     */
+    public static long getUnloadedClassCount() {
+        try {
+            ClassLoadingMXBean bean = ManagementFactory.getClassLoadingMXBean();
+            return bean.getUnloadedClassCount();
+        } catch (Throwable t) {
+            return -1;
+        }
+    }
+
+    /**
+     * Get the bytes used by class metadata (the Metaspace pool on HotSpot).
+     * @return Used bytes, or -1 where the platform cannot report it
+     */
+    public static long getMetaspaceUsedBytes() {
+        try {
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if ("Metaspace".equals(pool.getName())) {
+                    return pool.getUsage().getUsed();
+                }
+            }
+        } catch (Throwable t) {
+            // java.lang.management is missing on Android
+        }
+        return -1;
+    }
+
+    private static final class TrackedLoader {
+        final WeakReference<ClassLoader> reference;
+        final String key;
+        boolean released;
+
+        TrackedLoader(WeakReference<ClassLoader> reference, String key) {
+            this.reference = reference;
+            this.key = key;
+        }
+    }
+}
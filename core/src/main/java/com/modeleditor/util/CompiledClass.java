@@ -0,0 +1,52 @@
+package com.modeleditor.util;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A compiled model creator: the generated class files together with the
+ * loaded creator class and its factory instance, identified by the
+ * normalized source hash.
+ */
+public final class CompiledClass {
+
+    private final String key;
+    private final Map<String, byte[]> classFiles;
+    private final Class<?> creatorClass;
+    private final ModelFactory factory;
+
+    public CompiledClass(String key, Map<String, byte[]> classFiles, Class<?> creatorClass, ModelFactory factory) {
+        this.key = key;
+        this.classFiles = Collections.unmodifiableMap(classFiles);
+        this.creatorClass = creatorClass;
+        this.factory = factory;
+    }
+
+    /**
+     * Get the normalized source hash this class was compiled from.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Get the class files produced by Janino, keyed by binary class name.
+     */
+    public Map<String, byte[]> getClassFiles() {
+        return classFiles;
+    }
+
+    /**
+     * Get the loaded creator class.
+     */
+    public Class<?> getCreatorClass() {
+        return creatorClass;
+    }
+
+    /**
+     * Get the cached creator instance, shared by every build of this class.
+     */
+    public ModelFactory getFactory() {
+        return factory;
+    }
+}
@@ -0,0 +1,222 @@
+package com.modeleditor.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory LRU cache of compiled model creator classes.
+ * Entries are keyed by a hash of the generated source with comments and
+ * insignificant whitespace removed, so reformatting a snippet still hits.
+ */
+public class CompiledClassCache {
+
+    /**
+     * Notified when an entry leaves the cache, by eviction, replacement or clear().
+     */
+    public interface EvictionListener {
+        void onEvicted(CompiledClass compiled);
+    }
+
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+
+    // Characters that may combine into multi-character operators
+    private static final String OPERATOR_CHARS = "+-*/%<>=!&|^~?:";
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, CompiledClass> entries;
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private EvictionListener evictionListener;
+
+    public CompiledClassCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public CompiledClassCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        // Access order makes iteration order least-recently-used first
+        this.entries = new LinkedHashMap<String, CompiledClass>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledClass> eldest) {
+                if (size() > CompiledClassCache.this.maxEntries) {
+                    evictionCount++;
+                    notifyEvicted(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Look up a compiled class by key, counting the hit or miss.
+     * @return The cached class, or null if not present
+     */
+    public synchronized CompiledClass get(String key) {
+        CompiledClass compiled = entries.get(key);
+        if (compiled != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return compiled;
+    }
+
+    /**
+     * Check for a key without affecting hit/miss counters or LRU order.
+     */
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Add a compiled class, evicting the least recently used entry if full.
+     * A different class already cached under the same key is replaced and
+     * reported to the eviction listener.
+     */
+    public synchronized void put(CompiledClass compiled) {
+        CompiledClass replaced = entries.put(compiled.getKey(), compiled);
+        if (replaced != null && replaced != compiled) {
+            notifyEvicted(replaced);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get the fraction of lookups that were hits, or 0 if there were none.
+     */
+    public synchronized float getHitRate() {
+        long total = hitCount + missCount;
+        return total == 0 ? 0f : (float) hitCount / total;
+    }
+
+    public synchronized void clear() {
+        for (CompiledClass compiled : entries.values()) {
+            notifyEvicted(compiled);
+        }
+        entries.clear();
+    }
+
+    public synchronized void setEvictionListener(EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    private void notifyEvicted(CompiledClass compiled) {
+        if (evictionListener != null) {
+            evictionListener.onEvicted(compiled);
+        }
+    }
+
+    /**
+     * Compute the cache key for a complete class source.
+     * @param sourceCode Output of the class template
+     * @return Hex SHA-256 of the normalized source
+     */
+    public static String keyFor(String sourceCode) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(normalize(sourceCode).getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Strip comments and collapse whitespace outside string and character
+     * literals. Whitespace is kept only where removing it could join two
+     * tokens (identifiers, numbers or operators), so token boundaries are
+     * preserved.
+     */
+    static String normalize(String source) {
+        StringBuilder out = new StringBuilder(source.length());
+        int length = source.length();
+        boolean pendingSpace = false;
+        int i = 0;
+
+        while (i < length) {
+            char c = source.charAt(i);
+
+            if (c == '/' && i + 1 < length && source.charAt(i + 1) == '/') {
+                // Line comment
+                i += 2;
+                while (i < length && source.charAt(i) != '\n') i++;
+                pendingSpace = true;
+            } else if (c == '/' && i + 1 < length && source.charAt(i + 1) == '*') {
+                // Block comment
+                int end = source.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                pendingSpace = true;
+            } else if (Character.isWhitespace(c)) {
+                i++;
+                pendingSpace = true;
+            } else {
+                if (pendingSpace && out.length() > 0
+                    && joinsToken(out.charAt(out.length() - 1), c)) {
+                    out.append(' ');
+                }
+                pendingSpace = false;
+
+                if (c == '"' || c == '\'') {
+                    // Copy literal verbatim, honouring escapes
+                    out.append(c);
+                    i++;
+                    while (i < length) {
+                        char lc = source.charAt(i++);
+                        out.append(lc);
+                        if (lc == '\\' && i < length) {
+                            out.append(source.charAt(i++));
+                        } else if (lc == c || lc == '\n') {
+                            break;
+                        }
+                    }
+                } else {
+                    out.append(c);
+                    i++;
+                }
+            }
+        }
+
+        return out.toString();
+    }
+
+    private static boolean joinsToken(char before, char after) {
+        if (Character.isJavaIdentifierPart(before) && Character.isJavaIdentifierPart(after)) {
+            return true;
+        }
+        return OPERATOR_CHARS.indexOf(before) >= 0 && OPERATOR_CHARS.indexOf(after) >= 0;
+    }
+}
@@ -0,0 +1,193 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.utils.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Pool of off-heap staging buffers for the post-build pipeline, so
+ * rebuilding and recompiling reuse the same native memory instead of
+ * allocating Java arrays for every mesh.
+ *
+ * Buffers come in power-of-two size classes from {@link #MIN_CLASS_BYTES}
+ * to {@link #MAX_CLASS_BYTES} and are kept when released. Total native
+ * memory, in use and idle, is capped by a budget: idle buffers are freed to
+ * make room, and requests beyond it get a heap buffer instead. Thread-safe.
+ */
+public class DirectBufferPool {
+
+    public static final int MIN_CLASS_BYTES = 4 * 1024;
+    public static final int MAX_CLASS_BYTES = 64 * 1024 * 1024;
+    public static final long DEFAULT_BUDGET_BYTES = 64L * 1024 * 1024;
+
+    private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_CLASS_BYTES)
+        - Integer.numberOfTrailingZeros(MIN_CLASS_BYTES) + 1;
+
+    private static DirectBufferPool shared;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayDeque<ByteBuffer>[] idle = new ArrayDeque[CLASS_COUNT];
+    private final Set<ByteBuffer> inUse = Collections.newSetFromMap(new IdentityHashMap<ByteBuffer, Boolean>());
+    private long budgetBytes;
+    private long offHeapBytes;
+    private long peakOffHeapBytes;
+    private long acquireCount;
+    private long hitCount;
+    private long heapFallbackCount;
+
+    public DirectBufferPool(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            idle[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Get the pool the pipeline stages share.
+     */
+    public static synchronized DirectBufferPool shared() {
+        if (shared == null) {
+            shared = new DirectBufferPool(DEFAULT_BUDGET_BYTES);
+        }
+        return shared;
+    }
+
+    /**
+     * Get a native-order buffer of at least the given size, with position
+     * 0 and limit set to the size. Contents are undefined. Release it when
+     * done; it must not be used afterwards.
+     */
+    public synchronized ByteBuffer acquire(int bytes) {
+        acquireCount++;
+        int sizeClass = sizeClass(bytes);
+        if (sizeClass < 0) {
+            heapFallbackCount++;
+            return ByteBuffer.allocate(bytes).order(ByteOrder.nativeOrder());
+        }
+
+        ByteBuffer buffer = idle[sizeClass].pollLast();
+        if (buffer != null) {
+            hitCount++;
+        } else {
+            int capacity = MIN_CLASS_BYTES << sizeClass;
+            if (!makeRoom(capacity)) {
+                heapFallbackCount++;
+                return ByteBuffer.allocate(bytes).order(ByteOrder.nativeOrder());
+            }
+            buffer = BufferUtils.newUnsafeByteBuffer(capacity);
+            offHeapBytes += capacity;
+            peakOffHeapBytes = Math.max(peakOffHeapBytes, offHeapBytes);
+        }
+        inUse.add(buffer);
+        buffer.clear();
+        buffer.limit(bytes);
+        return buffer;
+    }
+
+    /**
+     * Return a buffer from {@link #acquire(int)} to the pool. Heap
+     * fallbacks are simply dropped.
+     */
+    public synchronized void release(ByteBuffer buffer) {
+        if (buffer == null || !inUse.remove(buffer)) return;
+        if (offHeapBytes > budgetBytes) {
+            // The budget was lowered while this buffer was out
+            free(buffer);
+        } else {
+            idle[sizeClass(buffer.capacity())].addLast(buffer);
+        }
+    }
+
+    /**
+     * Free idle buffers, largest first, until the new capacity fits the budget.
+     */
+    private boolean makeRoom(int capacity) {
+        for (int i = CLASS_COUNT - 1; i >= 0 && offHeapBytes + capacity > budgetBytes; i--) {
+            while (!idle[i].isEmpty() && offHeapBytes + capacity > budgetBytes) {
+                free(idle[i].pollFirst());
+            }
+        }
+        return offHeapBytes + capacity <= budgetBytes;
+    }
+
+    private void free(ByteBuffer buffer) {
+        offHeapBytes -= buffer.capacity();
+        BufferUtils.disposeUnsafeByteBuffer(buffer);
+    }
+
+    private static int sizeClass(int bytes) {
+        if (bytes > MAX_CLASS_BYTES) return -1;
+        int capacity = Math.max(MIN_CLASS_BYTES, Integer.highestOneBit(Math.max(1, bytes - 1)) << 1);
+        return Integer.numberOfTrailingZeros(capacity) - Integer.numberOfTrailingZeros(MIN_CLASS_BYTES);
+    }
+
+    /**
+     * Free every idle buffer. Buffers in use are freed when released only
+     * if the pool is over budget.
+     */
+    public synchronized void trim() {
+        for (ArrayDeque<ByteBuffer> buffers : idle) {
+            while (!buffers.isEmpty()) {
+                free(buffers.pollFirst());
+            }
+        }
+    }
+
+    public synchronized long getBudgetBytes() {
+        return budgetBytes;
+    }
+
+    /**
+     * Set the cap on native memory held by the pool. Lowering it frees idle
+     * buffers right away.
+     */
+    public synchronized void setBudgetBytes(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+        makeRoom(0);
+    }
+
+    /**
+     * Get the native memory currently allocated, in use and idle.
+     */
+    public synchronized long getOffHeapBytes() {
+        return offHeapBytes;
+    }
+
+    public synchronized long getPeakOffHeapBytes() {
+        return peakOffHeapBytes;
+    }
+
+    public synchronized long getAcquireCount() {
+        return acquireCount;
+    }
+
+    /**
+     * Get the fraction of acquires served by an idle pooled buffer.
+     */
+    public synchronized float getHitRate() {
+        return acquireCount > 0 ? (float) hitCount / acquireCount : 0f;
+    }
+
+    /**
+     * Get the number of acquires that got a heap buffer because they were
+     * larger than the largest class or did not fit the budget.
+     */
+    public synchronized long getHeapFallbackCount() {
+        return heapFallbackCount;
+    }
+
+    /**
+     * Format the pool statistics on one line.
+     */
+    public synchronized String formatSummary() {
+        return String.format(Locale.ROOT, "buffer pool: %d acquires, %.1f%% hits, %d heap, off-heap %s (peak %s, budget %s)",
+            acquireCount, getHitRate() * 100f, heapFallbackCount, ModelStats.formatBytes(offHeapBytes),
+            ModelStats.formatBytes(peakOffHeapBytes), ModelStats.formatBytes(budgetBytes));
+    }
+}
@@ -0,0 +1,76 @@
+package com.modeleditor.util;
+
+/**
+ * Limits enforced while a compiled snippet runs. A limit of zero or less
+ * disables that check.
+ */
+public class ExecutionBudget {
+
+    public static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+    // Matches the limit the prompt template asks the AI to stay under
+    public static final int DEFAULT_MAX_VERTICES = 5000;
+    public static final int DEFAULT_MAX_INDICES = 30000;
+    public static final long DEFAULT_MAX_ALLOCATED_BYTES = 256L * 1024 * 1024;
+
+    private long timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private int maxVertices = DEFAULT_MAX_VERTICES;
+    private int maxIndices = DEFAULT_MAX_INDICES;
+    private long maxAllocatedBytes = DEFAULT_MAX_ALLOCATED_BYTES;
+
+    /**
+     * Create a budget that enforces nothing.
+     */
+    public static ExecutionBudget unlimited() {
+        ExecutionBudget budget = new ExecutionBudget();
+        budget.timeoutMillis = 0;
+        budget.maxVertices = 0;
+        budget.maxIndices = 0;
+        budget.maxAllocatedBytes = 0;
+        return budget;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * Set the wall-clock limit for one createModel run.
+     */
+    public void setTimeoutMillis(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    public int getMaxVertices() {
+        return maxVertices;
+    }
+
+    /**
+     * Set the limit on vertices across all meshes the snippet builds.
+     */
+    public void setMaxVertices(int maxVertices) {
+        this.maxVertices = maxVertices;
+    }
+
+    public int getMaxIndices() {
+        return maxIndices;
+    }
+
+    /**
+     * Set the limit on indices across all meshes the snippet builds.
+     */
+    public void setMaxIndices(int maxIndices) {
+        this.maxIndices = maxIndices;
+    }
+
+    public long getMaxAllocatedBytes() {
+        return maxAllocatedBytes;
+    }
+
+    /**
+     * Set the limit on heap bytes allocated by the running thread. Only
+     * enforced where the JVM reports per-thread allocation.
+     */
+    public void setMaxAllocatedBytes(long maxAllocatedBytes) {
+        this.maxAllocatedBytes = maxAllocatedBytes;
+    }
+}
@@ -0,0 +1,211 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Enforces an {@link ExecutionBudget} for one createModel run on the
+ * current thread. Compiled snippets call {@link #tick()} from every loop
+ * condition, and the ModelBuilder reports nodes and requested geometry, so a
+ * runaway snippet is stopped with a {@link BudgetExceededException}.
+ */
+public final class ExecutionGuard {
+
+    // Clock and allocation are sampled every this many loop iterations
+    private static final int CHECK_INTERVAL_MASK = 1023;
+
+    private static final ThreadLocal<ExecutionGuard> CURRENT = new ThreadLocal<>();
+    private static final ExecutionGuard UNLIMITED = new ExecutionGuard(ExecutionBudget.unlimited());
+
+    private final ExecutionBudget budget;
+    private final long startNanos;
+    private final long startAllocatedBytes;
+
+    private int ticks;
+    private long vertexCount;
+    private long indexCount;
+    private Node currentNode;
+    private int nodeCount;
+    // Numbers unnamed nodes are reported by
+    private final Map<Node, Integer> nodeNumbers = new IdentityHashMap<>();
+    // First primitive that went over the geometry budget, blamed on the
+    // node it is attached to; primitives are requested before their node
+    private CapturedModel.Primitive overBudget;
+    private String overBudgetMessage;
+
+    private ExecutionGuard(ExecutionBudget budget) {
+        this.budget = budget;
+        this.startNanos = System.nanoTime();
+        this.startAllocatedBytes = budget.getMaxAllocatedBytes() > 0 ? PipelineMetrics.allocatedBytes() : -1;
+    }
+
+    /**
+     * Start guarding a run on the current thread. Pair with {@link #end()}.
+     */
+    static ExecutionGuard begin(ExecutionBudget budget) {
+        ExecutionGuard guard = new ExecutionGuard(budget);
+        CURRENT.set(guard);
+        return guard;
+    }
+
+    /**
+     * Stop guarding the current thread.
+     */
+    void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Get the guard for the current thread. Snippets run outside a guarded
+     * call, e.g. by tools, get a guard that enforces nothing.
+     */
+    public static ExecutionGuard current() {
+        ExecutionGuard guard = CURRENT.get();
+        return guard != null ? guard : UNLIMITED;
+    }
+
+    /**
+     * Called from instrumented loop conditions.
+     * @return Always true, so it can be and-ed into the condition
+     * @throws BudgetExceededException if time or allocation ran out
+     */
+    public boolean tick() {
+        if ((++ticks & CHECK_INTERVAL_MASK) == 0) {
+            check();
+        }
+        return true;
+    }
+
+    /**
+     * Check the time and allocation budgets now.
+     * @throws BudgetExceededException if either ran out
+     */
+    public void check() {
+        long timeoutMillis = budget.getTimeoutMillis();
+        if (timeoutMillis > 0) {
+            long elapsedMillis = (System.nanoTime() - startNanos) / 1000000;
+            if (elapsedMillis > timeoutMillis) {
+                throw exceeded("Snippet ran longer than " + timeoutMillis + " ms");
+            }
+        }
+
+        long maxAllocated = budget.getMaxAllocatedBytes();
+        if (maxAllocated > 0 && startAllocatedBytes >= 0) {
+            long allocated = PipelineMetrics.allocatedBytes() - startAllocatedBytes;
+            if (allocated > maxAllocated) {
+                throw exceeded("Snippet allocated " + allocated / 1024 + " KB, limit is "
+                    + maxAllocated / 1024 + " KB");
+            }
+        }
+    }
+
+    /**
+     * Record that the snippet started a new node.
+     */
+    void enterNode(Node node) {
+        currentNode = node;
+        nodeCount++;
+        nodeNumbers.put(node, nodeCount);
+        check();
+    }
+
+    /**
+     * Count the geometry a primitive call will add, before any of it is
+     * generated. The primitive that goes over the vertex or index budget is
+     * reported once it is attached to a node, so the right node is named.
+     * @throws BudgetExceededException if an earlier primitive already went
+     *         over the budget without being attached, naming that primitive
+     */
+    void reserveGeometry(CapturedModel.Primitive primitive) {
+        if (overBudget != null) {
+            throw new BudgetExceededException(overBudgetMessage, null);
+        }
+        vertexCount += primitive.vertexCount();
+        indexCount += primitive.indexCount();
+
+        int maxVertices = budget.getMaxVertices();
+        int maxIndices = budget.getMaxIndices();
+        if (maxVertices > 0 && vertexCount > maxVertices) {
+            overBudgetMessage = "Snippet requested " + vertexCount + " vertices at " + primitive
+                + ", limit is " + maxVertices;
+        } else if (maxIndices > 0 && indexCount > maxIndices) {
+            overBudgetMessage = "Snippet requested " + indexCount + " indices at " + primitive
+                + ", limit is " + maxIndices;
+        } else {
+            return;
+        }
+        overBudget = primitive;
+    }
+
+    /**
+     * Record that primitives were attached to a node.
+     * @throws BudgetExceededException naming the node, if one of them went
+     *         over the vertex or index budget
+     */
+    void attachGeometry(Node node, List<CapturedModel.Primitive> primitives) {
+        if (overBudget != null && primitives.contains(overBudget)) {
+            throw new BudgetExceededException(overBudgetMessage, nodeId(node));
+        }
+    }
+
+    /**
+     * Check the geometry budget once the snippet returned, for a primitive
+     * over it that was never attached to a node.
+     * @throws BudgetExceededException naming the primitive
+     */
+    void finishGeometry() {
+        if (overBudget != null) {
+            throw new BudgetExceededException(overBudgetMessage, null);
+        }
+    }
+
+    /**
+     * Count the meshes of a model ModelBuilder.end() just built, for
+     * snippets that run on the real builder because they call part().
+     * Their geometry is only known once built, so the budget is blamed on
+     * the node being built.
+     * @throws BudgetExceededException if the vertex or index budget ran out
+     */
+    void addBuiltModel(Model model) {
+        for (Mesh mesh : model.meshes) {
+            vertexCount += mesh.getNumVertices();
+            indexCount += mesh.getNumIndices();
+        }
+        int maxVertices = budget.getMaxVertices();
+        if (maxVertices > 0 && vertexCount > maxVertices) {
+            throw exceeded("Snippet built " + vertexCount + " vertices, limit is " + maxVertices);
+        }
+        int maxIndices = budget.getMaxIndices();
+        if (maxIndices > 0 && indexCount > maxIndices) {
+            throw exceeded("Snippet built " + indexCount + " indices, limit is " + maxIndices);
+        }
+        check();
+    }
+
+    public long getVertexCount() {
+        return vertexCount;
+    }
+
+    public long getIndexCount() {
+        return indexCount;
+    }
+
+    private BudgetExceededException exceeded(String message) {
+        return new BudgetExceededException(message, currentNode != null ? nodeId(currentNode) : null);
+    }
+
+    /**
+     * Get a node's id, or its number among the nodes the snippet started if
+     * it has none. Null for an unnamed node the builder did not create.
+     */
+    private String nodeId(Node node) {
+        if (node.id != null) return node.id;
+        Integer number = nodeNumbers.get(node);
+        return number != null ? "#" + number : null;
+    }
+}
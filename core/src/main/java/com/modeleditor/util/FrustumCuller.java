@@ -0,0 +1,319 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.RenderableProvider;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Plane;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders only the nodes of a model inside a camera's frustum. The world
+ * bounding box and sphere of each node's own parts are computed once, from
+ * the mesh part bounds and the node's global transform, and kept in a
+ * bounding volume hierarchy. {@link #cull(Camera)} walks the hierarchy,
+ * skipping subtrees outside the frustum and testing nothing below subtrees
+ * fully inside it; the visible parts are then handed to the batch as a
+ * {@link RenderableProvider}.
+ *
+ * The bounds follow the transforms at construction, so create a new culler
+ * when the model's transforms change.
+ */
+public class FrustumCuller implements RenderableProvider {
+
+    private static final int LEAF_SIZE = 4;
+    private static final int ALL_PLANES = (1 << 6) - 1;
+
+    private final Model model;
+    private final Node[] nodes;
+    private final int partCount;
+    // Per node: world box as min x, y, z, max x, y, z and sphere as center x, y, z, radius
+    private final float[] boxes;
+    private final float[] spheres;
+
+    // Hierarchy in depth-first order; a leaf has a negative child and covers
+    // order[first, first + count), an inner node's children are at i + 1 and child[i]
+    private final float[] treeBounds;
+    private final int[] treeChild;
+    private final int[] treeFirst;
+    private final int[] treeCount;
+    private final int[] order;
+    private int treeSize;
+
+    private final Array<Node> visible = new Array<>();
+    private int drawnParts;
+    private int boundsTests;
+
+    public FrustumCuller(Model model) {
+        this.model = model;
+        List<Node> withParts = new ArrayList<>();
+        collectNodes(model.nodes, withParts);
+        nodes = withParts.toArray(new Node[0]);
+
+        int parts = 0;
+        boxes = new float[nodes.length * 6];
+        spheres = new float[nodes.length * 4];
+        BoundingBox nodeBounds = new BoundingBox();
+        BoundingBox partBounds = new BoundingBox();
+        Vector3 min = new Vector3();
+        Vector3 max = new Vector3();
+        for (int i = 0; i < nodes.length; i++) {
+            Node node = nodes[i];
+            nodeBounds.inf();
+            for (NodePart part : node.parts) {
+                MeshPart meshPart = part.meshPart;
+                min.set(meshPart.center).sub(meshPart.halfExtents);
+                max.set(meshPart.center).add(meshPart.halfExtents);
+                partBounds.set(min, max).mul(node.globalTransform);
+                nodeBounds.ext(partBounds);
+                parts++;
+            }
+            boxes[i * 6] = nodeBounds.min.x;
+            boxes[i * 6 + 1] = nodeBounds.min.y;
+            boxes[i * 6 + 2] = nodeBounds.min.z;
+            boxes[i * 6 + 3] = nodeBounds.max.x;
+            boxes[i * 6 + 4] = nodeBounds.max.y;
+            boxes[i * 6 + 5] = nodeBounds.max.z;
+            nodeBounds.getCenter(min);
+            spheres[i * 4] = min.x;
+            spheres[i * 4 + 1] = min.y;
+            spheres[i * 4 + 2] = min.z;
+            spheres[i * 4 + 3] = nodeBounds.getDimensions(max).len() * 0.5f;
+        }
+        partCount = parts;
+
+        // A binary tree over n items with leaves of at least one has under 2n nodes
+        int capacity = Math.max(1, 2 * nodes.length);
+        treeBounds = new float[capacity * 6];
+        treeChild = new int[capacity];
+        treeFirst = new int[capacity];
+        treeCount = new int[capacity];
+        order = new int[nodes.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        if (nodes.length > 0) {
+            build(0, nodes.length);
+        }
+    }
+
+    private static void collectNodes(Iterable<Node> children, List<Node> out) {
+        for (Node node : children) {
+            if (node.parts.size > 0) out.add(node);
+            collectNodes(node.getChildren(), out);
+        }
+    }
+
+    /**
+     * Add a subtree over order[first, end), splitting at the median centroid
+     * along the longest axis of the centroids' extent.
+     * @return The subtree's index
+     */
+    private int build(int first, int end) {
+        int index = treeSize++;
+        float[] bounds = treeBounds;
+        int b = index * 6;
+        bounds[b] = bounds[b + 1] = bounds[b + 2] = Float.POSITIVE_INFINITY;
+        bounds[b + 3] = bounds[b + 4] = bounds[b + 5] = Float.NEGATIVE_INFINITY;
+        float[] centroidMin = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+        float[] centroidMax = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (int i = first; i < end; i++) {
+            int box = order[i] * 6;
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[b + axis] = Math.min(bounds[b + axis], boxes[box + axis]);
+                bounds[b + 3 + axis] = Math.max(bounds[b + 3 + axis], boxes[box + 3 + axis]);
+                float centroid = spheres[order[i] * 4 + axis];
+                centroidMin[axis] = Math.min(centroidMin[axis], centroid);
+                centroidMax[axis] = Math.max(centroidMax[axis], centroid);
+            }
+        }
+
+        if (end - first <= LEAF_SIZE) {
+            treeChild[index] = -1;
+            treeFirst[index] = first;
+            treeCount[index] = end - first;
+            return index;
+        }
+
+        int axis = 0;
+        for (int a = 1; a < 3; a++) {
+            if (centroidMax[a] - centroidMin[a] > centroidMax[axis] - centroidMin[axis]) axis = a;
+        }
+        int middle = (first + end) >>> 1;
+        select(first, end - 1, middle, axis);
+
+        build(first, middle);
+        treeChild[index] = build(middle, end);
+        return index;
+    }
+
+    /**
+     * Partially sort order[left, right] so the item at k is the one a full
+     * sort by centroid along the axis would put there.
+     */
+    private void select(int left, int right, int k, int axis) {
+        while (left < right) {
+            float pivot = spheres[order[(left + right) >>> 1] * 4 + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (spheres[order[i] * 4 + axis] < pivot) i++;
+                while (spheres[order[j] * 4 + axis] > pivot) j--;
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Collect the nodes inside or crossing the camera's frustum, which must
+     * be up to date. Call once per frame before rendering.
+     */
+    public void cull(Camera camera) {
+        visible.clear();
+        drawnParts = 0;
+        boundsTests = 0;
+        if (treeSize > 0) {
+            cull(0, camera.frustum.planes, ALL_PLANES);
+        }
+    }
+
+    /**
+     * @param mask Bit i is set while plane i may still cut the subtree;
+     *             planes a parent lies fully in front of are not tested again
+     */
+    private void cull(int index, Plane[] planes, int mask) {
+        mask = classify(treeBounds, index * 6, planes, mask);
+        if (mask < 0) return;
+
+        if (treeChild[index] >= 0) {
+            cull(index + 1, planes, mask);
+            cull(treeChild[index], planes, mask);
+            return;
+        }
+        for (int i = treeFirst[index], end = i + treeCount[index]; i < end; i++) {
+            int node = order[i];
+            if (mask == 0 || (sphereVisible(node, planes, mask) && classify(boxes, node * 6, planes, mask) >= 0)) {
+                addVisible(nodes[node]);
+            }
+        }
+    }
+
+    /**
+     * Test a box against the planes in the mask.
+     * @return -1 if the box is outside, else the planes it still crosses
+     */
+    private int classify(float[] bounds, int offset, Plane[] planes, int mask) {
+        if (mask == 0) return 0;
+        boundsTests++;
+        float centerX = (bounds[offset] + bounds[offset + 3]) * 0.5f;
+        float centerY = (bounds[offset + 1] + bounds[offset + 4]) * 0.5f;
+        float centerZ = (bounds[offset + 2] + bounds[offset + 5]) * 0.5f;
+        float halfX = (bounds[offset + 3] - bounds[offset]) * 0.5f;
+        float halfY = (bounds[offset + 4] - bounds[offset + 1]) * 0.5f;
+        float halfZ = (bounds[offset + 5] - bounds[offset + 2]) * 0.5f;
+        int crossing = 0;
+        for (int i = 0; i < planes.length; i++) {
+            if ((mask & (1 << i)) == 0) continue;
+            Vector3 normal = planes[i].normal;
+            // Frustum plane normals point inward
+            float distance = normal.x * centerX + normal.y * centerY + normal.z * centerZ + planes[i].d;
+            float reach = Math.abs(normal.x) * halfX + Math.abs(normal.y) * halfY + Math.abs(normal.z) * halfZ;
+            if (distance + reach < 0f) return -1;
+            if (distance - reach < 0f) crossing |= 1 << i;
+        }
+        return crossing;
+    }
+
+    private boolean sphereVisible(int node, Plane[] planes, int mask) {
+        int s = node * 4;
+        for (int i = 0; i < planes.length; i++) {
+            if ((mask & (1 << i)) == 0) continue;
+            Vector3 normal = planes[i].normal;
+            float distance = normal.x * spheres[s] + normal.y * spheres[s + 1] + normal.z * spheres[s + 2] + planes[i].d;
+            if (distance < -spheres[s + 3]) return false;
+        }
+        return true;
+    }
+
+    private void addVisible(Node node) {
+        visible.add(node);
+        for (NodePart part : node.parts) {
+            if (part.enabled) drawnParts++;
+        }
+    }
+
+    @Override
+    public void getRenderables(Array<Renderable> renderables, Pool<Renderable> pool) {
+        for (Node node : visible) {
+            for (NodePart part : node.parts) {
+                if (!part.enabled) continue;
+                Renderable renderable = part.setRenderable(pool.obtain());
+                renderable.worldTransform.set(node.globalTransform);
+                renderable.environment = null;
+                renderable.shader = null;
+                renderable.userData = null;
+                renderables.add(renderable);
+            }
+        }
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Get the number of nodes with parts, the unit of culling.
+     */
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    /**
+     * Get the nodes found visible by the last {@link #cull(Camera)}.
+     */
+    public int getDrawnNodeCount() {
+        return visible.size;
+    }
+
+    public int getCulledNodeCount() {
+        return nodes.length - visible.size;
+    }
+
+    /**
+     * Get the enabled parts of the visible nodes, one draw call each.
+     */
+    public int getDrawnPartCount() {
+        return drawnParts;
+    }
+
+    public int getPartCount() {
+        return partCount;
+    }
+
+    /**
+     * Get the box tests the last cull needed, hierarchy nodes included.
+     */
+    public int getBoundsTestCount() {
+        return boundsTests;
+    }
+}
@@ -0,0 +1,735 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.attributes.BlendingAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.IntAttribute;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.JsonWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Writes a Model as glTF 2.0, either as .gltf JSON with a sibling .bin file
+ * or as a single .glb, so compiled props can be used outside libGDX.
+ *
+ * Export runs in two passes over the accessors: the first lays out the
+ * buffer, hashes each accessor and builds the JSON, the second encodes each
+ * accessor again and streams it to a FileChannel. Accessors are encoded in
+ * fixed-size chunks straight from the mesh's vertex and index buffers, so
+ * no mesh is copied and heap use does not grow with the model. Identical
+ * accessors, materials and meshes are written once.
+ *
+ * Positions, normals, colors and the first texture coordinates are written,
+ * with quantized meshes decoded to floats. Materials become
+ * metallic-roughness materials from their diffuse color, opacity and culling.
+ */
+public class GltfExporter {
+
+    private static final int GLB_MAGIC = 0x46546C67;
+    private static final int GLB_VERSION = 2;
+    private static final int CHUNK_JSON = 0x4E4F534A;
+    private static final int CHUNK_BIN = 0x004E4942;
+
+    private static final int FLOAT = 5126;
+    private static final int UNSIGNED_BYTE = 5121;
+    private static final int UNSIGNED_SHORT = 5123;
+    private static final int UNSIGNED_INT = 5125;
+    private static final int ARRAY_BUFFER = 34962;
+    private static final int ELEMENT_ARRAY_BUFFER = 34963;
+
+    // Encoded bytes are gathered into a buffer this size, and vertices staged in one
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    // Most bytes one vertex or index adds to an accessor
+    private static final int MAX_ELEMENT_BYTES = 16;
+
+    private final List<Accessor> accessors = new ArrayList<>();
+    private final Map<String, Integer> accessorsByContent = new HashMap<>();
+    private final Map<Mesh, Map<String, Integer>> meshAttributes = new IdentityHashMap<>();
+    private final List<String> materials = new ArrayList<>();
+    private final Map<String, Integer> materialsByContent = new HashMap<>();
+    private final Map<Material, Integer> materialIndices = new IdentityHashMap<>();
+    private final List<List<Primitive>> meshes = new ArrayList<>();
+    private final Map<String, Integer> meshesByContent = new HashMap<>();
+    private final List<GltfNode> nodes = new ArrayList<>();
+    private final List<Integer> rootNodes = new ArrayList<>();
+    private long bufferLength;
+
+    private ByteBuffer block;
+    private ByteBuffer vertexChunk;
+    private final Vector3 decoded = new Vector3();
+    private MessageDigest digest;
+
+    /**
+     * Export as a .gltf file with its binary data in a .bin file beside it.
+     * Reads mesh data, so call it on the thread that owns the model.
+     * @throws IOException if writing fails
+     */
+    public void exportGltf(Model model, File gltfFile) throws IOException {
+        String name = gltfFile.getName();
+        int dot = name.lastIndexOf('.');
+        String binName = (dot > 0 ? name.substring(0, dot) : name) + ".bin";
+
+        String json = layout(model, binName);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(gltfFile), StandardCharsets.UTF_8);
+        try {
+            writer.write(json);
+        } finally {
+            writer.close();
+        }
+
+        if (accessors.isEmpty()) {
+            reset();
+            return;
+        }
+        FileOutputStream stream = new FileOutputStream(new File(gltfFile.getAbsoluteFile().getParentFile(), binName));
+        try {
+            writeBuffer(stream.getChannel(), null);
+        } finally {
+            stream.close();
+            reset();
+        }
+    }
+
+    /**
+     * Export as a single binary .glb file. Reads mesh data, so call it on
+     * the thread that owns the model.
+     * @throws IOException if writing fails
+     */
+    public void exportGlb(Model model, File glbFile) throws IOException {
+        byte[] json = layout(model, null).getBytes(StandardCharsets.UTF_8);
+        int jsonLength = align4(json.length);
+        long binLength = align4(bufferLength);
+        long totalLength = 12 + 8 + jsonLength + (binLength > 0 ? 8 + binLength : 0);
+        if (totalLength > 0xFFFFFFFFL) {
+            throw new IOException("Model too large for a .glb file");
+        }
+
+        FileOutputStream stream = new FileOutputStream(glbFile);
+        try {
+            FileChannel channel = stream.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(20 + jsonLength).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(GLB_MAGIC).putInt(GLB_VERSION).putInt((int) totalLength);
+            header.putInt(jsonLength).putInt(CHUNK_JSON).put(json);
+            // The JSON chunk is padded with spaces
+            while (header.hasRemaining()) {
+                header.put((byte) ' ');
+            }
+            header.flip();
+            writeFully(channel, header);
+
+            if (binLength > 0) {
+                ByteBuffer chunkHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                chunkHeader.putInt((int) binLength).putInt(CHUNK_BIN).flip();
+                writeBuffer(channel, chunkHeader);
+            }
+        } finally {
+            stream.close();
+            reset();
+        }
+    }
+
+    private void reset() {
+        accessors.clear();
+        accessorsByContent.clear();
+        meshAttributes.clear();
+        materials.clear();
+        materialsByContent.clear();
+        materialIndices.clear();
+        meshes.clear();
+        meshesByContent.clear();
+        nodes.clear();
+        rootNodes.clear();
+        bufferLength = 0;
+        block = null;
+        vertexChunk = null;
+    }
+
+    /**
+     * First pass: collect nodes, materials, meshes and accessors, and
+     * place each accessor in the buffer.
+     * @param binUri The .bin file name, or null for a .glb
+     * @return The glTF JSON
+     */
+    private String layout(Model model, String binUri) throws IOException {
+        reset();
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 unavailable", e);
+        }
+        block = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (Node node : model.nodes) {
+            rootNodes.add(addNode(node));
+        }
+        return toJson(binUri);
+    }
+
+    private int addNode(Node node) throws IOException {
+        GltfNode gltfNode = new GltfNode(node);
+        int index = nodes.size();
+        nodes.add(gltfNode);
+
+        if (node.parts.size > 0) {
+            List<Primitive> primitives = new ArrayList<>();
+            StringBuilder key = new StringBuilder();
+            for (NodePart part : node.parts) {
+                Primitive primitive = addPrimitive(part);
+                if (primitive == null) continue;
+                primitives.add(primitive);
+                key.append(primitive.key()).append(';');
+            }
+            if (!primitives.isEmpty()) {
+                Integer mesh = meshesByContent.get(key.toString());
+                if (mesh == null) {
+                    mesh = meshes.size();
+                    meshes.add(primitives);
+                    meshesByContent.put(key.toString(), mesh);
+                }
+                gltfNode.mesh = mesh;
+            }
+        }
+
+        for (Node child : node.getChildren()) {
+            gltfNode.children.add(addNode(child));
+        }
+        return index;
+    }
+
+    private Primitive addPrimitive(NodePart part) throws IOException {
+        int mode = primitiveMode(part.meshPart.primitiveType);
+        if (mode < 0 || part.meshPart.size == 0) return null;
+
+        Primitive primitive = new Primitive();
+        primitive.mode = mode;
+        primitive.attributes = addAttributes(part);
+        primitive.indices = addAccessor(Accessor.indices(part.meshPart), part);
+        primitive.material = addMaterial(part.material);
+        return primitive;
+    }
+
+    private Map<String, Integer> addAttributes(NodePart part) throws IOException {
+        Mesh mesh = part.meshPart.mesh;
+        Map<String, Integer> attributes = meshAttributes.get(mesh);
+        if (attributes != null) return attributes;
+
+        attributes = new LinkedHashMap<>();
+        boolean texCoords = false;
+        for (VertexAttribute attribute : mesh.getVertexAttributes()) {
+            String semantic;
+            switch (attribute.usage) {
+                case VertexAttributes.Usage.Position:
+                    semantic = "POSITION";
+                    break;
+                case VertexAttributes.Usage.Normal:
+                    semantic = "NORMAL";
+                    break;
+                case VertexAttributes.Usage.ColorUnpacked:
+                case VertexAttributes.Usage.ColorPacked:
+                    semantic = "COLOR_0";
+                    break;
+                case VertexAttributes.Usage.TextureCoordinates:
+                    if (texCoords || attribute.numComponents != 2) continue;
+                    texCoords = true;
+                    semantic = "TEXCOORD_0";
+                    break;
+                default:
+                    continue;
+            }
+            attributes.put(semantic, addAccessor(Accessor.vertices(mesh, attribute), part));
+        }
+        meshAttributes.put(mesh, attributes);
+        return attributes;
+    }
+
+    /**
+     * Encode an accessor once to hash it, reusing an identical one if any.
+     */
+    private int addAccessor(Accessor accessor, NodePart part) throws IOException {
+        accessor.material = part.material;
+        digest.reset();
+        block.clear();
+        encode(accessor, null);
+        drain(null);
+        String key = accessor.componentType + ":" + accessor.type + ":" + accessor.normalized + ":"
+            + accessor.count + ":" + new BigInteger(1, digest.digest()).toString(16);
+
+        Integer existing = accessorsByContent.get(key);
+        if (existing != null) return existing;
+
+        accessor.byteOffset = bufferLength;
+        bufferLength = align4(bufferLength + accessor.byteLength);
+        int index = accessors.size();
+        accessors.add(accessor);
+        accessorsByContent.put(key, index);
+        return index;
+    }
+
+    private int addMaterial(Material material) {
+        Integer index = materialIndices.get(material);
+        if (index != null) return index;
+
+        String json = materialJson(material);
+        index = materialsByContent.get(json);
+        if (index == null) {
+            index = materials.size();
+            materials.add(json);
+            materialsByContent.put(json, index);
+        }
+        materialIndices.put(material, index);
+        return index;
+    }
+
+    private static String materialJson(Material material) {
+        ColorAttribute diffuse = (ColorAttribute) material.get(ColorAttribute.Diffuse);
+        BlendingAttribute blending = (BlendingAttribute) material.get(BlendingAttribute.Type);
+        IntAttribute cullFace = (IntAttribute) material.get(IntAttribute.CullFace);
+        float r = diffuse != null ? diffuse.color.r : 1f;
+        float g = diffuse != null ? diffuse.color.g : 1f;
+        float b = diffuse != null ? diffuse.color.b : 1f;
+        float a = (diffuse != null ? diffuse.color.a : 1f) * (blending != null ? blending.opacity : 1f);
+
+        StringBuilder json = new StringBuilder("{");
+        if (material.id != null && !material.id.isEmpty()) {
+            json.append("\"name\":\"").append(escape(material.id)).append("\",");
+        }
+        json.append(String.format(Locale.ROOT,
+            "\"pbrMetallicRoughness\":{\"baseColorFactor\":[%s,%s,%s,%s],\"metallicFactor\":0,\"roughnessFactor\":1}",
+            number(r), number(g), number(b), number(a)));
+        if (blending != null && blending.blended) {
+            json.append(",\"alphaMode\":\"BLEND\"");
+        }
+        if (cullFace != null && cullFace.value == GL20.GL_NONE) {
+            json.append(",\"doubleSided\":true");
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Second pass: encode every accessor again, in buffer order, and write
+     * it with its padding.
+     * @param prefix Bytes to write first, such as the .glb chunk header, or null
+     */
+    private void writeBuffer(FileChannel channel, ByteBuffer prefix) throws IOException {
+        block.clear();
+        if (prefix != null) {
+            block.put(prefix);
+        }
+        long written = 0;
+        for (Accessor accessor : accessors) {
+            encode(accessor, channel);
+            written += accessor.byteLength;
+            while (written % 4 != 0) {
+                if (!block.hasRemaining()) drain(channel);
+                block.put((byte) 0);
+                written++;
+            }
+        }
+        drain(channel);
+    }
+
+    /**
+     * Encode one accessor into the block buffer, draining it whenever it
+     * fills. Whatever is left at the end is not drained.
+     * @param channel Where full blocks go, or null to hash them
+     */
+    private void encode(Accessor accessor, FileChannel channel) throws IOException {
+        if (accessor.attribute == null) {
+            encodeIndices(accessor, channel);
+        } else {
+            encodeVertices(accessor, channel);
+        }
+    }
+
+    private void drain(FileChannel channel) throws IOException {
+        block.flip();
+        if (channel == null) {
+            digest.update(block);
+        } else {
+            writeFully(channel, block);
+        }
+        block.clear();
+    }
+
+    private void encodeIndices(Accessor accessor, FileChannel channel) throws IOException {
+        ShortBuffer indices = accessor.mesh.getNumIndices() > 0 ? MeshBuffers.indices(accessor.mesh) : null;
+        for (int i = 0; i < accessor.count; i++) {
+            if (block.remaining() < MAX_ELEMENT_BYTES) drain(channel);
+            int index = indices != null ? indices.get(accessor.offset + i) & 0xFFFF : accessor.offset + i;
+            if (accessor.componentType == UNSIGNED_INT) {
+                block.putInt(index);
+            } else {
+                block.putShort((short) index);
+            }
+        }
+    }
+
+    /**
+     * Encode one attribute of every vertex, staging whole vertices from the
+     * mesh a chunk at a time so packed and quantized fields can be read as
+     * bytes.
+     */
+    private void encodeVertices(Accessor accessor, FileChannel channel) throws IOException {
+        Mesh mesh = accessor.mesh;
+        VertexAttribute attribute = accessor.attribute;
+        int usage = attribute.usage;
+        int vertexSize = mesh.getVertexSize();
+        int stride = vertexSize / 4;
+        boolean position = usage == VertexAttributes.Usage.Position;
+        QuantizationAttribute quantization = VertexQuantizer.isQuantized(mesh)
+            ? (QuantizationAttribute) accessor.material.get(QuantizationAttribute.Type) : null;
+        boolean quantized = quantization != null && (position || usage == VertexAttributes.Usage.Normal);
+        int components = accessor.componentCount();
+        if (position) {
+            accessor.min = new float[] {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+            accessor.max = new float[] {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        }
+
+        if (vertexChunk == null || vertexChunk.capacity() < vertexSize) {
+            vertexChunk = ByteBuffer.allocateDirect(Math.max(WRITE_BUFFER_SIZE, vertexSize)).order(ByteOrder.nativeOrder());
+        }
+        FloatBuffer staged = vertexChunk.asFloatBuffer();
+        FloatBuffer vertices = MeshBuffers.vertices(mesh);
+        int chunkVertices = vertexChunk.capacity() / vertexSize;
+
+        for (int first = 0; first < accessor.count; first += chunkVertices) {
+            int count = Math.min(chunkVertices, accessor.count - first);
+            vertices.limit((first + count) * stride).position(first * stride);
+            staged.clear();
+            staged.put(vertices);
+
+            for (int v = 0; v < count; v++) {
+                if (block.remaining() < MAX_ELEMENT_BYTES) drain(channel);
+                int base = v * vertexSize + attribute.offset;
+                if (accessor.componentType == UNSIGNED_BYTE) {
+                    // Packed colors are already RGBA8
+                    for (int c = 0; c < 4; c++) {
+                        block.put(vertexChunk.get(base + c));
+                    }
+                    continue;
+                }
+                if (quantized) {
+                    if (position) {
+                        VertexQuantizer.decodePosition(vertexChunk, base, quantization, decoded);
+                    } else {
+                        VertexQuantizer.decodeOctahedral(vertexChunk.get(base), vertexChunk.get(base + 1), decoded);
+                    }
+                }
+                for (int c = 0; c < components; c++) {
+                    float value = quantized ? (c == 0 ? decoded.x : c == 1 ? decoded.y : decoded.z)
+                        : vertexChunk.getFloat(base + c * 4);
+                    block.putFloat(value);
+                    if (position) {
+                        accessor.min[c] = Math.min(accessor.min[c], value);
+                        accessor.max[c] = Math.max(accessor.max[c], value);
+                    }
+                }
+            }
+        }
+    }
+
+    private String toJson(String binUri) throws IOException {
+        StringWriter buffer = new StringWriter();
+        JsonWriter json = new JsonWriter(buffer);
+        json.setOutputType(JsonWriter.OutputType.json);
+
+        json.object();
+        json.object("asset").set("version", "2.0").set("generator", "LibGDX 3D Model Editor").pop();
+        json.set("scene", 0);
+        json.array("scenes").object();
+        if (!rootNodes.isEmpty()) {
+            json.array("nodes");
+            for (int root : rootNodes) {
+                json.value(root);
+            }
+            json.pop();
+        }
+        json.pop().pop();
+
+        if (!nodes.isEmpty()) {
+            json.array("nodes");
+            for (GltfNode node : nodes) {
+                node.write(json);
+            }
+            json.pop();
+        }
+
+        if (!meshes.isEmpty()) {
+            json.array("meshes");
+            for (List<Primitive> primitives : meshes) {
+                json.object().array("primitives");
+                for (Primitive primitive : primitives) {
+                    primitive.write(json);
+                }
+                json.pop().pop();
+            }
+            json.pop();
+        }
+
+        if (!materials.isEmpty()) {
+            json.array("materials");
+            for (String material : materials) {
+                json.json(material);
+            }
+            json.pop();
+        }
+
+        if (!accessors.isEmpty()) {
+            json.array("accessors");
+            for (int i = 0; i < accessors.size(); i++) {
+                accessors.get(i).write(json, i);
+            }
+            json.pop();
+
+            // One buffer view per accessor keeps offsets aligned to each component type
+            json.array("bufferViews");
+            for (Accessor accessor : accessors) {
+                json.object();
+                json.set("buffer", 0);
+                json.set("byteOffset", accessor.byteOffset);
+                json.set("byteLength", accessor.byteLength);
+                json.set("target", accessor.attribute == null ? ELEMENT_ARRAY_BUFFER : ARRAY_BUFFER);
+                json.pop();
+            }
+            json.pop();
+
+            json.array("buffers").object();
+            json.set("byteLength", binUri != null ? bufferLength : align4(bufferLength));
+            if (binUri != null) {
+                json.set("uri", binUri);
+            }
+            json.pop().pop();
+        }
+        json.pop();
+        json.close();
+        return buffer.toString();
+    }
+
+    private static int primitiveMode(int primitiveType) {
+        switch (primitiveType) {
+            case GL20.GL_POINTS:
+                return 0;
+            case GL20.GL_LINES:
+                return 1;
+            case GL20.GL_LINE_LOOP:
+                return 2;
+            case GL20.GL_LINE_STRIP:
+                return 3;
+            case GL20.GL_TRIANGLES:
+                return 4;
+            case GL20.GL_TRIANGLE_STRIP:
+                return 5;
+            case GL20.GL_TRIANGLE_FAN:
+                return 6;
+            default:
+                return -1;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static int align4(int value) {
+        return (value + 3) & ~3;
+    }
+
+    private static long align4(long value) {
+        return (value + 3) & ~3L;
+    }
+
+    private static String number(float value) {
+        return value == (int) value ? Integer.toString((int) value) : Float.toString(value);
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static final class Accessor {
+        final Mesh mesh;
+        // Null for indices
+        final VertexAttribute attribute;
+        final int offset;
+        final int count;
+        final int componentType;
+        final boolean normalized;
+        final String type;
+        final int byteLength;
+        long byteOffset;
+        float[] min;
+        float[] max;
+        // A material of a part using the mesh, for quantization bounds
+        Material material;
+
+        private Accessor(Mesh mesh, VertexAttribute attribute, int offset, int count, int componentType,
+                         boolean normalized, String type) {
+            this.mesh = mesh;
+            this.attribute = attribute;
+            this.offset = offset;
+            this.count = count;
+            this.componentType = componentType;
+            this.normalized = normalized;
+            this.type = type;
+            this.byteLength = count * componentCount(type) * (componentType == UNSIGNED_BYTE ? 1
+                : componentType == UNSIGNED_SHORT ? 2 : 4);
+        }
+
+        static Accessor vertices(Mesh mesh, VertexAttribute attribute) {
+            int count = mesh.getNumVertices();
+            switch (attribute.usage) {
+                case VertexAttributes.Usage.ColorPacked:
+                    return new Accessor(mesh, attribute, 0, count, UNSIGNED_BYTE, true, "VEC4");
+                case VertexAttributes.Usage.ColorUnpacked:
+                    return new Accessor(mesh, attribute, 0, count, FLOAT, false, "VEC4");
+                case VertexAttributes.Usage.TextureCoordinates:
+                    return new Accessor(mesh, attribute, 0, count, FLOAT, false, "VEC2");
+                default:
+                    return new Accessor(mesh, attribute, 0, count, FLOAT, false, "VEC3");
+            }
+        }
+
+        static Accessor indices(MeshPart part) {
+            // glTF reserves the maximum index value, so 65535 needs 32-bit indices
+            int componentType = UNSIGNED_SHORT;
+            if (part.mesh.getNumVertices() > 65535) {
+                componentType = UNSIGNED_INT;
+            }
+            return new Accessor(part.mesh, null, part.offset, part.size, componentType, false, "SCALAR");
+        }
+
+        int componentCount() {
+            return componentCount(type);
+        }
+
+        static int componentCount(String type) {
+            return type.equals("SCALAR") ? 1 : type.equals("VEC2") ? 2 : type.equals("VEC3") ? 3 : 4;
+        }
+
+        void write(JsonWriter json, int bufferView) throws IOException {
+            json.object();
+            json.set("bufferView", bufferView);
+            json.set("componentType", componentType);
+            if (normalized) {
+                json.set("normalized", true);
+            }
+            json.set("count", count);
+            json.set("type", type);
+            if (min != null) {
+                json.array("min").value(min[0]).value(min[1]).value(min[2]).pop();
+                json.array("max").value(max[0]).value(max[1]).value(max[2]).pop();
+            }
+            json.pop();
+        }
+    }
+
+    private static final class Primitive {
+        Map<String, Integer> attributes;
+        int indices;
+        int material;
+        int mode;
+
+        String key() {
+            return attributes + "/" + indices + "/" + material + "/" + mode;
+        }
+
+        void write(JsonWriter json) throws IOException {
+            json.object();
+            json.object("attributes");
+            for (Map.Entry<String, Integer> attribute : attributes.entrySet()) {
+                json.set(attribute.getKey(), attribute.getValue());
+            }
+            json.pop();
+            json.set("indices", indices);
+            json.set("material", material);
+            json.set("mode", mode);
+            json.pop();
+        }
+    }
+
+    private static final class GltfNode {
+        final String name;
+        final float[] translation;
+        final float[] rotation;
+        final float[] scale;
+        final List<Integer> children = new ArrayList<>();
+        int mesh = -1;
+
+        GltfNode(Node node) {
+            name = node.id;
+            translation = new float[] {node.translation.x, node.translation.y, node.translation.z};
+            rotation = new float[] {node.rotation.x, node.rotation.y, node.rotation.z, node.rotation.w};
+            scale = new float[] {node.scale.x, node.scale.y, node.scale.z};
+        }
+
+        void write(JsonWriter json) throws IOException {
+            json.object();
+            if (name != null) {
+                json.set("name", name);
+            }
+            if (translation[0] != 0f || translation[1] != 0f || translation[2] != 0f) {
+                json.array("translation").value(translation[0]).value(translation[1]).value(translation[2]).pop();
+            }
+            if (rotation[0] != 0f || rotation[1] != 0f || rotation[2] != 0f || rotation[3] != 1f) {
+                json.array("rotation").value(rotation[0]).value(rotation[1]).value(rotation[2])
+                    .value(rotation[3]).pop();
+            }
+            if (scale[0] != 1f || scale[1] != 1f || scale[2] != 1f) {
+                json.array("scale").value(scale[0]).value(scale[1]).value(scale[2]).pop();
+            }
+            if (mesh >= 0) {
+                json.set("mesh", mesh);
+            }
+            if (!children.isEmpty()) {
+                json.array("children");
+                for (int child : children) {
+                    json.value(child);
+                }
+                json.pop();
+            }
+            json.pop();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.PerspectiveCamera;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+import com.badlogic.gdx.utils.Disposable;
+
+/**
+ * A model and its reduced versions from {@link LodGenerator}, with the
+ * screen sizes at which each level takes over. Level 0 is the source
+ * model, which the chain does not own; the reduced levels are disposed
+ * with the chain.
+ */
+public class LodChain implements Disposable {
+
+    private final Model[] levels;
+    private final int[] triangleCounts;
+    private final float[] screenThresholds;
+    private final Vector3 center = new Vector3();
+    private final float radius;
+
+    /**
+     * @param source The full-detail model, level 0
+     * @param sourceTriangleCount Triangles in the source model
+     * @param reduced Reduced models, finest first; owned by the chain
+     * @param reducedTriangleCounts Triangles in each reduced model
+     * @param screenThresholds For each reduced level, the screen size (as a
+     *                         fraction of viewport height) below which it is used
+     */
+    public LodChain(Model source, int sourceTriangleCount, Model[] reduced, int[] reducedTriangleCounts,
+                    float[] screenThresholds) {
+        if (reduced.length != screenThresholds.length || reduced.length != reducedTriangleCounts.length) {
+            throw new IllegalArgumentException("Need one threshold and triangle count per reduced level");
+        }
+        levels = new Model[reduced.length + 1];
+        triangleCounts = new int[reduced.length + 1];
+        levels[0] = source;
+        triangleCounts[0] = sourceTriangleCount;
+        System.arraycopy(reduced, 0, levels, 1, reduced.length);
+        System.arraycopy(reducedTriangleCounts, 0, triangleCounts, 1, reduced.length);
+        this.screenThresholds = screenThresholds.clone();
+
+        BoundingBox bounds = source.calculateBoundingBox(new BoundingBox());
+        bounds.getCenter(center);
+        radius = bounds.getDimensions(new Vector3()).len() * 0.5f;
+    }
+
+    /**
+     * Get the fraction of the viewport height the model's bounding sphere
+     * covers from the camera.
+     */
+    public float getScreenSize(PerspectiveCamera camera) {
+        float distance = Math.max(camera.position.dst(center), camera.near);
+        float halfHeight = distance * (float) Math.tan(camera.fieldOfView * 0.5f * MathUtils.degreesToRadians);
+        return radius / halfHeight;
+    }
+
+    /**
+     * Pick the coarsest level whose threshold the projected size is below.
+     */
+    public int selectLevel(PerspectiveCamera camera) {
+        float size = getScreenSize(camera);
+        int level = 0;
+        for (int i = 0; i < screenThresholds.length; i++) {
+            if (size < screenThresholds[i]) level = i + 1;
+        }
+        return level;
+    }
+
+    public int getLevelCount() {
+        return levels.length;
+    }
+
+    public Model getLevel(int level) {
+        return levels[level];
+    }
+
+    public int getTriangleCount(int level) {
+        return triangleCounts[level];
+    }
+
+    public Model getSource() {
+        return levels[0];
+    }
+
+    /**
+     * Copy the source's part materials onto the reduced levels after the
+     * source was recolored in place, instead of simplifying it again.
+     * @return false if the levels no longer match the source's parts;
+     *         generate a new chain then
+     */
+    public boolean updateMaterials() {
+        for (int i = 1; i < levels.length; i++) {
+            if (!LodGenerator.updateMaterials(levels[0], levels[i])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void dispose() {
+        for (int i = 1; i < levels.length; i++) {
+            levels[i].dispose();
+        }
+    }
+}
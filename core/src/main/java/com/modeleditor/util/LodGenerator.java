@@ -0,0 +1,671 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Builds reduced level-of-detail versions of a model with quadric error
+ * edge collapse (Garland and Heckbert). Work is split so only the cheap
+ * steps touch GL objects:
+ * <ol>
+ * <li>{@link #capture(Model)} copies the geometry, on the render thread;</li>
+ * <li>{@link #simplify(Snapshot, float)} reduces it, on any thread;</li>
+ * <li>{@link #toModel(Snapshot)} creates the meshes, on the render thread.</li>
+ * </ol>
+ * Each node part is simplified separately, keeping its material and
+ * transform. Collapses are half-edge collapses onto existing vertices, so
+ * surviving corners keep their original normals and texture coordinates.
+ */
+public class LodGenerator {
+
+    /** Default triangle ratios of the reduced levels, finest first. */
+    public static final float[] DEFAULT_RATIOS = {0.5f, 0.25f, 0.125f};
+
+    /**
+     * Default screen sizes, as a fraction of the viewport height, below
+     * which each reduced level is shown.
+     */
+    public static final float[] DEFAULT_SCREEN_THRESHOLDS = {0.5f, 0.25f, 0.1f};
+
+    // Positions closer than this are treated as one for topology
+    private static final float WELD_QUANTUM = 1e-4f;
+
+    // Extra weight on planes that keep open borders in place
+    private static final double BOUNDARY_WEIGHT = 100.0;
+
+    // Collapses that turn a face further than this (cosine) are rejected
+    private static final double MIN_NORMAL_COSINE = 0.2;
+
+    private LodGenerator() {
+    }
+
+    /**
+     * Copy the triangle geometry of a model. Call on the render thread.
+     */
+    public static Snapshot capture(Model model) {
+        List<PartData> parts = new ArrayList<>();
+        Map<Mesh, MeshData> meshes = new IdentityHashMap<>();
+        for (Node node : model.nodes) {
+            captureNode(node, parts, meshes);
+        }
+        return new Snapshot(parts);
+    }
+
+    private static void captureNode(Node node, List<PartData> parts, Map<Mesh, MeshData> meshes) {
+        for (NodePart part : node.parts) {
+            MeshPart meshPart = part.meshPart;
+            if (!part.enabled || part.bones != null || meshPart.primitiveType != GL20.GL_TRIANGLES) continue;
+
+            // Each mesh is read once, however many parts share it
+            Mesh mesh = meshPart.mesh;
+            MeshData data = meshes.get(mesh);
+            if (data == null) {
+                data = new MeshData(mesh);
+                meshes.put(mesh, data);
+            }
+            int stride = data.stride;
+            int[] indices = ObjExporter.partIndices(mesh, meshPart.offset, meshPart.size);
+
+            // Keep only the vertices this part uses
+            int[] remap = data.remap;
+            int[] order = new int[indices.length];
+            float[] vertices = new float[indices.length * stride];
+            int used = 0;
+            int[] triangles = new int[indices.length - indices.length % 3];
+            for (int i = 0; i < triangles.length; i++) {
+                int vertex = indices[i];
+                if (remap[vertex] < 0) {
+                    System.arraycopy(data.vertices, vertex * stride, vertices, used * stride, stride);
+                    order[used] = vertex;
+                    remap[vertex] = used++;
+                }
+                triangles[i] = remap[vertex];
+            }
+            // Reset only the entries this part touched
+            for (int i = 0; i < used; i++) {
+                remap[order[i]] = -1;
+            }
+
+            parts.add(new PartData(node.id, new Matrix4(node.globalTransform), part.material,
+                mesh.getVertexAttributes(), Arrays.copyOf(vertices, used * stride), triangles));
+        }
+        for (Node child : node.getChildren()) {
+            captureNode(child, parts, meshes);
+        }
+    }
+
+    /**
+     * Give a level made by {@link #toModel(Snapshot)} copies of its source's
+     * current part materials, after the source was recolored in place, so
+     * the level need not be simplified again. Call on the render thread.
+     * @return false, leaving the level unchanged, if its parts no longer
+     *         match the source's, e.g. because part visibility changed
+     */
+    static boolean updateMaterials(Model source, Model level) {
+        List<NodePart> parts = new ArrayList<>();
+        List<String> nodeIds = new ArrayList<>();
+        collectLevelParts(source.nodes, parts, nodeIds);
+        if (parts.size() != level.nodes.size) return false;
+        for (int i = 0; i < parts.size(); i++) {
+            Node node = level.nodes.get(i);
+            String id = nodeIds.get(i);
+            if (node.parts.size != 1 || (id == null ? node.id != null : !id.equals(node.id))) return false;
+        }
+
+        level.materials.clear();
+        for (int i = 0; i < parts.size(); i++) {
+            Material material = parts.get(i).material.copy();
+            level.nodes.get(i).parts.get(0).material = material;
+            level.materials.add(material);
+        }
+        return true;
+    }
+
+    /**
+     * List the parts that become level nodes, in order: those
+     * {@link #capture(Model)} takes that have at least one triangle.
+     */
+    private static void collectLevelParts(Iterable<Node> nodes, List<NodePart> parts, List<String> nodeIds) {
+        for (Node node : nodes) {
+            for (NodePart part : node.parts) {
+                if (!part.enabled || part.bones != null || part.meshPart.primitiveType != GL20.GL_TRIANGLES
+                    || part.meshPart.size < 3) {
+                    continue;
+                }
+                parts.add(part);
+                nodeIds.add(node.id);
+            }
+            collectLevelParts(node.getChildren(), parts, nodeIds);
+        }
+    }
+
+    /**
+     * Reduce every part to about the given fraction of its triangles. Touches
+     * no GL state, so it may run on a worker thread.
+     * @param ratio Target fraction of triangles to keep, in (0, 1]
+     */
+    public static Snapshot simplify(Snapshot source, float ratio) {
+        List<PartData> parts = new ArrayList<>(source.parts.size());
+        for (PartData part : source.parts) {
+            int target = Math.max(1, Math.round(part.triangles.length / 3 * ratio));
+            int[] triangles = ratio >= 1f ? part.triangles : new Simplifier(part).run(target);
+            parts.add(part.withTriangles(triangles));
+        }
+        return new Snapshot(parts);
+    }
+
+    /**
+     * Create a model from a snapshot. Call on the render thread. The model
+     * owns its meshes and material copies.
+     */
+    public static Model toModel(Snapshot snapshot) {
+        Model model = new Model();
+        for (PartData part : snapshot.parts) {
+            if (part.triangles.length == 0) continue;
+
+            // Compact to the vertices still referenced
+            int[] remap = new int[part.vertexCount()];
+            Arrays.fill(remap, -1);
+            float[] vertices = new float[part.vertices.length];
+            short[] indices = new short[part.triangles.length];
+            int used = 0;
+            for (int i = 0; i < part.triangles.length; i++) {
+                int vertex = part.triangles[i];
+                if (remap[vertex] < 0) {
+                    System.arraycopy(part.vertices, vertex * part.stride, vertices, used * part.stride, part.stride);
+                    remap[vertex] = used++;
+                }
+                indices[i] = (short) remap[vertex];
+            }
+
+            Mesh mesh = new Mesh(true, used, indices.length, part.attributes);
+            mesh.setVertices(vertices, 0, used * part.stride);
+            mesh.setIndices(indices);
+
+            String id = part.nodeId != null ? part.nodeId : "part" + model.meshParts.size;
+            MeshPart meshPart = new MeshPart(id, mesh, 0, indices.length, GL20.GL_TRIANGLES);
+            meshPart.update();
+            Material material = part.material.copy();
+
+            Node node = new Node();
+            node.id = part.nodeId;
+            part.transform.getTranslation(node.translation);
+            part.transform.getRotation(node.rotation, true);
+            part.transform.getScale(node.scale);
+            node.parts.add(new NodePart(meshPart, material));
+
+            model.meshes.add(mesh);
+            model.meshParts.add(meshPart);
+            model.materials.add(material);
+            model.nodes.add(node);
+            model.manageDisposable(mesh);
+        }
+        model.calculateTransforms();
+        return model;
+    }
+
+    /**
+     * Triangle geometry copied out of a model, independent of GL.
+     */
+    public static final class Snapshot {
+        private final List<PartData> parts;
+
+        Snapshot(List<PartData> parts) {
+            this.parts = Collections.unmodifiableList(parts);
+        }
+
+        public int getTriangleCount() {
+            int count = 0;
+            for (PartData part : parts) {
+                count += part.triangles.length / 3;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Vertices of one source mesh, with a remap that is all -1 between parts.
+     */
+    private static final class MeshData {
+        final int stride;
+        final float[] vertices;
+        final int[] remap;
+
+        MeshData(Mesh mesh) {
+            stride = mesh.getVertexSize() / 4;
+            vertices = new float[mesh.getNumVertices() * stride];
+            mesh.getVertices(vertices);
+            remap = new int[mesh.getNumVertices()];
+            Arrays.fill(remap, -1);
+        }
+    }
+
+    static final class PartData {
+        final String nodeId;
+        final Matrix4 transform;
+        final Material material;
+        final VertexAttributes attributes;
+        final int stride;
+        final float[] vertices;
+        final int[] triangles;
+
+        PartData(String nodeId, Matrix4 transform, Material material, VertexAttributes attributes,
+                 float[] vertices, int[] triangles) {
+            this.nodeId = nodeId;
+            this.transform = transform;
+            this.material = material;
+            this.attributes = attributes;
+            this.stride = attributes.vertexSize / 4;
+            this.vertices = vertices;
+            this.triangles = triangles;
+        }
+
+        int vertexCount() {
+            return vertices.length / stride;
+        }
+
+        PartData withTriangles(int[] triangles) {
+            return new PartData(nodeId, transform, material, attributes, vertices, triangles);
+        }
+    }
+
+    /**
+     * Quadric edge collapse over one part. Topology is built on welded
+     * positions, so attribute seams do not stop collapses.
+     */
+    private static final class Simplifier {
+        private final PartData part;
+        private final int positionOffset;
+        private final int normalOffset;
+
+        // Welded positions
+        private int positionCount;
+        private int[] vertexPosition;
+        private float[] positions;
+        private IntArray[] positionVertices;
+
+        // Triangles over position ids, plus their original corner vertices
+        private int[] triangles;
+        private int[] corners;
+        private boolean[] triangleRemoved;
+        private int liveTriangles;
+
+        private double[] quadrics;
+        private IntArray[] adjacency;
+        private boolean[] positionRemoved;
+        private int[] stamps;
+
+        private final double[] normalBefore = new double[3];
+        private final double[] normalAfter = new double[3];
+
+        Simplifier(PartData part) {
+            this.part = part;
+            VertexAttribute position = part.attributes.findByUsage(VertexAttributes.Usage.Position);
+            VertexAttribute normal = part.attributes.findByUsage(VertexAttributes.Usage.Normal);
+            this.positionOffset = position.offset / 4;
+            this.normalOffset = normal != null && normal.numComponents == 3 ? normal.offset / 4 : -1;
+        }
+
+        int[] run(int targetTriangles) {
+            weldPositions();
+            buildTriangles();
+            buildQuadrics();
+
+            PriorityQueue<Collapse> queue = new PriorityQueue<>(Math.max(16, triangles.length),
+                new Comparator<Collapse>() {
+                    @Override
+                    public int compare(Collapse a, Collapse b) {
+                        return Double.compare(a.cost, b.cost);
+                    }
+                });
+            for (int t = 0; t < triangles.length / 3; t++) {
+                if (triangleRemoved[t]) continue;
+                for (int k = 0; k < 3; k++) {
+                    queue.add(bestCollapse(triangles[t * 3 + k], triangles[t * 3 + (k + 1) % 3]));
+                }
+            }
+
+            while (liveTriangles > targetTriangles && !queue.isEmpty()) {
+                Collapse collapse = queue.poll();
+                int from = collapse.from;
+                int to = collapse.to;
+                if (positionRemoved[from] || positionRemoved[to]
+                    || stamps[from] != collapse.fromStamp || stamps[to] != collapse.toStamp) {
+                    continue;
+                }
+                if (!isValid(from, to)) continue;
+
+                apply(from, to);
+
+                // Edges around the survivor now have different costs
+                IntArray around = adjacency[to];
+                for (int a = 0; a < around.size; a++) {
+                    int t = around.get(a);
+                    if (triangleRemoved[t]) continue;
+                    for (int k = 0; k < 3; k++) {
+                        int other = triangles[t * 3 + k];
+                        if (other != to) queue.add(bestCollapse(to, other));
+                    }
+                }
+            }
+
+            return output();
+        }
+
+        private void weldPositions() {
+            int vertexCount = part.vertexCount();
+            vertexPosition = new int[vertexCount];
+            positions = new float[vertexCount * 3];
+            positionVertices = new IntArray[vertexCount];
+            Map<Long, IntArray> buckets = new HashMap<>();
+
+            for (int v = 0; v < vertexCount; v++) {
+                int base = v * part.stride + positionOffset;
+                long qx = Math.round(part.vertices[base] / WELD_QUANTUM);
+                long qy = Math.round(part.vertices[base + 1] / WELD_QUANTUM);
+                long qz = Math.round(part.vertices[base + 2] / WELD_QUANTUM);
+                long key = (qx * 73856093L) ^ (qy * 19349663L) ^ (qz * 83492791L);
+
+                IntArray bucket = buckets.get(key);
+                if (bucket == null) {
+                    bucket = new IntArray(2);
+                    buckets.put(key, bucket);
+                }
+
+                int found = -1;
+                for (int b = 0; b < bucket.size; b++) {
+                    int p = bucket.get(b);
+                    if (Math.round(positions[p * 3] / WELD_QUANTUM) == qx
+                        && Math.round(positions[p * 3 + 1] / WELD_QUANTUM) == qy
+                        && Math.round(positions[p * 3 + 2] / WELD_QUANTUM) == qz) {
+                        found = p;
+                        break;
+                    }
+                }
+                if (found < 0) {
+                    found = positionCount++;
+                    positions[found * 3] = part.vertices[base];
+                    positions[found * 3 + 1] = part.vertices[base + 1];
+                    positions[found * 3 + 2] = part.vertices[base + 2];
+                    positionVertices[found] = new IntArray(2);
+                    bucket.add(found);
+                }
+                vertexPosition[v] = found;
+                positionVertices[found].add(v);
+            }
+        }
+
+        private void buildTriangles() {
+            int triangleCount = part.triangles.length / 3;
+            triangles = new int[triangleCount * 3];
+            corners = part.triangles;
+            triangleRemoved = new boolean[triangleCount];
+            adjacency = new IntArray[positionCount];
+            for (int p = 0; p < positionCount; p++) {
+                adjacency[p] = new IntArray(6);
+            }
+
+            for (int t = 0; t < triangleCount; t++) {
+                int a = vertexPosition[corners[t * 3]];
+                int b = vertexPosition[corners[t * 3 + 1]];
+                int c = vertexPosition[corners[t * 3 + 2]];
+                triangles[t * 3] = a;
+                triangles[t * 3 + 1] = b;
+                triangles[t * 3 + 2] = c;
+                if (a == b || b == c || a == c) {
+                    triangleRemoved[t] = true;
+                    continue;
+                }
+                liveTriangles++;
+                adjacency[a].add(t);
+                adjacency[b].add(t);
+                adjacency[c].add(t);
+            }
+            positionRemoved = new boolean[positionCount];
+            stamps = new int[positionCount];
+        }
+
+        private void buildQuadrics() {
+            quadrics = new double[positionCount * 10];
+            Map<Long, Integer> edgeUse = new HashMap<>();
+
+            double[] normal = new double[3];
+            for (int t = 0; t < triangles.length / 3; t++) {
+                if (triangleRemoved[t]) continue;
+                int a = triangles[t * 3];
+                int b = triangles[t * 3 + 1];
+                int c = triangles[t * 3 + 2];
+                double area = faceNormal(a, b, c, normal);
+                if (area <= 0) continue;
+
+                double d = -(normal[0] * positions[a * 3] + normal[1] * positions[a * 3 + 1]
+                    + normal[2] * positions[a * 3 + 2]);
+                for (int k = 0; k < 3; k++) {
+                    addPlane(triangles[t * 3 + k], normal[0], normal[1], normal[2], d, area);
+                }
+                for (int k = 0; k < 3; k++) {
+                    long edge = edgeKey(triangles[t * 3 + k], triangles[t * 3 + (k + 1) % 3]);
+                    Integer count = edgeUse.get(edge);
+                    edgeUse.put(edge, count == null ? 1 : count + 1);
+                }
+            }
+
+            // Constrain open borders with planes perpendicular to their faces
+            for (int t = 0; t < triangles.length / 3; t++) {
+                if (triangleRemoved[t]) continue;
+                int a = triangles[t * 3];
+                int b = triangles[t * 3 + 1];
+                int c = triangles[t * 3 + 2];
+                if (faceNormal(a, b, c, normal) <= 0) continue;
+
+                for (int k = 0; k < 3; k++) {
+                    int p = triangles[t * 3 + k];
+                    int q = triangles[t * 3 + (k + 1) % 3];
+                    if (edgeUse.get(edgeKey(p, q)) != 1) continue;
+
+                    double ex = positions[q * 3] - positions[p * 3];
+                    double ey = positions[q * 3 + 1] - positions[p * 3 + 1];
+                    double ez = positions[q * 3 + 2] - positions[p * 3 + 2];
+                    double length = Math.sqrt(ex * ex + ey * ey + ez * ez);
+                    if (length == 0) continue;
+
+                    // Edge direction cross face normal
+                    double nx = ey * normal[2] - ez * normal[1];
+                    double ny = ez * normal[0] - ex * normal[2];
+                    double nz = ex * normal[1] - ey * normal[0];
+                    double nLength = Math.sqrt(nx * nx + ny * ny + nz * nz);
+                    if (nLength == 0) continue;
+                    nx /= nLength;
+                    ny /= nLength;
+                    nz /= nLength;
+                    double d = -(nx * positions[p * 3] + ny * positions[p * 3 + 1] + nz * positions[p * 3 + 2]);
+                    double weight = BOUNDARY_WEIGHT * length * length;
+                    addPlane(p, nx, ny, nz, d, weight);
+                    addPlane(q, nx, ny, nz, d, weight);
+                }
+            }
+        }
+
+        private static long edgeKey(int a, int b) {
+            return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+        }
+
+        private void addPlane(int p, double a, double b, double c, double d, double weight) {
+            int q = p * 10;
+            quadrics[q] += weight * a * a;
+            quadrics[q + 1] += weight * a * b;
+            quadrics[q + 2] += weight * a * c;
+            quadrics[q + 3] += weight * a * d;
+            quadrics[q + 4] += weight * b * b;
+            quadrics[q + 5] += weight * b * c;
+            quadrics[q + 6] += weight * b * d;
+            quadrics[q + 7] += weight * c * c;
+            quadrics[q + 8] += weight * c * d;
+            quadrics[q + 9] += weight * d * d;
+        }
+
+        /**
+         * Error of the summed quadrics of two positions, evaluated at a point.
+         */
+        private double error(int p, int q, int at) {
+            double x = positions[at * 3];
+            double y = positions[at * 3 + 1];
+            double z = positions[at * 3 + 2];
+            int i = p * 10;
+            int j = q * 10;
+            double[] m = quadrics;
+            return (m[i] + m[j]) * x * x + 2 * (m[i + 1] + m[j + 1]) * x * y + 2 * (m[i + 2] + m[j + 2]) * x * z
+                + 2 * (m[i + 3] + m[j + 3]) * x + (m[i + 4] + m[j + 4]) * y * y
+                + 2 * (m[i + 5] + m[j + 5]) * y * z + 2 * (m[i + 6] + m[j + 6]) * y
+                + (m[i + 7] + m[j + 7]) * z * z + 2 * (m[i + 8] + m[j + 8]) * z + (m[i + 9] + m[j + 9]);
+        }
+
+        private Collapse bestCollapse(int a, int b) {
+            double intoB = error(a, b, b);
+            double intoA = error(a, b, a);
+            return intoB <= intoA
+                ? new Collapse(a, b, intoB, stamps[a], stamps[b])
+                : new Collapse(b, a, intoA, stamps[b], stamps[a]);
+        }
+
+        /**
+         * Reject collapses that would flip or fold a surviving triangle.
+         */
+        private boolean isValid(int from, int to) {
+            IntArray around = adjacency[from];
+            for (int i = 0; i < around.size; i++) {
+                int t = around.get(i);
+                if (triangleRemoved[t]) continue;
+                int a = triangles[t * 3];
+                int b = triangles[t * 3 + 1];
+                int c = triangles[t * 3 + 2];
+                if (a == to || b == to || c == to) continue;
+
+                if (faceNormal(a, b, c, normalBefore) <= 0) continue;
+                double area = faceNormal(a == from ? to : a, b == from ? to : b, c == from ? to : c, normalAfter);
+                if (area <= 0) return false;
+                double cosine = normalBefore[0] * normalAfter[0] + normalBefore[1] * normalAfter[1]
+                    + normalBefore[2] * normalAfter[2];
+                if (cosine < MIN_NORMAL_COSINE) return false;
+            }
+            return true;
+        }
+
+        private void apply(int from, int to) {
+            IntArray around = adjacency[from];
+            for (int i = 0; i < around.size; i++) {
+                int t = around.get(i);
+                if (triangleRemoved[t]) continue;
+                int base = t * 3;
+                if (triangles[base] == to || triangles[base + 1] == to || triangles[base + 2] == to) {
+                    triangleRemoved[t] = true;
+                    liveTriangles--;
+                    continue;
+                }
+                for (int k = 0; k < 3; k++) {
+                    if (triangles[base + k] == from) triangles[base + k] = to;
+                }
+                adjacency[to].add(t);
+            }
+            for (int k = 0; k < 10; k++) {
+                quadrics[to * 10 + k] += quadrics[from * 10 + k];
+            }
+            positionRemoved[from] = true;
+            stamps[to]++;
+        }
+
+        /**
+         * Compute the unit normal of a position triangle.
+         * @return Twice the triangle's area
+         */
+        private double faceNormal(int a, int b, int c, double[] out) {
+            double ux = positions[b * 3] - positions[a * 3];
+            double uy = positions[b * 3 + 1] - positions[a * 3 + 1];
+            double uz = positions[b * 3 + 2] - positions[a * 3 + 2];
+            double vx = positions[c * 3] - positions[a * 3];
+            double vy = positions[c * 3 + 1] - positions[a * 3 + 1];
+            double vz = positions[c * 3 + 2] - positions[a * 3 + 2];
+            double nx = uy * vz - uz * vy;
+            double ny = uz * vx - ux * vz;
+            double nz = ux * vy - uy * vx;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length == 0) return 0;
+            out[0] = nx / length;
+            out[1] = ny / length;
+            out[2] = nz / length;
+            return length;
+        }
+
+        /**
+         * Map surviving triangles back to vertices. A corner whose position
+         * was collapsed takes the survivor's vertex with the closest normal.
+         */
+        private int[] output() {
+            IntArray result = new IntArray(liveTriangles * 3);
+            for (int t = 0; t < triangles.length / 3; t++) {
+                if (triangleRemoved[t]) continue;
+                for (int k = 0; k < 3; k++) {
+                    int position = triangles[t * 3 + k];
+                    int corner = corners[t * 3 + k];
+                    result.add(vertexPosition[corner] == position ? corner : closestVertex(position, corner));
+                }
+            }
+            return result.toArray();
+        }
+
+        private int closestVertex(int position, int corner) {
+            IntArray candidates = positionVertices[position];
+            if (normalOffset < 0 || candidates.size == 1) return candidates.get(0);
+
+            float[] v = part.vertices;
+            int cornerBase = corner * part.stride + normalOffset;
+            int best = candidates.get(0);
+            float bestDot = -Float.MAX_VALUE;
+            for (int i = 0; i < candidates.size; i++) {
+                int candidate = candidates.get(i);
+                int base = candidate * part.stride + normalOffset;
+                float dot = v[base] * v[cornerBase] + v[base + 1] * v[cornerBase + 1] + v[base + 2] * v[cornerBase + 2];
+                if (dot > bestDot) {
+                    bestDot = dot;
+                    best = candidate;
+                }
+            }
+            return best;
+        }
+    }
+
+    private static final class Collapse {
+        final int from;
+        final int to;
+        final double cost;
+        final int fromStamp;
+        final int toStamp;
+
+        Collapse(int from, int to, double cost, int fromStamp, int toStamp) {
+            this.from = from;
+            this.to = to;
+            this.cost = cost;
+            this.fromStamp = fromStamp;
+            this.toStamp = toStamp;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.modeleditor.util;
+
+/**
+ * Source rewriter that adds an execution guard call to every loop
+ * condition in a snippet, so runaway loops can be stopped even when they
+ * never call into ModelBuilder.
+ *
+ * <pre>
+ * while (cond)            -&gt;  while (guard.tick() &amp;&amp; (cond))
+ * for (init; cond; step)  -&gt;  for (init; guard.tick() &amp;&amp; (cond); step)
+ * do { } while (cond);    -&gt;  do { } while (guard.tick() &amp;&amp; (cond));
+ * </pre>
+ *
+ * Enhanced for loops are bounded by their collection and left alone.
+ * No newlines are added, so line numbers in compile errors still match.
+ */
+final class LoopInstrumenter {
+
+    private LoopInstrumenter() {
+    }
+
+    /**
+     * Rewrite every loop condition in the code.
+     * @param code Snippet source
+     * @param guardExpression Expression evaluating to the ExecutionGuard
+     * @return The instrumented source
+     */
+    static String instrument(String code, String guardExpression) {
+        String tick = guardExpression + ".tick()";
+        StringBuilder out = new StringBuilder(code.length() + 64);
+        int length = code.length();
+        int i = 0;
+
+        while (i < length) {
+            int skipped = skipCommentOrLiteral(code, i);
+            if (skipped > i) {
+                out.append(code, i, skipped);
+                i = skipped;
+                continue;
+            }
+
+            char c = code.charAt(i);
+            if (Character.isJavaIdentifierStart(c) && (i == 0 || !Character.isJavaIdentifierPart(code.charAt(i - 1)))) {
+                int end = i;
+                while (end < length && Character.isJavaIdentifierPart(code.charAt(end))) end++;
+                String word = code.substring(i, end);
+                out.append(word);
+                i = end;
+
+                if (word.equals("while") || word.equals("for")) {
+                    int open = skipWhitespace(code, i);
+                    if (open < length && code.charAt(open) == '(') {
+                        int close = findClosingParen(code, open);
+                        if (close > open) {
+                            out.append(code, i, open + 1);
+                            String header = code.substring(open + 1, close);
+                            out.append(word.equals("while")
+                                ? guardCondition(tick, header)
+                                : instrumentForHeader(tick, header));
+                            out.append(')');
+                            i = close + 1;
+                        }
+                    }
+                }
+                continue;
+            }
+
+            out.append(c);
+            i++;
+        }
+
+        return out.toString();
+    }
+
+    private static String guardCondition(String tick, String condition) {
+        return condition.trim().isEmpty() ? tick : tick + " && (" + condition + ")";
+    }
+
+    private static String instrumentForHeader(String tick, String header) {
+        int first = findTopLevelSemicolon(header, 0);
+        if (first < 0) {
+            // Enhanced for loop
+            return header;
+        }
+        int second = findTopLevelSemicolon(header, first + 1);
+        if (second < 0) {
+            return header;
+        }
+        return header.substring(0, first + 1)
+            + " " + guardCondition(tick, header.substring(first + 1, second))
+            + header.substring(second);
+    }
+
+    private static int findTopLevelSemicolon(String text, int from) {
+        int depth = 0;
+        int i = from;
+        while (i < text.length()) {
+            int skipped = skipCommentOrLiteral(text, i);
+            if (skipped > i) {
+                i = skipped;
+                continue;
+            }
+            char c = text.charAt(i);
+            if (c == '(' || c == '[' || c == '{') depth++;
+            else if (c == ')' || c == ']' || c == '}') depth--;
+            else if (c == ';' && depth == 0) return i;
+            i++;
+        }
+        return -1;
+    }
+
+    private static int findClosingParen(String text, int open) {
+        int depth = 0;
+        int i = open;
+        while (i < text.length()) {
+            int skipped = skipCommentOrLiteral(text, i);
+            if (skipped > i) {
+                i = skipped;
+                continue;
+            }
+            char c = text.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+                if (depth == 0) return i;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(String text, int i) {
+        while (i < text.length() && Character.isWhitespace(text.charAt(i))) i++;
+        return i;
+    }
+
+    /**
+     * If a comment or string/char literal starts at i, return the index just
+     * past it; otherwise return i.
+     */
+    private static int skipCommentOrLiteral(String text, int i) {
+        int length = text.length();
+        char c = text.charAt(i);
+        if (c == '/' && i + 1 < length) {
+            char next = text.charAt(i + 1);
+            if (next == '/') {
+                int end = text.indexOf('\n', i);
+                return end < 0 ? length : end;
+            }
+            if (next == '*') {
+                int end = text.indexOf("*/", i + 2);
+                return end < 0 ? length : end + 2;
+            }
+        }
+        if (c == '"' || c == '\'') {
+            int j = i + 1;
+            while (j < length) {
+                char lc = text.charAt(j++);
+                if (lc == '\\') {
+                    j++;
+                } else if (lc == c || lc == '\n') {
+                    break;
+                }
+            }
+            return Math.min(j, length);
+        }
+        return i;
+    }
+}
@@ -0,0 +1,103 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Output of {@link MeshMerger}: a model with one mesh part per material,
+ * plus the index ranges each original node contributed, so picking and
+ * editor features can map merged geometry back to snippet node ids.
+ */
+public class MergedModel {
+
+    private final Model model;
+    private final int sourceDrawCalls;
+    private final List<SourceRange> ranges = new ArrayList<>();
+
+    MergedModel(Model model, int sourceDrawCalls) {
+        this.model = model;
+        this.sourceDrawCalls = sourceDrawCalls;
+    }
+
+    void addRange(SourceRange range) {
+        ranges.add(range);
+    }
+
+    /**
+     * Get the merged model. It owns its meshes; dispose it, not the source.
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Get the number of node parts, and so draw calls, before merging.
+     */
+    public int getSourceDrawCalls() {
+        return sourceDrawCalls;
+    }
+
+    /**
+     * Get the number of mesh parts, and so draw calls, after merging.
+     */
+    public int getDrawCalls() {
+        return model.meshParts.size;
+    }
+
+    /**
+     * Get every range, in the order they were merged.
+     */
+    public List<SourceRange> getSourceRanges() {
+        return Collections.unmodifiableList(ranges);
+    }
+
+    /**
+     * Find the original node that produced an index of a merged part.
+     * @param meshPart A mesh part of the merged model
+     * @param index Index into the part's index range, e.g. 3 * triangle
+     * @return The node id, or null if nothing maps there
+     */
+    public String findSourceNodeId(MeshPart meshPart, int index) {
+        for (SourceRange range : ranges) {
+            if (range.meshPart == meshPart && index >= range.indexOffset
+                && index < range.indexOffset + range.indexCount) {
+                return range.nodeId;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the ids of the original nodes merged into a part.
+     */
+    public List<String> getSourceNodeIds(MeshPart meshPart) {
+        List<String> ids = new ArrayList<>();
+        for (SourceRange range : ranges) {
+            if (range.meshPart == meshPart && !ids.contains(range.nodeId)) {
+                ids.add(range.nodeId);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * The indices one original node part occupies in a merged mesh part.
+     */
+    public static final class SourceRange {
+        public final String nodeId;
+        public final MeshPart meshPart;
+        public final int indexOffset;
+        public final int indexCount;
+
+        SourceRange(String nodeId, MeshPart meshPart, int indexOffset, int indexCount) {
+            this.nodeId = nodeId;
+            this.meshPart = meshPart;
+            this.indexOffset = indexOffset;
+            this.indexCount = indexCount;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.Mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Direct access to a mesh's native vertex and index buffers, so pipeline
+ * stages can read and write geometry without copying it into Java arrays.
+ */
+final class MeshBuffers {
+
+    private MeshBuffers() {
+    }
+
+    /**
+     * Get a read view of the mesh's vertices, positioned at 0. It is only
+     * valid until the mesh is changed or disposed.
+     */
+    static FloatBuffer vertices(Mesh mesh) {
+        FloatBuffer view = mesh.getVerticesBuffer(false).duplicate();
+        view.clear().limit(mesh.getNumVertices() * mesh.getVertexSize() / 4);
+        return view;
+    }
+
+    /**
+     * Get a read view of the mesh's indices, positioned at 0. It is only
+     * valid until the mesh is changed or disposed.
+     */
+    static ShortBuffer indices(Mesh mesh) {
+        ShortBuffer view = mesh.getIndicesBuffer(false).duplicate();
+        view.clear().limit(mesh.getNumIndices());
+        return view;
+    }
+
+    /**
+     * Copy a mesh's vertices into a pooled buffer, for stages that rewrite
+     * the mesh in place. Release the buffer to the pool when done.
+     */
+    static ByteBuffer copyVertices(Mesh mesh, DirectBufferPool pool) {
+        ByteBuffer copy = pool.acquire(mesh.getNumVertices() * mesh.getVertexSize());
+        copy.asFloatBuffer().put(vertices(mesh));
+        return copy;
+    }
+
+    /**
+     * Replace the mesh's vertices with the remaining floats of a buffer. The
+     * buffer's position is not changed.
+     */
+    static void setVertices(Mesh mesh, FloatBuffer source) {
+        FloatBuffer vertices = mesh.getVerticesBuffer(true);
+        vertices.clear();
+        vertices.put(source.duplicate());
+        vertices.flip();
+    }
+
+    /**
+     * Replace the mesh's indices with the remaining shorts of a buffer. The
+     * buffer's position is not changed.
+     */
+    static void setIndices(Mesh mesh, ShortBuffer source) {
+        ShortBuffer indices = mesh.getIndicesBuffer(true);
+        indices.clear();
+        indices.put(source.duplicate());
+        indices.flip();
+    }
+}
@@ -0,0 +1,292 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Matrix3;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.ShortArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Post-build optimization that collapses draw calls: every node transform
+ * is baked into the vertices, and all parts sharing an equal material and
+ * vertex format are merged into one mesh with one index buffer. A prop
+ * with 150 parts and 5 colors then renders in 5 draw calls.
+ *
+ * Models with animations or skinned parts are not merged, since their
+ * transforms are not static.
+ */
+public class MeshMerger {
+
+    // Merged indices are unsigned shorts
+    private static final int MAX_VERTICES = 65536;
+
+    private MeshMerger() {
+    }
+
+    /**
+     * Merge the parts of a built model. Creates meshes, so call it on the
+     * render thread. The source model is not modified and must still be
+     * disposed by the caller.
+     * @return The merged model, or null if the model cannot be merged
+     */
+    public static MergedModel merge(Model source) {
+        if (source.animations.size > 0) return null;
+
+        List<Group> groups = new ArrayList<>();
+        int parts = 0;
+        for (Node node : source.nodes) {
+            int collected = collect(node, groups);
+            if (collected < 0) return null;
+            parts += collected;
+        }
+
+        Model model = new Model();
+        MergedModel merged = new MergedModel(model, parts);
+        for (Group group : groups) {
+            group.build(model, merged);
+        }
+        model.calculateTransforms();
+        return merged;
+    }
+
+    /**
+     * Sort the enabled parts of a node and its children into groups.
+     * @return Number of parts collected, or -1 if a part is skinned
+     */
+    private static int collect(Node node, List<Group> groups) {
+        int parts = 0;
+        for (NodePart part : node.parts) {
+            if (part.bones != null) return -1;
+            if (!part.enabled) continue;
+            findGroup(groups, part).entries.add(new Entry(node, part));
+            parts++;
+        }
+        for (Node child : node.getChildren()) {
+            int collected = collect(child, groups);
+            if (collected < 0) return -1;
+            parts += collected;
+        }
+        return parts;
+    }
+
+    private static Group findGroup(List<Group> groups, NodePart part) {
+        int primitiveType = part.meshPart.primitiveType;
+        VertexAttributes attributes = part.meshPart.mesh.getVertexAttributes();
+
+        // Strips and fans cannot be concatenated, so they are only baked
+        boolean mergeable = primitiveType == GL20.GL_TRIANGLES
+            || primitiveType == GL20.GL_LINES
+            || primitiveType == GL20.GL_POINTS;
+        if (mergeable) {
+            for (Group group : groups) {
+                // Material ids differ per snippet variable, so compare attributes only
+                if (group.primitiveType == primitiveType
+                    && group.attributes.equals(attributes)
+                    && group.material.same(part.material, true)) {
+                    return group;
+                }
+            }
+        }
+
+        Group group = new Group(part.material, attributes, primitiveType);
+        groups.add(group);
+        return group;
+    }
+
+    private static final class Entry {
+        final Node node;
+        final NodePart part;
+
+        Entry(Node node, NodePart part) {
+            this.node = node;
+            this.part = part;
+        }
+    }
+
+    private static final class PendingRange {
+        final String nodeId;
+        final int indexOffset;
+        final int indexCount;
+
+        PendingRange(String nodeId, int indexOffset, int indexCount) {
+            this.nodeId = nodeId;
+            this.indexOffset = indexOffset;
+            this.indexCount = indexCount;
+        }
+    }
+
+    /**
+     * Parts with an equal material, vertex format and primitive type.
+     */
+    private static final class Group {
+        final Material material;
+        final VertexAttributes attributes;
+        final int primitiveType;
+        final List<Entry> entries = new ArrayList<>();
+
+        private final int stride;
+        private final int positionOffset;
+        private final int normalOffset;
+        private final int tangentOffset;
+        private final int binormalOffset;
+
+        private final Vector3 tmp = new Vector3();
+        private final Matrix3 normalMatrix = new Matrix3();
+        private final Matrix3 directionMatrix = new Matrix3();
+
+        Group(Material material, VertexAttributes attributes, int primitiveType) {
+            this.material = material;
+            this.attributes = attributes;
+            this.primitiveType = primitiveType;
+            this.stride = attributes.vertexSize / 4;
+
+            VertexAttribute position = attributes.findByUsage(VertexAttributes.Usage.Position);
+            positionOffset = position != null && position.numComponents >= 3 ? position.offset / 4 : -1;
+            normalOffset = directionOffset(attributes, VertexAttributes.Usage.Normal);
+            tangentOffset = directionOffset(attributes, VertexAttributes.Usage.Tangent);
+            binormalOffset = directionOffset(attributes, VertexAttributes.Usage.BiNormal);
+        }
+
+        private static int directionOffset(VertexAttributes attributes, int usage) {
+            VertexAttribute attribute = attributes.findByUsage(usage);
+            return attribute != null && attribute.numComponents == 3 ? attribute.offset / 4 : -1;
+        }
+
+        void build(Model model, MergedModel merged) {
+            FloatArray vertices = new FloatArray();
+            ShortArray indices = new ShortArray();
+            List<PendingRange> pending = new ArrayList<>();
+            Map<Mesh, float[]> sourceVertices = new IdentityHashMap<>();
+            // One remap per source mesh, all -1 between parts
+            Map<Mesh, int[]> remaps = new IdentityHashMap<>();
+
+            for (Entry entry : entries) {
+                MeshPart source = entry.part.meshPart;
+                int[] partIndices = ObjExporter.partIndices(source.mesh, source.offset, source.size);
+
+                // Number the vertices this part uses in first-use order
+                int[] remap = remaps.get(source.mesh);
+                if (remap == null) {
+                    remap = new int[source.mesh.getNumVertices()];
+                    Arrays.fill(remap, -1);
+                    remaps.put(source.mesh, remap);
+                }
+                int[] order = new int[partIndices.length];
+                int used = 0;
+                for (int index : partIndices) {
+                    if (remap[index] < 0) {
+                        order[used] = index;
+                        remap[index] = used++;
+                    }
+                }
+
+                if (vertices.size / stride + used > MAX_VERTICES && indices.size > 0) {
+                    flush(model, merged, vertices, indices, pending);
+                }
+
+                float[] data = sourceVertices.get(source.mesh);
+                if (data == null) {
+                    data = new float[source.mesh.getNumVertices() * stride];
+                    source.mesh.getVertices(data);
+                    sourceVertices.put(source.mesh, data);
+                }
+
+                Matrix4 transform = entry.node.globalTransform;
+                normalMatrix.set(transform).inv().transpose();
+                directionMatrix.set(transform);
+
+                int base = vertices.size / stride;
+                for (int i = 0; i < used; i++) {
+                    int start = vertices.size;
+                    vertices.addAll(data, order[i] * stride, stride);
+                    bake(vertices.items, start, transform);
+                }
+
+                pending.add(new PendingRange(entry.node.id, indices.size, partIndices.length));
+                for (int index : partIndices) {
+                    indices.add((short) (base + remap[index]));
+                }
+
+                // Reset only the entries this part touched
+                for (int i = 0; i < used; i++) {
+                    remap[order[i]] = -1;
+                }
+            }
+
+            if (indices.size > 0) {
+                flush(model, merged, vertices, indices, pending);
+            }
+        }
+
+        private void bake(float[] vertices, int start, Matrix4 transform) {
+            if (positionOffset >= 0) {
+                int p = start + positionOffset;
+                tmp.set(vertices[p], vertices[p + 1], vertices[p + 2]).mul(transform);
+                vertices[p] = tmp.x;
+                vertices[p + 1] = tmp.y;
+                vertices[p + 2] = tmp.z;
+            }
+            bakeDirection(vertices, start, normalOffset, normalMatrix);
+            bakeDirection(vertices, start, tangentOffset, directionMatrix);
+            bakeDirection(vertices, start, binormalOffset, directionMatrix);
+        }
+
+        private void bakeDirection(float[] vertices, int start, int offset, Matrix3 matrix) {
+            if (offset < 0) return;
+            int d = start + offset;
+            tmp.set(vertices[d], vertices[d + 1], vertices[d + 2]).mul(matrix).nor();
+            vertices[d] = tmp.x;
+            vertices[d + 1] = tmp.y;
+            vertices[d + 2] = tmp.z;
+        }
+
+        /**
+         * Turn the accumulated geometry into one mesh, part and node.
+         */
+        private void flush(Model model, MergedModel merged, FloatArray vertices, ShortArray indices,
+                           List<PendingRange> pending) {
+            Mesh mesh = new Mesh(true, vertices.size / stride, indices.size, attributes);
+            mesh.setVertices(vertices.items, 0, vertices.size);
+            mesh.setIndices(indices.items, 0, indices.size);
+
+            String id = "merged" + model.meshParts.size;
+            MeshPart meshPart = new MeshPart(id, mesh, 0, indices.size, primitiveType);
+            meshPart.update();
+
+            Material copy = material.copy();
+            Node node = new Node();
+            node.id = id;
+            node.parts.add(new NodePart(meshPart, copy));
+
+            model.meshes.add(mesh);
+            model.meshParts.add(meshPart);
+            model.materials.add(copy);
+            model.nodes.add(node);
+            model.manageDisposable(mesh);
+
+            for (PendingRange range : pending) {
+                merged.addRange(new MergedModel.SourceRange(range.nodeId, meshPart,
+                    range.indexOffset, range.indexCount));
+            }
+
+            vertices.clear();
+            indices.clear();
+            pending.clear();
+        }
+    }
+}
@@ -0,0 +1,568 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Post-processing pass for built meshes, aimed at low-end GPUs:
+ * <ul>
+ * <li>welds vertices that match within an epsilon, using a spatial hash;</li>
+ * <li>reorders each triangle part for the post-transform vertex cache,
+ * using Tom Forsyth's linear-speed algorithm;</li>
+ * <li>renumbers vertices in first-use order for fetch locality.</li>
+ * </ul>
+ * Meshes are rewritten in place. Index counts and part ranges do not change,
+ * so node parts and merge mappings stay valid.
+ */
+public class MeshOptimizer {
+
+    /** Default distance within which positions are welded. */
+    public static final float DEFAULT_WELD_EPSILON = 1e-5f;
+
+    // Non-position attributes (normals, UVs, colors) must match this closely
+    private static final float ATTRIBUTE_EPSILON = 1e-4f;
+
+    // FIFO size used for the ACMR figures, typical of mobile GPUs
+    private static final int REPORT_CACHE_SIZE = 16;
+
+    // Forsyth scoring parameters
+    private static final int SCORE_CACHE_SIZE = 32;
+    private static final float CACHE_DECAY_POWER = 1.5f;
+    private static final float LAST_TRIANGLE_SCORE = 0.75f;
+    private static final float VALENCE_BOOST_SCALE = 2.0f;
+    private static final float VALENCE_BOOST_POWER = 0.5f;
+
+    // Working copy of the indices, kept per thread and reused for every mesh
+    private static final ThreadLocal<IntArray> INDEX_SCRATCH = new ThreadLocal<IntArray>() {
+        @Override
+        protected IntArray initialValue() {
+            return new IntArray();
+        }
+    };
+
+    private MeshOptimizer() {
+    }
+
+    /**
+     * Optimize every indexed mesh of a model with the default weld epsilon.
+     * @see #optimize(Model, float)
+     */
+    public static Report optimize(Model model) {
+        return optimize(model, DEFAULT_WELD_EPSILON);
+    }
+
+    /**
+     * Optimize every indexed mesh of a model in place. Creates no GL
+     * objects but updates mesh buffers, so call it on the render thread.
+     * @param weldEpsilon Maximum distance between welded positions
+     * @return Vertex counts and ACMR before and after
+     */
+    public static Report optimize(Model model, float weldEpsilon) {
+        Report report = new Report();
+        for (Mesh mesh : model.meshes) {
+            if (mesh.getNumIndices() == 0 || mesh.getVertexAttribute(VertexAttributes.Usage.Position) == null) {
+                continue;
+            }
+            optimizeMesh(mesh, partsOf(model, mesh), weldEpsilon, report);
+        }
+        return report;
+    }
+
+    /**
+     * Optimize every indexed mesh of a model in place as above, one mesh per
+     * task on the given executor. Blocks until every mesh is done; use
+     * {@link #prepare(Model, float)} to schedule the tasks without waiting.
+     * @return Vertex counts and ACMR before and after
+     * @throws GdxRuntimeException if a task fails or the wait is interrupted
+     */
+    public static Report optimize(Model model, float weldEpsilon, ExecutorService executor) {
+        Job job = prepare(model, weldEpsilon);
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (Runnable task : job.getTasks()) {
+            tasks.add(Executors.callable(task));
+        }
+        try {
+            for (Future<Object> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GdxRuntimeException("Interrupted while optimizing meshes", e);
+        } catch (ExecutionException e) {
+            throw new GdxRuntimeException("Mesh optimization failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        return job.getReport();
+    }
+
+    /**
+     * Split the optimization of a model's indexed meshes into one task per
+     * mesh, for callers that run the tasks themselves. Meshes are
+     * independent and optimizing only writes their CPU-side buffers, which
+     * are uploaded on next bind, so the tasks need no GL context. The model
+     * must not be rendered or changed until every task has run.
+     */
+    public static Job prepare(Model model, final float weldEpsilon) {
+        final Job job = new Job();
+        for (final Mesh mesh : model.meshes) {
+            if (mesh.getNumIndices() == 0 || mesh.getVertexAttribute(VertexAttributes.Usage.Position) == null) {
+                continue;
+            }
+            final List<MeshPart> parts = partsOf(model, mesh);
+            final Report meshReport = new Report();
+            job.reports.add(meshReport);
+            job.tasks.add(new Runnable() {
+                @Override
+                public void run() {
+                    optimizeMesh(mesh, parts, weldEpsilon, meshReport);
+                }
+            });
+        }
+        return job;
+    }
+
+    private static List<MeshPart> partsOf(Model model, Mesh mesh) {
+        List<MeshPart> parts = new ArrayList<>();
+        for (MeshPart part : model.meshParts) {
+            if (part.mesh == mesh) parts.add(part);
+        }
+        return parts;
+    }
+
+    private static void optimizeMesh(Mesh mesh, List<MeshPart> parts, float weldEpsilon, Report report) {
+        int stride = mesh.getVertexSize() / 4;
+        int vertexCount = mesh.getNumVertices();
+        ShortBuffer meshIndices = MeshBuffers.indices(mesh);
+        int indexCount = meshIndices.limit();
+        int[] indices = INDEX_SCRATCH.get().setSize(indexCount);
+        for (int i = 0; i < indexCount; i++) {
+            indices[i] = meshIndices.get(i) & 0xFFFF;
+        }
+
+        report.meshes++;
+        report.verticesBefore += vertexCount;
+        accumulateAcmr(indices, parts, report, true);
+
+        // The mesh buffer is rewritten below, so work from a pooled copy
+        DirectBufferPool pool = DirectBufferPool.shared();
+        ByteBuffer copy = MeshBuffers.copyVertices(mesh, pool);
+        try {
+            FloatBuffer vertices = copy.asFloatBuffer();
+
+            // Weld duplicates
+            int[] weld = weld(vertices, stride, vertexCount,
+                mesh.getVertexAttribute(VertexAttributes.Usage.Position).offset / 4, weldEpsilon);
+            for (int i = 0; i < indexCount; i++) {
+                indices[i] = weld[indices[i]];
+            }
+
+            // Reorder the triangles of each part for the vertex cache
+            for (MeshPart part : parts) {
+                if (part.primitiveType == GL20.GL_TRIANGLES && part.size >= 6) {
+                    reorderTriangles(indices, part.offset, part.size, vertexCount);
+                }
+            }
+
+            // Renumber vertices in first-use order, dropping unreferenced ones,
+            // writing straight into the mesh's vertex buffer
+            int[] remap = new int[vertexCount];
+            Arrays.fill(remap, -1);
+            int used = 0;
+            FloatBuffer target = mesh.getVerticesBuffer(true);
+            target.clear();
+            for (int i = 0; i < indexCount; i++) {
+                int vertex = indices[i];
+                if (remap[vertex] < 0) {
+                    vertices.limit(vertex * stride + stride).position(vertex * stride);
+                    target.put(vertices);
+                    remap[vertex] = used++;
+                }
+                indices[i] = remap[vertex];
+            }
+            target.flip();
+        } finally {
+            pool.release(copy);
+        }
+
+        ShortBuffer targetIndices = mesh.getIndicesBuffer(true);
+        targetIndices.clear();
+        for (int i = 0; i < indexCount; i++) {
+            targetIndices.put((short) indices[i]);
+        }
+        targetIndices.flip();
+
+        report.verticesAfter += mesh.getNumVertices();
+        accumulateAcmr(indices, parts, report, false);
+    }
+
+    /**
+     * Map every vertex to the first vertex equal to it within tolerance.
+     * Positions are bucketed in a grid of epsilon-sized cells and each
+     * vertex is compared against the 27 neighboring cells. Cells live in an
+     * open-addressing table of primitive arrays, each chaining its vertices
+     * in index order, so nothing is boxed per vertex.
+     */
+    static int[] weld(FloatBuffer vertices, int stride, int vertexCount, int positionOffset, float epsilon) {
+        int[] result = new int[vertexCount];
+        float cellSize = Math.max(epsilon, 1e-7f);
+
+        int capacity = 16;
+        while (capacity < vertexCount * 2) {
+            capacity <<= 1;
+        }
+        int mask = capacity - 1;
+        long[] cellKeys = new long[capacity];
+        int[] cellFirst = new int[capacity];
+        int[] cellLast = new int[capacity];
+        Arrays.fill(cellFirst, -1);
+        // Next vertex in the same cell, or -1
+        int[] next = new int[vertexCount];
+
+        for (int v = 0; v < vertexCount; v++) {
+            int base = v * stride + positionOffset;
+            long cx = (long) Math.floor(vertices.get(base) / cellSize);
+            long cy = (long) Math.floor(vertices.get(base + 1) / cellSize);
+            long cz = (long) Math.floor(vertices.get(base + 2) / cellSize);
+
+            int match = -1;
+            search:
+            for (long dx = -1; dx <= 1; dx++) {
+                for (long dy = -1; dy <= 1; dy++) {
+                    for (long dz = -1; dz <= 1; dz++) {
+                        int slot = findCell(cellKeys, cellFirst, mask, cellKey(cx + dx, cy + dy, cz + dz));
+                        for (int candidate = cellFirst[slot]; candidate >= 0; candidate = next[candidate]) {
+                            if (matches(vertices, stride, positionOffset, v, candidate, epsilon)) {
+                                match = candidate;
+                                break search;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (match >= 0) {
+                result[v] = match;
+            } else {
+                result[v] = v;
+                long key = cellKey(cx, cy, cz);
+                int slot = findCell(cellKeys, cellFirst, mask, key);
+                next[v] = -1;
+                if (cellFirst[slot] < 0) {
+                    cellKeys[slot] = key;
+                    cellFirst[slot] = v;
+                } else {
+                    next[cellLast[slot]] = v;
+                }
+                cellLast[slot] = v;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the table slot holding a cell, or the empty slot where it belongs.
+     * At most one cell per vertex is inserted and the table has twice as many
+     * slots, so probing always ends.
+     */
+    private static int findCell(long[] cellKeys, int[] cellFirst, int mask, long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (hash ^ (hash >>> 32)) & mask;
+        while (cellFirst[slot] >= 0 && cellKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private static long cellKey(long x, long y, long z) {
+        return (x & 0x1FFFFF) | ((y & 0x1FFFFF) << 21) | ((z & 0x1FFFFF) << 42);
+    }
+
+    private static boolean matches(FloatBuffer vertices, int stride, int positionOffset, int a, int b, float epsilon) {
+        int baseA = a * stride;
+        int baseB = b * stride;
+        float distanceSquared = 0f;
+        for (int k = 0; k < 3; k++) {
+            float d = vertices.get(baseA + positionOffset + k) - vertices.get(baseB + positionOffset + k);
+            distanceSquared += d * d;
+        }
+        if (distanceSquared > epsilon * epsilon) return false;
+
+        // Seams with different normals or UVs must stay split
+        for (int k = 0; k < stride; k++) {
+            if (k >= positionOffset && k < positionOffset + 3) continue;
+            if (Math.abs(vertices.get(baseA + k) - vertices.get(baseB + k)) > ATTRIBUTE_EPSILON) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reorder the triangles in indices[offset, offset + size) with Forsyth's
+     * algorithm: repeatedly emit the highest-scoring triangle, where scores
+     * favor vertices recently used and vertices with few remaining triangles.
+     */
+    static void reorderTriangles(int[] indices, int offset, int size, int vertexCount) {
+        int triangleCount = size / 3;
+
+        // Per-vertex adjacency, stored compactly
+        int[] valence = new int[vertexCount];
+        for (int i = 0; i < triangleCount * 3; i++) {
+            valence[indices[offset + i]]++;
+        }
+        int[] adjacencyStart = new int[vertexCount + 1];
+        for (int v = 0; v < vertexCount; v++) {
+            adjacencyStart[v + 1] = adjacencyStart[v] + valence[v];
+        }
+        int[] adjacency = new int[triangleCount * 3];
+        int[] fill = Arrays.copyOf(adjacencyStart, vertexCount);
+        for (int t = 0; t < triangleCount; t++) {
+            for (int k = 0; k < 3; k++) {
+                int vertex = indices[offset + t * 3 + k];
+                adjacency[fill[vertex]++] = t;
+            }
+        }
+
+        int[] remaining = valence.clone();
+        float[] vertexScore = new float[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            if (remaining[v] > 0) vertexScore[v] = score(-1, remaining[v]);
+        }
+        float[] triangleScore = new float[triangleCount];
+        for (int t = 0; t < triangleCount; t++) {
+            triangleScore[t] = vertexScore[indices[offset + t * 3]]
+                + vertexScore[indices[offset + t * 3 + 1]]
+                + vertexScore[indices[offset + t * 3 + 2]];
+        }
+
+        boolean[] emitted = new boolean[triangleCount];
+        int[] output = new int[triangleCount * 3];
+        int[] cache = new int[SCORE_CACHE_SIZE + 3];
+        int cacheSize = 0;
+        int[] newCache = new int[SCORE_CACHE_SIZE + 3];
+        int scanStart = 0;
+
+        for (int emittedCount = 0; emittedCount < triangleCount; emittedCount++) {
+            // Best triangle touching the cache; otherwise scan for any
+            int best = -1;
+            float bestScore = -1f;
+            for (int c = 0; c < cacheSize; c++) {
+                int vertex = cache[c];
+                for (int a = adjacencyStart[vertex]; a < adjacencyStart[vertex + 1]; a++) {
+                    int t = adjacency[a];
+                    if (!emitted[t] && triangleScore[t] > bestScore) {
+                        bestScore = triangleScore[t];
+                        best = t;
+                    }
+                }
+            }
+            if (best < 0) {
+                while (emitted[scanStart]) scanStart++;
+                for (int t = scanStart; t < triangleCount; t++) {
+                    if (!emitted[t] && triangleScore[t] > bestScore) {
+                        bestScore = triangleScore[t];
+                        best = t;
+                    }
+                }
+            }
+
+            emitted[best] = true;
+            int newCacheSize = 0;
+            for (int k = 0; k < 3; k++) {
+                int vertex = indices[offset + best * 3 + k];
+                output[emittedCount * 3 + k] = vertex;
+                remaining[vertex]--;
+                newCache[newCacheSize++] = vertex;
+            }
+
+            // The emitted vertices move to the front of the LRU cache
+            for (int c = 0; c < cacheSize; c++) {
+                int vertex = cache[c];
+                if (vertex != newCache[0] && vertex != newCache[1] && vertex != newCache[2]) {
+                    newCache[newCacheSize++] = vertex;
+                }
+            }
+
+            // Rescore every vertex whose cache position changed
+            for (int c = 0; c < newCacheSize; c++) {
+                int vertex = newCache[c];
+                int position = c < SCORE_CACHE_SIZE ? c : -1;
+                float updated = score(position, remaining[vertex]);
+                float delta = updated - vertexScore[vertex];
+                vertexScore[vertex] = updated;
+                if (delta != 0f) {
+                    for (int a = adjacencyStart[vertex]; a < adjacencyStart[vertex + 1]; a++) {
+                        int t = adjacency[a];
+                        if (!emitted[t]) triangleScore[t] += delta;
+                    }
+                }
+            }
+
+            cacheSize = Math.min(newCacheSize, SCORE_CACHE_SIZE);
+            int[] swap = cache;
+            cache = newCache;
+            newCache = swap;
+        }
+
+        System.arraycopy(output, 0, indices, offset, triangleCount * 3);
+    }
+
+    private static float score(int cachePosition, int remainingTriangles) {
+        if (remainingTriangles == 0) return -1f;
+
+        float score = 0f;
+        if (cachePosition >= 0) {
+            if (cachePosition < 3) {
+                // The triangle just emitted; discourage reusing it immediately
+                score = LAST_TRIANGLE_SCORE;
+            } else {
+                float scaler = 1f / (SCORE_CACHE_SIZE - 3);
+                score = (float) Math.pow(1f - (cachePosition - 3) * scaler, CACHE_DECAY_POWER);
+            }
+        }
+        score += VALENCE_BOOST_SCALE * (float) Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+        return score;
+    }
+
+    /**
+     * Average cache miss ratio of a triangle list: vertex shader
+     * invocations per triangle, simulated with a FIFO cache. 3.0 is the
+     * worst case; well-ordered meshes approach 0.5 to 0.7.
+     */
+    public static float acmr(int[] indices, int offset, int size, int cacheSize) {
+        int triangleCount = size / 3;
+        if (triangleCount == 0) return 0f;
+        return (float) countCacheMisses(indices, offset, size, cacheSize) / triangleCount;
+    }
+
+    private static int countCacheMisses(int[] indices, int offset, int size, int cacheSize) {
+        int[] fifo = new int[cacheSize];
+        Arrays.fill(fifo, -1);
+        int head = 0;
+        int misses = 0;
+        for (int i = offset; i < offset + size; i++) {
+            int vertex = indices[i];
+            boolean hit = false;
+            for (int c = 0; c < cacheSize; c++) {
+                if (fifo[c] == vertex) {
+                    hit = true;
+                    break;
+                }
+            }
+            if (!hit) {
+                misses++;
+                fifo[head] = vertex;
+                head = (head + 1) % cacheSize;
+            }
+        }
+        return misses;
+    }
+
+    private static void accumulateAcmr(int[] indices, List<MeshPart> parts, Report report, boolean before) {
+        for (MeshPart part : parts) {
+            if (part.primitiveType != GL20.GL_TRIANGLES) continue;
+            int misses = countCacheMisses(indices, part.offset, part.size, REPORT_CACHE_SIZE);
+            if (before) {
+                report.triangles += part.size / 3;
+                report.cacheMissesBefore += misses;
+            } else {
+                report.cacheMissesAfter += misses;
+            }
+        }
+    }
+
+    /**
+     * The per-mesh tasks of one optimization, from {@link #prepare(Model, float)}.
+     */
+    public static final class Job {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<Report> reports = new ArrayList<>();
+
+        public List<Runnable> getTasks() {
+            return tasks;
+        }
+
+        /**
+         * Get the totals. Only complete once every task has run.
+         */
+        public Report getReport() {
+            Report report = new Report();
+            for (Report meshReport : reports) {
+                report.add(meshReport);
+            }
+            return report;
+        }
+    }
+
+    /**
+     * Totals over all optimized meshes.
+     */
+    public static final class Report {
+        int meshes;
+        long verticesBefore;
+        long verticesAfter;
+        long triangles;
+        long cacheMissesBefore;
+        long cacheMissesAfter;
+
+        void add(Report other) {
+            meshes += other.meshes;
+            verticesBefore += other.verticesBefore;
+            verticesAfter += other.verticesAfter;
+            triangles += other.triangles;
+            cacheMissesBefore += other.cacheMissesBefore;
+            cacheMissesAfter += other.cacheMissesAfter;
+        }
+
+        public int getMeshCount() {
+            return meshes;
+        }
+
+        public long getVerticesBefore() {
+            return verticesBefore;
+        }
+
+        public long getVerticesAfter() {
+            return verticesAfter;
+        }
+
+        public long getTriangleCount() {
+            return triangles;
+        }
+
+        /**
+         * Get the ACMR before optimizing, for a 16-entry FIFO cache.
+         */
+        public float getAcmrBefore() {
+            return triangles > 0 ? (float) cacheMissesBefore / triangles : 0f;
+        }
+
+        /**
+         * Get the ACMR after optimizing, for a 16-entry FIFO cache.
+         */
+        public float getAcmrAfter() {
+            return triangles > 0 ? (float) cacheMissesAfter / triangles : 0f;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d meshes: vertices %d -> %d, ACMR %.3f -> %.3f",
+                meshes, verticesBefore, verticesAfter, getAcmrBefore(), getAcmrAfter());
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Uploads the meshes of built models to the GPU a few at a time, from
+ * {@link #update()} once per frame, so a large model does not stall the
+ * frame it first appears in. Meshes only upload their buffers when first
+ * bound; this binds each one outside of drawing, within a per-frame time
+ * budget, and hands the model back once all its meshes are on the GPU.
+ *
+ * Batches finish in submission order. Must be used on the render thread.
+ */
+public class MeshUploader implements Disposable {
+
+    /** Default upload time per frame, a quarter of a 60 Hz frame. */
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 4000000L;
+
+    /**
+     * Receives a submitted model once it is uploaded, or back if it was
+     * cancelled. Called on the render thread.
+     */
+    public interface Listener {
+        void onUploaded(Model model);
+
+        /**
+         * Called after the uploader disposed the model.
+         */
+        void onCancelled(Model model);
+    }
+
+    // Binding uploads a mesh; no attribute needs to match, so any program works
+    private static final String VERTEX_SHADER =
+        "void main() {\n" +
+        "    gl_Position = vec4(0.0);\n" +
+        "}\n";
+    private static final String FRAGMENT_SHADER =
+        "#ifdef GL_ES\n" +
+        "precision mediump float;\n" +
+        "#endif\n" +
+        "void main() {\n" +
+        "    gl_FragColor = vec4(1.0);\n" +
+        "}\n";
+
+    private final ArrayDeque<Batch> batches = new ArrayDeque<>();
+    private long frameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+    private ShaderProgram shader;
+    private boolean shaderFailed;
+
+    private long uploadedMeshes;
+    private long uploadedBytes;
+    private int lastBatchFrames;
+    private long lastBatchNanos;
+
+    /**
+     * Queue a model's meshes for upload. The uploader owns the model until
+     * it is passed to the listener.
+     */
+    public void submit(Model model, Listener listener) {
+        batches.addLast(new Batch(model, listener));
+    }
+
+    /**
+     * Dispose a queued model and tell its listener.
+     * @return false if the model was not queued
+     */
+    public boolean cancel(Model model) {
+        for (Iterator<Batch> iterator = batches.iterator(); iterator.hasNext(); ) {
+            Batch batch = iterator.next();
+            if (batch.model == model) {
+                iterator.remove();
+                batch.model.dispose();
+                batch.listener.onCancelled(batch.model);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Dispose every queued model and tell its listener.
+     */
+    public void cancelAll() {
+        while (!batches.isEmpty()) {
+            Batch batch = batches.pollFirst();
+            batch.model.dispose();
+            batch.listener.onCancelled(batch.model);
+        }
+    }
+
+    /**
+     * Upload queued meshes until the frame budget is spent, at least one per
+     * call so large meshes still progress, and pass on the front model once
+     * it is done. At most one model finishes per frame.
+     */
+    public void update() {
+        Batch batch = batches.peekFirst();
+        if (batch == null) return;
+
+        batch.frames++;
+        long start = System.nanoTime();
+        while (batch.next < batch.meshes.size()) {
+            upload(batch.meshes.get(batch.next++));
+            if (System.nanoTime() - start >= frameBudgetNanos) break;
+        }
+        batch.nanos += System.nanoTime() - start;
+        if (batch.next < batch.meshes.size()) return;
+
+        batches.pollFirst();
+        lastBatchFrames = batch.frames;
+        lastBatchNanos = batch.nanos;
+        Gdx.app.debug("ModelEditor", "Uploaded " + batch.meshes.size() + " meshes in "
+            + lastBatchFrames + " frames, " + lastBatchNanos / 1000 + " us");
+        batch.listener.onUploaded(batch.model);
+    }
+
+    private void upload(Mesh mesh) {
+        ShaderProgram program = getShader();
+        if (program == null) return;
+        mesh.bind(program);
+        mesh.unbind(program);
+        uploadedMeshes++;
+        uploadedBytes += (long) mesh.getNumVertices() * mesh.getVertexSize() + mesh.getNumIndices() * 2L;
+    }
+
+    /**
+     * Compile the upload program on first use. Without it, meshes are left
+     * to upload when first drawn.
+     */
+    private ShaderProgram getShader() {
+        if (shader == null && !shaderFailed) {
+            ShaderProgram program = new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER);
+            if (program.isCompiled()) {
+                shader = program;
+            } else {
+                Gdx.app.error("ModelEditor", "Mesh upload shader failed: " + program.getLog());
+                program.dispose();
+                shaderFailed = true;
+            }
+        }
+        return shader;
+    }
+
+    /**
+     * Check whether any model is waiting for upload.
+     */
+    public boolean isBusy() {
+        return !batches.isEmpty();
+    }
+
+    public int getPendingMeshCount() {
+        int pending = 0;
+        for (Batch batch : batches) {
+            pending += batch.meshes.size() - batch.next;
+        }
+        return pending;
+    }
+
+    public long getFrameBudgetNanos() {
+        return frameBudgetNanos;
+    }
+
+    /**
+     * Set the upload time allowed per frame. A single mesh is never split,
+     * so a frame may run over by one mesh's upload.
+     */
+    public void setFrameBudgetNanos(long frameBudgetNanos) {
+        this.frameBudgetNanos = frameBudgetNanos;
+    }
+
+    public long getUploadedMeshCount() {
+        return uploadedMeshes;
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes;
+    }
+
+    /**
+     * Get the number of frames the last finished model was spread over.
+     */
+    public int getLastBatchFrames() {
+        return lastBatchFrames;
+    }
+
+    /**
+     * Get the render-thread time spent uploading the last finished model.
+     */
+    public long getLastBatchNanos() {
+        return lastBatchNanos;
+    }
+
+    @Override
+    public void dispose() {
+        cancelAll();
+        if (shader != null) {
+            shader.dispose();
+            shader = null;
+        }
+    }
+
+    private static final class Batch {
+        final Model model;
+        final Listener listener;
+        final List<Mesh> meshes;
+        int next;
+        int frames;
+        long nanos;
+
+        Batch(Model model, Listener listener) {
+            this.model = model;
+            this.listener = listener;
+            meshes = new ArrayList<>(model.meshes.size);
+            for (Mesh mesh : model.meshes) {
+                meshes.add(mesh);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Warning and error thresholds for a built model on one target platform,
+ * checked against {@link ModelStats}. A threshold of zero or less disables
+ * that check.
+ */
+public class ModelBudget {
+
+    /**
+     * A threshold a model exceeds.
+     */
+    public static final class Issue {
+        final boolean error;
+        final String message;
+
+        Issue(boolean error, String message) {
+            this.error = error;
+            this.message = message;
+        }
+
+        /**
+         * Check whether the error threshold was exceeded, not just the warning one.
+         */
+        public boolean isError() {
+            return error;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return (error ? "Error: " : "Warning: ") + message;
+        }
+    }
+
+    private final String platform;
+    private long warningVertices;
+    private long errorVertices;
+    private long warningTriangles;
+    private long errorTriangles;
+    private int warningDrawCalls;
+    private int errorDrawCalls;
+    private int warningMaterials;
+    private int errorMaterials;
+    private long warningVramBytes;
+    private long errorVramBytes;
+
+    public ModelBudget(String platform) {
+        this.platform = platform;
+    }
+
+    /**
+     * Thresholds for a single prop in a desktop game.
+     */
+    public static ModelBudget desktop() {
+        ModelBudget budget = new ModelBudget("Desktop");
+        budget.setVertexLimits(100000, 500000);
+        budget.setTriangleLimits(150000, 750000);
+        budget.setDrawCallLimits(200, 1000);
+        budget.setMaterialLimits(32, 128);
+        budget.setVramLimits(16L * 1024 * 1024, 64L * 1024 * 1024);
+        return budget;
+    }
+
+    /**
+     * Thresholds for a single prop on mid-range Android devices.
+     */
+    public static ModelBudget android() {
+        ModelBudget budget = new ModelBudget("Android");
+        budget.setVertexLimits(20000, 65536);
+        budget.setTriangleLimits(30000, 100000);
+        budget.setDrawCallLimits(50, 200);
+        budget.setMaterialLimits(8, 32);
+        budget.setVramLimits(2L * 1024 * 1024, 8L * 1024 * 1024);
+        return budget;
+    }
+
+    /**
+     * Get the preset for the platform the editor runs on.
+     */
+    public static ModelBudget forCurrentPlatform() {
+        return Gdx.app != null && Gdx.app.getType() == Application.ApplicationType.Android ? android() : desktop();
+    }
+
+    public String getPlatform() {
+        return platform;
+    }
+
+    public void setVertexLimits(long warning, long error) {
+        warningVertices = warning;
+        errorVertices = error;
+    }
+
+    public void setTriangleLimits(long warning, long error) {
+        warningTriangles = warning;
+        errorTriangles = error;
+    }
+
+    public void setDrawCallLimits(int warning, int error) {
+        warningDrawCalls = warning;
+        errorDrawCalls = error;
+    }
+
+    public void setMaterialLimits(int warning, int error) {
+        warningMaterials = warning;
+        errorMaterials = error;
+    }
+
+    /**
+     * Set the limits on estimated vertex and index buffer memory, in bytes.
+     */
+    public void setVramLimits(long warning, long error) {
+        warningVramBytes = warning;
+        errorVramBytes = error;
+    }
+
+    /**
+     * Compare a model's totals with the thresholds.
+     * @return The exceeded thresholds, errors first; empty if within budget
+     */
+    public List<Issue> check(ModelStats stats) {
+        List<Issue> errors = new ArrayList<>();
+        List<Issue> warnings = new ArrayList<>();
+        check("vertices", stats.getVertices(), warningVertices, errorVertices, false, errors, warnings);
+        check("triangles", stats.getTriangles(), warningTriangles, errorTriangles, false, errors, warnings);
+        check("draw calls", stats.getDrawCalls(), warningDrawCalls, errorDrawCalls, false, errors, warnings);
+        check("materials", stats.getMaterials(), warningMaterials, errorMaterials, false, errors, warnings);
+        check("VRAM", stats.getVramBytes(), warningVramBytes, errorVramBytes, true, errors, warnings);
+        errors.addAll(warnings);
+        return errors;
+    }
+
+    private void check(String name, long value, long warning, long error, boolean bytes,
+                       List<Issue> errors, List<Issue> warnings) {
+        if (error > 0 && value > error) {
+            errors.add(new Issue(true, format(name, value, error, bytes)));
+        } else if (warning > 0 && value > warning) {
+            warnings.add(new Issue(false, format(name, value, warning, bytes)));
+        }
+    }
+
+    private String format(String name, long value, long limit, boolean bytes) {
+        return String.format(Locale.ROOT, "%s %s over %s limit of %s", name,
+            bytes ? ModelStats.formatBytes(value) : String.valueOf(value), platform,
+            bytes ? ModelStats.formatBytes(limit) : String.valueOf(limit));
+    }
+}
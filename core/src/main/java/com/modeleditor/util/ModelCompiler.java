@@ -2,25 +2,48 @@ package com.modeleditor.util;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Material;
 import com.badlogic.gdx.graphics.g3d.Model;
 import com.badlogic.gdx.graphics.g3d.ModelBuilder;
 import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
 import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
 import com.badlogic.gdx.graphics.g3d.model.Renderable;
+import com.badlogic.gdx.graphics.g3d.utils.MeshPartBuilder;
 import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import org.codehaus.commons.compiler.CompileException;
 import org.codehaus.janino.ByteArrayClassLoader;
 import org.codehaus.janino.ClassLoaderIClassLoader;
+import org.codehaus.janino.Descriptor;
 import org.codehaus.janino.IClassLoader;
+import org.codehaus.janino.Parser;
+import org.codehaus.janino.Scanner;
+import org.codehaus.janino.util.resource.MapResourceCreator;
 import org.codehaus.janino.util.resource.Resource;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Compiler utility that uses Janino to dynamically compile and execute
@@ -28,9 +51,43 @@ import java.util.Map;
  */
 public class ModelCompiler implements Disposable {
 
-    private final Map<String, byte[]> classResources;
+    private static final String RUNTIME_PACKAGE = "com.modeleditor.runtime";
+
+    // Version of what generated classes link against in the app: ModelFactory,
+    // ModelParameters, ExecutionGuard and the locals buildCompleteClass
+    // declares. Bump it whenever those change, so bytecode an older build
+    // stored on disk is compiled again instead of failing to link.
+    static final int SNIPPET_ABI_VERSION = 1;
+
+    private final CompiledClassCache classCache;
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private final ClassUnloadTracker unloadTracker = new ClassUnloadTracker();
+    private ExecutionBudget executionBudget = new ExecutionBudget();
+    private BytecodeDiskCache diskCache;
+    private boolean ownsDiskCache;
     private ClassLoaderIClassLoader iClassLoader;
-    private ClassLoader classLoader;
+
+    // Set once Janino has generated code in this process
+    private volatile boolean janinoWarm;
+
+    // Snippets seen calling part(), which run on the real ModelBuilder
+    private final Set<ModelFactory> directFactories =
+        Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<ModelFactory, Boolean>()));
+
+    // Small snippet touching the allowed classes, compiled to warm up Janino
+    private static final String WARM_UP_SNIPPET =
+        "Array<Node> nodes = new Array<Node>();\n" +
+        "Vector3 axis = new Vector3(0f, 1f, 0f);\n" +
+        "Color color = new Color(0.5f, 0.5f, 0.5f, 1f);\n" +
+        "for (int i = 0; i < 4; i++) {\n" +
+        "    int boxId = modelBuilder.box(1f, 1f + i, 1f);\n" +
+        "    Node node = modelBuilder.node();\n" +
+        "    node.id = \"warmup\" + Integer.valueOf(i);\n" +
+        "    node.translation.set(i * 2f, 0f, 0f);\n" +
+        "    node.rotation.setFromAxisRad(axis, Float.valueOf(i * 0.5f));\n" +
+        "    ColorAttribute diffuse = ColorAttribute.createDiffuse(color);\n" +
+        "    nodes.add(node);\n" +
+        "}\n";
 
     // Allowed classes that can be used in the compiled code
     private static final Map<String, Class<?>> ALLOWED_CLASSES = new HashMap<>();
@@ -47,6 +104,11 @@ public class ModelCompiler implements Disposable {
         ALLOWED_CLASSES.put("com.badlogic.gdx.utils.Array", Array.class);
         ALLOWED_CLASSES.put("com.badlogic.gdx.utils.Array", Array.class);
 
+        // Interface implemented by the generated class
+        ALLOWED_CLASSES.put("com.modeleditor.util.ModelFactory", ModelFactory.class);
+        ALLOWED_CLASSES.put("com.modeleditor.util.ModelParameters", ModelParameters.class);
+        ALLOWED_CLASSES.put("com.modeleditor.util.ExecutionGuard", ExecutionGuard.class);
+
         // Primitive wrapper classes
         ALLOWED_CLASSES.put("java.lang.String", String.class);
         ALLOWED_CLASSES.put("java.lang.Integer", Integer.class);
@@ -56,26 +118,95 @@ public class ModelCompiler implements Disposable {
         ALLOWED_CLASSES.put("java.lang.Object", Object.class);
     }
 
+    /**
+     * Get the version of the generated classes' links into the app, for
+     * keying bytecode stored across runs: {@link #SNIPPET_ABI_VERSION} plus a
+     * hash of the public signatures of the app classes snippets may use, so
+     * a signature change without a bump still misses the stale bytecode.
+     * The generated source itself is part of every key already.
+     */
+    static String snippetAbi() {
+        List<String> signatures = new ArrayList<>();
+        for (Class<?> type : ALLOWED_CLASSES.values()) {
+            if (!type.getName().startsWith("com.modeleditor.")) continue;
+            for (Method method : type.getMethods()) {
+                signatures.add(method.toString());
+            }
+            for (Constructor<?> constructor : type.getConstructors()) {
+                signatures.add(constructor.toString());
+            }
+            for (Field field : type.getFields()) {
+                signatures.add(field.toString());
+            }
+        }
+        Collections.sort(signatures);
+        return "abi-" + SNIPPET_ABI_VERSION + "-" + Integer.toHexString(signatures.hashCode());
+    }
+
     public ModelCompiler() {
-        this.classResources = new HashMap<>();
+        this(new CompiledClassCache());
+    }
+
+    public ModelCompiler(CompiledClassCache classCache) {
+        this.classCache = classCache;
         initializeClassLoader();
+
+        // Evicted artifacts drop their only compiler-side reference to their loader
+        classCache.setEvictionListener(new CompiledClassCache.EvictionListener() {
+            @Override
+            public void onEvicted(CompiledClass compiled) {
+                unloadTracker.markReleased(compiled);
+            }
+        });
     }
 
     /**
      * Initialize the Janino class loader for dynamic compilation.
      */
     private void initializeClassLoader() {
-        // Create a resource for the class we're going to compile
-        classResources.put("com/modeleditor/runtime/ModelCreator.class", new byte[0]);
-
         // Create IClassLoader with allowed classes
         iClassLoader = new RestrictedIClassLoader(
             new IClassLoader[0],
             ALLOWED_CLASSES
         );
+    }
 
-        // Create byte array class loader
-        classLoader = new ByteArrayClassLoader(classResources, getClass().getClassLoader());
+    /**
+     * Resolve every allowed class through the restricted IClassLoader so
+     * the JVM classes and Janino's IClass wrappers are loaded before the
+     * first compile needs them.
+     * @return Elapsed time in nanoseconds
+     */
+    public long preloadAllowedClasses() {
+        long start = System.nanoTime();
+        synchronized (iClassLoader) {
+            for (String className : ALLOWED_CLASSES.keySet()) {
+                try {
+                    iClassLoader.loadIClass(Descriptor.fromClassName(className));
+                } catch (ClassNotFoundException e) {
+                    // Not fatal: compiles will report the missing class themselves
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Compile a small representative snippet so Janino's code paths are
+     * loaded and JIT-compiled before the user's first compile. Skipped if
+     * Janino already ran, e.g. because the default model missed the caches.
+     * The result is not cached.
+     * @return Elapsed time in nanoseconds
+     * @throws CompileException if the warm-up snippet fails to compile
+     */
+    public long warmUpCompiler() throws CompileException {
+        long start = System.nanoTime();
+        if (!janinoWarm) {
+            String fullClassCode = buildCompleteClass(WARM_UP_SNIPPET);
+            CompiledClass compiled = compileClass(CompiledClassCache.keyFor(fullClassCode), fullClassCode, "ModelCreator");
+            unloadTracker.markReleased(compiled);
+        }
+        return System.nanoTime() - start;
     }
 
     /**
@@ -83,36 +214,205 @@ public class ModelCompiler implements Disposable {
      * @param codeBody The Java code to compile (method body)
      * @return The created Model instance
      * @throws CompileException if compilation fails
-     * @throws RuntimeException if model creation fails
+     * @throws SnippetFailedException if the snippet fails with an Error
+     */
+    public Model compileAndCreateModel(String codeBody) throws CompileException, SnippetFailedException {
+        return createModel(compileSnippet(codeBody));
+    }
+
+    /**
+     * Compile the given Java code without running it. Safe to call from a
+     * worker thread; no GL resources are touched.
+     * @param codeBody The Java code to compile (method body)
+     * @return The compiled creator class
+     * @throws CompileException if compilation fails
+     */
+    public CompiledClass compileSnippet(String codeBody) throws CompileException {
+        return compileSnippet(codeBody, ModelParameter.parse(codeBody));
+    }
+
+    /**
+     * Compile as above, reusing parameter declarations the caller already
+     * parsed with {@link #parseParameters(String)}.
+     * @param declarations The snippet's declared parameters
      */
-    public Model compileAndCreateModel(String codeBody) throws CompileException, RuntimeException {
+    public CompiledClass compileSnippet(String codeBody, List<ModelParameter> declarations) throws CompileException {
         // Build the complete class code
-        String fullClassCode = buildCompleteClass(codeBody);
+        String fullClassCode = buildCompleteClass(codeBody, declarations);
 
-        // Compile the class
-        Class<?> creatorClass = compileClass(fullClassCode, "ModelCreator");
+        // Compile the class, or reuse it if this source was compiled before
+        return compile(fullClassCode);
+    }
+
+    /**
+     * Check the given Java code for syntax errors without compiling it.
+     * This only runs Janino's parser, so it typically takes a few
+     * milliseconds even when a full compile takes hundreds.
+     * @param codeBody The Java code to check (method body)
+     * @throws CompileException if the code does not parse
+     */
+    public void parseSnippet(String codeBody) throws CompileException {
+        parseSnippet(codeBody, ModelParameter.parse(codeBody));
+    }
+
+    /**
+     * Check for syntax errors as above, reusing already parsed parameter declarations.
+     * @param declarations The snippet's declared parameters
+     */
+    public void parseSnippet(String codeBody, List<ModelParameter> declarations) throws CompileException {
+        String fullClassCode = buildCompleteClass(codeBody, declarations);
+
+        // Anything already compiled is known to parse
+        if (classCache.contains(CompiledClassCache.keyFor(fullClassCode))) {
+            return;
+        }
 
-        // Create instance and call createModel
+        PipelineMetrics.Timing timing = PipelineMetrics.start();
         try {
-            Object creator = creatorClass.newInstance();
-            Method createModelMethod = creatorClass.getMethod("createModel", ModelBuilder.class);
-            ModelBuilder builder = new ModelBuilder();
+            Parser parser = new Parser(new Scanner("ModelCreator.java", new StringReader(fullClassCode)));
+            parser.parseAbstractCompilationUnit();
+        } catch (IOException e) {
+            throw new CompileException("Failed to read source: " + e.getMessage(), null);
+        } finally {
+            metrics.stop(PipelineMetrics.Phase.PARSE, timing);
+        }
+    }
 
-            // Set up builder with common methods
-            setupModelBuilderMethods(builder);
+    /**
+     * Parse the parameter declarations of a snippet.
+     * @see ModelParameter
+     */
+    public static List<ModelParameter> parseParameters(String codeBody) throws CompileException {
+        return ModelParameter.parse(codeBody);
+    }
 
-            Model result = (Model) createModelMethod.invoke(creator, builder);
+    /**
+     * Run a compiled snippet with its default parameter values.
+     * @see #createModel(CompiledClass, ModelParameters)
+     */
+    public Model createModel(CompiledClass compiled) throws SnippetFailedException {
+        return createModel(compiled, new ModelParameters());
+    }
+
+    /**
+     * Run a compiled snippet to build its Model, generating every node's
+     * geometry on the calling thread. Creates meshes, so this must run on
+     * the render thread; see {@link #captureModel(CompiledClass, ModelParameters)}
+     * to do the rest elsewhere.
+     * Changing parameter values only requires calling this again; the
+     * snippet is not recompiled.
+     * @param compiled Output of {@link #compileSnippet(String)}
+     * @param parameters Values for the snippet's declared parameters
+     * @return The created Model instance
+     * @throws SnippetFailedException if the snippet fails with an Error
+     * @throws RuntimeException thrown by the snippet, unchanged, e.g. a
+     *         {@link BudgetExceededException}
+     */
+    public Model createModel(CompiledClass compiled, ModelParameters parameters) throws SnippetFailedException {
+        CapturedModel capture = captureModel(compiled, parameters);
+        capture.generate();
+        return createMeshes(capture);
+    }
+
+    /**
+     * Build as above, generating the nodes' geometry in parallel on the
+     * given executor. Blocks until the model is created.
+     * @throws GdxRuntimeException if generating geometry fails
+     */
+    public Model createModel(CompiledClass compiled, ModelParameters parameters, ExecutorService executor)
+        throws SnippetFailedException {
+        CapturedModel capture = captureModel(compiled, parameters);
+        capture.generate(executor);
+        return createMeshes(capture);
+    }
+
+    /**
+     * Run a compiled snippet, recording its nodes and primitives without
+     * generating geometry or touching GL, so it may run on any thread. The
+     * parameters must not change while it runs. Run the capture's tasks and
+     * then {@link #createMeshes(CapturedModel)} to get the model.
+     *
+     * A snippet that builds geometry with part() cannot be captured. Its
+     * capture has no tasks and runs the snippet again on a real
+     * ModelBuilder in {@link CapturedModel#toModel()}, serially on the
+     * render thread, so the parameters must not change until then either.
+     * @throws SnippetFailedException if the snippet fails with an Error
+     * @throws RuntimeException thrown by the snippet, unchanged, e.g. a
+     *         {@link BudgetExceededException}
+     */
+    public CapturedModel captureModel(CompiledClass compiled, ModelParameters parameters) throws SnippetFailedException {
+        if (directFactories.contains(compiled.getFactory())) {
+            return new DirectBuild(compiled, parameters);
+        }
+
+        // Guard the run so runaway loops and oversized meshes are stopped
+        ExecutionGuard guard = ExecutionGuard.begin(executionBudget);
+        CaptureModelBuilder builder = new CaptureModelBuilder(guard);
+
+        // Call the cached instance through its interface; no reflection per build
+        PipelineMetrics.Timing timing = PipelineMetrics.start();
+        try {
+            Model result = compiled.getFactory().createModel(builder, parameters);
+            return builder.finish(result);
+        } catch (PartCalled e) {
+            directFactories.add(compiled.getFactory());
+            return new DirectBuild(compiled, parameters);
+        } catch (Error e) {
+            throw new SnippetFailedException(e);
+        } finally {
+            guard.end();
+            metrics.stop(PipelineMetrics.Phase.CREATE_MODEL, timing);
+        }
+    }
+
+    /**
+     * Run a compiled snippet on a real ModelBuilder, which creates meshes as
+     * it goes. Call on the render thread.
+     */
+    private Model buildDirect(CompiledClass compiled, ModelParameters parameters) throws SnippetFailedException {
+        ExecutionGuard guard = ExecutionGuard.begin(executionBudget);
+        DirectModelBuilder builder = new DirectModelBuilder(guard);
+        boolean succeeded = false;
+        try {
+            Model result = compiled.getFactory().createModel(builder, parameters);
+            succeeded = true;
             return result;
+        } catch (Error e) {
+            throw new SnippetFailedException(e);
+        } finally {
+            guard.end();
+            if (!succeeded) {
+                // Free the GPU buffers of every model built before the failure
+                builder.disposeBuiltModels();
+            }
+        }
+    }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create model: " + e.getMessage(), e);
+    /**
+     * Create the meshes of a capture whose tasks have all run. Call on the
+     * render thread. Records the generation and mesh creation timings.
+     */
+    public Model createMeshes(CapturedModel capture) {
+        metrics.record(PipelineMetrics.Phase.GEOMETRY, capture.getGenerateNanos(), capture.getGenerateAllocatedBytes());
+        PipelineMetrics.Timing timing = PipelineMetrics.start();
+        try {
+            return capture.toModel();
+        } finally {
+            metrics.stop(PipelineMetrics.Phase.MESH_UPLOAD, timing);
         }
     }
 
     /**
      * Build the complete Java class code from the method body.
+     * Declared parameters become locals read from the parameters argument.
+     * Public so tools and benchmarks can inspect the generated source.
+     * @throws CompileException if a parameter declaration is malformed
      */
-    private String buildCompleteClass(String codeBody) {
+    public String buildCompleteClass(String codeBody) throws CompileException {
+        return buildCompleteClass(codeBody, ModelParameter.parse(codeBody));
+    }
+
+    private String buildCompleteClass(String codeBody, List<ModelParameter> declarations) {
         StringBuilder sb = new StringBuilder();
 
         sb.append("package com.modeleditor.runtime;\n\n");
@@ -123,12 +423,19 @@ public class ModelCompiler implements Disposable {
         sb.append("import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;\n");
         sb.append("import com.badlogic.gdx.graphics.Color;\n");
         sb.append("import com.badlogic.gdx.math.Vector3;\n");
-        sb.append("import com.badlogic.gdx.utils.Array;\n\n");
-
-        sb.append("public class ModelCreator {\n\n");
-        sb.append("    public Model createModel(ModelBuilder modelBuilder) {\n");
+        sb.append("import com.badlogic.gdx.utils.Array;\n");
+        sb.append("import com.modeleditor.util.ExecutionGuard;\n");
+        sb.append("import com.modeleditor.util.ModelFactory;\n");
+        sb.append("import com.modeleditor.util.ModelParameters;\n\n");
+
+        sb.append("public class ModelCreator implements ModelFactory {\n\n");
+        sb.append("    public Model createModel(ModelBuilder modelBuilder, ModelParameters parameters) {\n");
+        for (ModelParameter parameter : declarations) {
+            sb.append("        ").append(parameter.toLocalDeclaration()).append("\n");
+        }
+        sb.append("        final ExecutionGuard __guard = ExecutionGuard.current();\n");
         sb.append("        // User code starts here\n");
-        sb.append(codeBody);
+        sb.append(LoopInstrumenter.instrument(codeBody, "__guard"));
         sb.append("\n        // User code ends here\n");
         sb.append("        return modelBuilder.end();\n");
         sb.append("    }\n\n");
@@ -137,14 +444,62 @@ public class ModelCompiler implements Disposable {
         return sb.toString();
     }
 
+    /**
+     * Look up the complete class source in the memory and disk caches,
+     * compiling it on a miss.
+     */
+    private CompiledClass compile(String fullClassCode) throws CompileException {
+        String key = CompiledClassCache.keyFor(fullClassCode);
+        CompiledClass compiled = classCache.get(key);
+        if (compiled != null) {
+            return compiled;
+        }
+
+        Map<String, byte[]> storedClassFiles = diskCache != null ? diskCache.load(key) : null;
+        if (storedClassFiles != null) {
+            compiled = defineClass(key, storedClassFiles, "ModelCreator");
+        } else {
+            compiled = compileClass(key, fullClassCode, "ModelCreator");
+            storeOnDisk(compiled);
+        }
+        classCache.put(compiled);
+        return compiled;
+    }
+
+    /**
+     * Persist freshly compiled class files; failures only cost a recompile later.
+     */
+    private void storeOnDisk(CompiledClass compiled) {
+        if (diskCache == null) return;
+        try {
+            diskCache.store(compiled.getKey(), compiled.getClassFiles());
+        } catch (IOException e) {
+            if (Gdx.app != null) {
+                Gdx.app.error("ModelCompiler", "Failed to store bytecode: " + e.getMessage());
+            }
+        }
+    }
+
     /**
      * Compile a Java class from source code using Janino.
+     * Janino resolves classes through the shared IClassLoader, which is not
+     * thread-safe, so compilations are serialized on it.
      */
-    private Class<?> compileClass(String sourceCode, String className) throws CompileException {
+    private CompiledClass compileClass(String key, String sourceCode, String className) throws CompileException {
+        synchronized (iClassLoader) {
+            return compileClassLocked(key, sourceCode, className);
+        }
+    }
+
+    private CompiledClass compileClassLocked(String key, String sourceCode, String className) throws CompileException {
         org.codehaus.janino.Compiler compiler = new org.codehaus.janino.Compiler(
             iClassLoader
         );
 
+        // Capture the generated class files instead of writing them to disk
+        Map<String, byte[]> classFileResources = new HashMap<>();
+        compiler.setClassFileCreator(new MapResourceCreator(classFileResources));
+
         // Create resource for the source
         Resource sourceResource = new Resource() {
             @Override
@@ -164,28 +519,395 @@ public class ModelCompiler implements Disposable {
         };
 
         // Compile the class
-        compiler.compile(new Resource[]{sourceResource});
+        PipelineMetrics.Timing timing = PipelineMetrics.start();
+        try {
+            compiler.compile(new Resource[]{sourceResource});
+        } finally {
+            metrics.stop(PipelineMetrics.Phase.COMPILE, timing);
+        }
+        janinoWarm = true;
+
+        return defineClass(key, toClassFiles(classFileResources), className);
+    }
+
+    /**
+     * Load compiled class files, from Janino or the disk cache, into a new loader.
+     */
+    private CompiledClass defineClass(String key, Map<String, byte[]> classFiles, String className)
+        throws CompileException {
+        PipelineMetrics.Timing timing = PipelineMetrics.start();
+
+        // Every artifact gets its own loader, since all snippets share the class
+        // name. The CompiledClass is the only strong path to the loader, so
+        // dropping it lets the loader and its classes be unloaded.
+        ClassLoader classLoader = new ByteArrayClassLoader(classFiles, getClass().getClassLoader());
 
         // Get the compiled class
         try {
-            return classLoader.loadClass("com.modeleditor.runtime." + className);
+            Class<?> creatorClass = classLoader.loadClass(RUNTIME_PACKAGE + "." + className);
+            ModelFactory factory = (ModelFactory) creatorClass.getDeclaredConstructor().newInstance();
+            CompiledClass compiled = new CompiledClass(key, classFiles, creatorClass, factory);
+            unloadTracker.track(compiled);
+            return compiled;
         } catch (ClassNotFoundException e) {
             throw new CompileException("Class not found after compilation", null);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new CompileException("Failed to instantiate " + className + ": " + e, null);
+        } finally {
+            metrics.stop(PipelineMetrics.Phase.CLASS_LOAD, timing);
+        }
+    }
+
+    /**
+     * Convert class file resource names ("a/b/C.class") to binary class names ("a.b.C").
+     */
+    private static Map<String, byte[]> toClassFiles(Map<String, byte[]> resources) {
+        Map<String, byte[]> classFiles = new HashMap<>();
+        for (Map.Entry<String, byte[]> entry : resources.entrySet()) {
+            String name = entry.getKey();
+            if (name.endsWith(".class")) {
+                name = name.substring(0, name.length() - ".class".length());
+            }
+            classFiles.put(name.replace('/', '.'), entry.getValue());
+        }
+        return classFiles;
+    }
+
+    /**
+     * Get the in-memory cache of compiled classes, e.g. to read hit/miss counters.
+     */
+    public CompiledClassCache getClassCache() {
+        return classCache;
+    }
+
+    /**
+     * Set the persistent bytecode store consulted after the in-memory cache.
+     * The compiler takes ownership and disposes it together with itself.
+     * @param diskCache The disk cache, or null to disable persistence
+     */
+    public void setDiskCache(BytecodeDiskCache diskCache) {
+        setDiskCache(diskCache, true);
+    }
+
+    /**
+     * Set the persistent bytecode store as above.
+     * @param owned Whether the compiler disposes the cache when it is
+     *              replaced or the compiler is disposed; pass false to share
+     *              one cache between compilers, which the caller disposes
+     */
+    public void setDiskCache(BytecodeDiskCache diskCache, boolean owned) {
+        if (ownsDiskCache && this.diskCache != null && this.diskCache != diskCache) {
+            this.diskCache.dispose();
         }
+        this.diskCache = diskCache;
+        this.ownsDiskCache = owned;
+    }
+
+    public BytecodeDiskCache getDiskCache() {
+        return diskCache;
+    }
+
+    /**
+     * Get the tracker that verifies evicted snippet classes get unloaded.
+     */
+    public ClassUnloadTracker getClassUnloadTracker() {
+        return unloadTracker;
+    }
+
+    /**
+     * Get the number of compiled snippet class loaders not yet collected.
+     */
+    public int getLiveClassLoaderCount() {
+        return unloadTracker.getLiveCount();
+    }
+
+    /**
+     * Get the number of classes loaded in the JVM, or -1 if unavailable.
+     */
+    public long getLoadedClassCount() {
+        return ClassUnloadTracker.getLoadedClassCount();
+    }
+
+    /**
+     * Get the bytes of class metadata in use, or -1 if unavailable.
+     */
+    public long getMetaspaceUsedBytes() {
+        return ClassUnloadTracker.getMetaspaceUsedBytes();
+    }
+
+    /**
+     * Get the limits enforced while snippets run.
+     */
+    public ExecutionBudget getExecutionBudget() {
+        return executionBudget;
     }
 
     /**
-     * Set up ModelBuilder with accessible methods for the compiled code.
-     * This ensures the dynamically created code can use all ModelBuilder methods.
+     * Set the limits enforced while snippets run; applies to the next build.
      */
-    private void setupModelBuilderMethods(ModelBuilder builder) {
-        // ModelBuilder already has all necessary methods exposed
-        // The compiled code will have access to builder through the parameter
+    public void setExecutionBudget(ExecutionBudget executionBudget) {
+        this.executionBudget = executionBudget;
+    }
+
+    /**
+     * Get the per-phase timing registry for this compiler.
+     */
+    public PipelineMetrics getMetrics() {
+        return metrics;
     }
 
     @Override
     public void dispose() {
-        classResources.clear();
+        classCache.clear();
+        if (ownsDiskCache && diskCache != null) {
+            diskCache.dispose();
+        }
+        diskCache = null;
+    }
+
+    /**
+     * ModelBuilder passed to snippets. Records nodes and primitive calls
+     * instead of building meshes, so the snippet needs no GL context and
+     * each node's geometry can be generated separately afterwards.
+     * addNode() gives a node the primitive each of its parts names by id,
+     * so a primitive may be drawn by several nodes. end() returns an empty
+     * placeholder model standing for the primitives requested since the
+     * previous end(); those no part names go on the node that model is
+     * added to, or on an unnamed node if it is the snippet's result.
+     * Primitive calls reserve their vertex and index counts, and each reuse
+     * reserves them again, so the budget stops an oversized snippet before
+     * any geometry is generated, naming the node the oversized primitive
+     * is attached to.
+     */
+    private static class CaptureModelBuilder extends ModelBuilder {
+
+        private final ExecutionGuard guard;
+        private final Map<Model, List<CapturedModel.Primitive>> pendingByModel = new IdentityHashMap<>();
+        private final Map<Node, CapturedModel.CapturedNode> captured = new IdentityHashMap<>();
+        private final List<CapturedModel.CapturedNode> capturedOrder = new ArrayList<>();
+        // Nodes are compared by identity
+        private final Set<Node> roots = new LinkedHashSet<>();
+        // Every primitive, by id
+        private final List<CapturedModel.Primitive> primitives = new ArrayList<>();
+        // Primitives no part named yet, with the node their end() was added to
+        private final Map<CapturedModel.Primitive, Node> unnamed = new LinkedHashMap<>();
+        // Ids some node's part named
+        private final BitSet named = new BitSet();
+        // Parts already resolved, in case a node is added twice
+        private final Set<NodePart> resolvedParts = Collections.newSetFromMap(new IdentityHashMap<NodePart, Boolean>());
+        private List<CapturedModel.Primitive> pending = new ArrayList<>();
+
+        CaptureModelBuilder(ExecutionGuard guard) {
+            this.guard = guard;
+        }
+
+        @Override
+        public Node node() {
+            Node node = new Node();
+            guard.enterNode(node);
+            return node;
+        }
+
+        @Override
+        public int box(float width, float height, float depth) {
+            return add(CapturedModel.Primitive.Kind.BOX, width, height, depth, 0, 0, false);
+        }
+
+        @Override
+        public int cylinder(float radius, float height, int segments, boolean closed) {
+            return add(CapturedModel.Primitive.Kind.CYLINDER, radius * 2f, height, radius * 2f, segments, 0, closed);
+        }
+
+        @Override
+        public int sphere(float radius, int divisions, int subdivisions) {
+            float size = radius * 2f;
+            return add(CapturedModel.Primitive.Kind.SPHERE, size, size, size, divisions, subdivisions, false);
+        }
+
+        @Override
+        public int cone(float width, float height, float depth, int segments) {
+            return add(CapturedModel.Primitive.Kind.CONE, width, height, depth, segments, 0, false);
+        }
+
+        private int add(CapturedModel.Primitive.Kind kind, float width, float height, float depth,
+                        int divisionsU, int divisionsV, boolean closed) {
+            CapturedModel.Primitive primitive = new CapturedModel.Primitive(kind, primitives.size(),
+                width, height, depth, divisionsU, divisionsV, closed);
+            guard.reserveGeometry(primitive);
+            pending.add(primitive);
+            primitives.add(primitive);
+            return primitive.index;
+        }
+
+        @Override
+        public MeshPartBuilder part(String id, int primitiveType, VertexAttributes attributes, Material material) {
+            // Arbitrary MeshPartBuilder calls are not recorded; the snippet
+            // is built on the real ModelBuilder instead
+            throw new PartCalled();
+        }
+
+        @Override
+        public Model end() {
+            Model placeholder = new Model();
+            pendingByModel.put(placeholder, pending);
+            pending = new ArrayList<>();
+            guard.check();
+            return placeholder;
+        }
+
+        @Override
+        public void addNode(Node node, Model model) {
+            List<CapturedModel.Primitive> segment = pendingByModel.remove(model);
+            roots.add(node);
+            for (NodePart part : node.parts) {
+                int id = primitiveId(part);
+                if (id < 0 || id >= primitives.size() || !resolvedParts.add(part)) continue;
+                CapturedModel.Primitive primitive = primitives.get(id);
+                if (named.get(id)) {
+                    // Drawn again, so generated again
+                    guard.reserveGeometry(primitive);
+                }
+                named.set(id);
+                unnamed.remove(primitive);
+                attach(node, primitive, part);
+            }
+            if (segment != null) {
+                List<CapturedModel.Primitive> segmentUnnamed = new ArrayList<>();
+                for (CapturedModel.Primitive primitive : segment) {
+                    if (named.get(primitive.index)) continue;
+                    unnamed.put(primitive, node);
+                    segmentUnnamed.add(primitive);
+                }
+                // Blame an oversized one now, while the snippet is at this node
+                guard.attachGeometry(node, segmentUnnamed);
+            }
+        }
+
+        private void attach(Node node, CapturedModel.Primitive primitive, NodePart source) {
+            guard.attachGeometry(node, Collections.singletonList(primitive));
+            CapturedModel.CapturedNode target = captured.get(node);
+            if (target == null) {
+                target = new CapturedModel.CapturedNode(node);
+                captured.put(node, target);
+                capturedOrder.add(target);
+            }
+            target.add(primitive, source);
+        }
+
+        /**
+         * Get the primitive a part the snippet added draws: the id its
+         * Renderable was created with, or -1 for any other part.
+         */
+        private static int primitiveId(NodePart part) {
+            return part instanceof Renderable ? ((Renderable) part).id : -1;
+        }
+
+        /**
+         * Collect the capture once the snippet returned. Primitives no part
+         * named go on the node their end() was added to, or, for the
+         * returned model, on a new unnamed node.
+         */
+        CapturedModel finish(Model result) {
+            List<CapturedModel.Primitive> leftover = result != null ? pendingByModel.remove(result) : null;
+            if (leftover != null) {
+                Node node = null;
+                for (CapturedModel.Primitive primitive : leftover) {
+                    if (named.get(primitive.index)) continue;
+                    if (node == null) {
+                        node = new Node();
+                        roots.add(node);
+                    }
+                    unnamed.put(primitive, node);
+                }
+            }
+            for (Map.Entry<CapturedModel.Primitive, Node> entry : unnamed.entrySet()) {
+                attach(entry.getValue(), entry.getKey(), null);
+            }
+            guard.finishGeometry();
+
+            // Children added to another node are reached through their parent
+            List<Node> topLevel = new ArrayList<>();
+            for (Node root : roots) {
+                if (root.getParent() == null) topLevel.add(root);
+            }
+            return new CapturedModel(topLevel, capturedOrder);
+        }
+    }
+
+    /**
+     * Thrown by the capture builder when a snippet calls part(). An Error, so
+     * snippets catching exceptions do not swallow it.
+     */
+    private static final class PartCalled extends Error {
+        private static final long serialVersionUID = 1L;
+
+        PartCalled() {
+            super("part() is not captured", null, false, false);
+        }
+    }
+
+    /**
+     * Capture of a snippet that calls part(). It has no generation tasks;
+     * toModel() runs the snippet on a real ModelBuilder.
+     */
+    private final class DirectBuild extends CapturedModel {
+
+        private final CompiledClass compiled;
+        private final ModelParameters parameters;
+
+        DirectBuild(CompiledClass compiled, ModelParameters parameters) {
+            super(Collections.<Node>emptyList(), Collections.<CapturedModel.CapturedNode>emptyList());
+            this.compiled = compiled;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public Model toModel() {
+            try {
+                return buildDirect(compiled, parameters);
+            } catch (SnippetFailedException e) {
+                throw new GdxRuntimeException(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * ModelBuilder for snippets that call part(). Reports nodes to the guard
+     * and counts the geometry of every model end() builds.
+     */
+    private static class DirectModelBuilder extends ModelBuilder {
+
+        private final ExecutionGuard guard;
+        private final Array<Model> builtModels = new Array<>();
+
+        DirectModelBuilder(ExecutionGuard guard) {
+            this.guard = guard;
+        }
+
+        @Override
+        public Node node() {
+            Node node = super.node();
+            guard.enterNode(node);
+            return node;
+        }
+
+        @Override
+        public Model end() {
+            Model model = super.end();
+            builtModels.add(model);
+            guard.addBuiltModel(model);
+            return model;
+        }
+
+        /**
+         * Dispose every model built so far, after the snippet failed.
+         */
+        void disposeBuiltModels() {
+            for (Model model : builtModels) {
+                model.dispose();
+            }
+            builtModels.clear();
+        }
     }
 
     /**
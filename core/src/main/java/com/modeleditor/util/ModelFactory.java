@@ -0,0 +1,21 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.ModelBuilder;
+
+/**
+ * Interface implemented by every compiled snippet class, so the compiler
+ * can call it directly instead of through reflection.
+ * Implementations must not keep state between calls; one instance is
+ * cached per compiled class and reused for every build.
+ */
+public interface ModelFactory {
+
+    /**
+     * Build the model described by the snippet.
+     * @param modelBuilder Builder the snippet adds its parts to
+     * @param parameters Values for the snippet's declared parameters
+     * @return The finished model
+     */
+    Model createModel(ModelBuilder modelBuilder, ModelParameters parameters);
+}
@@ -0,0 +1,227 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.Color;
+import org.codehaus.commons.compiler.CompileException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A typed parameter declared by a snippet. Declarations are comment lines
+ * anywhere in the snippet:
+ *
+ * <pre>
+ * // @param float trunkHeight = 1.5 [0.5, 3]
+ * // @param int segments = 8 [3, 32]
+ * // @param color foliageColor = 0.2, 0.6, 0.2
+ * </pre>
+ *
+ * Each parameter becomes a local variable of the same name at the top of
+ * createModel, so the snippet can be rebuilt with new values without
+ * recompiling.
+ */
+public final class ModelParameter {
+
+    /**
+     * Supported parameter types.
+     */
+    public enum Type {
+        FLOAT, INT, COLOR
+    }
+
+    private static final Pattern DECLARATION = Pattern.compile(
+        "^[ \\t]*//[ \\t]*@param[ \\t]+(\\w+)[ \\t]+([A-Za-z_$][\\w$]*)[ \\t]*=[ \\t]*([^\\[\\r\\n]+?)"
+            + "(?:[ \\t]*\\[([^\\]\\r\\n]*)\\])?[ \\t]*$",
+        Pattern.MULTILINE);
+
+    private final String name;
+    private final Type type;
+    private final float defaultValue;
+    private final Color defaultColor;
+    private final float min;
+    private final float max;
+
+    private ModelParameter(String name, Type type, float defaultValue, Color defaultColor, float min, float max) {
+        this.name = name;
+        this.type = type;
+        this.defaultValue = defaultValue;
+        this.defaultColor = defaultColor;
+        this.min = min;
+        this.max = max;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get the default of a float or int parameter.
+     */
+    public float getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * Get the default of a color parameter, or null for numeric parameters.
+     */
+    public Color getDefaultColor() {
+        return defaultColor == null ? null : new Color(defaultColor);
+    }
+
+    public float getMin() {
+        return min;
+    }
+
+    public float getMax() {
+        return max;
+    }
+
+    /**
+     * Declarations are equal when name, type, default and range all match.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ModelParameter)) return false;
+        ModelParameter other = (ModelParameter) o;
+        return name.equals(other.name) && type == other.type
+            && Float.compare(defaultValue, other.defaultValue) == 0
+            && (defaultColor == null ? other.defaultColor == null : defaultColor.equals(other.defaultColor))
+            && Float.compare(min, other.min) == 0 && Float.compare(max, other.max) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = name.hashCode();
+        result = 31 * result + type.hashCode();
+        result = 31 * result + Float.floatToIntBits(defaultValue);
+        result = 31 * result + Float.floatToIntBits(min);
+        result = 31 * result + Float.floatToIntBits(max);
+        return result;
+    }
+
+    /**
+     * Generate the local variable declaration that reads this parameter.
+     */
+    String toLocalDeclaration() {
+        switch (type) {
+            case INT:
+                return "int " + name + " = parameters.getInt(\"" + name + "\", " + (int) defaultValue + ");";
+            case COLOR:
+                return "Color " + name + " = parameters.getColor(\"" + name + "\", "
+                    + floatLiteral(defaultColor.r) + ", " + floatLiteral(defaultColor.g) + ", "
+                    + floatLiteral(defaultColor.b) + ", " + floatLiteral(defaultColor.a) + ");";
+            default:
+                return "float " + name + " = parameters.getFloat(\"" + name + "\", "
+                    + floatLiteral(defaultValue) + ");";
+        }
+    }
+
+    /**
+     * Parse every parameter declaration in a snippet.
+     * @param codeBody The snippet (createModel method body)
+     * @return Declared parameters in source order
+     * @throws CompileException if a declaration is malformed or duplicated
+     */
+    public static List<ModelParameter> parse(String codeBody) throws CompileException {
+        Matcher matcher = DECLARATION.matcher(codeBody);
+        List<ModelParameter> parameters = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+
+        while (matcher.find()) {
+            String declaration = matcher.group().trim();
+            String name = matcher.group(2);
+            if (!names.add(name)) {
+                throw new CompileException("Duplicate parameter '" + name + "': " + declaration, null);
+            }
+            try {
+                parameters.add(parseDeclaration(matcher.group(1), name, matcher.group(3), matcher.group(4)));
+            } catch (IllegalArgumentException e) {
+                throw new CompileException("Invalid parameter declaration (" + e.getMessage() + "): "
+                    + declaration, null);
+            }
+        }
+
+        return parameters.isEmpty() ? Collections.<ModelParameter>emptyList() : parameters;
+    }
+
+    private static ModelParameter parseDeclaration(String typeName, String name, String value, String range) {
+        Type type;
+        try {
+            type = Type.valueOf(typeName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("unknown type '" + typeName + "'");
+        }
+
+        if (type == Type.COLOR) {
+            if (range != null) {
+                throw new IllegalArgumentException("colors take no range");
+            }
+            String[] components = value.split(",");
+            if (components.length != 3 && components.length != 4) {
+                throw new IllegalArgumentException("expected r, g, b[, a]");
+            }
+            Color color = new Color(
+                parseUnit(components[0]), parseUnit(components[1]), parseUnit(components[2]),
+                components.length == 4 ? parseUnit(components[3]) : 1f);
+            return new ModelParameter(name, type, 0f, color, 0f, 1f);
+        }
+
+        float defaultValue = parseNumber(value, type);
+        float min;
+        float max;
+        if (range != null) {
+            String[] bounds = range.split(",");
+            if (bounds.length != 2) {
+                throw new IllegalArgumentException("expected [min, max]");
+            }
+            min = parseNumber(bounds[0], type);
+            max = parseNumber(bounds[1], type);
+        } else {
+            // No range given: allow from zero to twice the default
+            min = Math.min(0f, defaultValue);
+            max = Math.max(defaultValue * 2f, defaultValue + 1f);
+        }
+        if (min >= max || defaultValue < min || defaultValue > max) {
+            throw new IllegalArgumentException("default must lie within [min, max]");
+        }
+        return new ModelParameter(name, type, defaultValue, null, min, max);
+    }
+
+    private static float parseNumber(String text, Type type) {
+        String trimmed = text.trim();
+        if (trimmed.endsWith("f") || trimmed.endsWith("F")) {
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        try {
+            if (type == Type.INT) {
+                return Integer.parseInt(trimmed);
+            }
+            return Float.parseFloat(trimmed);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("not a number: '" + text.trim() + "'");
+        }
+    }
+
+    private static float parseUnit(String text) {
+        float value = parseNumber(text, Type.FLOAT);
+        if (value < 0f || value > 1f) {
+            throw new IllegalArgumentException("color components must be between 0 and 1");
+        }
+        return value;
+    }
+
+    private static String floatLiteral(float value) {
+        return Float.toString(value) + "f";
+    }
+}
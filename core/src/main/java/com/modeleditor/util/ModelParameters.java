@@ -0,0 +1,99 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.Color;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Current values of a snippet's declared parameters.
+ * Parameters without a value, or with a value of another type, read as
+ * the default written in the snippet.
+ */
+public class ModelParameters {
+
+    private final Map<String, Object> values = new HashMap<>();
+    // Declarations the current values were chosen under
+    private final Map<String, ModelParameter> declarations = new HashMap<>();
+
+    /**
+     * Adopt the declarations of a newly compiled snippet. Values of
+     * parameters whose type, default or range changed, or that are no
+     * longer declared, are dropped so they read as the new default.
+     * Call before building the snippet.
+     */
+    public void declare(List<ModelParameter> declared) {
+        Map<String, ModelParameter> previous = new HashMap<>(declarations);
+        declarations.clear();
+        for (ModelParameter parameter : declared) {
+            declarations.put(parameter.getName(), parameter);
+        }
+        for (Iterator<String> names = values.keySet().iterator(); names.hasNext(); ) {
+            String name = names.next();
+            ModelParameter declaration = declarations.get(name);
+            ModelParameter before = previous.get(name);
+            if (declaration == null || (before != null && !declaration.equals(before))) {
+                names.remove();
+            }
+        }
+    }
+
+    /**
+     * Copy the current values and declarations, e.g. for a build running
+     * on another thread while the editor keeps changing them.
+     */
+    public ModelParameters copy() {
+        ModelParameters copy = new ModelParameters();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            copy.values.put(entry.getKey(), value instanceof Color ? new Color((Color) value) : value);
+        }
+        copy.declarations.putAll(declarations);
+        return copy;
+    }
+
+    public void setFloat(String name, float value) {
+        values.put(name, value);
+    }
+
+    public void setInt(String name, int value) {
+        values.put(name, value);
+    }
+
+    public void setColor(String name, Color value) {
+        values.put(name, new Color(value));
+    }
+
+    public float getFloat(String name, float defaultValue) {
+        Object value = values.get(name);
+        return value instanceof Float ? (Float) value : defaultValue;
+    }
+
+    public int getInt(String name, int defaultValue) {
+        Object value = values.get(name);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    /**
+     * Get a color value. A new instance is returned so snippet code may modify it.
+     */
+    public Color getColor(String name, float r, float g, float b, float a) {
+        Object value = values.get(name);
+        return value instanceof Color ? new Color((Color) value) : new Color(r, g, b, a);
+    }
+
+    public boolean contains(String name) {
+        return values.containsKey(name);
+    }
+
+    public void remove(String name) {
+        values.remove(name);
+    }
+
+    public void clear() {
+        values.clear();
+        declarations.clear();
+    }
+}
@@ -0,0 +1,345 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.BoundingBox;
+
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Geometry and GPU memory statistics of a built model, per node and in
+ * total. Memory is estimated from buffer sizes: each mesh's vertex buffer
+ * is vertices times stride, and indices are 16-bit.
+ *
+ * Node counts cover the node's own parts, not its children. Totals count
+ * each mesh once, however many nodes share it.
+ */
+public class ModelStats {
+
+    private final List<NodeStats> nodes = new ArrayList<>();
+    private final BoundingBox bounds = new BoundingBox();
+    private int meshes;
+    private long vertices;
+    private long triangles;
+    private int drawCalls;
+    private int materials;
+    private int maxVertexStride;
+    private long vertexBytes;
+    private long indexBytes;
+
+    private ModelStats() {
+    }
+
+    /**
+     * Measure a model. Reads index data in place, so call it on the render thread.
+     * Bounds come from the mesh parts, so quantized models are measured too.
+     */
+    public static ModelStats of(Model model) {
+        ModelStats stats = new ModelStats();
+        stats.bounds.inf();
+        Map<Mesh, ShortBuffer> indexCache = new IdentityHashMap<>();
+        List<Material> distinctMaterials = new ArrayList<>();
+        for (Node node : model.nodes) {
+            stats.addNode(node, node.id != null ? node.id : "node", 0, indexCache, distinctMaterials);
+        }
+
+        for (Mesh mesh : indexCache.keySet()) {
+            stats.meshes++;
+            stats.vertices += mesh.getNumVertices();
+            stats.vertexBytes += (long) mesh.getNumVertices() * mesh.getVertexSize();
+            stats.indexBytes += mesh.getNumIndices() * 2L;
+            stats.maxVertexStride = Math.max(stats.maxVertexStride, mesh.getVertexSize());
+        }
+        stats.materials = distinctMaterials.size();
+        if (stats.nodes.isEmpty() || !stats.bounds.isValid()) {
+            stats.bounds.clr();
+        }
+        return stats;
+    }
+
+    private void addNode(Node node, String path, int depth, Map<Mesh, ShortBuffer> indexCache,
+                         List<Material> distinctMaterials) {
+        NodeStats stats = new NodeStats(path, depth);
+        List<Material> nodeMaterials = new ArrayList<>();
+        Map<Mesh, BitSet> usedVertices = new IdentityHashMap<>();
+        BoundingBox partBounds = new BoundingBox();
+        Vector3 min = new Vector3();
+        Vector3 max = new Vector3();
+
+        for (NodePart part : node.parts) {
+            MeshPart meshPart = part.meshPart;
+            Mesh mesh = meshPart.mesh;
+            ShortBuffer indices = indexCache.get(mesh);
+            if (indices == null) {
+                indices = MeshBuffers.indices(mesh);
+                indexCache.put(mesh, indices);
+            }
+
+            BitSet used = usedVertices.get(mesh);
+            if (used == null) {
+                used = new BitSet(mesh.getNumVertices());
+                usedVertices.put(mesh, used);
+            }
+            if (indices.limit() > 0) {
+                for (int i = 0; i < meshPart.size; i++) {
+                    used.set(indices.get(meshPart.offset + i) & 0xFFFF);
+                }
+                stats.indexBytes += meshPart.size * 2L;
+            } else {
+                used.set(meshPart.offset, meshPart.offset + meshPart.size);
+            }
+
+            stats.triangles += triangleCount(meshPart);
+            if (part.enabled) stats.drawCalls++;
+            stats.vertexStride = Math.max(stats.vertexStride, mesh.getVertexSize());
+            addDistinct(nodeMaterials, part.material);
+            addDistinct(distinctMaterials, part.material);
+
+            min.set(meshPart.center).sub(meshPart.halfExtents);
+            max.set(meshPart.center).add(meshPart.halfExtents);
+            partBounds.set(min, max).mul(node.globalTransform);
+            stats.bounds.ext(partBounds);
+            bounds.ext(partBounds);
+        }
+
+        for (Map.Entry<Mesh, BitSet> entry : usedVertices.entrySet()) {
+            int count = entry.getValue().cardinality();
+            stats.vertices += count;
+            stats.vertexBytes += (long) count * entry.getKey().getVertexSize();
+        }
+        stats.materials = nodeMaterials.size();
+        triangles += stats.triangles;
+        drawCalls += stats.drawCalls;
+        nodes.add(stats);
+
+        for (Node child : node.getChildren()) {
+            addNode(child, path + "/" + (child.id != null ? child.id : "node"), depth + 1, indexCache,
+                distinctMaterials);
+        }
+    }
+
+    /**
+     * Count materials that would need separate draw calls, ignoring ids.
+     */
+    private static void addDistinct(List<Material> materials, Material material) {
+        for (Material existing : materials) {
+            if (existing == material || existing.same(material, true)) return;
+        }
+        materials.add(material);
+    }
+
+    static int triangleCount(MeshPart part) {
+        switch (part.primitiveType) {
+            case GL20.GL_TRIANGLES:
+                return part.size / 3;
+            case GL20.GL_TRIANGLE_STRIP:
+            case GL20.GL_TRIANGLE_FAN:
+                return Math.max(0, part.size - 2);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Get every node, parents before children, in hierarchy order.
+     */
+    public List<NodeStats> getNodes() {
+        return Collections.unmodifiableList(nodes);
+    }
+
+    public int getMeshCount() {
+        return meshes;
+    }
+
+    /**
+     * Get the vertices in all meshes, each mesh counted once.
+     */
+    public long getVertices() {
+        return vertices;
+    }
+
+    public long getTriangles() {
+        return triangles;
+    }
+
+    /**
+     * Get the number of enabled node parts, one draw call each.
+     */
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    /**
+     * Get the number of materials that differ in any attribute.
+     */
+    public int getMaterials() {
+        return materials;
+    }
+
+    /**
+     * Get the largest vertex size of any mesh, in bytes.
+     */
+    public int getMaxVertexStride() {
+        return maxVertexStride;
+    }
+
+    public long getVertexBytes() {
+        return vertexBytes;
+    }
+
+    public long getIndexBytes() {
+        return indexBytes;
+    }
+
+    /**
+     * Get the estimated GPU memory of all vertex and index buffers.
+     */
+    public long getVramBytes() {
+        return vertexBytes + indexBytes;
+    }
+
+    /**
+     * Get the model's world-space bounds; empty if it has no parts.
+     */
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+
+    /**
+     * Format the totals on a few lines.
+     */
+    public String formatSummary() {
+        Vector3 dimensions = bounds.getDimensions(new Vector3());
+        return String.format(Locale.ROOT,
+            "%d vertices, %d triangles, %d draw calls, %d materials%n"
+                + "%d meshes, stride %d B, VRAM %s (vertices %s, indices %s)%n"
+                + "size %.2f x %.2f x %.2f",
+            vertices, triangles, drawCalls, materials, meshes, maxVertexStride,
+            formatBytes(getVramBytes()), formatBytes(vertexBytes), formatBytes(indexBytes),
+            dimensions.x, dimensions.y, dimensions.z);
+    }
+
+    /**
+     * Format one row per node, indented by depth.
+     */
+    public String formatNodes() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-24s %8s %8s %5s %4s %6s %9s%n",
+            "node", "verts", "tris", "draws", "mats", "stride", "VRAM"));
+        for (NodeStats node : nodes) {
+            String name = indent(node.depth) + node.getName();
+            if (name.length() > 24) name = name.substring(0, 23) + "~";
+            sb.append(String.format(Locale.ROOT, "%-24s %8d %8d %5d %4d %6d %9s%n",
+                name, node.vertices, node.triangles, node.drawCalls, node.materials, node.vertexStride,
+                formatBytes(node.getVramBytes())));
+        }
+        return sb.toString();
+    }
+
+    private static String indent(int depth) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            sb.append("  ");
+        }
+        return sb.toString();
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        return String.format(Locale.ROOT, "%.2f MB", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Statistics of one node's own parts.
+     */
+    public static final class NodeStats {
+        final String path;
+        final int depth;
+        final BoundingBox bounds = new BoundingBox();
+        long vertices;
+        long triangles;
+        int drawCalls;
+        int materials;
+        int vertexStride;
+        long vertexBytes;
+        long indexBytes;
+
+        NodeStats(String path, int depth) {
+            this.path = path;
+            this.depth = depth;
+            bounds.inf();
+        }
+
+        /**
+         * Get the node ids from the root to this node, joined by '/'.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public String getName() {
+            int slash = path.lastIndexOf('/');
+            return slash >= 0 ? path.substring(slash + 1) : path;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * Get the distinct vertices the node's parts reference.
+         */
+        public long getVertices() {
+            return vertices;
+        }
+
+        public long getTriangles() {
+            return triangles;
+        }
+
+        public int getDrawCalls() {
+            return drawCalls;
+        }
+
+        public int getMaterials() {
+            return materials;
+        }
+
+        public int getVertexStride() {
+            return vertexStride;
+        }
+
+        public long getVertexBytes() {
+            return vertexBytes;
+        }
+
+        public long getIndexBytes() {
+            return indexBytes;
+        }
+
+        public long getVramBytes() {
+            return vertexBytes + indexBytes;
+        }
+
+        /**
+         * Get the world-space bounds of the node's parts; invalid if it has none.
+         */
+        public BoundingBox getBounds() {
+            return bounds;
+        }
+    }
+}
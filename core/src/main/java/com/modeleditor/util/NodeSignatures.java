@@ -0,0 +1,326 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.g3d.Attribute;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.NumberUtils;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Hashes of each node's build inputs in a freshly built model, keyed by
+ * node path, so a rebuild can tell which nodes changed. Each node has
+ * four hashes: geometry (per part: primitive type, vertex attributes, and
+ * the vertices drawn in index order), materials, enabled parts, and local
+ * transform.
+ *
+ * When only materials and transforms changed, {@link #updateInPlace}
+ * applies them to the model already shown, so its GPU meshes and all
+ * post-build work are kept.
+ */
+public class NodeSignatures {
+
+    /**
+     * The input hashes of one node's own parts, not its children.
+     */
+    public static final class Signature {
+        final int parts;
+        final long geometryHash;
+        final long materialHash;
+        final long visibilityHash;
+        final long transformHash;
+
+        Signature(int parts, long geometryHash, long materialHash, long visibilityHash, long transformHash) {
+            this.parts = parts;
+            this.geometryHash = geometryHash;
+            this.materialHash = materialHash;
+            this.visibilityHash = visibilityHash;
+            this.transformHash = transformHash;
+        }
+
+        boolean sameGeometry(Signature other) {
+            return parts == other.parts && geometryHash == other.geometryHash;
+        }
+    }
+
+    /**
+     * Node counts by kind of change between two builds.
+     */
+    public static final class Diff {
+        int added;
+        int removed;
+        int geometryChanged;
+        int materialChanged;
+        int transformChanged;
+        int unchanged;
+        // Nodes with the same geometry that moved or changed part visibility, whatever else changed
+        int moved;
+        int visibilityChanged;
+
+        /**
+         * Check whether every node kept its geometry, so only materials and
+         * transforms need updating.
+         */
+        public boolean isGeometryUnchanged() {
+            return added == 0 && removed == 0 && geometryChanged == 0;
+        }
+
+        public int getAdded() {
+            return added;
+        }
+
+        public int getRemoved() {
+            return removed;
+        }
+
+        public int getGeometryChanged() {
+            return geometryChanged;
+        }
+
+        /**
+         * Get the nodes with the same geometry but different materials.
+         */
+        public int getMaterialChanged() {
+            return materialChanged;
+        }
+
+        /**
+         * Get the nodes whose only change is their transform.
+         */
+        public int getTransformChanged() {
+            return transformChanged;
+        }
+
+        public int getUnchanged() {
+            return unchanged;
+        }
+
+        /**
+         * Check whether no node kept its geometry but moved, so world-space
+         * data such as picking triangles is still valid.
+         */
+        public boolean isTransformUnchanged() {
+            return moved == 0;
+        }
+
+        /**
+         * Check whether every node that kept its geometry also kept its
+         * parts' visibility.
+         */
+        public boolean isVisibilityUnchanged() {
+            return visibilityChanged == 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                "%d unchanged, %d transform-only, %d material, %d geometry, %d added, %d removed",
+                unchanged, transformChanged, materialChanged, geometryChanged, added, removed);
+        }
+    }
+
+    private final Map<String, Signature> nodes = new LinkedHashMap<>();
+
+    private NodeSignatures() {
+    }
+
+    /**
+     * Hash every node of a built model. Reads vertex and index data in
+     * place, so call it on the render thread, before any post-build stage
+     * rewrites the meshes.
+     */
+    public static NodeSignatures of(Model model) {
+        NodeSignatures signatures = new NodeSignatures();
+        signatures.addNodes(model.nodes, "");
+        return signatures;
+    }
+
+    private void addNodes(Iterable<Node> children, String parentPath) {
+        int index = 0;
+        for (Node node : children) {
+            String path = path(parentPath, node, index++);
+            long geometryHash = 17;
+            long materialHash = 17;
+            long visibilityHash = 17;
+            for (NodePart part : node.parts) {
+                geometryHash = 31 * geometryHash + geometryHash(part.meshPart);
+                materialHash = 31 * materialHash + materialHash(part.material);
+                visibilityHash = 31 * visibilityHash + (part.enabled ? 1 : 0);
+            }
+            nodes.put(path, new Signature(node.parts.size, geometryHash, materialHash, visibilityHash,
+                transformHash(node)));
+            addNodes(node.getChildren(), path);
+        }
+    }
+
+    /**
+     * Get a node's ids from the root, each followed by '#' and the node's
+     * index among its siblings, joined by '/'. The index keeps siblings
+     * with the same id, or none, apart; '/' and backslashes in ids are escaped so
+     * ids cannot fake a level.
+     */
+    private static String path(String parentPath, Node node, int index) {
+        String name = (node.id != null ? escape(node.id) : "") + "#" + index;
+        return parentPath.isEmpty() ? name : parentPath + "/" + name;
+    }
+
+    private static String escape(String id) {
+        if (id.indexOf('/') < 0 && id.indexOf('\\') < 0) return id;
+        return id.replace("\\", "\\\\").replace("/", "\\/");
+    }
+
+    private static long geometryHash(MeshPart part) {
+        Mesh mesh = part.mesh;
+        int stride = mesh.getVertexSize() / 4;
+        boolean indexed = mesh.getNumIndices() > 0;
+        FloatBuffer vertices = MeshBuffers.vertices(mesh);
+        ShortBuffer indices = MeshBuffers.indices(mesh);
+
+        long hash = 31L * part.primitiveType + mesh.getVertexAttributes().hashCode();
+        hash = 31 * hash + part.size;
+        for (int i = 0; i < part.size; i++) {
+            int base = (indexed ? indices.get(part.offset + i) & 0xFFFF : part.offset + i) * stride;
+            for (int k = 0; k < stride; k++) {
+                hash = 31 * hash + NumberUtils.floatToRawIntBits(vertices.get(base + k));
+            }
+        }
+        return hash;
+    }
+
+    private static long materialHash(Material material) {
+        long hash = 17;
+        for (Attribute attribute : material) {
+            hash = 31 * hash + attribute.type;
+            hash = 31 * hash + attribute.hashCode();
+        }
+        return hash;
+    }
+
+    private static long transformHash(Node node) {
+        float[] values = {
+            node.translation.x, node.translation.y, node.translation.z,
+            node.rotation.x, node.rotation.y, node.rotation.z, node.rotation.w,
+            node.scale.x, node.scale.y, node.scale.z
+        };
+        long hash = node.inheritTransform ? 1 : 0;
+        for (float value : values) {
+            hash = 31 * hash + NumberUtils.floatToRawIntBits(value);
+        }
+        return hash;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Classify each node of this build against an earlier one, matching
+     * nodes by path.
+     */
+    public Diff diff(NodeSignatures previous) {
+        Diff diff = new Diff();
+        for (Map.Entry<String, Signature> entry : nodes.entrySet()) {
+            Signature before = previous.nodes.get(entry.getKey());
+            Signature after = entry.getValue();
+            if (before == null) {
+                diff.added++;
+                continue;
+            }
+            if (!after.sameGeometry(before)) {
+                diff.geometryChanged++;
+                continue;
+            }
+            if (after.transformHash != before.transformHash) diff.moved++;
+            if (after.visibilityHash != before.visibilityHash) diff.visibilityChanged++;
+
+            if (after.materialHash != before.materialHash || after.visibilityHash != before.visibilityHash) {
+                diff.materialChanged++;
+            } else if (after.transformHash != before.transformHash) {
+                diff.transformChanged++;
+            } else {
+                diff.unchanged++;
+            }
+        }
+        for (String path : previous.nodes.keySet()) {
+            if (!nodes.containsKey(path)) diff.removed++;
+        }
+        return diff;
+    }
+
+    /**
+     * Copy the materials, part visibility and transforms of a fresh build
+     * onto the model shown for an earlier build with the same geometry.
+     * The target keeps its meshes and any {@link QuantizationAttribute}.
+     * Each target part gets a new material, so materials the old ones were
+     * shared with, such as a selection tint's, are not changed.
+     * Merged targets, whose parts do not match the source's, are not supported.
+     * @return false if the hierarchies differ; the target may then be partly updated
+     */
+    public static boolean updateInPlace(Model source, Model target) {
+        if (!updateNodes(source.nodes, target.nodes)) return false;
+        target.materials.clear();
+        collectMaterials(target.nodes, target.materials);
+        target.calculateTransforms();
+        return true;
+    }
+
+    private static boolean updateNodes(Iterable<Node> sourceNodes, Iterable<Node> targetNodes) {
+        Array<Node> targets = new Array<>();
+        for (Node node : targetNodes) {
+            targets.add(node);
+        }
+        int index = 0;
+        for (Node source : sourceNodes) {
+            if (index >= targets.size) return false;
+            Node target = targets.get(index++);
+            if (source.id == null ? target.id != null : !source.id.equals(target.id)) return false;
+            if (source.parts.size != target.parts.size) return false;
+
+            target.inheritTransform = source.inheritTransform;
+            target.translation.set(source.translation);
+            target.rotation.set(source.rotation);
+            target.scale.set(source.scale);
+            for (int i = 0; i < source.parts.size; i++) {
+                NodePart sourcePart = source.parts.get(i);
+                NodePart targetPart = target.parts.get(i);
+                targetPart.enabled = sourcePart.enabled;
+                targetPart.material = copyMaterial(sourcePart.material, targetPart.material);
+            }
+            if (!updateNodes(source.getChildren(), target.getChildren())) return false;
+        }
+        return index == targets.size;
+    }
+
+    /**
+     * Copy a source material, keeping the quantization bounds of the one it replaces.
+     */
+    private static Material copyMaterial(Material source, Material replaced) {
+        Material material = source.copy();
+        Attribute quantization = replaced.get(QuantizationAttribute.Type);
+        if (quantization != null) {
+            material.set(quantization.copy());
+        }
+        return material;
+    }
+
+    /**
+     * List the part materials; after an update each part has its own.
+     */
+    private static void collectMaterials(Iterable<Node> nodes, Array<Material> out) {
+        for (Node node : nodes) {
+            for (NodePart part : node.parts) {
+                out.add(part.material);
+            }
+            collectMaterials(node.getChildren(), out);
+        }
+    }
+}
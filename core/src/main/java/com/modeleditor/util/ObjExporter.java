@@ -0,0 +1,137 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Matrix3;
+import com.badlogic.gdx.math.Vector3;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Writes a Model as Wavefront OBJ: one object per node part, with node
+ * transforms baked into positions and normals. Only triangle parts are
+ * exported; materials are not. Quantized meshes are decoded first.
+ */
+public class ObjExporter {
+
+    private final Vector3 tmp = new Vector3();
+    private final Matrix3 normalMatrix = new Matrix3();
+
+    private int nextVertexIndex = 1;
+
+    /**
+     * Export every node of the model.
+     * @throws IOException if writing fails
+     */
+    public void export(Model model, Writer writer) throws IOException {
+        nextVertexIndex = 1;
+        writer.write("# Exported by LibGDX 3D Model Editor\n");
+        for (Node node : model.nodes) {
+            exportNode(node, writer);
+        }
+        writer.flush();
+    }
+
+    private void exportNode(Node node, Writer writer) throws IOException {
+        normalMatrix.set(node.globalTransform).inv().transpose();
+
+        for (int i = 0; i < node.parts.size; i++) {
+            NodePart part = node.parts.get(i);
+            if (part.meshPart.primitiveType != GL20.GL_TRIANGLES) continue;
+
+            String name = node.id != null ? node.id : "node";
+            writer.write("o " + (node.parts.size > 1 ? name + "_" + i : name) + "\n");
+            exportPart(node, part, writer);
+        }
+
+        for (Node child : node.getChildren()) {
+            exportNode(child, writer);
+        }
+    }
+
+    private void exportPart(Node node, NodePart part, Writer writer) throws IOException {
+        Mesh mesh = part.meshPart.mesh;
+        VertexAttribute normal = mesh.getVertexAttribute(VertexAttributes.Usage.Normal);
+        int stride;
+        int positionOffset;
+        int normalOffset;
+        float[] vertices;
+        if (VertexQuantizer.isQuantized(mesh)) {
+            vertices = VertexQuantizer.decode(mesh,
+                (QuantizationAttribute) part.material.get(QuantizationAttribute.Type));
+            stride = 6;
+            positionOffset = 0;
+            normalOffset = normal != null ? 3 : -1;
+        } else {
+            stride = mesh.getVertexSize() / 4;
+            vertices = new float[mesh.getNumVertices() * stride];
+            mesh.getVertices(vertices);
+            positionOffset = mesh.getVertexAttribute(VertexAttributes.Usage.Position).offset / 4;
+            normalOffset = normal != null ? normal.offset / 4 : -1;
+        }
+
+        int[] indices = partIndices(mesh, part.meshPart.offset, part.meshPart.size);
+
+        // Write each vertex the part uses once, remapped to OBJ's global numbering
+        int[] remap = new int[mesh.getNumVertices()];
+        Arrays.fill(remap, -1);
+        StringBuilder faces = new StringBuilder();
+        for (int i = 0; i + 2 < indices.length; i += 3) {
+            faces.append('f');
+            for (int k = 0; k < 3; k++) {
+                int vertex = indices[i + k];
+                if (remap[vertex] < 0) {
+                    remap[vertex] = nextVertexIndex++;
+                    writeVertex(node, vertices, vertex * stride, positionOffset, normalOffset, writer);
+                }
+                int index = remap[vertex];
+                faces.append(' ').append(index);
+                if (normalOffset >= 0) {
+                    faces.append("//").append(index);
+                }
+            }
+            faces.append('\n');
+        }
+        writer.write(faces.toString());
+    }
+
+    private void writeVertex(Node node, float[] vertices, int base, int positionOffset, int normalOffset,
+                             Writer writer) throws IOException {
+        tmp.set(vertices[base + positionOffset], vertices[base + positionOffset + 1],
+            vertices[base + positionOffset + 2]).mul(node.globalTransform);
+        writer.write(String.format(Locale.ROOT, "v %.6f %.6f %.6f%n", tmp.x, tmp.y, tmp.z));
+
+        if (normalOffset >= 0) {
+            tmp.set(vertices[base + normalOffset], vertices[base + normalOffset + 1],
+                vertices[base + normalOffset + 2]).mul(normalMatrix).nor();
+            writer.write(String.format(Locale.ROOT, "vn %.6f %.6f %.6f%n", tmp.x, tmp.y, tmp.z));
+        }
+    }
+
+    /**
+     * Get the vertex indices of a mesh part, whether the mesh is indexed or not.
+     */
+    static int[] partIndices(Mesh mesh, int offset, int size) {
+        int[] indices = new int[size];
+        if (mesh.getNumIndices() > 0) {
+            ShortBuffer meshIndices = MeshBuffers.indices(mesh);
+            for (int i = 0; i < size; i++) {
+                indices[i] = meshIndices.get(offset + i) & 0xFFFF;
+            }
+        } else {
+            for (int i = 0; i < size; i++) {
+                indices[i] = offset + i;
+            }
+        }
+        return indices;
+    }
+}
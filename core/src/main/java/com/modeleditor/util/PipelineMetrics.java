@@ -0,0 +1,246 @@
+package com.modeleditor.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Registry of per-phase timings for the compile-and-load pipeline.
+ * Each phase keeps a window of recent samples for percentiles plus running
+ * totals of call counts and bytes allocated by the thread running it.
+ */
+public class PipelineMetrics {
+
+    /**
+     * Pipeline phases in execution order.
+     */
+    public enum Phase {
+        /** Parse-only syntax check (live mode). */
+        PARSE,
+        /** Janino compile: parse plus bytecode generation. */
+        COMPILE,
+        /** Defining the generated classes in the JVM. */
+        CLASS_LOAD,
+        /** Running the snippet's createModel, capturing its primitives. */
+        CREATE_MODEL,
+        /** Generating the captured nodes' geometry, summed over threads. */
+        GEOMETRY,
+        /** Creating meshes from the generated geometry. */
+        MESH_UPLOAD,
+        /** Whole compileAndLoadModel call, request to visible model. */
+        TOTAL
+    }
+
+    public static final int DEFAULT_WINDOW_SIZE = 512;
+
+    private static final ThreadMXBean THREAD_BEAN = threadBean();
+
+    private final int windowSize;
+    private final Map<Phase, PhaseStats> stats = new EnumMap<>(Phase.class);
+
+    public PipelineMetrics() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    public PipelineMetrics(int windowSize) {
+        this.windowSize = windowSize;
+        for (Phase phase : Phase.values()) {
+            stats.put(phase, new PhaseStats(windowSize));
+        }
+    }
+
+    /**
+     * Start timing a phase on the current thread.
+     */
+    public static Timing start() {
+        return new Timing(System.nanoTime(), allocatedBytes());
+    }
+
+    /**
+     * Finish a timing started on the current thread and record it.
+     * @return Elapsed nanoseconds
+     */
+    public long stop(Phase phase, Timing timing) {
+        long elapsed = System.nanoTime() - timing.startNanos;
+        long allocated = -1;
+        if (timing.startAllocatedBytes >= 0) {
+            allocated = allocatedBytes() - timing.startAllocatedBytes;
+        }
+        record(phase, elapsed, allocated);
+        return elapsed;
+    }
+
+    /**
+     * Record a sample measured elsewhere.
+     * @param allocatedBytes Bytes allocated during the phase, or -1 if unknown
+     */
+    public synchronized void record(Phase phase, long elapsedNanos, long allocatedBytes) {
+        stats.get(phase).add(elapsedNanos, allocatedBytes);
+    }
+
+    /**
+     * Get a consistent copy of one phase's statistics.
+     */
+    public synchronized PhaseSnapshot snapshot(Phase phase) {
+        return stats.get(phase).snapshot(phase);
+    }
+
+    public synchronized void reset() {
+        for (Phase phase : Phase.values()) {
+            stats.put(phase, new PhaseStats(windowSize));
+        }
+    }
+
+    /**
+     * Format a short multi-line summary for on-screen display.
+     */
+    public String formatSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "%-12s %6s %8s %8s %8s %10s%n",
+            "phase", "count", "p50 ms", "p95 ms", "p99 ms", "alloc KB"));
+        for (Phase phase : Phase.values()) {
+            PhaseSnapshot s = snapshot(phase);
+            sb.append(String.format(Locale.ROOT, "%-12s %6d %8.2f %8.2f %8.2f %10s%n",
+                phase.name().toLowerCase(Locale.ROOT), s.count,
+                s.p50Nanos / 1e6, s.p95Nanos / 1e6, s.p99Nanos / 1e6,
+                s.meanAllocatedBytes >= 0 ? String.valueOf(s.meanAllocatedBytes / 1024) : "n/a"));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Write every phase as one CSV row, with a header row.
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write("phase,count,mean_ms,p50_ms,p95_ms,p99_ms,max_ms,mean_alloc_bytes,total_alloc_bytes\n");
+        for (Phase phase : Phase.values()) {
+            PhaseSnapshot s = snapshot(phase);
+            writer.write(String.format(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d%n",
+                phase.name().toLowerCase(Locale.ROOT), s.count,
+                s.meanNanos / 1e6, s.p50Nanos / 1e6, s.p95Nanos / 1e6, s.p99Nanos / 1e6, s.maxNanos / 1e6,
+                s.meanAllocatedBytes, s.totalAllocatedBytes));
+        }
+        writer.flush();
+    }
+
+    /**
+     * Get the bytes allocated so far by the current thread.
+     * @return Byte count, or -1 where the JVM cannot report it (e.g. Android)
+     */
+    public static long allocatedBytes() {
+        // Null unless the HotSpot extension is present, so the cast is safe
+        if (THREAD_BEAN == null) return -1;
+        return ((com.sun.management.ThreadMXBean) THREAD_BEAN)
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static ThreadMXBean threadBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+                if (sunBean.isThreadAllocatedMemorySupported()) {
+                    sunBean.setThreadAllocatedMemoryEnabled(true);
+                    return bean;
+                }
+            }
+        } catch (Throwable t) {
+            // java.lang.management is missing on Android
+        }
+        return null;
+    }
+
+    /**
+     * Start point of a phase measurement.
+     */
+    public static final class Timing {
+        private final long startNanos;
+        private final long startAllocatedBytes;
+
+        private Timing(long startNanos, long startAllocatedBytes) {
+            this.startNanos = startNanos;
+            this.startAllocatedBytes = startAllocatedBytes;
+        }
+    }
+
+    /**
+     * Immutable statistics for one phase.
+     */
+    public static final class PhaseSnapshot {
+        public final Phase phase;
+        public final long count;
+        public final long meanNanos;
+        public final long p50Nanos;
+        public final long p95Nanos;
+        public final long p99Nanos;
+        public final long maxNanos;
+        /** Mean bytes allocated per call, or -1 if allocation is not measurable. */
+        public final long meanAllocatedBytes;
+        public final long totalAllocatedBytes;
+
+        PhaseSnapshot(Phase phase, long count, long meanNanos, long p50Nanos, long p95Nanos, long p99Nanos,
+                      long maxNanos, long meanAllocatedBytes, long totalAllocatedBytes) {
+            this.phase = phase;
+            this.count = count;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p95Nanos = p95Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+            this.meanAllocatedBytes = meanAllocatedBytes;
+            this.totalAllocatedBytes = totalAllocatedBytes;
+        }
+    }
+
+    /**
+     * Ring buffer of recent samples plus lifetime totals.
+     */
+    private static final class PhaseStats {
+        private final long[] window;
+        private int next;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long allocationSamples;
+        private long totalAllocatedBytes;
+
+        PhaseStats(int windowSize) {
+            window = new long[windowSize];
+        }
+
+        void add(long elapsedNanos, long allocatedBytes) {
+            window[next] = elapsedNanos;
+            next = (next + 1) % window.length;
+            count++;
+            totalNanos += elapsedNanos;
+            maxNanos = Math.max(maxNanos, elapsedNanos);
+            if (allocatedBytes >= 0) {
+                allocationSamples++;
+                totalAllocatedBytes += allocatedBytes;
+            }
+        }
+
+        PhaseSnapshot snapshot(Phase phase) {
+            int size = (int) Math.min(count, window.length);
+            long[] sorted = Arrays.copyOf(window, size);
+            Arrays.sort(sorted);
+            return new PhaseSnapshot(phase, count,
+                count == 0 ? 0 : totalNanos / count,
+                percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                maxNanos,
+                allocationSamples == 0 ? -1 : totalAllocatedBytes / allocationSamples,
+                totalAllocatedBytes);
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) return 0;
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reference-counted cache of primitive meshes shared between nodes, models
+ * and recompiles. Snippets often build many identical boxes, cylinders or
+ * cones (fence posts, chair legs, roof tiles); after a build,
+ * {@link #share(Model)} points every node part with identical geometry at
+ * one cached mesh, so each shape is uploaded and stored once and drawn at
+ * each node's transform.
+ *
+ * Entries are keyed by the part's local-space geometry: primitive type,
+ * vertex attributes, vertex data and indices. Identical builder calls give
+ * identical geometry, so this is equivalent to keying by call parameters,
+ * and it also catches shapes built by hand. Unreferenced entries are kept
+ * for a while, so rebuilding or recompiling a snippet reuses its meshes.
+ * Lookups compact the part straight from the mesh buffers into pooled
+ * staging buffers, released right after; cached entries are compared
+ * against their own mesh's buffers, so they hold no pooled memory.
+ */
+public class PrimitiveMeshCache implements Disposable {
+
+    /** Default number of unreferenced meshes kept for later builds. */
+    public static final int DEFAULT_MAX_UNUSED = 64;
+
+    private final Map<Key, Entry> entries = new HashMap<>();
+    private final LinkedHashMap<Key, Entry> unused = new LinkedHashMap<>(16, 0.75f, true);
+    private final int maxUnused;
+    private final DirectBufferPool pool;
+
+    private int nextPartId;
+    private long hitCount;
+    private long missCount;
+    private long savedBytes;
+
+    public PrimitiveMeshCache() {
+        this(DEFAULT_MAX_UNUSED);
+    }
+
+    public PrimitiveMeshCache(int maxUnused) {
+        this(maxUnused, DirectBufferPool.shared());
+    }
+
+    public PrimitiveMeshCache(int maxUnused, DirectBufferPool pool) {
+        this.maxUnused = maxUnused;
+        this.pool = pool;
+    }
+
+    /**
+     * Create a copy of a built model whose node parts use cached meshes.
+     * The node hierarchy, ids, transforms and materials are kept. Call on
+     * the render thread. The source model is not modified; dispose it
+     * afterwards, before it is ever rendered, so its meshes are never
+     * uploaded. Disposing the returned model releases its cache references.
+     * @return The shared copy, or null for animated or skinned models
+     */
+    public synchronized Model share(Model source) {
+        if (source.animations.size > 0 || hasBones(source.nodes)) return null;
+
+        Model model = new Model();
+        Map<MeshPart, MeshPart> acquired = new IdentityHashMap<>();
+        Map<Mesh, int[]> remaps = new IdentityHashMap<>();
+        for (Node node : source.nodes) {
+            model.nodes.add(copyNode(node, model, acquired, remaps));
+        }
+        model.calculateTransforms();
+        return model;
+    }
+
+    private static boolean hasBones(Iterable<Node> nodes) {
+        for (Node node : nodes) {
+            for (NodePart part : node.parts) {
+                if (part.bones != null) return true;
+            }
+            if (hasBones(node.getChildren())) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param remaps Vertex remap per source mesh, all -1, shared by its parts
+     */
+    private Node copyNode(Node source, Model model, Map<MeshPart, MeshPart> acquired, Map<Mesh, int[]> remaps) {
+        Node node = new Node();
+        node.id = source.id;
+        node.inheritTransform = source.inheritTransform;
+        node.translation.set(source.translation);
+        node.rotation.set(source.rotation);
+        node.scale.set(source.scale);
+
+        for (NodePart part : source.parts) {
+            MeshPart shared = acquired.get(part.meshPart);
+            if (shared == null) {
+                shared = acquire(part.meshPart, model, remapFor(part.meshPart.mesh, remaps));
+                acquired.put(part.meshPart, shared);
+            }
+            Material material = part.material.copy();
+            model.materials.add(material);
+            NodePart copy = new NodePart(shared, material);
+            copy.enabled = part.enabled;
+            node.parts.add(copy);
+        }
+
+        for (Node child : source.getChildren()) {
+            node.addChild(copyNode(child, model, acquired, remaps));
+        }
+        return node;
+    }
+
+    private static int[] remapFor(Mesh mesh, Map<Mesh, int[]> remaps) {
+        int[] remap = remaps.get(mesh);
+        if (remap == null) {
+            remap = new int[mesh.getNumVertices()];
+            Arrays.fill(remap, -1);
+            remaps.put(mesh, remap);
+        }
+        return remap;
+    }
+
+    /**
+     * Get the cached part for some geometry, creating it on a miss, and
+     * tie one reference to the model's lifetime.
+     */
+    private MeshPart acquire(MeshPart source, Model model, int[] remap) {
+        ByteBuffer vertexData = pool.acquire(source.size * source.mesh.getVertexSize());
+        ByteBuffer indexData = pool.acquire(source.size * 2);
+        Entry entry;
+        try {
+            Key probe = Key.of(source, remap, vertexData, indexData);
+            entry = entries.get(probe);
+            if (entry != null) {
+                hitCount++;
+                savedBytes += entry.sizeInBytes;
+                if (entry.references == 0) {
+                    unused.remove(entry.key);
+                }
+            } else {
+                missCount++;
+                entry = new Entry(probe, "shared" + nextPartId++);
+                entries.put(entry.key, entry);
+            }
+        } finally {
+            pool.release(vertexData);
+            pool.release(indexData);
+        }
+        entry.references++;
+
+        if (!model.meshes.contains(entry.mesh, true)) {
+            model.meshes.add(entry.mesh);
+            model.meshParts.add(entry.part);
+        }
+        model.manageDisposable(new Lease(entry));
+        return entry.part;
+    }
+
+    private synchronized void release(Entry entry) {
+        if (entry.disposed || --entry.references > 0) return;
+
+        unused.put(entry.key, entry);
+        Iterator<Entry> eldest = unused.values().iterator();
+        while (unused.size() > maxUnused && eldest.hasNext()) {
+            Entry evicted = eldest.next();
+            eldest.remove();
+            entries.remove(evicted.key);
+            evicted.dispose();
+        }
+    }
+
+    /**
+     * Get the number of meshes in the cache, referenced or not.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Get the vertex and index bytes that did not have to be allocated
+     * because a cached mesh was reused.
+     */
+    public synchronized long getSavedBytes() {
+        return savedBytes;
+    }
+
+    /**
+     * Dispose every cached mesh. Models created by {@link #share(Model)}
+     * must not be rendered afterwards.
+     */
+    @Override
+    public synchronized void dispose() {
+        for (Entry entry : entries.values()) {
+            entry.dispose();
+        }
+        entries.clear();
+        unused.clear();
+    }
+
+    /**
+     * Releases one reference when the owning model is disposed.
+     */
+    private final class Lease implements Disposable {
+        private Entry entry;
+
+        Lease(Entry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public void dispose() {
+            if (entry != null) {
+                release(entry);
+                entry = null;
+            }
+        }
+    }
+
+    private static final class Entry {
+        final Key key;
+        final Mesh mesh;
+        final MeshPart part;
+        final long sizeInBytes;
+        int references;
+        boolean disposed;
+
+        /**
+         * Create the mesh from a probe's staging buffers and key the entry
+         * by the mesh's own buffers, so the staging can go back to the pool.
+         */
+        Entry(Key probe, String partId) {
+            int vertexCount = probe.vertices.remaining() / (probe.attributes.vertexSize / 4);
+            int indexCount = probe.indices.remaining();
+            mesh = new Mesh(true, vertexCount, indexCount, probe.attributes);
+            MeshBuffers.setVertices(mesh, probe.vertices);
+            MeshBuffers.setIndices(mesh, probe.indices);
+            part = new MeshPart(partId, mesh, 0, indexCount, probe.primitiveType);
+            part.update();
+            key = new Key(probe.primitiveType, probe.attributes, MeshBuffers.vertices(mesh),
+                MeshBuffers.indices(mesh), probe.hash);
+            sizeInBytes = vertexCount * (long) probe.attributes.vertexSize + indexCount * 2L;
+        }
+
+        void dispose() {
+            if (!disposed) {
+                disposed = true;
+                mesh.dispose();
+            }
+        }
+    }
+
+    /**
+     * A part's geometry, compacted to the vertices it uses. Probe keys view
+     * staging buffers that live only for one lookup; cached keys view their
+     * entry's mesh. Floats compare by bits.
+     */
+    private static final class Key {
+        final int primitiveType;
+        final VertexAttributes attributes;
+        final FloatBuffer vertices;
+        final ShortBuffer indices;
+        final int hash;
+
+        private Key(int primitiveType, VertexAttributes attributes, FloatBuffer vertices, ShortBuffer indices, int hash) {
+            this.primitiveType = primitiveType;
+            this.attributes = attributes;
+            this.vertices = vertices;
+            this.indices = indices;
+            this.hash = hash;
+        }
+
+        /**
+         * @param remap Vertex remap of the part's mesh, all -1; it is
+         *              reset before returning, so every part of the mesh
+         *              shares one and each call costs only the part's size
+         * @param vertexData Staging for the compacted vertices, part size times vertex size
+         * @param indexData Staging for the indices, part size times 2
+         */
+        static Key of(MeshPart part, int[] remap, ByteBuffer vertexData, ByteBuffer indexData) {
+            Mesh mesh = part.mesh;
+            int stride = mesh.getVertexSize() / 4;
+            boolean indexed = mesh.getNumIndices() > 0;
+            FloatBuffer meshVertices = MeshBuffers.vertices(mesh);
+            ShortBuffer meshIndices = MeshBuffers.indices(mesh);
+
+            FloatBuffer vertices = vertexData.asFloatBuffer();
+            ShortBuffer indices = indexData.asShortBuffer();
+            int used = 0;
+            for (int i = 0; i < part.size; i++) {
+                int vertex = indexed ? meshIndices.get(part.offset + i) & 0xFFFF : part.offset + i;
+                if (remap[vertex] < 0) {
+                    meshVertices.limit(vertex * stride + stride).position(vertex * stride);
+                    vertices.put(meshVertices);
+                    remap[vertex] = used++;
+                }
+                indices.put(i, (short) remap[vertex]);
+            }
+            for (int i = 0; i < part.size; i++) {
+                remap[indexed ? meshIndices.get(part.offset + i) & 0xFFFF : part.offset + i] = -1;
+            }
+            vertices.flip();
+            indices.limit(part.size);
+
+            int h = part.primitiveType;
+            h = 31 * h + mesh.getVertexAttributes().hashCode();
+            for (int i = 0; i < vertices.limit(); i++) {
+                h = 31 * h + Float.floatToIntBits(vertices.get(i));
+            }
+            for (int i = 0; i < indices.limit(); i++) {
+                h = 31 * h + indices.get(i);
+            }
+            return new Key(part.primitiveType, mesh.getVertexAttributes(), vertices, indices, h);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            if (hash != other.hash
+                || primitiveType != other.primitiveType
+                || !attributes.equals(other.attributes)
+                || vertices.remaining() != other.vertices.remaining()
+                || !indices.equals(other.indices)) {
+                return false;
+            }
+            for (int i = 0; i < vertices.limit(); i++) {
+                if (Float.floatToIntBits(vertices.get(i)) != Float.floatToIntBits(other.vertices.get(i))) return false;
+            }
+            return true;
+        }
+    }
+}
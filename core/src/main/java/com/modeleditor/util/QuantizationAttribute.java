@@ -0,0 +1,49 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.g3d.Attribute;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.NumberUtils;
+
+/**
+ * Material attribute carrying the bounds a quantized mesh's positions are
+ * scaled to, so the shader can decode them:
+ * position = center + normalized * extent.
+ * @see VertexQuantizer
+ */
+public class QuantizationAttribute extends Attribute {
+
+    public static final String Alias = "quantization";
+    public static final long Type = register(Alias);
+
+    public final Vector3 center = new Vector3();
+    public final Vector3 extent = new Vector3();
+
+    public QuantizationAttribute(Vector3 center, Vector3 extent) {
+        super(Type);
+        this.center.set(center);
+        this.extent.set(extent);
+    }
+
+    @Override
+    public Attribute copy() {
+        return new QuantizationAttribute(center, extent);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 991 * result + NumberUtils.floatToRawIntBits(center.x);
+        result = 991 * result + NumberUtils.floatToRawIntBits(center.y);
+        result = 991 * result + NumberUtils.floatToRawIntBits(center.z);
+        result = 991 * result + NumberUtils.floatToRawIntBits(extent.x);
+        result = 991 * result + NumberUtils.floatToRawIntBits(extent.y);
+        result = 991 * result + NumberUtils.floatToRawIntBits(extent.z);
+        return result;
+    }
+
+    @Override
+    public int compareTo(Attribute o) {
+        if (type != o.type) return type < o.type ? -1 : 1;
+        return hashCode() - o.hashCode();
+    }
+}
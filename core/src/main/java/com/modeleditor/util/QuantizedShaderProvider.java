@@ -0,0 +1,91 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.g3d.Attributes;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.Shader;
+import com.badlogic.gdx.graphics.g3d.shaders.BaseShader;
+import com.badlogic.gdx.graphics.g3d.shaders.DefaultShader;
+import com.badlogic.gdx.graphics.g3d.utils.DefaultShaderProvider;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Default shader provider that also renders meshes from
+ * {@link VertexQuantizer}. Quantized parts get the default shader with its
+ * position and normal inputs replaced by decoding expressions; all other
+ * parts get the plain default shader.
+ */
+public class QuantizedShaderProvider extends DefaultShaderProvider {
+
+    private static String vertexShader;
+
+    @Override
+    protected Shader createShader(Renderable renderable) {
+        if (renderable.material.has(QuantizationAttribute.Type)) {
+            return new QuantizedShader(renderable, config);
+        }
+        return super.createShader(renderable);
+    }
+
+    /**
+     * Get the default vertex shader with quantized inputs. The original
+     * attribute names become macros, so the rest of the shader is unchanged.
+     */
+    static synchronized String getQuantizedVertexShader() {
+        if (vertexShader == null) {
+            String source = DefaultShader.getDefaultVertexShader();
+            String position = "attribute vec3 a_position;";
+            String normal = "attribute vec3 a_normal;";
+            if (!source.contains(position) || !source.contains(normal)) {
+                throw new GdxRuntimeException("Unexpected default vertex shader, cannot decode quantized vertices");
+            }
+            source = source.replace(position,
+                "attribute vec3 " + VertexQuantizer.POSITION_ALIAS + ";\n"
+                    + "uniform vec3 u_quantCenter;\n"
+                    + "uniform vec3 u_quantExtent;\n"
+                    + "#define a_position (u_quantCenter + " + VertexQuantizer.POSITION_ALIAS + " * u_quantExtent)");
+            source = source.replace(normal,
+                "attribute vec2 " + VertexQuantizer.NORMAL_ALIAS + ";\n"
+                    + "vec3 octDecode(vec2 e) {\n"
+                    + "    vec3 n = vec3(e, 1.0 - abs(e.x) - abs(e.y));\n"
+                    + "    if (n.z < 0.0) {\n"
+                    + "        n.xy = (1.0 - abs(n.yx)) * vec2(n.x >= 0.0 ? 1.0 : -1.0, n.y >= 0.0 ? 1.0 : -1.0);\n"
+                    + "    }\n"
+                    + "    return normalize(n);\n"
+                    + "}\n"
+                    + "#define a_normal octDecode(" + VertexQuantizer.NORMAL_ALIAS + ")");
+            vertexShader = source;
+        }
+        return vertexShader;
+    }
+
+    /**
+     * Default shader that sets the decode bounds from each part's
+     * {@link QuantizationAttribute}.
+     */
+    static class QuantizedShader extends DefaultShader {
+
+        QuantizedShader(Renderable renderable, Config config) {
+            super(renderable, config, createPrefix(renderable, config), getQuantizedVertexShader(),
+                config.fragmentShader != null ? config.fragmentShader : getDefaultFragmentShader());
+            register(new Uniform("u_quantCenter"), new LocalSetter() {
+                @Override
+                public void set(BaseShader shader, int inputID, Renderable renderable, Attributes combinedAttributes) {
+                    QuantizationAttribute attribute = (QuantizationAttribute) combinedAttributes.get(QuantizationAttribute.Type);
+                    shader.set(inputID, attribute.center);
+                }
+            });
+            register(new Uniform("u_quantExtent"), new LocalSetter() {
+                @Override
+                public void set(BaseShader shader, int inputID, Renderable renderable, Attributes combinedAttributes) {
+                    QuantizationAttribute attribute = (QuantizationAttribute) combinedAttributes.get(QuantizationAttribute.Type);
+                    shader.set(inputID, attribute.extent);
+                }
+            });
+        }
+
+        @Override
+        public boolean canRender(Renderable renderable) {
+            return renderable.material.has(QuantizationAttribute.Type) && super.canRender(renderable);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.Renderable;
+import com.badlogic.gdx.graphics.g3d.RenderableProvider;
+import com.badlogic.gdx.graphics.g3d.attributes.BlendingAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Draws a translucent tint over the parts of one selected node. Render it
+ * in the same batch as the model, after it; the tint reuses the model's
+ * meshes and transforms, so it covers the node exactly. Nodes are matched
+ * by id, so the highlight carries over to rebuilt models and LOD levels,
+ * and by identity for nodes without one. In merged models the node's
+ * index ranges within the merged parts are tinted.
+ */
+public class SelectionHighlight implements RenderableProvider {
+
+    /** Default tint, blended over the node's own colors. */
+    public static final Color DEFAULT_COLOR = new Color(1f, 0.85f, 0.2f, 1f);
+    private static final float OPACITY = 0.45f;
+
+    private final Model model;
+    private final List<MeshPart> meshParts = new ArrayList<>();
+    private final List<Material> materials = new ArrayList<>();
+    private final List<Matrix4> transforms = new ArrayList<>();
+
+    /**
+     * @param merged The merge result behind the model, or null
+     * @param nodeId Id of the selected node, or null to match only the node itself
+     * @param node The selected node of this model, or null to match by id
+     */
+    public SelectionHighlight(Model model, MergedModel merged, String nodeId, Node node) {
+        this.model = model;
+        if (merged != null && merged.getModel() == model) {
+            if (nodeId != null) addMergedRanges(merged, nodeId);
+        } else {
+            addNodes(model.nodes, nodeId, node);
+        }
+    }
+
+    private void addNodes(Iterable<Node> nodes, String nodeId, Node selected) {
+        for (Node node : nodes) {
+            if (node == selected || (nodeId != null && nodeId.equals(node.id))) {
+                for (NodePart part : node.parts) {
+                    if (part.enabled) add(part.meshPart, part.material, node.globalTransform);
+                }
+            }
+            addNodes(node.getChildren(), nodeId, selected);
+        }
+    }
+
+    private void addMergedRanges(MergedModel merged, String nodeId) {
+        Map<MeshPart, NodePart> owners = new IdentityHashMap<>();
+        Map<MeshPart, Node> owningNodes = new IdentityHashMap<>();
+        findOwners(model.nodes, owners, owningNodes);
+        for (MergedModel.SourceRange range : merged.getSourceRanges()) {
+            NodePart owner = owners.get(range.meshPart);
+            if (owner == null || !owner.enabled || !nodeId.equals(range.nodeId)) continue;
+
+            MeshPart meshPart = new MeshPart(range.meshPart);
+            meshPart.offset = range.meshPart.offset + range.indexOffset;
+            meshPart.size = range.indexCount;
+            add(meshPart, owner.material, owningNodes.get(range.meshPart).globalTransform);
+        }
+    }
+
+    private static void findOwners(Iterable<Node> nodes, Map<MeshPart, NodePart> owners, Map<MeshPart, Node> owningNodes) {
+        for (Node node : nodes) {
+            for (NodePart part : node.parts) {
+                owners.put(part.meshPart, part);
+                owningNodes.put(part.meshPart, node);
+            }
+            findOwners(node.getChildren(), owners, owningNodes);
+        }
+    }
+
+    /**
+     * Keep the source material's other attributes, such as the quantization
+     * bounds the shader needs, and override its color and blending.
+     */
+    private void add(MeshPart meshPart, Material source, Matrix4 transform) {
+        Material material = source.copy();
+        material.set(ColorAttribute.createDiffuse(DEFAULT_COLOR), new BlendingAttribute(OPACITY));
+        meshParts.add(meshPart);
+        materials.add(material);
+        transforms.add(transform);
+    }
+
+    @Override
+    public void getRenderables(Array<Renderable> renderables, Pool<Renderable> pool) {
+        for (int i = 0; i < meshParts.size(); i++) {
+            Renderable renderable = pool.obtain();
+            renderable.meshPart.set(meshParts.get(i));
+            renderable.material = materials.get(i);
+            renderable.worldTransform.set(transforms.get(i));
+            renderable.bones = null;
+            renderable.environment = null;
+            renderable.shader = null;
+            renderable.userData = null;
+            renderables.add(renderable);
+        }
+    }
+
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Check whether the selection matched nothing in this model.
+     */
+    public boolean isEmpty() {
+        return meshParts.isEmpty();
+    }
+}
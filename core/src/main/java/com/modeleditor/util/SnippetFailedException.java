@@ -0,0 +1,17 @@
+package com.modeleditor.util;
+
+/**
+ * Thrown by {@link ModelCompiler#createModel(CompiledClass, ModelParameters)}
+ * when snippet code fails with an Error, such as a StackOverflowError from
+ * runaway recursion or an ExceptionInInitializerError. Carrying it in a
+ * checked exception makes callers report it like any other failure instead
+ * of letting it reach the render loop.
+ */
+public class SnippetFailedException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public SnippetFailedException(Error cause) {
+        super("Snippet failed: " + cause, cause);
+    }
+}
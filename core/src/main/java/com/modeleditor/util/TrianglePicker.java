@@ -0,0 +1,497 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ray picking of a model's nodes against its triangles. The world-space
+ * triangles are kept in a bounding volume hierarchy, so a ray visits a few
+ * dozen boxes and triangles instead of all of them.
+ *
+ * Positions are copied with {@link #capture(Model, MergedModel)} on the
+ * render thread; {@link #build(Snapshot)} touches no GL state and is meant
+ * for a worker. Picking maps the nearest hit back to its node, and through
+ * the merge ranges for merged models.
+ */
+public class TrianglePicker {
+
+    private static final int LEAF_SIZE = 4;
+    private static final int MAX_DEPTH = 64;
+
+    private final Model model;
+    private final MergedModel merged;
+    private final List<PartData> parts;
+
+    // Per triangle: three world-space corners, its part and its index in the part
+    private final float[] corners;
+    private final int[] triangleParts;
+    private final int[] partTriangles;
+
+    // Hierarchy in depth-first order; a leaf has a negative child and covers
+    // order[first, first + count), an inner node's children are at i + 1 and child[i]
+    private final float[] treeBounds;
+    private final int[] treeChild;
+    private final int[] treeFirst;
+    private final int[] treeCount;
+    private final int[] order;
+    private int treeSize;
+    private int depth;
+
+    private final long buildNanos;
+    private long lastPickNanos;
+
+    private TrianglePicker(Snapshot snapshot) {
+        long start = System.nanoTime();
+        model = snapshot.model;
+        merged = snapshot.merged;
+        parts = snapshot.parts;
+
+        int count = snapshot.getTriangleCount();
+        corners = new float[count * 9];
+        triangleParts = new int[count];
+        partTriangles = new int[count];
+        float[] centroids = new float[count * 3];
+        Vector3 corner = new Vector3();
+        int triangle = 0;
+        for (int p = 0; p < parts.size(); p++) {
+            PartData part = parts.get(p);
+            for (int t = 0; t < part.indices.length / 3; t++) {
+                for (int k = 0; k < 3; k++) {
+                    int vertex = part.indices[t * 3 + k] * 3;
+                    corner.set(part.positions[vertex], part.positions[vertex + 1], part.positions[vertex + 2])
+                        .mul(part.transform);
+                    corners[triangle * 9 + k * 3] = corner.x;
+                    corners[triangle * 9 + k * 3 + 1] = corner.y;
+                    corners[triangle * 9 + k * 3 + 2] = corner.z;
+                    centroids[triangle * 3] += corner.x / 3f;
+                    centroids[triangle * 3 + 1] += corner.y / 3f;
+                    centroids[triangle * 3 + 2] += corner.z / 3f;
+                }
+                triangleParts[triangle] = p;
+                partTriangles[triangle] = t;
+                triangle++;
+            }
+        }
+
+        // Splits leave at least two triangles per leaf, so there are fewer tree nodes than triangles
+        int capacity = Math.max(1, count);
+        treeBounds = new float[capacity * 6];
+        treeChild = new int[capacity];
+        treeFirst = new int[capacity];
+        treeCount = new int[capacity];
+        order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        if (count > 0) {
+            build(0, count, centroids, 1);
+        }
+        buildNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Copy the positions and triangles of a model's enabled, unskinned
+     * triangle parts, with their node transforms. Quantized meshes are
+     * decoded. Call on the render thread.
+     * @param merged The merge result behind the model, or null
+     */
+    public static Snapshot capture(Model model, MergedModel merged) {
+        Snapshot snapshot = new Snapshot(model, merged);
+        Map<Mesh, float[]> positions = new IdentityHashMap<>();
+        for (Node node : model.nodes) {
+            captureNode(node, snapshot, positions);
+        }
+        return snapshot;
+    }
+
+    private static void captureNode(Node node, Snapshot snapshot, Map<Mesh, float[]> positions) {
+        for (NodePart part : node.parts) {
+            MeshPart meshPart = part.meshPart;
+            if (!part.enabled || part.bones != null || meshPart.primitiveType != GL20.GL_TRIANGLES) continue;
+
+            float[] meshPositions = positions.get(meshPart.mesh);
+            if (meshPositions == null) {
+                meshPositions = readPositions(meshPart.mesh, part);
+                positions.put(meshPart.mesh, meshPositions);
+            }
+            snapshot.parts.add(new PartData(node, meshPart, new Matrix4(node.globalTransform), meshPositions,
+                readIndices(meshPart)));
+        }
+        for (Node child : node.getChildren()) {
+            captureNode(child, snapshot, positions);
+        }
+    }
+
+    private static float[] readPositions(Mesh mesh, NodePart part) {
+        int count = mesh.getNumVertices();
+        float[] positions = new float[count * 3];
+        if (VertexQuantizer.isQuantized(mesh)) {
+            QuantizationAttribute quantization = (QuantizationAttribute) part.material.get(QuantizationAttribute.Type);
+            float[] decoded = VertexQuantizer.decode(mesh, quantization);
+            for (int v = 0; v < count; v++) {
+                System.arraycopy(decoded, v * 6, positions, v * 3, 3);
+            }
+            return positions;
+        }
+
+        int stride = mesh.getVertexSize() / 4;
+        int offset = mesh.getVertexAttribute(VertexAttributes.Usage.Position).offset / 4;
+        FloatBuffer vertices = MeshBuffers.vertices(mesh);
+        for (int v = 0; v < count; v++) {
+            positions[v * 3] = vertices.get(v * stride + offset);
+            positions[v * 3 + 1] = vertices.get(v * stride + offset + 1);
+            positions[v * 3 + 2] = vertices.get(v * stride + offset + 2);
+        }
+        return positions;
+    }
+
+    private static int[] readIndices(MeshPart meshPart) {
+        int[] indices = new int[meshPart.size - meshPart.size % 3];
+        if (meshPart.mesh.getNumIndices() > 0) {
+            ShortBuffer source = MeshBuffers.indices(meshPart.mesh);
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = source.get(meshPart.offset + i) & 0xFFFF;
+            }
+        } else {
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = meshPart.offset + i;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Build the picking hierarchy of a snapshot. Touches no GL state, so it
+     * may run on a worker thread.
+     */
+    public static TrianglePicker build(Snapshot snapshot) {
+        return new TrianglePicker(snapshot);
+    }
+
+    /**
+     * Add a subtree over order[first, end), splitting at the median centroid
+     * along the longest axis of the centroids' extent.
+     * @return The subtree's index
+     */
+    private int build(int first, int end, float[] centroids, int level) {
+        int index = treeSize++;
+        depth = Math.max(depth, level);
+        int b = index * 6;
+        treeBounds[b] = treeBounds[b + 1] = treeBounds[b + 2] = Float.POSITIVE_INFINITY;
+        treeBounds[b + 3] = treeBounds[b + 4] = treeBounds[b + 5] = Float.NEGATIVE_INFINITY;
+        float[] centroidMin = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY};
+        float[] centroidMax = {Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for (int i = first; i < end; i++) {
+            int triangle = order[i];
+            for (int axis = 0; axis < 3; axis++) {
+                for (int k = 0; k < 3; k++) {
+                    float value = corners[triangle * 9 + k * 3 + axis];
+                    treeBounds[b + axis] = Math.min(treeBounds[b + axis], value);
+                    treeBounds[b + 3 + axis] = Math.max(treeBounds[b + 3 + axis], value);
+                }
+                float centroid = centroids[triangle * 3 + axis];
+                centroidMin[axis] = Math.min(centroidMin[axis], centroid);
+                centroidMax[axis] = Math.max(centroidMax[axis], centroid);
+            }
+        }
+
+        // Past the stack depth of pick, keep the rest in one leaf
+        if (end - first <= LEAF_SIZE || level >= MAX_DEPTH - 1) {
+            treeChild[index] = -1;
+            treeFirst[index] = first;
+            treeCount[index] = end - first;
+            return index;
+        }
+
+        int axis = 0;
+        for (int a = 1; a < 3; a++) {
+            if (centroidMax[a] - centroidMin[a] > centroidMax[axis] - centroidMin[axis]) axis = a;
+        }
+        int middle = (first + end) >>> 1;
+        select(first, end - 1, middle, axis, centroids);
+
+        build(first, middle, centroids, level + 1);
+        treeChild[index] = build(middle, end, centroids, level + 1);
+        return index;
+    }
+
+    /**
+     * Partially sort order[left, right] so the item at k is the one a full
+     * sort by centroid along the axis would put there.
+     */
+    private void select(int left, int right, int k, int axis, float[] centroids) {
+        while (left < right) {
+            float pivot = centroids[order[(left + right) >>> 1] * 3 + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (centroids[order[i] * 3 + axis] < pivot) i++;
+                while (centroids[order[j] * 3 + axis] > pivot) j--;
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i++] = order[j];
+                    order[j--] = swap;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Find the nearest triangle the ray hits, from either side. Visits the
+     * nearer child first and skips boxes beyond the best hit so far.
+     * @return The hit, or null if the ray misses the model
+     */
+    public Hit pick(Ray ray) {
+        long start = System.nanoTime();
+        float originX = ray.origin.x, originY = ray.origin.y, originZ = ray.origin.z;
+        float directionX = ray.direction.x, directionY = ray.direction.y, directionZ = ray.direction.z;
+        float inverseX = 1f / directionX, inverseY = 1f / directionY, inverseZ = 1f / directionZ;
+
+        float best = Float.POSITIVE_INFINITY;
+        int bestTriangle = -1;
+        int[] stack = new int[MAX_DEPTH + 1];
+        int top = 0;
+        if (treeSize > 0 && boxDistance(0, originX, originY, originZ, inverseX, inverseY, inverseZ, best) >= 0f) {
+            stack[top++] = 0;
+        }
+        while (top > 0) {
+            int index = stack[--top];
+            if (treeChild[index] < 0) {
+                for (int i = treeFirst[index], end = i + treeCount[index]; i < end; i++) {
+                    float distance = intersect(order[i], originX, originY, originZ, directionX, directionY, directionZ);
+                    if (distance >= 0f && distance < best) {
+                        best = distance;
+                        bestTriangle = order[i];
+                    }
+                }
+                continue;
+            }
+
+            int near = index + 1;
+            int far = treeChild[index];
+            float nearDistance = boxDistance(near, originX, originY, originZ, inverseX, inverseY, inverseZ, best);
+            float farDistance = boxDistance(far, originX, originY, originZ, inverseX, inverseY, inverseZ, best);
+            if (farDistance >= 0f && (nearDistance < 0f || farDistance < nearDistance)) {
+                int swap = near;
+                near = far;
+                far = swap;
+                float swapDistance = nearDistance;
+                nearDistance = farDistance;
+                farDistance = swapDistance;
+            }
+            // Pushed last, so the nearer child is popped first
+            if (farDistance >= 0f) stack[top++] = far;
+            if (nearDistance >= 0f) stack[top++] = near;
+        }
+        lastPickNanos = System.nanoTime() - start;
+        if (bestTriangle < 0) return null;
+
+        PartData part = parts.get(triangleParts[bestTriangle]);
+        String nodeId = part.node.id;
+        if (merged != null && merged.getModel() == model) {
+            nodeId = merged.findSourceNodeId(part.meshPart, partTriangles[bestTriangle] * 3);
+        }
+        return new Hit(part.node, nodeId, part.meshPart, partTriangles[bestTriangle], best,
+            new Vector3(ray.direction).scl(best).add(ray.origin));
+    }
+
+    /**
+     * Slab test of a hierarchy box.
+     * @return The distance along the ray where it enters the box, or -1 if
+     *         it misses the box or enters beyond maxDistance
+     */
+    private float boxDistance(int index, float originX, float originY, float originZ,
+                              float inverseX, float inverseY, float inverseZ, float maxDistance) {
+        int b = index * 6;
+        float nearX = (treeBounds[b] - originX) * inverseX;
+        float farX = (treeBounds[b + 3] - originX) * inverseX;
+        float nearY = (treeBounds[b + 1] - originY) * inverseY;
+        float farY = (treeBounds[b + 4] - originY) * inverseY;
+        float nearZ = (treeBounds[b + 2] - originZ) * inverseZ;
+        float farZ = (treeBounds[b + 5] - originZ) * inverseZ;
+        float enter = Math.max(Math.max(Math.min(nearX, farX), Math.min(nearY, farY)), Math.max(Math.min(nearZ, farZ), 0f));
+        float exit = Math.min(Math.min(Math.max(nearX, farX), Math.max(nearY, farY)), Math.min(Math.max(nearZ, farZ), maxDistance));
+        return enter <= exit ? enter : -1f;
+    }
+
+    /**
+     * Moller-Trumbore intersection of the ray with one triangle.
+     * @return The distance along the ray, or -1 on a miss
+     */
+    private float intersect(int triangle, float originX, float originY, float originZ,
+                            float directionX, float directionY, float directionZ) {
+        int c = triangle * 9;
+        float edge1X = corners[c + 3] - corners[c], edge1Y = corners[c + 4] - corners[c + 1], edge1Z = corners[c + 5] - corners[c + 2];
+        float edge2X = corners[c + 6] - corners[c], edge2Y = corners[c + 7] - corners[c + 1], edge2Z = corners[c + 8] - corners[c + 2];
+        float pX = directionY * edge2Z - directionZ * edge2Y;
+        float pY = directionZ * edge2X - directionX * edge2Z;
+        float pZ = directionX * edge2Y - directionY * edge2X;
+        float determinant = edge1X * pX + edge1Y * pY + edge1Z * pZ;
+        if (Math.abs(determinant) < 1e-12f) return -1f;
+        float inverse = 1f / determinant;
+
+        float tX = originX - corners[c], tY = originY - corners[c + 1], tZ = originZ - corners[c + 2];
+        float u = (tX * pX + tY * pY + tZ * pZ) * inverse;
+        if (u < 0f || u > 1f) return -1f;
+        float qX = tY * edge1Z - tZ * edge1Y;
+        float qY = tZ * edge1X - tX * edge1Z;
+        float qZ = tX * edge1Y - tY * edge1X;
+        float v = (directionX * qX + directionY * qY + directionZ * qZ) * inverse;
+        if (v < 0f || u + v > 1f) return -1f;
+        float distance = (edge2X * qX + edge2Y * qY + edge2Z * qZ) * inverse;
+        return distance >= 0f ? distance : -1f;
+    }
+
+    /**
+     * Get the model this picker was built for.
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    public int getTriangleCount() {
+        return triangleParts.length;
+    }
+
+    public int getTreeNodeCount() {
+        return treeSize;
+    }
+
+    public int getTreeDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the time the hierarchy took to build, on the worker.
+     */
+    public long getBuildNanos() {
+        return buildNanos;
+    }
+
+    public long getLastPickNanos() {
+        return lastPickNanos;
+    }
+
+    /**
+     * The nearest triangle a pick ray hit.
+     */
+    public static final class Hit {
+        private final Node node;
+        private final String nodeId;
+        private final MeshPart meshPart;
+        private final int triangle;
+        private final float distance;
+        private final Vector3 point;
+
+        Hit(Node node, String nodeId, MeshPart meshPart, int triangle, float distance, Vector3 point) {
+            this.node = node;
+            this.nodeId = nodeId;
+            this.meshPart = meshPart;
+            this.triangle = triangle;
+            this.distance = distance;
+            this.point = point;
+        }
+
+        /**
+         * Get the node of the picked model owning the triangle. For merged
+         * models this is the merged node; see {@link #getNodeId()}.
+         */
+        public Node getNode() {
+            return node;
+        }
+
+        /**
+         * Get the snippet's id of the node hit, or null if it has none.
+         */
+        public String getNodeId() {
+            return nodeId;
+        }
+
+        public MeshPart getMeshPart() {
+            return meshPart;
+        }
+
+        /**
+         * Get the triangle's index within its mesh part.
+         */
+        public int getTriangle() {
+            return triangle;
+        }
+
+        public float getDistance() {
+            return distance;
+        }
+
+        /**
+         * Get the world-space point hit.
+         */
+        public Vector3 getPoint() {
+            return point;
+        }
+    }
+
+    /**
+     * Triangle positions copied out of a model, independent of GL.
+     */
+    public static final class Snapshot {
+        private final Model model;
+        private final MergedModel merged;
+        final List<PartData> parts = new ArrayList<>();
+
+        Snapshot(Model model, MergedModel merged) {
+            this.model = model;
+            this.merged = merged;
+        }
+
+        public Model getModel() {
+            return model;
+        }
+
+        public int getTriangleCount() {
+            int count = 0;
+            for (PartData part : parts) {
+                count += part.indices.length / 3;
+            }
+            return count;
+        }
+    }
+
+    static final class PartData {
+        final Node node;
+        final MeshPart meshPart;
+        final Matrix4 transform;
+        // Positions of the whole mesh, three floats per vertex, shared by parts of one mesh
+        final float[] positions;
+        final int[] indices;
+
+        PartData(Node node, MeshPart meshPart, Matrix4 transform, float[] positions, int[] indices) {
+            this.node = node;
+            this.meshPart = meshPart;
+            this.transform = transform;
+            this.positions = positions;
+            this.indices = indices;
+        }
+    }
+}
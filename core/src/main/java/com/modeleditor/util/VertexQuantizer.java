@@ -0,0 +1,552 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Post-build stage that converts meshes to a compact vertex format:
+ * positions as normalized 16-bit integers scaled to the mesh bounds,
+ * normals octahedral-encoded into two bytes, and colors packed as RGBA8.
+ * Other attributes such as texture coordinates are kept as floats. A
+ * position, normal and color vertex shrinks from 40 bytes to 12.
+ *
+ * Each quantized part's material carries a {@link QuantizationAttribute}
+ * with the bounds, which {@link QuantizedShaderProvider} uses to decode
+ * positions. Run this last: the other post-build stages read float vertices.
+ */
+public class VertexQuantizer {
+
+    /** Shader attribute name of quantized positions. */
+    public static final String POSITION_ALIAS = "a_qposition";
+    /** Shader attribute name of octahedral-encoded normals. */
+    public static final String NORMAL_ALIAS = "a_qnormal";
+
+    private VertexQuantizer() {
+    }
+
+    /**
+     * Create a quantized copy of a built model. The node hierarchy, ids,
+     * transforms and part ranges are kept. Creates meshes, so call it on the
+     * render thread. The source model is not modified and must still be
+     * disposed by the caller.
+     * @return The result, or null for animated or skinned models
+     */
+    public static Result quantize(Model source) {
+        if (source.animations.size > 0 || hasBones(source.nodes)) return null;
+
+        Result result = new Result(new Model());
+        Map<Mesh, QuantizedMesh> meshes = new IdentityHashMap<>();
+        Map<MeshPart, MeshPart> meshParts = new IdentityHashMap<>();
+        for (Node node : source.nodes) {
+            result.model.nodes.add(copyNode(node, result, meshes, meshParts));
+        }
+        result.model.calculateTransforms();
+        return result;
+    }
+
+    /**
+     * Create a quantized copy of a built model as above, packing each mesh's
+     * vertices on the given executor; the meshes are then created on the
+     * calling thread, which must be the render thread. Blocks until every
+     * mesh is packed; use {@link #prepare(Model)} to schedule the packing
+     * without waiting.
+     * @return The result, or null for animated or skinned models
+     * @throws GdxRuntimeException if a task fails or the wait is interrupted
+     */
+    public static Result quantize(Model source, ExecutorService executor) {
+        Job job = prepare(source);
+        if (job == null) return null;
+
+        List<Callable<Object>> tasks = new ArrayList<>();
+        for (Runnable task : job.getTasks()) {
+            tasks.add(Executors.callable(task));
+        }
+        try {
+            for (Future<Object> result : executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            job.cancel();
+            Thread.currentThread().interrupt();
+            throw new GdxRuntimeException("Interrupted while quantizing meshes", e);
+        } catch (ExecutionException e) {
+            job.cancel();
+            throw new GdxRuntimeException("Vertex quantization failed: " + e.getCause().getMessage(), e.getCause());
+        }
+        return job.finish();
+    }
+
+    /**
+     * Split the quantization of a built model into one packing task per
+     * mesh, for callers that run the tasks themselves, and a final step
+     * that creates the meshes. Packing only reads the source buffers and
+     * writes pooled ones, so the tasks need no GL context; the source must
+     * not be changed until they have run.
+     * @return The job, or null for animated or skinned models
+     */
+    public static Job prepare(Model source) {
+        if (source.animations.size > 0 || hasBones(source.nodes)) return null;
+        return new Job(source);
+    }
+
+    /**
+     * List each mesh the node parts use once, in hierarchy order.
+     */
+    private static void collectMeshes(Iterable<Node> nodes, Map<Mesh, QuantizedMesh> seen, List<Mesh> out) {
+        for (Node node : nodes) {
+            for (NodePart part : node.parts) {
+                Mesh mesh = part.meshPart.mesh;
+                if (!seen.containsKey(mesh)) {
+                    seen.put(mesh, null);
+                    out.add(mesh);
+                }
+            }
+            collectMeshes(node.getChildren(), seen, out);
+        }
+    }
+
+    /**
+     * Check whether a mesh was created by {@link #quantize(Model)}.
+     */
+    public static boolean isQuantized(Mesh mesh) {
+        VertexAttribute position = mesh.getVertexAttribute(VertexAttributes.Usage.Position);
+        return position != null && POSITION_ALIAS.equals(position.alias);
+    }
+
+    /**
+     * Decode the positions and normals of a quantized mesh, for exporters
+     * and other CPU-side readers.
+     * @return Six floats per vertex: position, then normal (zero if the mesh has none)
+     */
+    public static float[] decode(Mesh mesh, QuantizationAttribute quantization) {
+        VertexAttributes attributes = mesh.getVertexAttributes();
+        int vertexSize = attributes.vertexSize;
+        int positionOffset = attributes.findByUsage(VertexAttributes.Usage.Position).offset;
+        VertexAttribute normal = attributes.findByUsage(VertexAttributes.Usage.Normal);
+
+        ByteBuffer bytes = readBytes(mesh);
+        int count = mesh.getNumVertices();
+        float[] decoded = new float[count * 6];
+        Vector3 tmp = new Vector3();
+        for (int v = 0; v < count; v++) {
+            int base = v * vertexSize;
+            decodePosition(bytes, base + positionOffset, quantization, tmp);
+            decoded[v * 6] = tmp.x;
+            decoded[v * 6 + 1] = tmp.y;
+            decoded[v * 6 + 2] = tmp.z;
+            if (normal != null) {
+                decodeOctahedral(bytes.get(base + normal.offset), bytes.get(base + normal.offset + 1), tmp);
+                decoded[v * 6 + 3] = tmp.x;
+                decoded[v * 6 + 4] = tmp.y;
+                decoded[v * 6 + 5] = tmp.z;
+            }
+        }
+        return decoded;
+    }
+
+    /**
+     * Decode one quantized position from native-order vertex bytes.
+     */
+    static Vector3 decodePosition(ByteBuffer bytes, int offset, QuantizationAttribute quantization, Vector3 out) {
+        return out.set(
+            quantization.center.x + bytes.getShort(offset) / 32767f * quantization.extent.x,
+            quantization.center.y + bytes.getShort(offset + 2) / 32767f * quantization.extent.y,
+            quantization.center.z + bytes.getShort(offset + 4) / 32767f * quantization.extent.z);
+    }
+
+    private static boolean hasBones(Iterable<Node> nodes) {
+        for (Node node : nodes) {
+            for (NodePart part : node.parts) {
+                if (part.bones != null) return true;
+            }
+            if (hasBones(node.getChildren())) return true;
+        }
+        return false;
+    }
+
+    private static Node copyNode(Node source, Result result, Map<Mesh, QuantizedMesh> meshes,
+                                 Map<MeshPart, MeshPart> meshParts) {
+        Node node = new Node();
+        node.id = source.id;
+        node.inheritTransform = source.inheritTransform;
+        node.translation.set(source.translation);
+        node.rotation.set(source.rotation);
+        node.scale.set(source.scale);
+
+        for (NodePart part : source.parts) {
+            Mesh sourceMesh = part.meshPart.mesh;
+            QuantizedMesh quantized = meshes.get(sourceMesh);
+            if (quantized == null) {
+                quantized = addMesh(result, sourceMesh, createMesh(sourceMesh, pack(sourceMesh)));
+                meshes.put(sourceMesh, quantized);
+            }
+
+            MeshPart meshPart = meshParts.get(part.meshPart);
+            if (meshPart == null) {
+                // Keep the source bounds; they cannot be recomputed from integer positions
+                meshPart = new MeshPart(part.meshPart);
+                meshPart.mesh = quantized.mesh;
+                meshParts.put(part.meshPart, meshPart);
+                result.model.meshParts.add(meshPart);
+            }
+
+            Material material = part.material.copy();
+            material.set(quantized.attribute);
+            result.model.materials.add(material);
+            NodePart copy = new NodePart(meshPart, material);
+            copy.enabled = part.enabled;
+            node.parts.add(copy);
+        }
+
+        for (Node child : source.getChildren()) {
+            node.addChild(copyNode(child, result, meshes, meshParts));
+        }
+        return node;
+    }
+
+    private static QuantizedMesh addMesh(Result result, Mesh source, QuantizedMesh quantized) {
+        result.model.meshes.add(quantized.mesh);
+        result.model.manageDisposable(quantized.mesh);
+        result.meshes++;
+        result.bytesBefore += (long) source.getNumVertices() * source.getVertexSize();
+        result.bytesAfter += (long) quantized.mesh.getNumVertices() * quantized.mesh.getVertexSize();
+        return quantized;
+    }
+
+    /**
+     * Pack a mesh's vertices into the compact format, in a pooled buffer.
+     * Touches no GL state, so it can run on any thread.
+     */
+    private static Packed pack(Mesh source) {
+        VertexAttributes sourceAttributes = source.getVertexAttributes();
+        VertexAttribute position = sourceAttributes.findByUsage(VertexAttributes.Usage.Position);
+        VertexAttribute normal = sourceAttributes.findByUsage(VertexAttributes.Usage.Normal);
+        VertexAttribute color = sourceAttributes.findByUsage(VertexAttributes.Usage.ColorUnpacked);
+        if (color == null) {
+            color = sourceAttributes.findByUsage(VertexAttributes.Usage.ColorPacked);
+        }
+
+        // Without a normal the position takes a fourth, unused short to stay 4-byte aligned
+        List<VertexAttribute> attributeList = new ArrayList<>();
+        attributeList.add(new VertexAttribute(VertexAttributes.Usage.Position, normal != null ? 3 : 4,
+            GL20.GL_SHORT, true, POSITION_ALIAS));
+        if (normal != null) {
+            attributeList.add(new VertexAttribute(VertexAttributes.Usage.Normal, 2, GL20.GL_BYTE, true, NORMAL_ALIAS));
+        }
+        if (color != null) {
+            attributeList.add(new VertexAttribute(VertexAttributes.Usage.ColorPacked, 4, GL20.GL_UNSIGNED_BYTE, true,
+                ShaderProgram.COLOR_ATTRIBUTE));
+        }
+        List<VertexAttribute> kept = new ArrayList<>();
+        for (VertexAttribute attribute : sourceAttributes) {
+            if (attribute != position && attribute != normal && attribute != color) {
+                kept.add(attribute);
+                attributeList.add(attribute.copy());
+            }
+        }
+        VertexAttributes attributes = new VertexAttributes(attributeList.toArray(new VertexAttribute[0]));
+
+        int count = source.getNumVertices();
+        int stride = source.getVertexSize() / 4;
+        FloatBuffer vertices = MeshBuffers.vertices(source);
+
+        int positionOffset = position.offset / 4;
+        Vector3 min = new Vector3(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+        Vector3 max = new Vector3(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+        for (int v = 0; v < count; v++) {
+            int base = v * stride + positionOffset;
+            float x = vertices.get(base);
+            float y = vertices.get(base + 1);
+            float z = vertices.get(base + 2);
+            min.set(Math.min(min.x, x), Math.min(min.y, y), Math.min(min.z, z));
+            max.set(Math.max(max.x, x), Math.max(max.y, y), Math.max(max.z, z));
+        }
+        if (count == 0) {
+            min.setZero();
+            max.setZero();
+        }
+        Vector3 center = new Vector3(min).add(max).scl(0.5f);
+        Vector3 extent = new Vector3(max).sub(min).scl(0.5f);
+        // A flat mesh has no extent along one axis; any scale decodes it exactly
+        if (extent.x == 0f) extent.x = 1f;
+        if (extent.y == 0f) extent.y = 1f;
+        if (extent.z == 0f) extent.z = 1f;
+
+        DirectBufferPool pool = DirectBufferPool.shared();
+        ByteBuffer bytes = pool.acquire(count * attributes.vertexSize);
+        try {
+            for (int v = 0; v < count; v++) {
+                int base = v * stride;
+                bytes.position(v * attributes.vertexSize);
+                bytes.putShort(quantizeSigned((vertices.get(base + positionOffset) - center.x) / extent.x));
+                bytes.putShort(quantizeSigned((vertices.get(base + positionOffset + 1) - center.y) / extent.y));
+                bytes.putShort(quantizeSigned((vertices.get(base + positionOffset + 2) - center.z) / extent.z));
+                if (normal != null) {
+                    int offset = base + normal.offset / 4;
+                    encodeOctahedral(vertices.get(offset), vertices.get(offset + 1), vertices.get(offset + 2), bytes);
+                } else {
+                    bytes.putShort((short) 0);
+                }
+                if (color != null) {
+                    int offset = base + color.offset / 4;
+                    if (color.usage == VertexAttributes.Usage.ColorPacked) {
+                        // Already RGBA8 in memory order
+                        bytes.putFloat(vertices.get(offset));
+                    } else {
+                        for (int c = 0; c < 4; c++) {
+                            bytes.put((byte) Math.round(MathUtils.clamp(vertices.get(offset + c), 0f, 1f) * 255f));
+                        }
+                    }
+                }
+                for (VertexAttribute attribute : kept) {
+                    for (int c = 0; c < attribute.numComponents; c++) {
+                        bytes.putFloat(vertices.get(base + attribute.offset / 4 + c));
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            pool.release(bytes);
+            throw e;
+        }
+        bytes.rewind();
+        return new Packed(attributes, bytes, new QuantizationAttribute(center, extent));
+    }
+
+    /**
+     * Create the quantized mesh from packed vertices and the source indices,
+     * releasing the packed buffer.
+     */
+    private static QuantizedMesh createMesh(Mesh source, Packed packed) {
+        Mesh mesh;
+        try {
+            mesh = new Mesh(true, source.getNumVertices(), source.getNumIndices(), packed.attributes);
+            // The mesh's buffer is float-typed, so pass the packed bytes through bit for bit
+            MeshBuffers.setVertices(mesh, packed.bytes.asFloatBuffer());
+        } finally {
+            DirectBufferPool.shared().release(packed.bytes);
+        }
+        if (source.getNumIndices() > 0) {
+            MeshBuffers.setIndices(mesh, MeshBuffers.indices(source));
+        }
+        return new QuantizedMesh(mesh, packed.attribute);
+    }
+
+    private static ByteBuffer readBytes(Mesh mesh) {
+        ByteBuffer bytes = ByteBuffer.allocate(mesh.getNumVertices() * mesh.getVertexSize()).order(ByteOrder.nativeOrder());
+        bytes.asFloatBuffer().put(MeshBuffers.vertices(mesh));
+        return bytes;
+    }
+
+    private static short quantizeSigned(float value) {
+        return (short) Math.round(MathUtils.clamp(value, -1f, 1f) * 32767f);
+    }
+
+    /**
+     * Project a unit normal onto the octahedron |x|+|y|+|z|=1 and unfold the
+     * lower half over the diagonals, giving two signed bytes.
+     */
+    static void encodeOctahedral(float x, float y, float z, ByteBuffer out) {
+        float length = Math.abs(x) + Math.abs(y) + Math.abs(z);
+        if (length > 0f) {
+            x /= length;
+            y /= length;
+            z /= length;
+        } else {
+            z = 1f;
+        }
+        if (z < 0f) {
+            float foldedX = (1f - Math.abs(y)) * (x >= 0f ? 1f : -1f);
+            float foldedY = (1f - Math.abs(x)) * (y >= 0f ? 1f : -1f);
+            x = foldedX;
+            y = foldedY;
+        }
+        out.put((byte) Math.round(MathUtils.clamp(x, -1f, 1f) * 127f));
+        out.put((byte) Math.round(MathUtils.clamp(y, -1f, 1f) * 127f));
+    }
+
+    /**
+     * Inverse of {@link #encodeOctahedral}, matching the shader's decode.
+     */
+    static Vector3 decodeOctahedral(byte encodedX, byte encodedY, Vector3 out) {
+        float x = Math.max(encodedX / 127f, -1f);
+        float y = Math.max(encodedY / 127f, -1f);
+        float z = 1f - Math.abs(x) - Math.abs(y);
+        if (z < 0f) {
+            float unfoldedX = (1f - Math.abs(y)) * (x >= 0f ? 1f : -1f);
+            float unfoldedY = (1f - Math.abs(x)) * (y >= 0f ? 1f : -1f);
+            x = unfoldedX;
+            y = unfoldedY;
+        }
+        return out.set(x, y, z).nor();
+    }
+
+    private static final class Packed {
+        final VertexAttributes attributes;
+        final ByteBuffer bytes;
+        final QuantizationAttribute attribute;
+
+        Packed(VertexAttributes attributes, ByteBuffer bytes, QuantizationAttribute attribute) {
+            this.attributes = attributes;
+            this.bytes = bytes;
+            this.attribute = attribute;
+        }
+    }
+
+    private static final class QuantizedMesh {
+        final Mesh mesh;
+        final QuantizationAttribute attribute;
+
+        QuantizedMesh(Mesh mesh, QuantizationAttribute attribute) {
+            this.mesh = mesh;
+            this.attribute = attribute;
+        }
+    }
+
+    /**
+     * The packing tasks and mesh creation of one quantization, from
+     * {@link #prepare(Model)}.
+     */
+    public static final class Job {
+        private final Model source;
+        private final List<Mesh> sourceMeshes = new ArrayList<>();
+        private final Map<Mesh, QuantizedMesh> meshes = new IdentityHashMap<>();
+        private final Packed[] packed;
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        Job(Model source) {
+            this.source = source;
+            collectMeshes(source.nodes, meshes, sourceMeshes);
+            packed = new Packed[sourceMeshes.size()];
+            for (int i = 0; i < sourceMeshes.size(); i++) {
+                final int index = i;
+                tasks.add(new Runnable() {
+                    @Override
+                    public void run() {
+                        packed[index] = pack(sourceMeshes.get(index));
+                    }
+                });
+            }
+        }
+
+        public List<Runnable> getTasks() {
+            return tasks;
+        }
+
+        /**
+         * Create the quantized copy once every task has run. Creates
+         * meshes, so call it on the render thread. The source model is not
+         * modified and must still be disposed by the caller.
+         * @throws GdxRuntimeException if a mesh was not packed
+         */
+        public Result finish() {
+            Result result = new Result(new Model());
+            try {
+                for (int i = 0; i < sourceMeshes.size(); i++) {
+                    Packed meshPacked = packed[i];
+                    if (meshPacked == null) {
+                        throw new GdxRuntimeException("Vertex quantization failed: a mesh was not packed");
+                    }
+                    // createMesh releases the buffer, even when it fails
+                    packed[i] = null;
+                    Mesh mesh = sourceMeshes.get(i);
+                    meshes.put(mesh, addMesh(result, mesh, createMesh(mesh, meshPacked)));
+                }
+            } catch (RuntimeException e) {
+                cancel();
+                result.model.dispose();
+                throw e;
+            }
+
+            Map<MeshPart, MeshPart> meshParts = new IdentityHashMap<>();
+            for (Node node : source.nodes) {
+                result.model.nodes.add(copyNode(node, result, meshes, meshParts));
+            }
+            result.model.calculateTransforms();
+            return result;
+        }
+
+        /**
+         * Return the buffers of meshes packed but not created, when the job
+         * is abandoned or failed. Call it once the tasks have run.
+         */
+        public void cancel() {
+            for (int i = 0; i < packed.length; i++) {
+                if (packed[i] != null) {
+                    DirectBufferPool.shared().release(packed[i].bytes);
+                    packed[i] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * The quantized model and the vertex memory it saves.
+     */
+    public static final class Result {
+        final Model model;
+        int meshes;
+        long bytesBefore;
+        long bytesAfter;
+
+        Result(Model model) {
+            this.model = model;
+        }
+
+        public Model getModel() {
+            return model;
+        }
+
+        public int getMeshCount() {
+            return meshes;
+        }
+
+        /**
+         * Get the vertex bytes of the source meshes.
+         */
+        public long getBytesBefore() {
+            return bytesBefore;
+        }
+
+        /**
+         * Get the vertex bytes of the quantized meshes.
+         */
+        public long getBytesAfter() {
+            return bytesAfter;
+        }
+
+        public long getBytesSaved() {
+            return bytesBefore - bytesAfter;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d meshes: vertex bytes %d -> %d (%d saved)",
+                meshes, bytesBefore, bytesAfter, getBytesSaved());
+        }
+    }
+}
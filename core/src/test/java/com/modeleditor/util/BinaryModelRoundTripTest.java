@@ -0,0 +1,211 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.graphics.g3d.attributes.BlendingAttribute;
+import com.badlogic.gdx.graphics.g3d.attributes.ColorAttribute;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.graphics.g3d.model.NodePart;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.GdxNativesLoader;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryModelRoundTripTest {
+
+    private final List<Model> models = new ArrayList<>();
+    private File file;
+
+    /**
+     * Meshes keep their data in native buffers and only call GL to create
+     * and delete buffer objects, so a GL that does nothing is enough.
+     */
+    @BeforeClass
+    public static void setUpGl() {
+        GdxNativesLoader.load();
+        Gdx.gl = Gdx.gl20 = (GL20) Proxy.newProxyInstance(GL20.class.getClassLoader(), new Class<?>[] {GL20.class},
+            new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) return false;
+                    if (type == int.class) return 0;
+                    if (type == float.class) return 0f;
+                    return null;
+                }
+            });
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        file = File.createTempFile("model", ".gmb");
+    }
+
+    @After
+    public void tearDown() {
+        for (Model model : models) {
+            model.dispose();
+        }
+        file.delete();
+    }
+
+    @Test
+    public void roundTripKeepsGeometryMaterialsAndNodes() throws Exception {
+        Model source = sourceModel();
+        new BinaryModelExporter().export(source, file);
+        Model loaded = track(BinaryModelLoader.load(new FileHandle(file)));
+
+        assertEquals(source.meshes.size, loaded.meshes.size);
+        for (int i = 0; i < source.meshes.size; i++) {
+            Mesh expected = source.meshes.get(i);
+            Mesh actual = loaded.meshes.get(i);
+            assertEquals(expected.getVertexAttributes(), actual.getVertexAttributes());
+            assertArrayEquals(vertices(expected), vertices(actual), 0f);
+            assertArrayEquals(indices(expected), indices(actual));
+        }
+
+        Node root = loaded.nodes.get(0);
+        assertEquals("table", root.id);
+        assertEquals(new Vector3(1f, 2f, 3f), root.translation);
+        assertEquals(new Vector3(2f, 2f, 2f), root.scale);
+        assertEquals(1, root.parts.size);
+
+        Node leg = root.getChild(0);
+        assertNull(leg.id);
+        assertFalse(leg.inheritTransform);
+        assertEquals(2, leg.parts.size);
+        assertFalse(leg.parts.get(1).enabled);
+
+        MeshPart part = leg.parts.get(0).meshPart;
+        MeshPart sourcePart = source.nodes.get(0).getChild(0).parts.get(0).meshPart;
+        assertEquals(sourcePart.id, part.id);
+        assertEquals(sourcePart.offset, part.offset);
+        assertEquals(sourcePart.size, part.size);
+        assertEquals(sourcePart.primitiveType, part.primitiveType);
+        assertEquals(sourcePart.center, part.center);
+        assertEquals(sourcePart.halfExtents, part.halfExtents);
+        assertEquals(sourcePart.radius, part.radius, 0f);
+        // Parts sharing a mesh still share it
+        assertTrue(root.parts.get(0).meshPart.mesh == part.mesh);
+
+        Material material = leg.parts.get(0).material;
+        assertEquals("wood", material.id);
+        assertEquals(new Color(0.5f, 0.25f, 0.125f, 1f), ((ColorAttribute) material.get(ColorAttribute.Diffuse)).color);
+        assertEquals(0.5f, ((BlendingAttribute) material.get(BlendingAttribute.Type)).opacity, 0f);
+        QuantizationAttribute quantization = (QuantizationAttribute) material.get(QuantizationAttribute.Type);
+        assertEquals(new Vector3(0f, 1f, 0f), quantization.center);
+        assertEquals(new Vector3(2f, 2f, 2f), quantization.extent);
+        // Both nodes used one material
+        assertTrue(root.parts.get(0).material == material);
+    }
+
+    @Test(expected = GdxRuntimeException.class)
+    public void loadRejectsOtherFiles() {
+        BinaryModelLoader.load(ByteBuffer.allocate(64));
+    }
+
+    @Test(expected = GdxRuntimeException.class)
+    public void loadRejectsTruncatedFiles() throws Exception {
+        new BinaryModelExporter().export(sourceModel(), file);
+        byte[] bytes = new FileHandle(file).readBytes();
+        ByteBuffer truncated = ByteBuffer.allocate(bytes.length - 16);
+        truncated.put(bytes, 0, truncated.capacity()).flip();
+        BinaryModelLoader.load(truncated);
+    }
+
+    /**
+     * A quad mesh shared by two parts, an unindexed triangle mesh, and a
+     * two-level hierarchy with a null id and a disabled part.
+     */
+    private Model sourceModel() {
+        Model model = track(new Model());
+
+        Mesh quad = new Mesh(true, 4, 6, VertexAttribute.Position(), VertexAttribute.Normal());
+        quad.setVertices(new float[] {
+            0f, 0f, 0f, 0f, 1f, 0f,
+            1f, 0f, 0f, 0f, 1f, 0f,
+            1f, 0f, 1f, 0f, 1f, 0f,
+            0f, 0f, 1f, 0f, 1f, 0f,
+        });
+        quad.setIndices(new short[] {0, 1, 2, 2, 3, 0});
+        Mesh triangle = new Mesh(true, 3, 0, VertexAttribute.Position());
+        triangle.setVertices(new float[] {0f, 0f, 0f, 1f, 0f, 0f, 0f, 1f, 0f});
+        model.meshes.add(quad);
+        model.meshes.add(triangle);
+        model.manageDisposable(quad);
+        model.manageDisposable(triangle);
+
+        MeshPart top = new MeshPart("top", quad, 0, 6, GL20.GL_TRIANGLES);
+        MeshPart half = new MeshPart("half", quad, 3, 3, GL20.GL_TRIANGLES);
+        MeshPart loose = new MeshPart("loose", triangle, 0, 3, GL20.GL_TRIANGLES);
+        top.update();
+        half.update();
+        loose.update();
+
+        Material wood = new Material("wood",
+            ColorAttribute.createDiffuse(new Color(0.5f, 0.25f, 0.125f, 1f)),
+            new BlendingAttribute(0.5f),
+            new QuantizationAttribute(new Vector3(0f, 1f, 0f), new Vector3(2f, 2f, 2f)));
+        model.materials.add(wood);
+
+        Node root = new Node();
+        root.id = "table";
+        root.translation.set(1f, 2f, 3f);
+        root.scale.set(2f, 2f, 2f);
+        root.parts.add(new NodePart(top, wood));
+
+        Node leg = new Node();
+        leg.inheritTransform = false;
+        leg.rotation.setEulerAngles(30f, 0f, 0f);
+        leg.parts.add(new NodePart(half, wood));
+        NodePart hidden = new NodePart(loose, wood);
+        hidden.enabled = false;
+        leg.parts.add(hidden);
+        root.addChild(leg);
+
+        model.nodes.add(root);
+        model.calculateTransforms();
+        return model;
+    }
+
+    private Model track(Model model) {
+        models.add(model);
+        return model;
+    }
+
+    private static float[] vertices(Mesh mesh) {
+        float[] vertices = new float[mesh.getNumVertices() * mesh.getVertexSize() / 4];
+        mesh.getVertices(vertices);
+        return vertices;
+    }
+
+    private static short[] indices(Mesh mesh) {
+        short[] indices = new short[mesh.getNumIndices()];
+        mesh.getIndices(indices);
+        return indices;
+    }
+}
@@ -0,0 +1,38 @@
+package com.modeleditor.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClassUnloadTrackerTest {
+
+    private static final int CACHE_CAPACITY = 2;
+    private static final int SNIPPETS = 6;
+
+    @Test
+    public void evictedCreatorClassesUnload() throws Exception {
+        ModelCompiler compiler = new ModelCompiler(new CompiledClassCache(CACHE_CAPACITY));
+        ClassUnloadTracker tracker = compiler.getClassUnloadTracker();
+        try {
+            // Distinct sources, so each one defines a loader and the oldest are evicted
+            for (int i = 0; i < SNIPPETS; i++) {
+                compiler.compileSnippet("int boxId = modelBuilder.box(1f, 1f, " + (i + 1) + "f);");
+            }
+            assertEquals(SNIPPETS, tracker.getTrackedCount());
+            assertEquals(SNIPPETS - CACHE_CAPACITY, compiler.getClassCache().getEvictionCount());
+
+            assertTrue("Leaked: " + tracker.getLeakedKeys(), tracker.verifyReleasedUnloaded(10000));
+            assertEquals(0, tracker.getLastLeakedCount());
+            assertTrue(tracker.getCollectedCount() >= SNIPPETS - CACHE_CAPACITY);
+            // Cached classes are still referenced
+            assertEquals(CACHE_CAPACITY, tracker.getLiveCount());
+        } finally {
+            compiler.dispose();
+        }
+
+        // Disposing releases the cached ones too
+        assertTrue("Leaked: " + tracker.getLeakedKeys(), tracker.verifyReleasedUnloaded(10000));
+        assertEquals(0, tracker.getLiveCount());
+    }
+}
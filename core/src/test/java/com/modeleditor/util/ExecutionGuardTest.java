@@ -0,0 +1,93 @@
+package com.modeleditor.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExecutionGuardTest {
+
+    private static final int MAX_VERTICES = 1000;
+
+    private ModelCompiler compiler;
+
+    @Before
+    public void setUp() {
+        compiler = new ModelCompiler(new CompiledClassCache());
+        ExecutionBudget budget = ExecutionBudget.unlimited();
+        budget.setMaxVertices(MAX_VERTICES);
+        compiler.setExecutionBudget(budget);
+    }
+
+    @After
+    public void tearDown() {
+        compiler.dispose();
+    }
+
+    @Test
+    public void oversizedPrimitiveBlamesTheNodeItIsAttachedTo() throws Exception {
+        // The sphere is requested while "small" is still the latest node
+        BudgetExceededException e = capture(
+            "int boxId = modelBuilder.box(1f, 1f, 1f);\n" +
+            "Node small = modelBuilder.node();\n" +
+            "small.id = \"small\";\n" +
+            "modelBuilder.addNode(small, modelBuilder.end());\n" +
+            "int sphereId = modelBuilder.sphere(1f, 64, 64);\n" +
+            "Node big = modelBuilder.node();\n" +
+            "big.id = \"big\";\n" +
+            "modelBuilder.addNode(big, modelBuilder.end());\n");
+        assertEquals("big", e.getNodeId());
+        assertTrue(e.getMessage(), e.getMessage().contains("sphere #1"));
+    }
+
+    @Test
+    public void unnamedNodeIsReportedByNumber() throws Exception {
+        BudgetExceededException e = capture(
+            "Node first = modelBuilder.node();\n" +
+            "int sphereId = modelBuilder.sphere(1f, 64, 64);\n" +
+            "Node second = modelBuilder.node();\n" +
+            "modelBuilder.addNode(second, modelBuilder.end());\n");
+        assertEquals("#2", e.getNodeId());
+    }
+
+    @Test
+    public void reusedPrimitiveIsCountedForEveryNode() throws Exception {
+        // 441 vertices per sphere; the third node drawing it goes over
+        StringBuilder snippet = new StringBuilder("int eyeId = modelBuilder.sphere(0.1f, 20, 20);\n");
+        String[] ids = {"leftEye", "rightEye", "thirdEye"};
+        for (String id : ids) {
+            snippet.append("Node ").append(id).append(" = modelBuilder.node();\n")
+                .append(id).append(".id = \"").append(id).append("\";\n")
+                .append(id).append(".parts.add(new Renderable(eyeId, null, null, null));\n")
+                .append("modelBuilder.addNode(").append(id).append(", modelBuilder.end());\n");
+        }
+        BudgetExceededException e = capture(snippet.toString());
+        assertEquals("thirdEye", e.getNodeId());
+        assertTrue(e.getMessage(), e.getMessage().contains("1323 vertices"));
+    }
+
+    @Test
+    public void unattachedPrimitiveIsReportedByCall() throws Exception {
+        BudgetExceededException e = capture(
+            "Node node = modelBuilder.node();\n" +
+            "node.id = \"node\";\n" +
+            "int sphereId = modelBuilder.sphere(1f, 64, 64);\n");
+        assertNull(e.getNodeId());
+        assertTrue(e.getMessage(), e.getMessage().contains("sphere #0"));
+    }
+
+    private BudgetExceededException capture(String snippet) throws Exception {
+        CompiledClass compiled = compiler.compileSnippet(snippet);
+        try {
+            compiler.captureModel(compiled, new ModelParameters());
+        } catch (BudgetExceededException e) {
+            return e;
+        }
+        fail("Budget of " + MAX_VERTICES + " vertices was not enforced");
+        return null;
+    }
+}
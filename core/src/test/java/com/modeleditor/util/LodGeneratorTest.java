@@ -0,0 +1,85 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g3d.Material;
+import com.badlogic.gdx.math.Matrix4;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LodGeneratorTest {
+
+    private static final int GRID = 32;
+
+    @Test
+    public void simplifyReachesTriangleTargets() {
+        LodGenerator.Snapshot source = heightField(GRID);
+        int sourceTriangles = source.getTriangleCount();
+        assertEquals(GRID * GRID * 2, sourceTriangles);
+
+        int previous = sourceTriangles;
+        for (float ratio : LodGenerator.DEFAULT_RATIOS) {
+            int target = Math.round(sourceTriangles * ratio);
+            int triangles = LodGenerator.simplify(source, ratio).getTriangleCount();
+
+            // A collapse removes up to two triangles, so the target may be undershot by one
+            assertTrue("ratio " + ratio + ": " + triangles + " > " + target, triangles <= target);
+            assertTrue("ratio " + ratio + ": " + triangles + " < " + (target - 2), triangles >= target - 2);
+            assertTrue(triangles < previous);
+            previous = triangles;
+        }
+    }
+
+    @Test
+    public void simplifyAtFullRatioKeepsEveryTriangle() {
+        LodGenerator.Snapshot source = heightField(8);
+        assertEquals(source.getTriangleCount(), LodGenerator.simplify(source, 1f).getTriangleCount());
+    }
+
+    @Test
+    public void simplifyKeepsAtLeastOneTriangle() {
+        LodGenerator.Snapshot source = heightField(4);
+        assertTrue(LodGenerator.simplify(source, 0.001f).getTriangleCount() >= 1);
+    }
+
+    /**
+     * A gently curved grid with positions and normals, like a terrain patch.
+     */
+    private static LodGenerator.Snapshot heightField(int size) {
+        VertexAttributes attributes = new VertexAttributes(VertexAttribute.Position(), VertexAttribute.Normal());
+        int stride = attributes.vertexSize / 4;
+        int rowLength = size + 1;
+        float[] vertices = new float[rowLength * rowLength * stride];
+        for (int y = 0; y <= size; y++) {
+            for (int x = 0; x <= size; x++) {
+                int base = (y * rowLength + x) * stride;
+                vertices[base] = x;
+                vertices[base + 1] = (float) (Math.sin(x * 0.3) * Math.cos(y * 0.3));
+                vertices[base + 2] = y;
+                vertices[base + 4] = 1f;
+            }
+        }
+
+        int[] triangles = new int[size * size * 6];
+        int i = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int v = y * rowLength + x;
+                triangles[i++] = v;
+                triangles[i++] = v + rowLength;
+                triangles[i++] = v + 1;
+                triangles[i++] = v + 1;
+                triangles[i++] = v + rowLength;
+                triangles[i++] = v + rowLength + 1;
+            }
+        }
+
+        LodGenerator.PartData part = new LodGenerator.PartData("terrain", new Matrix4(), new Material(),
+            attributes, vertices, triangles);
+        return new LodGenerator.Snapshot(Collections.singletonList(part));
+    }
+}
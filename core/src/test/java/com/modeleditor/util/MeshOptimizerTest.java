@@ -0,0 +1,137 @@
+package com.modeleditor.util;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MeshOptimizerTest {
+
+    private static final int CACHE_SIZE = 16;
+
+    @Test
+    public void reorderTrianglesImprovesAcmr() {
+        int size = 32;
+        int[] indices = shuffledTriangles(grid(size), new Random(42));
+        float before = MeshOptimizer.acmr(indices, 0, indices.length, CACHE_SIZE);
+
+        int[] reordered = indices.clone();
+        MeshOptimizer.reorderTriangles(reordered, 0, reordered.length, (size + 1) * (size + 1));
+        float after = MeshOptimizer.acmr(reordered, 0, reordered.length, CACHE_SIZE);
+
+        assertTrue("ACMR " + before + " -> " + after, after < before * 0.6f);
+        assertTrue("ACMR after " + after, after < 1f);
+        assertArrayEquals(sortedTriangles(indices), sortedTriangles(reordered));
+    }
+
+    @Test
+    public void reorderTrianglesLeavesOtherRangesAlone() {
+        int[] triangles = grid(4);
+        int[] indices = new int[triangles.length + 6];
+        System.arraycopy(triangles, 0, indices, 3, triangles.length);
+        indices[0] = 1;
+        indices[1] = 2;
+        indices[2] = 3;
+        indices[indices.length - 3] = 4;
+        indices[indices.length - 2] = 5;
+        indices[indices.length - 1] = 6;
+
+        MeshOptimizer.reorderTriangles(indices, 3, triangles.length, 25);
+
+        assertArrayEquals(new int[]{1, 2, 3}, Arrays.copyOfRange(indices, 0, 3));
+        assertArrayEquals(new int[]{4, 5, 6}, Arrays.copyOfRange(indices, indices.length - 3, indices.length));
+    }
+
+    @Test
+    public void weldMergesMatchingVerticesOnly() {
+        // Position x, y, z and normal x, y, z
+        float[] data = {
+            0f, 0f, 0f, 0f, 1f, 0f,
+            1f, 0f, 0f, 0f, 1f, 0f,
+            0f, 0f, 0f, 0f, 1f, 0f,          // duplicate of 0
+            1f + 1e-6f, 0f, 0f, 0f, 1f, 0f,  // within epsilon of 1
+            0f, 0f, 0f, 1f, 0f, 0f,          // same position as 0, other normal
+            2f, 0f, 0f, 0f, 1f, 0f,
+            -1e-6f, 0f, 0f, 0f, 1f, 0f,      // across a cell boundary from 0
+        };
+        int[] weld = MeshOptimizer.weld(FloatBuffer.wrap(data), 6, 7, 0, 1e-5f);
+
+        assertArrayEquals(new int[]{0, 1, 0, 1, 4, 5, 0}, weld);
+    }
+
+    @Test
+    public void weldHandlesManyDistinctVertices() {
+        int count = 10000;
+        float[] data = new float[count * 3];
+        for (int i = 0; i < count; i++) {
+            data[i * 3] = i % 100;
+            data[i * 3 + 1] = i / 100;
+        }
+        int[] weld = MeshOptimizer.weld(FloatBuffer.wrap(data), 3, count, 0, 1e-5f);
+        for (int i = 0; i < count; i++) {
+            assertEquals(i, weld[i]);
+        }
+    }
+
+    /**
+     * Triangulate a size x size grid of quads, row by row.
+     */
+    private static int[] grid(int size) {
+        int[] indices = new int[size * size * 6];
+        int i = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                int v = y * (size + 1) + x;
+                indices[i++] = v;
+                indices[i++] = v + 1;
+                indices[i++] = v + size + 1;
+                indices[i++] = v + 1;
+                indices[i++] = v + size + 2;
+                indices[i++] = v + size + 1;
+            }
+        }
+        return indices;
+    }
+
+    private static int[] shuffledTriangles(int[] indices, Random random) {
+        int[] shuffled = indices.clone();
+        for (int t = shuffled.length / 3 - 1; t > 0; t--) {
+            int other = random.nextInt(t + 1);
+            for (int k = 0; k < 3; k++) {
+                int swap = shuffled[t * 3 + k];
+                shuffled[t * 3 + k] = shuffled[other * 3 + k];
+                shuffled[other * 3 + k] = swap;
+            }
+        }
+        return shuffled;
+    }
+
+    /**
+     * Encode each triangle as one sortable value, so two lists can be
+     * compared as sets of triangles. Winding is kept: rotations of a
+     * triangle encode equally, mirror images do not.
+     */
+    private static long[] sortedTriangles(int[] indices) {
+        long[] triangles = new long[indices.length / 3];
+        for (int t = 0; t < triangles.length; t++) {
+            int a = indices[t * 3];
+            int b = indices[t * 3 + 1];
+            int c = indices[t * 3 + 2];
+            // Rotate so the smallest index comes first
+            while (a > b || a > c) {
+                int swap = a;
+                a = b;
+                b = c;
+                c = swap;
+            }
+            triangles[t] = ((long) a << 42) | ((long) b << 21) | c;
+        }
+        Arrays.sort(triangles);
+        return triangles;
+    }
+}
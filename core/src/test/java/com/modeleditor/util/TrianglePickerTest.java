@@ -0,0 +1,164 @@
+package com.modeleditor.util;
+
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g3d.model.MeshPart;
+import com.badlogic.gdx.graphics.g3d.model.Node;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.math.collision.Ray;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TrianglePickerTest {
+
+    private static final int PARTS = 6;
+    private static final int TRIANGLES_PER_PART = 400;
+    private static final int RAYS = 2000;
+
+    @Test
+    public void pickMatchesBruteForce() {
+        Random random = new Random(42);
+        TrianglePicker.Snapshot snapshot = triangleSoup(random);
+        TrianglePicker picker = TrianglePicker.build(snapshot);
+        assertEquals(PARTS * TRIANGLES_PER_PART, picker.getTriangleCount());
+        assertTrue(picker.getTreeNodeCount() < picker.getTriangleCount());
+
+        int hits = 0;
+        for (int i = 0; i < RAYS; i++) {
+            // From outside the soup towards a point in it, so most rays hit something
+            Vector3 origin = randomDirection(random).scl(20f);
+            Vector3 target = new Vector3(random.nextFloat() * 8f - 4f, random.nextFloat() * 8f - 4f,
+                random.nextFloat() * 8f - 4f);
+            Ray ray = new Ray(origin, target.sub(origin).nor());
+
+            TrianglePicker.Hit hit = picker.pick(ray);
+            BruteForceHit expected = bruteForce(snapshot, ray);
+            if (expected == null) {
+                assertNull("ray " + i, hit);
+                continue;
+            }
+            hits++;
+            assertTrue("ray " + i + " missed", hit != null);
+            assertEquals("ray " + i, expected.distance, hit.getDistance(), 1e-4f);
+            assertTrue("ray " + i, expected.part.node == hit.getNode());
+            assertTrue("ray " + i, expected.part.meshPart == hit.getMeshPart());
+            assertEquals("ray " + i, expected.triangle, hit.getTriangle());
+        }
+        assertTrue("only " + hits + " rays hit", hits > RAYS / 2);
+    }
+
+    @Test
+    public void pickOnEmptySnapshotMisses() {
+        TrianglePicker picker = TrianglePicker.build(new TrianglePicker.Snapshot(null, null));
+        assertEquals(0, picker.getTriangleCount());
+        assertNull(picker.pick(new Ray(new Vector3(0f, 0f, 10f), new Vector3(0f, 0f, -1f))));
+    }
+
+    /**
+     * Parts of random, overlapping triangles under rotated and translated
+     * nodes, some of them sharing one position array as parts of one mesh do.
+     */
+    private static TrianglePicker.Snapshot triangleSoup(Random random) {
+        TrianglePicker.Snapshot snapshot = new TrianglePicker.Snapshot(null, null);
+        float[] shared = null;
+        for (int p = 0; p < PARTS; p++) {
+            float[] positions = shared;
+            if (positions == null || p % 2 == 0) {
+                positions = new float[TRIANGLES_PER_PART * 3 * 3];
+                for (int i = 0; i < positions.length; i++) {
+                    positions[i] = random.nextFloat() * 4f - 2f;
+                }
+                shared = positions;
+            }
+            int[] indices = new int[TRIANGLES_PER_PART * 3];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = random.nextInt(positions.length / 3);
+            }
+
+            Node node = new Node();
+            node.id = "part" + p;
+            Matrix4 transform = new Matrix4().setToRotation(randomDirection(random), random.nextFloat() * 360f)
+                .trn(random.nextFloat() * 4f - 2f, random.nextFloat() * 4f - 2f, random.nextFloat() * 4f - 2f);
+            MeshPart meshPart = new MeshPart("part" + p, null, 0, indices.length, GL20.GL_TRIANGLES);
+            snapshot.parts.add(new TrianglePicker.PartData(node, meshPart, transform, positions, indices));
+        }
+        return snapshot;
+    }
+
+    private static Vector3 randomDirection(Random random) {
+        Vector3 direction = new Vector3();
+        do {
+            direction.set(random.nextFloat() * 2f - 1f, random.nextFloat() * 2f - 1f, random.nextFloat() * 2f - 1f);
+        } while (direction.len2() < 0.01f || direction.len2() > 1f);
+        return direction.nor();
+    }
+
+    /**
+     * Test the ray against every triangle, in double precision.
+     */
+    private static BruteForceHit bruteForce(TrianglePicker.Snapshot snapshot, Ray ray) {
+        BruteForceHit best = null;
+        Vector3[] corners = {new Vector3(), new Vector3(), new Vector3()};
+        for (TrianglePicker.PartData part : snapshot.parts) {
+            for (int t = 0; t < part.indices.length / 3; t++) {
+                for (int k = 0; k < 3; k++) {
+                    int vertex = part.indices[t * 3 + k] * 3;
+                    corners[k].set(part.positions[vertex], part.positions[vertex + 1], part.positions[vertex + 2])
+                        .mul(part.transform);
+                }
+                double distance = intersect(ray, corners[0], corners[1], corners[2]);
+                if (distance >= 0 && (best == null || distance < best.distance)) {
+                    best = new BruteForceHit(part, t, (float) distance);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return The distance along the ray, or -1 on a miss
+     */
+    private static double intersect(Ray ray, Vector3 a, Vector3 b, Vector3 c) {
+        double[] origin = {ray.origin.x, ray.origin.y, ray.origin.z};
+        double[] direction = {ray.direction.x, ray.direction.y, ray.direction.z};
+        double[] edge1 = {b.x - (double) a.x, b.y - (double) a.y, b.z - (double) a.z};
+        double[] edge2 = {c.x - (double) a.x, c.y - (double) a.y, c.z - (double) a.z};
+        double[] p = cross(direction, edge2);
+        double determinant = dot(edge1, p);
+        if (Math.abs(determinant) < 1e-12) return -1;
+
+        double[] offset = {origin[0] - a.x, origin[1] - a.y, origin[2] - a.z};
+        double u = dot(offset, p) / determinant;
+        if (u < 0 || u > 1) return -1;
+        double[] q = cross(offset, edge1);
+        double v = dot(direction, q) / determinant;
+        if (v < 0 || u + v > 1) return -1;
+        double distance = dot(edge2, q) / determinant;
+        return distance >= 0 ? distance : -1;
+    }
+
+    private static double[] cross(double[] a, double[] b) {
+        return new double[] {a[1] * b[2] - a[2] * b[1], a[2] * b[0] - a[0] * b[2], a[0] * b[1] - a[1] * b[0]};
+    }
+
+    private static double dot(double[] a, double[] b) {
+        return a[0] * b[0] + a[1] * b[1] + a[2] * b[2];
+    }
+
+    private static final class BruteForceHit {
+        final TrianglePicker.PartData part;
+        final int triangle;
+        final float distance;
+
+        BruteForceHit(TrianglePicker.PartData part, int triangle, float distance) {
+            this.part = part;
+            this.triangle = triangle;
+            this.distance = distance;
+        }
+    }
+}
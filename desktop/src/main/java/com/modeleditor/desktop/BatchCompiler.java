@@ -0,0 +1,503 @@
+package com.modeleditor.desktop;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.g3d.Model;
+import com.badlogic.gdx.utils.JsonWriter;
+import com.modeleditor.util.BinaryModelExporter;
+import com.modeleditor.util.BytecodeDiskCache;
+import com.modeleditor.util.CapturedModel;
+import com.modeleditor.util.ClassUnloadTracker;
+import com.modeleditor.util.CompiledClass;
+import com.modeleditor.util.DirectBufferPool;
+import com.modeleditor.util.ExecutionBudget;
+import com.modeleditor.util.GltfExporter;
+import com.modeleditor.util.MergedModel;
+import com.modeleditor.util.MeshMerger;
+import com.modeleditor.util.MeshOptimizer;
+import com.modeleditor.util.ModelCompiler;
+import com.modeleditor.util.ModelParameters;
+import com.modeleditor.util.ObjExporter;
+import com.modeleditor.util.VertexQuantizer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Headless entry point that compiles and runs every snippet in a directory
+ * in parallel, exporting each model as OBJ and writing a JSON report.
+ * Runs on the gdx headless backend, so no GPU is needed.
+ *
+ * Usage: BatchCompiler &lt;snippetDir&gt; &lt;outputDir&gt; [--threads N] [--max-vertices N] [--max-indices N]
+ * [--timeout-ms N] [--no-budget] [--merge] [--optimize] [--quantize] [--binary] [--gltf]
+ *
+ * Snippet files are .java or .txt files holding a createModel method body,
+ * like the examples in EXAMPLES.md. Each snippet runs under the execution
+ * budget, which defaults to the editor's limits; the budget is printed at
+ * the start of a run and snippets exceeding it are reported as failures.
+ */
+public class BatchCompiler {
+
+    // Mesh construction and disposal update gdx's shared managed-mesh list,
+    // which is not thread-safe, so only calls that create or dispose meshes
+    // hold this lock. Snippet execution, geometry generation and mesh
+    // optimization touch no GL state and run in parallel with compilation
+    // and export.
+    private static final Object MESH_LOCK = new Object();
+
+    // How long collection may take to clear the snippet class loaders after the run
+    private static final long CLASS_UNLOAD_TIMEOUT_MS = 10000;
+
+    private final File snippetDir;
+    private final File outputDir;
+    private final int threads;
+    private final ExecutionBudget budget;
+    private boolean mergeMeshes;
+    private boolean optimizeMeshes;
+    private boolean quantizeVertices;
+    private boolean binaryExport;
+    private boolean gltfExport;
+
+    private BytecodeDiskCache diskCache;
+    // Every compiler handed out, so run() can dispose them
+    private final List<ModelCompiler> createdCompilers = Collections.synchronizedList(new ArrayList<ModelCompiler>());
+    private final ThreadLocal<ModelCompiler> compilers = new ThreadLocal<ModelCompiler>() {
+        @Override
+        protected ModelCompiler initialValue() {
+            // Janino compiles are serialized per compiler, so each worker gets its own
+            ModelCompiler compiler = new ModelCompiler();
+            compiler.setExecutionBudget(budget);
+            // Shared by all workers and disposed by run()
+            compiler.setDiskCache(diskCache, false);
+            createdCompilers.add(compiler);
+            return compiler;
+        }
+    };
+
+    public BatchCompiler(File snippetDir, File outputDir, int threads, ExecutionBudget budget) {
+        this.snippetDir = snippetDir;
+        this.outputDir = outputDir;
+        this.threads = threads;
+        this.budget = budget;
+    }
+
+    /**
+     * Merge parts by material before export, as the editor preview can.
+     */
+    public void setMergeMeshes(boolean mergeMeshes) {
+        this.mergeMeshes = mergeMeshes;
+    }
+
+    /**
+     * Weld vertices and reorder for the vertex cache before export.
+     */
+    public void setOptimizeMeshes(boolean optimizeMeshes) {
+        this.optimizeMeshes = optimizeMeshes;
+    }
+
+    /**
+     * Convert meshes to the compact vertex format and report the bytes
+     * saved per model. The OBJ output is decoded from the quantized meshes.
+     */
+    public void setQuantizeVertices(boolean quantizeVertices) {
+        this.quantizeVertices = quantizeVertices;
+    }
+
+    /**
+     * Also export each model in the binary format, for loading baked props
+     * with BinaryModelLoader at runtime.
+     */
+    public void setBinaryExport(boolean binaryExport) {
+        this.binaryExport = binaryExport;
+    }
+
+    /**
+     * Also export each model as a binary glTF 2.0 (.glb) file.
+     */
+    public void setGltfExport(boolean gltfExport) {
+        this.gltfExport = gltfExport;
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchCompiler <snippetDir> <outputDir> [--threads N] [--max-vertices N] [--max-indices N]"
+                + " [--timeout-ms N] [--no-budget] [--merge] [--optimize] [--quantize] [--binary] [--gltf]");
+            System.exit(2);
+        }
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutionBudget budget = new ExecutionBudget();
+        boolean merge = false;
+        boolean optimize = false;
+        boolean quantize = false;
+        boolean binary = false;
+        boolean gltf = false;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--threads") && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("--max-vertices") && i + 1 < args.length) {
+                budget.setMaxVertices(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("--max-indices") && i + 1 < args.length) {
+                budget.setMaxIndices(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("--timeout-ms") && i + 1 < args.length) {
+                budget.setTimeoutMillis(Long.parseLong(args[++i]));
+            } else if (args[i].equals("--no-budget")) {
+                budget.setMaxVertices(0);
+                budget.setMaxIndices(0);
+                budget.setTimeoutMillis(0);
+                budget.setMaxAllocatedBytes(0);
+            } else if (args[i].equals("--merge")) {
+                merge = true;
+            } else if (args[i].equals("--optimize")) {
+                optimize = true;
+            } else if (args[i].equals("--quantize")) {
+                quantize = true;
+            } else if (args[i].equals("--binary")) {
+                binary = true;
+            } else if (args[i].equals("--gltf")) {
+                gltf = true;
+            } else {
+                System.err.println("Unknown option: " + args[i]);
+                System.exit(2);
+            }
+        }
+
+        final BatchCompiler batch = new BatchCompiler(new File(args[0]), new File(args[1]), threads, budget);
+        batch.setMergeMeshes(merge);
+        batch.setOptimizeMeshes(optimize);
+        batch.setQuantizeVertices(quantize);
+        batch.setBinaryExport(binary);
+        batch.setGltfExport(gltf);
+        final int[] failures = new int[1];
+        final CountDownLatch finished = new CountDownLatch(1);
+
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        config.updatesPerSecond = -1;
+        new HeadlessApplication(new ApplicationAdapter() {
+            @Override
+            public void create() {
+                try {
+                    failures[0] = batch.run();
+                } catch (Exception e) {
+                    Gdx.app.error("BatchCompiler", "Batch failed: " + e.getMessage());
+                    failures[0] = -1;
+                } finally {
+                    finished.countDown();
+                    Gdx.app.exit();
+                }
+            }
+        }, config);
+
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.exit(failures[0] == 0 ? 0 : 1);
+    }
+
+    /**
+     * Compile, build and export every snippet, then write report.json.
+     * @return Number of snippets that failed
+     * @throws IOException if the directories or report cannot be accessed
+     */
+    public int run() throws IOException {
+        File[] files = snippetDir.listFiles();
+        if (files == null) {
+            throw new IOException("Not a directory: " + snippetDir);
+        }
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Cannot create output directory: " + outputDir);
+        }
+        Arrays.sort(files);
+
+        List<ForkJoinTask<SnippetResult>> tasks = new ArrayList<>();
+        for (final File file : files) {
+            if (!file.isFile() || !(file.getName().endsWith(".java") || file.getName().endsWith(".txt"))) {
+                continue;
+            }
+            tasks.add(ForkJoinTask.adapt(new Callable<SnippetResult>() {
+                @Override
+                public SnippetResult call() {
+                    return processSnippet(file);
+                }
+            }));
+        }
+
+        try {
+            diskCache = new BytecodeDiskCache(new File(outputDir, ".bytecode"));
+        } catch (IOException e) {
+            Gdx.app.error("BatchCompiler", "Bytecode cache unavailable: " + e.getMessage());
+        }
+        Gdx.app.log("BatchCompiler", "Execution budget: " + formatBudget(budget));
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<SnippetResult> results = new ArrayList<>();
+        List<ClassUnloadTracker> unloadTrackers = new ArrayList<>();
+        try {
+            for (ForkJoinTask<SnippetResult> task : tasks) {
+                pool.execute(task);
+            }
+            for (ForkJoinTask<SnippetResult> task : tasks) {
+                results.add(task.join());
+            }
+        } finally {
+            pool.shutdown();
+            synchronized (createdCompilers) {
+                for (ModelCompiler compiler : createdCompilers) {
+                    // Clearing its cache releases every class loader the compiler defined
+                    compiler.dispose();
+                    unloadTrackers.add(compiler.getClassUnloadTracker());
+                }
+                createdCompilers.clear();
+            }
+            if (diskCache != null) {
+                diskCache.dispose();
+                diskCache = null;
+            }
+        }
+        long totalNanos = System.nanoTime() - start;
+        ClassUnloading unloading = verifyClassUnloading(unloadTrackers);
+
+        int failures = 0;
+        for (SnippetResult result : results) {
+            if (result.error != null) {
+                failures++;
+                Gdx.app.error("BatchCompiler", result.name + ": " + result.error);
+            }
+        }
+        writeReport(results, totalNanos, failures, unloading);
+
+        Gdx.app.log("BatchCompiler", results.size() + " snippets, " + failures + " failed, "
+            + totalNanos / 1000000 + " ms on " + threads + " threads");
+        Gdx.app.log("BatchCompiler", DirectBufferPool.shared().formatSummary());
+        return failures;
+    }
+
+    private SnippetResult processSnippet(File file) {
+        SnippetResult result = new SnippetResult(baseName(file));
+        ModelCompiler compiler = compilers.get();
+        Model model = null;
+        try {
+            String code = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+
+            long start = System.nanoTime();
+            CompiledClass compiled = compiler.compileSnippet(code);
+            result.compileNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            CapturedModel capture = compiler.captureModel(compiled, new ModelParameters());
+            capture.generate();
+            synchronized (MESH_LOCK) {
+                model = compiler.createMeshes(capture);
+            }
+            if (optimizeMeshes) {
+                // Rewrites the meshes' CPU-side buffers only
+                result.optimizeReport = MeshOptimizer.optimize(model);
+            }
+            if (mergeMeshes) {
+                synchronized (MESH_LOCK) {
+                    MergedModel merged = MeshMerger.merge(model);
+                    if (merged != null) {
+                        model.dispose();
+                        model = merged.getModel();
+                    }
+                }
+            }
+            if (quantizeVertices) {
+                synchronized (MESH_LOCK) {
+                    VertexQuantizer.Result quantized = VertexQuantizer.quantize(model);
+                    if (quantized != null) {
+                        model.dispose();
+                        model = quantized.getModel();
+                        result.vertexBytesBefore = quantized.getBytesBefore();
+                        result.vertexBytesAfter = quantized.getBytesAfter();
+                    }
+                }
+            }
+            result.buildNanos = System.nanoTime() - start;
+
+            for (Mesh mesh : model.meshes) {
+                result.vertices += mesh.getNumVertices();
+                result.indices += mesh.getNumIndices();
+            }
+            result.nodes = model.nodes.size;
+            result.drawCalls = model.meshParts.size;
+
+            start = System.nanoTime();
+            File output = new File(outputDir, result.name + ".obj");
+            Writer writer = Files.newBufferedWriter(output.toPath(), StandardCharsets.UTF_8);
+            try {
+                new ObjExporter().export(model, writer);
+            } finally {
+                writer.close();
+            }
+            if (binaryExport) {
+                File binaryOutput = new File(outputDir, result.name + ".gmb");
+                new BinaryModelExporter().export(model, binaryOutput);
+                result.binaryOutput = binaryOutput.getName();
+            }
+            if (gltfExport) {
+                File gltfOutput = new File(outputDir, result.name + ".glb");
+                new GltfExporter().exportGlb(model, gltfOutput);
+                result.gltfOutput = gltfOutput.getName();
+            }
+            result.exportNanos = System.nanoTime() - start;
+            result.output = output.getName();
+
+        } catch (Exception e) {
+            result.error = e.getMessage() != null ? e.getMessage() : e.toString();
+        } finally {
+            if (model != null) {
+                synchronized (MESH_LOCK) {
+                    model.dispose();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check that the class loaders of every compiled snippet were collected
+     * once the compilers released them, so long batch runs cannot pile up
+     * snippet classes in metaspace unnoticed.
+     */
+    private static ClassUnloading verifyClassUnloading(List<ClassUnloadTracker> trackers) {
+        ClassUnloading unloading = new ClassUnloading();
+        List<String> leakedKeys = new ArrayList<>();
+        try {
+            for (ClassUnloadTracker tracker : trackers) {
+                tracker.verifyReleasedUnloaded(CLASS_UNLOAD_TIMEOUT_MS);
+                unloading.defined += tracker.getTrackedCount();
+                leakedKeys.addAll(tracker.getLeakedKeys());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        unloading.leaked = leakedKeys.size();
+        if (leakedKeys.isEmpty()) {
+            Gdx.app.log("BatchCompiler", "Snippet classes unloaded: " + unloading.defined + " class loaders collected");
+        } else {
+            Gdx.app.error("BatchCompiler", "Snippet classes still loaded after the run: " + leakedKeys);
+        }
+        return unloading;
+    }
+
+    private void writeReport(List<SnippetResult> results, long totalNanos, int failures,
+                             ClassUnloading unloading) throws IOException {
+        Writer fileWriter = Files.newBufferedWriter(new File(outputDir, "report.json").toPath(), StandardCharsets.UTF_8);
+        JsonWriter json = new JsonWriter(fileWriter);
+        json.setOutputType(JsonWriter.OutputType.json);
+        try {
+            json.object();
+            json.set("snippets", results.size());
+            json.set("failures", failures);
+            json.set("threads", threads);
+            json.set("maxVertices", budget.getMaxVertices());
+            json.set("maxIndices", budget.getMaxIndices());
+            json.set("timeoutMs", budget.getTimeoutMillis());
+            json.set("totalMs", totalNanos / 1e6);
+            DirectBufferPool bufferPool = DirectBufferPool.shared();
+            json.set("bufferPoolHitRate", bufferPool.getHitRate());
+            json.set("bufferPoolPeakOffHeapBytes", bufferPool.getPeakOffHeapBytes());
+            json.set("classLoadersDefined", unloading.defined);
+            json.set("classLoadersLeaked", unloading.leaked);
+            json.array("results");
+            for (SnippetResult result : results) {
+                json.object();
+                json.set("name", result.name);
+                json.set("ok", result.error == null);
+                json.set("compileMs", result.compileNanos / 1e6);
+                json.set("buildMs", result.buildNanos / 1e6);
+                json.set("exportMs", result.exportNanos / 1e6);
+                json.set("nodes", result.nodes);
+                json.set("drawCalls", result.drawCalls);
+                if (result.optimizeReport != null) {
+                    json.set("verticesBeforeWeld", result.optimizeReport.getVerticesBefore());
+                    json.set("acmrBefore", result.optimizeReport.getAcmrBefore());
+                    json.set("acmrAfter", result.optimizeReport.getAcmrAfter());
+                }
+                if (result.vertexBytesBefore > 0) {
+                    json.set("vertexBytesBefore", result.vertexBytesBefore);
+                    json.set("vertexBytesAfter", result.vertexBytesAfter);
+                    json.set("vertexBytesSaved", result.vertexBytesBefore - result.vertexBytesAfter);
+                }
+                json.set("vertices", result.vertices);
+                json.set("indices", result.indices);
+                if (result.output != null) json.set("output", result.output);
+                if (result.binaryOutput != null) json.set("binaryOutput", result.binaryOutput);
+                if (result.gltfOutput != null) json.set("gltfOutput", result.gltfOutput);
+                if (result.error != null) json.set("error", result.error);
+                json.pop();
+            }
+            json.pop();
+            json.pop();
+        } finally {
+            json.close();
+        }
+    }
+
+    private static String formatBudget(ExecutionBudget budget) {
+        return "max vertices " + limit(budget.getMaxVertices()) + ", max indices " + limit(budget.getMaxIndices())
+            + ", timeout " + (budget.getTimeoutMillis() > 0 ? budget.getTimeoutMillis() + " ms" : "none");
+    }
+
+    private static String limit(long value) {
+        return value > 0 ? Long.toString(value) : "none";
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * Snippet class loaders defined during the run, and those still
+     * reachable after the compilers released them.
+     */
+    private static final class ClassUnloading {
+        long defined;
+        int leaked;
+    }
+
+    /**
+     * Outcome of one snippet.
+     */
+    private static final class SnippetResult {
+        final String name;
+        long compileNanos;
+        long buildNanos;
+        long exportNanos;
+        int nodes;
+        int drawCalls;
+        MeshOptimizer.Report optimizeReport;
+        long vertexBytesBefore;
+        long vertexBytesAfter;
+        long vertices;
+        long indices;
+        String output;
+        String binaryOutput;
+        String gltfOutput;
+        String error;
+
+        SnippetResult(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -11,6 +11,9 @@ import com.modeleditor.core.ModelEditorApplication;
 public class DesktopLauncher {
 
     public static void main(String[] args) {
+        // Start the startup clock before backend initialization
+        ModelEditorApplication.markLaunchTime();
+
         // Create application configuration
         Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
 